@@ -0,0 +1,158 @@
+package bench;
+
+import dao.AutorizadoDAO;
+import dao.BeneficiarioDAO;
+import dao.CertificadoDAO;
+import config.DatabaseConnection;
+import models.Autorizado;
+import models.Beneficiario;
+import models.Certificado;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base de datos H2 en memoria, en modo de compatibilidad MySQL, que reemplaza al servidor
+ * en los benchmarks. El esquema sale de db/db.sql: se ejecutan las tablas, índices y vistas,
+ * y se omiten los bloques DELIMITER (procedimientos y triggers), que H2 no interpreta.
+ * Los datos se generan de forma determinista y se cargan con los DAO, así cada corrida
+ * mide lo mismo.
+ */
+public final class BaseDeDatosEnMemoria {
+    private static final String URL = "jdbc:h2:mem:program_contigo;MODE=MySQL;DATABASE_TO_LOWER=TRUE;" +
+            "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+
+    static final String[] REGIONES = {"Lima", "Cusco", "Arequipa", "Piura", "Junín", "Puno", "Loreto", "Ica"};
+    static final String[] PARENTESCOS = {"hijo", "hija", "esposa", "madre", "hermano", "tutor", "vecino"};
+
+    private static int cargados = -1;
+
+    private BaseDeDatosEnMemoria() {
+    }
+
+    /**
+     * Crea el esquema y carga la cantidad indicada de beneficiarios (con certificados y
+     * autorizados) la primera vez que se llama en la JVM. DatabaseConnection queda apuntando
+     * a esta base, por eso debe llamarse antes de crear cualquier DAO.
+     */
+    public static synchronized void iniciar(int beneficiarios) {
+        if (cargados == beneficiarios) {
+            return;
+        }
+        if (cargados >= 0) {
+            throw new IllegalStateException("La base en memoria ya se cargó con " + cargados + " beneficiarios");
+        }
+
+        System.setProperty("contigo.db.url", URL);
+        System.setProperty("contigo.db.driver", "org.h2.Driver");
+        System.setProperty("contigo.db.usuario", "sa");
+        System.setProperty("contigo.db.clave", "");
+
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "")) {
+            crearEsquema(conn, Path.of(System.getProperty("contigo.bench.esquema", "db/db.sql")));
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo crear el esquema en memoria", e);
+        }
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            cargarDatos(conn, beneficiarios);
+            conn.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudieron cargar los datos de prueba", e);
+        }
+        cargados = beneficiarios;
+    }
+
+    static void crearEsquema(Connection conn, Path esquema) throws SQLException {
+        List<String> sentencias;
+        try {
+            sentencias = sentencias(Files.readAllLines(esquema, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer " + esquema.toAbsolutePath(), e);
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : sentencias) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    // Separa el script en sentencias, sin comentarios, bloques DELIMITER ni consultas sueltas
+    static List<String> sentencias(List<String> lineas) {
+        List<String> sentencias = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean enBloque = false;
+
+        for (String linea : lineas) {
+            String texto = linea.strip();
+            if (texto.toUpperCase().startsWith("DELIMITER")) {
+                enBloque = !texto.endsWith(";");
+                continue;
+            }
+            if (enBloque || texto.startsWith("--") || texto.isEmpty()) {
+                continue;
+            }
+
+            actual.append(texto).append('\n');
+            if (texto.endsWith(";")) {
+                String sql = actual.substring(0, actual.lastIndexOf(";")).strip();
+                actual.setLength(0);
+                String inicio = sql.toUpperCase();
+                if (!inicio.startsWith("CREATE DATABASE") && !inicio.startsWith("USE ")
+                        && !inicio.startsWith("SELECT")) {
+                    sentencias.add(sql);
+                }
+            }
+        }
+        return sentencias;
+    }
+
+    private static void cargarDatos(Connection conn, int cantidad) throws SQLException {
+        List<Beneficiario> beneficiarios = new ArrayList<>(cantidad);
+        List<Certificado> certificados = new ArrayList<>();
+        List<Autorizado> autorizados = new ArrayList<>();
+
+        for (int i = 0; i < cantidad; i++) {
+            Beneficiario b = beneficiario(i);
+            beneficiarios.add(b);
+            if (b.isTieneCertificadoDiscapacidad()) {
+                certificados.add(new Certificado("CERT-" + dni(i), dni(i),
+                        i % 5 == 0 ? "moderada" : "severa", i % 11 != 0));
+            }
+            if (i % 2 == 0) {
+                autorizados.add(new Autorizado(dni(cantidad + i), "Autorizado" + i, "Apellido" + (i % 97),
+                        dni(i), PARENTESCOS[i % PARENTESCOS.length]));
+            }
+        }
+
+        new BeneficiarioDAO().insertarEnLote(conn, beneficiarios);
+        new CertificadoDAO().insertarEnLote(conn, certificados);
+        new AutorizadoDAO().insertarEnLote(conn, autorizados);
+    }
+
+    static String dni(int i) {
+        return String.format("%08d", 10_000_000 + i);
+    }
+
+    // Beneficiario sintético número i; la misma i siempre da los mismos datos
+    static Beneficiario beneficiario(int i) {
+        Beneficiario b = new Beneficiario(dni(i), "Nombre" + i, "Apellido" + (i % 97),
+                i % 3 != 0, i % 7 == 0,
+                Beneficiario.CLASIFICACIONES.get(i % Beneficiario.CLASIFICACIONES.size()),
+                REGIONES[i % REGIONES.length]);
+        b.setFechaInscripcion(LocalDate.of(2024, 1, 1).plusDays(i % 500));
+        b.setPadronesCobrados(i % 64);
+        return b;
+    }
+}
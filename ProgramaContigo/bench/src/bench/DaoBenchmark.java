@@ -0,0 +1,102 @@
+package bench;
+
+import dao.AutorizadoDAO;
+import dao.BeneficiarioDAO;
+import dao.CertificadoDAO;
+import dao.Pagina;
+import models.Beneficiario;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas de los DAO contra la base en memoria cargada desde db/db.sql: búsquedas
+ * puntuales (con y sin caché), recorridos completos con su mapeo de filas y páginas
+ * del listado por región. Mide el camino JDBC completo, pool incluido.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+    @Param("10000")
+    public int beneficiarios;
+
+    private BeneficiarioDAO beneficiarioDAO;
+    private AutorizadoDAO autorizadoDAO;
+    private CertificadoDAO certificadoDAO;
+    private String tokenPagina20;
+    private int siguiente;
+
+    @Setup
+    public void preparar() {
+        BaseDeDatosEnMemoria.iniciar(beneficiarios);
+        beneficiarioDAO = new BeneficiarioDAO();
+        autorizadoDAO = new AutorizadoDAO();
+        certificadoDAO = new CertificadoDAO();
+
+        // Token de la página 20, para comparar una página profunda con la primera
+        Pagina<Beneficiario> pagina = beneficiarioDAO.paginaPorRegion("Lima", null, 20);
+        for (int i = 1; i < 20 && pagina.hayMas(); i++) {
+            pagina = beneficiarioDAO.paginaPorRegion("Lima", pagina.siguiente(), 20);
+        }
+        tokenPagina20 = pagina.siguiente();
+    }
+
+    private String siguienteDni() {
+        siguiente = (siguiente + 1) % beneficiarios;
+        return BaseDeDatosEnMemoria.dni(siguiente);
+    }
+
+    @Benchmark
+    public Beneficiario buscarPorDniConCache() {
+        return beneficiarioDAO.buscarPorDni(BaseDeDatosEnMemoria.dni(siguiente = (siguiente + 1) & 255));
+    }
+
+    @Benchmark
+    public Beneficiario buscarPorDniSinCache() {
+        String dni = siguienteDni();
+        BeneficiarioDAO.getCache().invalidar(dni);
+        return beneficiarioDAO.buscarPorDni(dni);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void recorrerBeneficiarios(Blackhole bh) {
+        beneficiarioDAO.recorrerTodos(false, bh::consume);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void recorrerBeneficiariosConCertificado(Blackhole bh) {
+        beneficiarioDAO.recorrerTodos(true, bh::consume);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void recorrerAutorizados(Blackhole bh) {
+        autorizadoDAO.recorrerTodos(bh::consume);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public Object obtenerCertificados() {
+        return certificadoDAO.obtenerTodos();
+    }
+
+    @Benchmark
+    public Pagina<Beneficiario> primeraPaginaPorRegion() {
+        return beneficiarioDAO.paginaPorRegion("Lima", null, 20);
+    }
+
+    @Benchmark
+    public Pagina<Beneficiario> paginaProfundaPorRegion() {
+        return beneficiarioDAO.paginaPorRegion("Lima", tokenPagina20, 20);
+    }
+}
@@ -0,0 +1,91 @@
+package bench;
+
+import dao.MapeadorBeneficiario;
+import models.Beneficiario;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el mapeo de filas a Beneficiario por nombre de columna (como estaba copiado en
+ * el DAO) contra MapeadorBeneficiario, que resuelve los índices una vez por ResultSet.
+ * Las filas vienen de un ResultSet en memoria para medir solo el mapeo; el resultado
+ * se informa directamente en filas por segundo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapeoBeneficiariosBenchmark {
+    private static final int FILAS = 100_000;
+
+    private static final List<String> COLUMNAS = List.of(
+            "dni", "nombre", "apellido", "tiene_certificado_discapacidad", "tiene_otros_ingresos",
+            "clasificacion_economica", "region", "pension_recibida", "fecha_inscripcion",
+            "padrones_cobrados", "activo", "elegible", "fecha_creacion", "fecha_actualizacion");
+
+    private List<Object[]> datos;
+
+    @Setup
+    public void preparar() {
+        datos = new ArrayList<>(FILAS);
+        Date fecha = Date.valueOf(LocalDate.of(2024, 1, 15));
+        for (int i = 0; i < FILAS; i++) {
+            Beneficiario b = BaseDeDatosEnMemoria.beneficiario(i);
+            datos.add(new Object[]{
+                    b.getDni(), b.getNombre(), b.getApellido(),
+                    b.isTieneCertificadoDiscapacidad(), b.isTieneOtrosIngresos(),
+                    b.getClasificacionEconomica(), b.getRegion(),
+                    i % 2 == 0 ? 350.0 : 0.0, fecha, b.getPadronesCobrados(),
+                    true, i % 4 == 0, fecha, fecha
+            });
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public void porNombre(Blackhole bh) throws SQLException {
+        ResultSet rs = ResultSetEnMemoria.crear(COLUMNAS, datos);
+        while (rs.next()) {
+            bh.consume(mapearPorNombre(rs));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public void porIndice(Blackhole bh) throws SQLException {
+        ResultSet rs = ResultSetEnMemoria.crear(COLUMNAS, datos);
+        MapeadorBeneficiario mapeador = new MapeadorBeneficiario(rs);
+        while (rs.next()) {
+            bh.consume(mapeador.mapear(rs));
+        }
+    }
+
+    // Mapeo por nombre tal como estaba repetido en BeneficiarioDAO
+    private static Beneficiario mapearPorNombre(ResultSet rs) throws SQLException {
+        Beneficiario beneficiario = new Beneficiario(
+                rs.getString("dni"),
+                rs.getString("nombre"),
+                rs.getString("apellido"),
+                rs.getBoolean("tiene_certificado_discapacidad"),
+                rs.getBoolean("tiene_otros_ingresos"),
+                rs.getString("clasificacion_economica"),
+                rs.getString("region")
+        );
+
+        beneficiario.setPensionRecibida(rs.getDouble("pension_recibida"));
+        beneficiario.setFechaInscripcion(rs.getDate("fecha_inscripcion").toLocalDate());
+        beneficiario.setPadronesCobrados(rs.getInt("padrones_cobrados"));
+        beneficiario.setElegibilidadRegistrada(rs.getBoolean("elegible"));
+
+        return beneficiario;
+    }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import models.Autorizado;
+import models.Beneficiario;
+import models.Certificado;
+import models.Parentesco;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métodos del modelo que se llaman por cada fila en los reportes y en la consola:
+ * la regla de elegibilidad, el texto del reporte, el cronograma y la validación
+ * de parentesco (la del autorizado ya evaluada y la del texto, como en la importación). Los objetos se arman una vez; cada invocación toma el siguiente.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModeloBenchmark {
+    private static final int CANTIDAD = 1024;
+
+    private Beneficiario[] beneficiarios;
+    private Autorizado[] autorizados;
+    private int siguiente;
+
+    @Setup
+    public void preparar() {
+        beneficiarios = new Beneficiario[CANTIDAD];
+        autorizados = new Autorizado[CANTIDAD];
+        for (int i = 0; i < CANTIDAD; i++) {
+            Beneficiario b = BaseDeDatosEnMemoria.beneficiario(i);
+            // Un tercio con certificado asociado, para recorrer las dos ramas de la regla
+            if (i % 3 == 1) {
+                b.setCertificadoMedico(new Certificado("CERT-" + b.getDni(), b.getDni(),
+                        i % 5 == 0 ? "moderada" : "severa", i % 11 != 0));
+            }
+            beneficiarios[i] = b;
+            autorizados[i] = new Autorizado(BaseDeDatosEnMemoria.dni(CANTIDAD + i), "Autorizado" + i,
+                    "Apellido" + i, b.getDni(),
+                    BaseDeDatosEnMemoria.PARENTESCOS[i % BaseDeDatosEnMemoria.PARENTESCOS.length]);
+        }
+    }
+
+    private int indice() {
+        siguiente = (siguiente + 1) & (CANTIDAD - 1);
+        return siguiente;
+    }
+
+    @Benchmark
+    public boolean verificarElegibilidad() {
+        return beneficiarios[indice()].verificarElegibilidad();
+    }
+
+    @Benchmark
+    public String generarReporte() {
+        return beneficiarios[indice()].generarReporte();
+    }
+
+    @Benchmark
+    public String generarCronogramaPagos() {
+        return beneficiarios[indice()].generarCronogramaPagos();
+    }
+
+    @Benchmark
+    public boolean esParentescoValido() {
+        return autorizados[indice()].esParentescoValido();
+    }
+
+    @Benchmark
+    public boolean validarParentesco() {
+        return Parentesco.esValido(autorizados[indice()].getParentesco());
+    }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ResultSet de solo avance sobre filas en memoria, para medir el costo del mapeo sin
+ * la base de datos de por medio. Igual que el driver, la búsqueda por nombre pasa por
+ * un mapa etiqueta -> índice en cada llamada.
+ */
+final class ResultSetEnMemoria {
+
+    private ResultSetEnMemoria() {
+    }
+
+    static ResultSet crear(List<String> columnas, List<Object[]> filas) {
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < columnas.size(); i++) {
+            indices.put(columnas.get(i).toLowerCase(), i + 1);
+        }
+
+        ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(
+                ResultSetMetaData.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class},
+                (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "getColumnCount" -> columnas.size();
+                    case "getColumnLabel", "getColumnName" -> columnas.get((Integer) args[0] - 1);
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+
+        int[] fila = {-1};
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, metodo, args) -> {
+                    switch (metodo.getName()) {
+                        case "next":
+                            return ++fila[0] < filas.size();
+                        case "getMetaData":
+                            return meta;
+                        case "close":
+                            return null;
+                        case "findColumn":
+                            return buscar(indices, (String) args[0]);
+                        default:
+                            break;
+                    }
+
+                    int indice = args[0] instanceof String nombre ? buscar(indices, nombre) : (Integer) args[0];
+                    Object valor = filas.get(fila[0])[indice - 1];
+                    return switch (metodo.getName()) {
+                        case "getString" -> (String) valor;
+                        case "getBoolean" -> valor != null && (Boolean) valor;
+                        case "getDouble" -> valor == null ? 0.0 : (Double) valor;
+                        case "getInt" -> valor == null ? 0 : (Integer) valor;
+                        case "getDate" -> (Date) valor;
+                        default -> throw new UnsupportedOperationException(metodo.getName());
+                    };
+                });
+    }
+
+    private static int buscar(Map<String, Integer> indices, String nombre) throws SQLException {
+        Integer indice = indices.get(nombre.toLowerCase());
+        if (indice == null) {
+            throw new SQLException("Columna inexistente: " + nombre);
+        }
+        return indice;
+    }
+}
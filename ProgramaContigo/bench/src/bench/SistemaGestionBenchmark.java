@@ -0,0 +1,71 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import services.InstantaneaBeneficiarios;
+import services.SistemaGestion;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminos de agregación de SistemaGestion: la construcción de la instantánea (el único
+ * recorrido de la base que alimenta estadísticas, alertas y el reporte general) y las
+ * consultas que después se resuelven en memoria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SistemaGestionBenchmark {
+    @Param("10000")
+    public int beneficiarios;
+
+    private SistemaGestion sistema;
+    private InstantaneaBeneficiarios instantanea;
+
+    @Setup
+    public void preparar() {
+        BaseDeDatosEnMemoria.iniciar(beneficiarios);
+        sistema = new SistemaGestion().iniciar();
+        instantanea = sistema.obtenerInstantanea();
+    }
+
+    // Con vigencia cero cada llamada vuelve a recorrer la base
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Dcontigo.instantanea.vigenciaMs=0")
+    public InstantaneaBeneficiarios construirInstantanea() {
+        return sistema.obtenerInstantanea();
+    }
+
+    @Benchmark
+    public Map<String, Long> estadisticasPorRegion() {
+        return instantanea.contarPorRegion(instantanea.todos());
+    }
+
+    @Benchmark
+    public Map<String, Long> elegiblesPorRegion() {
+        return instantanea.contarPorRegion(instantanea.elegibles());
+    }
+
+    @Benchmark
+    public Map<String, Long> clasificacionDeNoElegibles() {
+        return instantanea.contarPorClasificacion(instantanea.noElegibles());
+    }
+
+    @Benchmark
+    public long alertas() {
+        long casos = 0;
+        for (BitSet filas : instantanea.alertas().values()) {
+            casos += filas.cardinality();
+        }
+        return casos;
+    }
+
+    @Benchmark
+    public String reporteGeneral() {
+        return sistema.generarReporte();
+    }
+}
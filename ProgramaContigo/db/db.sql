@@ -1,3 +1,5 @@
+-- Esquema completo para una base nueva; una existente se actualiza con
+-- db/migracion_NN_*.sql en orden numérico (ver README)
 CREATE DATABASE IF NOT EXISTS program_contigo;
 USE program_contigo;
 
@@ -12,12 +14,11 @@ CREATE TABLE beneficiarios (
                                region VARCHAR(100) NOT NULL,
                                pension_recibida DECIMAL(10,2) NOT NULL DEFAULT 0.00,
                                fecha_inscripcion DATE NOT NULL,
-                               padron_1_cobrado BOOLEAN NOT NULL DEFAULT FALSE,
-                               padron_2_cobrado BOOLEAN NOT NULL DEFAULT FALSE,
-                               padron_3_cobrado BOOLEAN NOT NULL DEFAULT FALSE,
-                               padron_4_cobrado BOOLEAN NOT NULL DEFAULT FALSE,
-                               padron_5_cobrado BOOLEAN NOT NULL DEFAULT FALSE,
-                               padron_6_cobrado BOOLEAN NOT NULL DEFAULT FALSE,
+                               -- Padrones cobrados como máscara de bits: el bit (n - 1) corresponde al padrón n
+                               padrones_cobrados TINYINT UNSIGNED NOT NULL DEFAULT 0,
+                               activo BOOLEAN NOT NULL DEFAULT TRUE,
+                               -- Elegibilidad precalculada; la mantienen los DAO (ver ElegibilidadDAO)
+                               elegible BOOLEAN NOT NULL DEFAULT FALSE,
                                fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                                fecha_actualizacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
@@ -81,6 +82,9 @@ CREATE TABLE pagos_realizados (
                                   UNIQUE KEY uq_beneficiario_padron (dni_beneficiario, numero_padron)
 );
 
+-- Un solo año de padrones a la vez: pagos_realizados y la máscara padrones_cobrados de
+-- beneficiarios se refieren al padrón solo por su número. Cambiar de año exige reemplazar
+-- las filas de padrones y reiniciar esas máscaras a mano.
 ALTER TABLE padrones
     ADD CONSTRAINT uk_numero_padron UNIQUE (numero_padron);
 
@@ -100,29 +104,39 @@ INSERT INTO padrones (numero_padron, periodo_meses, fecha_pago, monto) VALUES
                                                                            (6, 'noviembre-diciembre', '2025-12-05', 300.00);
 
 -- Índices para mejorar el rendimiento
-CREATE INDEX idx_beneficiarios_region ON beneficiarios(region);
+-- Cubre el filtro por región y el orden del listado paginado (apellido, nombre, dni)
+CREATE INDEX idx_beneficiarios_region ON beneficiarios(region, apellido, nombre, dni);
 CREATE INDEX idx_beneficiarios_clasificacion ON beneficiarios(clasificacion_economica);
 CREATE INDEX idx_beneficiarios_fecha_inscripcion ON beneficiarios(fecha_inscripcion);
+-- Selección de pendientes de un padrón: un solo rango de elegibles en orden de DNI; la máscara
+-- se filtra en el índice y el LIMIT corta el recorrido en cada lote
+CREATE INDEX idx_beneficiarios_pendientes ON beneficiarios(elegible, dni, padrones_cobrados);
+-- Reportes de elegibles / no elegibles entre los activos
+CREATE INDEX idx_beneficiarios_elegibilidad ON beneficiarios(activo, elegible, dni);
 CREATE INDEX idx_autorizados_beneficiario ON autorizados(dni_beneficiario);
+CREATE INDEX idx_autorizados_nombre ON autorizados(apellido, nombre, dni);
 CREATE INDEX idx_certificados_paciente ON certificados(dni_paciente);
+CREATE INDEX idx_certificados_vigente_emision ON certificados(vigente, dni_paciente, fecha_emision);
+CREATE INDEX idx_certificados_emision ON certificados(fecha_emision, codigo);
 CREATE INDEX idx_pagos_beneficiario ON pagos_realizados(dni_beneficiario);
 CREATE INDEX idx_pagos_fecha ON pagos_realizados(fecha_pago);
+-- Registro de cambios: filas modificadas después de una marca (ver CambiosDAO)
+CREATE INDEX idx_beneficiarios_actualizacion ON beneficiarios(fecha_actualizacion, dni);
+CREATE INDEX idx_autorizados_actualizacion ON autorizados(fecha_actualizacion, dni);
+CREATE INDEX idx_certificados_actualizacion ON certificados(fecha_actualizacion, codigo);
 
 -- Vistas útiles para reportes
 CREATE VIEW v_beneficiarios_elegibles AS
-SELECT
-    b.*,
-    c.grado_discapacidad,
-    c.vigente as certificado_vigente
-FROM beneficiarios b
-         LEFT JOIN certificados c ON b.dni = c.dni_paciente
-WHERE b.tiene_certificado_discapacidad = TRUE
-  AND b.tiene_otros_ingresos = FALSE
-  AND b.clasificacion_economica IN ('pobre', 'pobre extremo')
-  AND (c.vigente = TRUE AND c.grado_discapacidad = 'severa' OR c.codigo IS NULL);
+SELECT * FROM beneficiarios WHERE elegible = TRUE;
 
 SELECT * FROM v_beneficiarios_elegibles;
 
+CREATE VIEW v_beneficiarios_activos AS
+SELECT * FROM beneficiarios WHERE activo = TRUE;
+
+CREATE VIEW v_beneficiarios_inactivos AS
+SELECT * FROM beneficiarios WHERE activo = FALSE;
+
 CREATE VIEW v_resumen_pagos AS
 SELECT
     b.dni,
@@ -149,15 +163,8 @@ SELECT
     b.tiene_certificado_discapacidad,
     b.tiene_otros_ingresos,
     b.clasificacion_economica,
-    CASE
-        WHEN c.vigente = TRUE AND c.grado_discapacidad = 'severa'
-            AND b.tiene_otros_ingresos = FALSE
-            AND b.clasificacion_economica IN ('pobre', 'pobre extremo')
-            THEN 'ELEGIBLE'
-        ELSE 'NO ELEGIBLE'
-        END as estado_elegibilidad
+    CASE WHEN b.elegible = TRUE THEN 'ELEGIBLE' ELSE 'NO ELEGIBLE' END as estado_elegibilidad
 FROM beneficiarios b
-         LEFT JOIN certificados c ON b.dni = c.dni_paciente
 WHERE b.dni = p_dni;
 END //
 
@@ -181,8 +188,8 @@ IF v_count > 0 THEN
 ELSE
         -- Verificar elegibilidad
 SELECT COUNT(*) INTO v_count
-FROM v_beneficiarios_elegibles
-WHERE dni = p_dni;
+FROM beneficiarios
+WHERE dni = p_dni AND elegible = TRUE;
 
 IF v_count > 0 THEN
             -- Procesar pago
@@ -192,12 +199,7 @@ IF v_count > 0 THEN
             -- Actualizar beneficiario
 UPDATE beneficiarios
 SET pension_recibida = pension_recibida + 300.00,
-    padron_1_cobrado = CASE WHEN p_numero_padron = 1 THEN TRUE ELSE padron_1_cobrado END,
-    padron_2_cobrado = CASE WHEN p_numero_padron = 2 THEN TRUE ELSE padron_2_cobrado END,
-    padron_3_cobrado = CASE WHEN p_numero_padron = 3 THEN TRUE ELSE padron_3_cobrado END,
-    padron_4_cobrado = CASE WHEN p_numero_padron = 4 THEN TRUE ELSE padron_4_cobrado END,
-    padron_5_cobrado = CASE WHEN p_numero_padron = 5 THEN TRUE ELSE padron_5_cobrado END,
-    padron_6_cobrado = CASE WHEN p_numero_padron = 6 THEN TRUE ELSE padron_6_cobrado END
+    padrones_cobrados = padrones_cobrados | (1 << (p_numero_padron - 1))
 WHERE dni = p_dni;
 
 SET p_resultado = 'PAGO PROCESADO EXITOSAMENTE';
@@ -226,8 +228,20 @@ ALTER TABLE auditoria_beneficiarios
     ADD CONSTRAINT fk_auditoria_beneficiario
         FOREIGN KEY (dni) REFERENCES beneficiarios(dni) ON DELETE CASCADE;
 
+CREATE INDEX idx_auditoria_modificacion ON auditoria_beneficiarios(fecha_modificacion, id);
+
 SELECT * FROM auditoria_beneficiarios;
 
+-- Última marca leída del registro de cambios por cada consumidor y tabla
+CREATE TABLE marcas_cambios (
+                                consumidor VARCHAR(50) NOT NULL,
+                                tabla VARCHAR(30) NOT NULL,
+                                fecha TIMESTAMP(3) NOT NULL,
+                                clave VARCHAR(20) NOT NULL,
+                                fecha_actualizacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                                PRIMARY KEY (consumidor, tabla)
+);
+
 
 -- Triggers para auditoría
 DELIMITER //
@@ -0,0 +1,55 @@
+-- Migración 01 de una base existente: columnas padron_N_cobrado -> máscara padrones_cobrados
+-- Después de ejecutarla, volver a crear sp_procesar_pago y las vistas desde db.sql
+-- Se puede volver a ejecutar: cada paso se salta si ya está hecho (MySQL no tiene
+-- ADD COLUMN / DROP INDEX IF EXISTS, así que se consulta information_schema)
+USE program_contigo;
+
+SET @sql := IF((SELECT COUNT(*) FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'beneficiarios'
+                  AND column_name = 'padrones_cobrados') = 0,
+               'ALTER TABLE beneficiarios ADD COLUMN padrones_cobrados TINYINT UNSIGNED NOT NULL DEFAULT 0 AFTER fecha_inscripcion',
+               'DO 0');
+PREPARE paso FROM @sql;
+EXECUTE paso;
+DEALLOCATE PREPARE paso;
+
+-- Mientras existan las columnas viejas, la máscara se vuelve a calcular desde ellas
+SET @columnas_viejas := (SELECT COUNT(*) FROM information_schema.columns
+                         WHERE table_schema = DATABASE() AND table_name = 'beneficiarios'
+                           AND column_name = 'padron_1_cobrado');
+
+SET @sql := IF(@columnas_viejas > 0,
+               'UPDATE beneficiarios
+                SET padrones_cobrados = padron_1_cobrado
+                                      | (padron_2_cobrado << 1)
+                                      | (padron_3_cobrado << 2)
+                                      | (padron_4_cobrado << 3)
+                                      | (padron_5_cobrado << 4)
+                                      | (padron_6_cobrado << 5)',
+               'DO 0');
+PREPARE paso FROM @sql;
+EXECUTE paso;
+DEALLOCATE PREPARE paso;
+
+SET @sql := IF(@columnas_viejas > 0,
+               'ALTER TABLE beneficiarios
+                    DROP COLUMN padron_1_cobrado,
+                    DROP COLUMN padron_2_cobrado,
+                    DROP COLUMN padron_3_cobrado,
+                    DROP COLUMN padron_4_cobrado,
+                    DROP COLUMN padron_5_cobrado,
+                    DROP COLUMN padron_6_cobrado',
+               'DO 0');
+PREPARE paso FROM @sql;
+EXECUTE paso;
+DEALLOCATE PREPARE paso;
+
+-- Solo si falta: las migraciones 02 y 05 lo redefinen y no hay que volver atrás
+SET @sql := IF((SELECT COUNT(*) FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'beneficiarios'
+                  AND index_name = 'idx_beneficiarios_pendientes') = 0,
+               'CREATE INDEX idx_beneficiarios_pendientes ON beneficiarios(activo, padrones_cobrados, dni)',
+               'DO 0');
+PREPARE paso FROM @sql;
+EXECUTE paso;
+DEALLOCATE PREPARE paso;
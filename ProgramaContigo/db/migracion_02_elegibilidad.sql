@@ -0,0 +1,54 @@
+-- Migración 02 de una base existente: columna de elegibilidad precalculada
+-- Después de ejecutarla, volver a crear v_beneficiarios_elegibles, sp_verificar_elegibilidad
+-- y sp_procesar_pago desde db.sql
+-- Se puede volver a ejecutar: la columna y los índices se tocan solo si faltan o si siguen
+-- como los dejó la migración 01
+USE program_contigo;
+
+SET @sql := IF((SELECT COUNT(*) FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'beneficiarios'
+                  AND column_name = 'elegible') = 0,
+               'ALTER TABLE beneficiarios ADD COLUMN elegible BOOLEAN NOT NULL DEFAULT FALSE AFTER activo',
+               'DO 0');
+PREPARE paso FROM @sql;
+EXECUTE paso;
+DEALLOCATE PREPARE paso;
+
+-- Misma regla que ElegibilidadDAO; también puede usarse la opción de reconstrucción del menú
+UPDATE beneficiarios b
+SET b.elegible = (
+        b.activo = TRUE AND b.tiene_otros_ingresos = FALSE
+        AND b.clasificacion_economica IN ('pobre', 'pobre extremo')
+        AND COALESCE((SELECT c.grado_discapacidad = 'severa'
+                      FROM certificados c
+                      WHERE c.dni_paciente = b.dni AND c.vigente = TRUE
+                      ORDER BY c.fecha_emision DESC, c.codigo DESC
+                      LIMIT 1),
+                     b.tiene_certificado_discapacidad));
+
+-- Columnas actuales del índice (NULL si no existe); la migración 05 lo redefine después
+SET @definicion := (SELECT GROUP_CONCAT(column_name ORDER BY seq_in_index)
+                    FROM information_schema.statistics
+                    WHERE table_schema = DATABASE() AND table_name = 'beneficiarios'
+                      AND index_name = 'idx_beneficiarios_pendientes');
+
+SET @sql := CASE
+    WHEN @definicion IS NULL THEN
+        'CREATE INDEX idx_beneficiarios_pendientes ON beneficiarios(elegible, padrones_cobrados, dni)'
+    WHEN @definicion = 'activo,padrones_cobrados,dni' THEN
+        'ALTER TABLE beneficiarios DROP INDEX idx_beneficiarios_pendientes,
+             ADD INDEX idx_beneficiarios_pendientes (elegible, padrones_cobrados, dni)'
+    ELSE 'DO 0'
+END;
+PREPARE paso FROM @sql;
+EXECUTE paso;
+DEALLOCATE PREPARE paso;
+
+SET @sql := IF((SELECT COUNT(*) FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'beneficiarios'
+                  AND index_name = 'idx_beneficiarios_elegibilidad') = 0,
+               'CREATE INDEX idx_beneficiarios_elegibilidad ON beneficiarios(activo, elegible, dni)',
+               'DO 0');
+PREPARE paso FROM @sql;
+EXECUTE paso;
+DEALLOCATE PREPARE paso;
@@ -0,0 +1,7 @@
+-- Migración 03 de una base existente: índices para los listados paginados por clave
+USE program_contigo;
+
+DROP INDEX idx_beneficiarios_region ON beneficiarios;
+CREATE INDEX idx_beneficiarios_region ON beneficiarios(region, apellido, nombre, dni);
+CREATE INDEX idx_autorizados_nombre ON autorizados(apellido, nombre, dni);
+CREATE INDEX idx_certificados_emision ON certificados(fecha_emision, codigo);
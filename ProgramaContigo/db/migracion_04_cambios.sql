@@ -0,0 +1,16 @@
+-- Migración 04 de una base existente: índices y tabla de marcas para el registro de cambios
+USE program_contigo;
+
+CREATE INDEX idx_beneficiarios_actualizacion ON beneficiarios(fecha_actualizacion, dni);
+CREATE INDEX idx_autorizados_actualizacion ON autorizados(fecha_actualizacion, dni);
+CREATE INDEX idx_certificados_actualizacion ON certificados(fecha_actualizacion, codigo);
+CREATE INDEX idx_auditoria_modificacion ON auditoria_beneficiarios(fecha_modificacion, id);
+
+CREATE TABLE marcas_cambios (
+                                consumidor VARCHAR(50) NOT NULL,
+                                tabla VARCHAR(30) NOT NULL,
+                                fecha TIMESTAMP(3) NOT NULL,
+                                clave VARCHAR(20) NOT NULL,
+                                fecha_actualizacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                                PRIMARY KEY (consumidor, tabla)
+);
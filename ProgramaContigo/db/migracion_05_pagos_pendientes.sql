@@ -0,0 +1,23 @@
+-- Migración 05 de una base existente: índice de pendientes de pago en orden de DNI
+-- Con (elegible, padrones_cobrados, dni), la lista de máscaras partía el recorrido en 32 rangos
+-- que había que ordenar por DNI en cada lote; así cada lote lee solo sus filas
+-- Requiere la migración 02 (columna elegible). Se puede volver a ejecutar: si el índice ya
+-- tiene la definición nueva no se toca
+USE program_contigo;
+
+SET @definicion := (SELECT GROUP_CONCAT(column_name ORDER BY seq_in_index)
+                    FROM information_schema.statistics
+                    WHERE table_schema = DATABASE() AND table_name = 'beneficiarios'
+                      AND index_name = 'idx_beneficiarios_pendientes');
+
+SET @sql := CASE
+    WHEN @definicion IS NULL THEN
+        'CREATE INDEX idx_beneficiarios_pendientes ON beneficiarios(elegible, dni, padrones_cobrados)'
+    WHEN @definicion <> 'elegible,dni,padrones_cobrados' THEN
+        'ALTER TABLE beneficiarios DROP INDEX idx_beneficiarios_pendientes,
+             ADD INDEX idx_beneficiarios_pendientes (elegible, dni, padrones_cobrados)'
+    ELSE 'DO 0'
+END;
+PREPARE paso FROM @sql;
+EXECUTE paso;
+DEALLOCATE PREPARE paso;
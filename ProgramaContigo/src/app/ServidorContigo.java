@@ -0,0 +1,715 @@
+package app;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import config.HistogramaLatencia;
+import config.Metricas;
+import dao.Cambios;
+import dao.CambiosDAO;
+import dao.Pagina;
+import models.Autorizado;
+import models.Beneficiario;
+import models.Certificado;
+import models.ClasificacionEconomica;
+import models.GradoDiscapacidad;
+import models.Persona;
+import services.Json;
+import services.SistemaGestion;
+import services.SistemaGestionAsincrono;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * API HTTP/JSON del Sistema CONTIGO para atender varias ventanillas desde una misma JVM.
+ * Usa el servidor HTTP del JDK con un hilo virtual por petición y delega en
+ * {@link SistemaGestionAsincrono}, que acota el acceso a la base al tamaño del pool.
+ *
+ * Límites por petición:
+ * - a lo sumo -Dcontigo.http.maxPeticiones peticiones en curso (256 por defecto); las que
+ *   exceden el límite se rechazan de inmediato con 503 en lugar de encolarse;
+ * - cada petición tiene -Dcontigo.http.timeoutMs para completarse (5000 por defecto); al
+ *   vencer se responde 504. La operación JDBC en curso no se interrumpe: termina por su cuenta
+ *   dentro del límite de concurrencia de la capa asíncrona.
+ *
+ * Acceso: main() escucha solo en 127.0.0.1 salvo que -Dcontigo.http.host indique otra
+ * dirección, y para eso exige -Dcontigo.http.token. Con token configurado, toda petición
+ * debe traer "Authorization: Bearer {token}" o recibe 401.
+ *
+ * Rutas:
+ *   GET  /beneficiarios/{dni}               GET  /beneficiarios?region=..&pagina=..
+ *   POST /beneficiarios                     GET  /beneficiarios/{dni}/autorizados
+ *   GET  /autorizados/{dni}                 GET  /autorizados?pagina=..
+ *   GET  /autorizados?beneficiarios=dni,..  POST /autorizados
+ *   GET  /certificados/{dniPaciente}        GET  /certificados?pagina=..
+ *   POST /certificados                      POST /pagos
+ *   GET  /reportes/general|estadisticas|alertas
+ *   GET  /cambios/beneficiarios|autorizados|certificados|auditoria?desde=..&limite=..
+ *   GET  /metricas
+ */
+public class ServidorContigo {
+    private static final int MAX_CUERPO = 16 * 1024;
+    // DNI de beneficiario admitidos en una consulta de autorizados por lote
+    private static final int MAX_DNIS_CONSULTA = 1000;
+    // Filas por respuesta del registro de cambios
+    private static final int MAX_CAMBIOS = 1000;
+
+    private final SistemaGestionAsincrono sistema;
+    private final HttpServer servidor;
+    private final ExecutorService hilos;
+    private final Semaphore enCurso;
+    private final int maxPeticiones;
+    private final long timeoutMs;
+    private final byte[] token; // null: sin autenticación
+    private final LongAdder rechazadas = new LongAdder();
+    private final LongAdder vencidas = new LongAdder();
+
+    // Atiende una petición ya admitida; las excepciones se traducen a códigos HTTP en atender()
+    @FunctionalInterface
+    private interface Manejador {
+        Respuesta atender(Peticion peticion) throws Exception;
+    }
+
+    private record Respuesta(int estado, String tipo, String cuerpo) {
+        static Respuesta json(int estado, Object valor) {
+            return new Respuesta(estado, "application/json; charset=utf-8", Json.escribir(valor));
+        }
+
+        static Respuesta texto(String texto) {
+            return new Respuesta(200, "text/plain; charset=utf-8", texto);
+        }
+
+        static Respuesta error(int estado, String mensaje) {
+            return json(estado, Map.of("error", mensaje));
+        }
+    }
+
+    private static final class NoEncontrado extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        NoEncontrado(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    /**
+     * Datos de una petición y su plazo. Todas las esperas de una misma petición descuentan
+     * del mismo plazo, así una operación compuesta no puede superar el timeout configurado.
+     */
+    private final class Peticion {
+        private final HttpExchange intercambio;
+        private final long limite;
+        private final String[] ruta;
+
+        Peticion(HttpExchange intercambio, long inicio) {
+            this.intercambio = intercambio;
+            this.limite = inicio + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            String contexto = intercambio.getHttpContext().getPath();
+            String resto = intercambio.getRequestURI().getPath().substring(contexto.length());
+            this.ruta = resto.isEmpty() || resto.equals("/") ? new String[0] : resto.substring(1).split("/");
+        }
+
+        String metodo() {
+            return intercambio.getRequestMethod();
+        }
+
+        // Segmentos de la ruta después del contexto; /beneficiarios/123 -> ["123"]
+        String[] ruta() {
+            return ruta;
+        }
+
+        String parametro(String nombre) {
+            String consulta = intercambio.getRequestURI().getRawQuery();
+            if (consulta == null) {
+                return null;
+            }
+            for (String par : consulta.split("&")) {
+                int igual = par.indexOf('=');
+                String clave = URLDecoder.decode(igual < 0 ? par : par.substring(0, igual), StandardCharsets.UTF_8);
+                if (clave.equals(nombre)) {
+                    return igual < 0 ? "" : URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8);
+                }
+            }
+            return null;
+        }
+
+        Map<String, Object> cuerpo() throws IOException {
+            try (InputStream entrada = intercambio.getRequestBody()) {
+                byte[] bytes = entrada.readNBytes(MAX_CUERPO + 1);
+                if (bytes.length > MAX_CUERPO) {
+                    throw new IllegalArgumentException("El cuerpo supera " + MAX_CUERPO + " bytes");
+                }
+                return Json.leerObjeto(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+
+        <T> T esperar(CompletableFuture<T> futuro) throws ExecutionException, InterruptedException, TimeoutException {
+            return futuro.get(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public ServidorContigo(SistemaGestionAsincrono sistema, InetSocketAddress direccion, int backlog,
+                           int maxPeticiones, long timeoutMs) throws IOException {
+        this(sistema, direccion, backlog, maxPeticiones, timeoutMs, null);
+    }
+
+    public ServidorContigo(SistemaGestionAsincrono sistema, InetSocketAddress direccion, int backlog,
+                           int maxPeticiones, long timeoutMs, String token) throws IOException {
+        if (maxPeticiones < 1 || timeoutMs < 1) {
+            throw new IllegalArgumentException("maxPeticiones y timeoutMs deben ser positivos");
+        }
+        this.sistema = sistema;
+        this.maxPeticiones = maxPeticiones;
+        this.timeoutMs = timeoutMs;
+        this.token = token == null || token.isBlank() ? null : token.getBytes(StandardCharsets.UTF_8);
+        this.enCurso = new Semaphore(maxPeticiones);
+        this.hilos = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("contigo-http-", 0).factory());
+        this.servidor = HttpServer.create(direccion, backlog);
+        this.servidor.setExecutor(hilos);
+
+        servidor.createContext("/beneficiarios", atender("beneficiarios", this::beneficiarios));
+        servidor.createContext("/autorizados", atender("autorizados", this::autorizados));
+        servidor.createContext("/certificados", atender("certificados", this::certificados));
+        servidor.createContext("/pagos", atender("pagos", this::pagos));
+        servidor.createContext("/reportes", atender("reportes", this::reportes));
+        servidor.createContext("/cambios", atender("cambios", this::cambios));
+        servidor.createContext("/metricas", atender("metricas", this::metricas));
+        servidor.createContext("/", atender("desconocida", p -> Respuesta.error(404, "Ruta inexistente")));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int puerto = Integer.getInteger("contigo.http.puerto", 8080);
+        String host = System.getProperty("contigo.http.host", "127.0.0.1");
+        String token = System.getProperty("contigo.http.token");
+        InetSocketAddress direccion = new InetSocketAddress(host, puerto);
+        if (direccion.isUnresolved()) {
+            System.err.println("No se pudo resolver -Dcontigo.http.host=" + host);
+            return;
+        }
+        if (!direccion.getAddress().isLoopbackAddress() && (token == null || token.isBlank())) {
+            System.err.println("Para escuchar en " + host + " hace falta -Dcontigo.http.token: " +
+                    "la API no tiene otra forma de autenticar a quien llama");
+            return;
+        }
+
+        SistemaGestionAsincrono sistema = new SistemaGestionAsincrono(new SistemaGestion().iniciar());
+        ServidorContigo servidor = new ServidorContigo(sistema, direccion,
+                Integer.getInteger("contigo.http.backlog", 1024),
+                Integer.getInteger("contigo.http.maxPeticiones", 256),
+                Long.getLong("contigo.http.timeoutMs", 5_000L),
+                token);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.detener(2);
+            sistema.close();
+        }));
+        servidor.iniciar();
+        System.out.println("=== SISTEMA CONTIGO - API HTTP en " + host + ":" + puerto + " ===");
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    // Deja de aceptar conexiones y espera hasta segundosEspera a que terminen las peticiones en curso
+    public void detener(int segundosEspera) {
+        servidor.stop(segundosEspera);
+        hilos.shutdown();
+    }
+
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Envuelve un manejador con el control de admisión, el plazo, la traducción de errores
+     * a códigos HTTP y la medición de latencia (ServidorContigo.{nombre} en config.Metricas).
+     */
+    private HttpHandler atender(String nombre, Manejador manejador) {
+        HistogramaLatencia latencia = Metricas.operacion("ServidorContigo." + nombre);
+        return intercambio -> {
+            long inicio = System.nanoTime();
+            try (intercambio) {
+                if (token != null && !autenticada(intercambio)) {
+                    intercambio.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                    responder(intercambio, Respuesta.error(401, "Falta el token de acceso o no es válido"));
+                    return;
+                }
+                if (!enCurso.tryAcquire()) {
+                    rechazadas.increment();
+                    intercambio.getResponseHeaders().set("Retry-After", "1");
+                    responder(intercambio, Respuesta.error(503, "Servidor ocupado, reintente en unos segundos"));
+                    return;
+                }
+                try {
+                    Respuesta respuesta = resolver(new Peticion(intercambio, inicio), manejador);
+                    if (respuesta.estado() >= 500) {
+                        latencia.error();
+                    }
+                    responder(intercambio, respuesta);
+                } finally {
+                    enCurso.release();
+                    latencia.registrar(inicio);
+                }
+            }
+        };
+    }
+
+    // Compara el token de "Authorization: Bearer ..." con el configurado, en tiempo constante
+    private boolean autenticada(HttpExchange intercambio) {
+        String cabecera = intercambio.getRequestHeaders().getFirst("Authorization");
+        if (cabecera == null || !cabecera.startsWith("Bearer ")) {
+            return false;
+        }
+        byte[] recibido = cabecera.substring("Bearer ".length()).strip().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(token, recibido);
+    }
+
+    private Respuesta resolver(Peticion peticion, Manejador manejador) {
+        try {
+            return manejador.atender(peticion);
+        } catch (TimeoutException e) {
+            vencidas.increment();
+            return Respuesta.error(504, "La operación no terminó en " + timeoutMs + " ms");
+        } catch (NoEncontrado e) {
+            return Respuesta.error(404, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return Respuesta.error(400, e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException causa) {
+                return Respuesta.error(400, causa.getMessage());
+            }
+            if (e.getCause() instanceof SQLException) {
+                System.err.println("La base no respondió al atender " + peticion.metodo() + " " +
+                        peticion.intercambio.getRequestURI() + ": " + e.getCause().getMessage());
+                return Respuesta.error(503, "La base de datos no respondió, reintente en unos segundos");
+            }
+            System.err.println("Error al atender " + peticion.metodo() + " " +
+                    peticion.intercambio.getRequestURI() + ": " + e.getCause());
+            return Respuesta.error(500, "Error interno del servidor");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Respuesta.error(503, "Servidor deteniéndose");
+        } catch (Exception e) {
+            System.err.println("Error al atender " + peticion.metodo() + " " +
+                    peticion.intercambio.getRequestURI() + ": " + e);
+            return Respuesta.error(500, "Error interno del servidor");
+        }
+    }
+
+    private static void responder(HttpExchange intercambio, Respuesta respuesta) throws IOException {
+        byte[] bytes = respuesta.cuerpo().getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", respuesta.tipo());
+        intercambio.sendResponseHeaders(respuesta.estado(), bytes.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(bytes);
+        }
+    }
+
+    // ----- Beneficiarios -----
+
+    private Respuesta beneficiarios(Peticion p) throws Exception {
+        String[] ruta = p.ruta();
+        if (p.metodo().equals("GET") && ruta.length == 1) {
+            Beneficiario beneficiario = p.esperar(sistema.buscarBeneficiario(ruta[0]));
+            if (beneficiario == null) {
+                throw new NoEncontrado("No existe beneficiario con DNI " + ruta[0]);
+            }
+            return Respuesta.json(200, aJson(beneficiario));
+        }
+        if (p.metodo().equals("GET") && ruta.length == 2 && ruta[1].equals("autorizados")) {
+            List<Autorizado> autorizados = p.esperar(sistema.buscarAutorizadosDe(ruta[0]));
+            Map<String, Object> cuerpo = new LinkedHashMap<>();
+            cuerpo.put("dniBeneficiario", ruta[0]);
+            cuerpo.put("autorizados", aJson(autorizados));
+            return Respuesta.json(200, cuerpo);
+        }
+        if (p.metodo().equals("GET") && ruta.length == 0) {
+            String region = p.parametro("region");
+            if (region == null || region.isEmpty()) {
+                throw new IllegalArgumentException("Falta el parámetro region");
+            }
+            return pagina(p.esperar(sistema.paginaBeneficiariosPorRegion(region, p.parametro("pagina"))),
+                    ServidorContigo::aJson);
+        }
+        if (p.metodo().equals("POST") && ruta.length == 0) {
+            return registrarBeneficiario(p);
+        }
+        return noPermitido(p);
+    }
+
+    private Respuesta registrarBeneficiario(Peticion p) throws Exception {
+        Map<String, Object> datos = p.cuerpo();
+        // desde rechaza con IllegalArgumentException (400) lo que no sea un valor del ENUM
+        ClasificacionEconomica clasificacion = ClasificacionEconomica.desde(texto(datos, "clasificacionEconomica", 20));
+        Beneficiario beneficiario = new Beneficiario(
+                dni(datos, "dni"),
+                texto(datos, "nombre", 100),
+                texto(datos, "apellido", 100),
+                booleano(datos, "tieneCertificadoDiscapacidad"),
+                booleano(datos, "tieneOtrosIngresos"),
+                clasificacion,
+                texto(datos, "region", 100));
+
+        if (p.esperar(sistema.buscarBeneficiario(beneficiario.getDni())) != null) {
+            return Respuesta.error(409, "Ya existe un beneficiario con ese DNI");
+        }
+        if (!p.esperar(sistema.registrarBeneficiario(beneficiario))) {
+            return Respuesta.error(500, "No se pudo guardar el beneficiario");
+        }
+        return Respuesta.json(201, aJson(beneficiario));
+    }
+
+    // ----- Autorizados -----
+
+    private Respuesta autorizados(Peticion p) throws Exception {
+        String[] ruta = p.ruta();
+        if (p.metodo().equals("GET") && ruta.length == 1) {
+            Autorizado autorizado = p.esperar(sistema.buscarAutorizado(ruta[0]));
+            if (autorizado == null) {
+                throw new NoEncontrado("No existe autorizado con DNI " + ruta[0]);
+            }
+            return Respuesta.json(200, aJson(autorizado));
+        }
+        if (p.metodo().equals("GET") && ruta.length == 0 && p.parametro("beneficiarios") != null) {
+            return autorizadosPorBeneficiario(p);
+        }
+        if (p.metodo().equals("GET") && ruta.length == 0) {
+            return pagina(p.esperar(sistema.paginaAutorizados(p.parametro("pagina"))), ServidorContigo::aJson);
+        }
+        if (p.metodo().equals("POST") && ruta.length == 0) {
+            Map<String, Object> datos = p.cuerpo();
+            Autorizado autorizado = new Autorizado(
+                    dni(datos, "dni"),
+                    texto(datos, "nombre", 100),
+                    texto(datos, "apellido", 100),
+                    dni(datos, "dniBeneficiario"),
+                    texto(datos, "parentesco", 50));
+            if (!autorizado.esParentescoValido()) {
+                throw new IllegalArgumentException("Parentesco inválido: " + autorizado.getParentesco());
+            }
+            if (p.esperar(sistema.buscarBeneficiario(autorizado.getDniBeneficiario())) == null) {
+                throw new NoEncontrado("No existe beneficiario con DNI " + autorizado.getDniBeneficiario());
+            }
+            if (!p.esperar(sistema.registrarAutorizado(autorizado))) {
+                return Respuesta.error(500, "No se pudo guardar el autorizado");
+            }
+            return Respuesta.json(201, aJson(autorizado));
+        }
+        return noPermitido(p);
+    }
+
+    // Autorizados de una lista de beneficiarios (DNI separados por comas), en una sola operación
+    private Respuesta autorizadosPorBeneficiario(Peticion p) throws Exception {
+        List<String> dnis = new ArrayList<>();
+        for (String dni : p.parametro("beneficiarios").split(",")) {
+            String limpio = dni.strip();
+            if (!Persona.esDniValido(limpio)) {
+                throw new IllegalArgumentException("DNI inválido: " + limpio);
+            }
+            dnis.add(limpio);
+        }
+        if (dnis.size() > MAX_DNIS_CONSULTA) {
+            throw new IllegalArgumentException("Se admiten hasta " + MAX_DNIS_CONSULTA + " beneficiarios por consulta");
+        }
+
+        Map<String, List<Autorizado>> encontrados = p.esperar(sistema.buscarAutorizadosDe(dnis));
+        Map<String, Object> porBeneficiario = new LinkedHashMap<>();
+        for (String dni : dnis) {
+            porBeneficiario.put(dni, aJson(encontrados.getOrDefault(dni, List.of())));
+        }
+        return Respuesta.json(200, Map.of("porBeneficiario", porBeneficiario));
+    }
+
+    // ----- Certificados -----
+
+    private Respuesta certificados(Peticion p) throws Exception {
+        String[] ruta = p.ruta();
+        if (p.metodo().equals("GET") && ruta.length == 1) {
+            Certificado certificado = p.esperar(sistema.buscarCertificado(ruta[0]));
+            if (certificado == null) {
+                throw new NoEncontrado("No existe certificado para el DNI " + ruta[0]);
+            }
+            return Respuesta.json(200, aJson(certificado));
+        }
+        if (p.metodo().equals("GET") && ruta.length == 0) {
+            return pagina(p.esperar(sistema.paginaCertificados(p.parametro("pagina"))), ServidorContigo::aJson);
+        }
+        if (p.metodo().equals("POST") && ruta.length == 0) {
+            return asignarCertificado(p);
+        }
+        return noPermitido(p);
+    }
+
+    // Mismo flujo que la opción del menú: registra el certificado y marca al beneficiario
+    private Respuesta asignarCertificado(Peticion p) throws Exception {
+        Map<String, Object> datos = p.cuerpo();
+        GradoDiscapacidad grado = GradoDiscapacidad.desde(texto(datos, "gradoDiscapacidad", 20));
+        Certificado certificado = new Certificado(
+                texto(datos, "codigo", 20),
+                dni(datos, "dniPaciente"),
+                grado,
+                booleano(datos, "vigente"));
+
+        Beneficiario beneficiario = p.esperar(sistema.buscarBeneficiario(certificado.getDniPaciente()));
+        if (beneficiario == null) {
+            throw new NoEncontrado("No existe beneficiario con DNI " + certificado.getDniPaciente());
+        }
+        beneficiario.asignarCertificado(certificado);
+
+        if (!p.esperar(sistema.registrarCertificado(certificado))) {
+            return Respuesta.error(500, "No se pudo guardar el certificado");
+        }
+        if (!beneficiario.isTieneCertificadoDiscapacidad()) {
+            beneficiario.setTieneCertificadoDiscapacidad(true);
+            p.esperar(sistema.actualizarBeneficiario(beneficiario));
+        }
+        return Respuesta.json(201, aJson(certificado));
+    }
+
+    // ----- Pagos -----
+
+    // Cuerpo: {"dni": "...", "numeroPadron": n}; sin numeroPadron se paga el próximo disponible
+    private Respuesta pagos(Peticion p) throws Exception {
+        if (!p.metodo().equals("POST") || p.ruta().length != 0) {
+            return noPermitido(p);
+        }
+        Map<String, Object> datos = p.cuerpo();
+        String dni = dni(datos, "dni");
+        Beneficiario beneficiario = p.esperar(sistema.buscarBeneficiario(dni));
+        if (beneficiario == null) {
+            throw new NoEncontrado("No existe beneficiario con DNI " + dni);
+        }
+        if (!beneficiario.verificarElegibilidad()) {
+            return Respuesta.error(422, "El beneficiario no cumple los requisitos de elegibilidad");
+        }
+
+        int numeroPadron = datos.get("numeroPadron") != null
+                ? entero(datos, "numeroPadron")
+                : beneficiario.obtenerProximoPadronACobrar();
+        if (numeroPadron == -1) {
+            return Respuesta.error(409, "No hay padrón disponible para cobrar");
+        }
+        Beneficiario.bitPadron(numeroPadron);
+        if (beneficiario.haCobradoPadron(numeroPadron)) {
+            return Respuesta.error(409, "El padrón " + numeroPadron + " ya fue cobrado");
+        }
+        if (!p.esperar(sistema.procesarPago(dni, numeroPadron))) {
+            return Respuesta.error(500, "No se pudo registrar el pago");
+        }
+
+        Map<String, Object> pago = new LinkedHashMap<>();
+        pago.put("dni", dni);
+        pago.put("numeroPadron", numeroPadron);
+        pago.put("monto", 300);
+        return Respuesta.json(200, pago);
+    }
+
+    // ----- Reportes y métricas -----
+
+    private Respuesta reportes(Peticion p) throws Exception {
+        String[] ruta = p.ruta();
+        if (!p.metodo().equals("GET") || ruta.length != 1) {
+            return noPermitido(p);
+        }
+        return switch (ruta[0]) {
+            case "general" -> Respuesta.texto(p.esperar(sistema.generarReporte()));
+            case "estadisticas" -> {
+                SistemaGestionAsincrono.Estadisticas e = p.esperar(sistema.generarEstadisticas());
+                Map<String, Object> estadisticas = new LinkedHashMap<>();
+                estadisticas.put("totalBeneficiarios", e.totalBeneficiarios());
+                estadisticas.put("totalAutorizados", e.totalAutorizados());
+                estadisticas.put("elegibles", e.elegibles());
+                estadisticas.put("noElegibles", e.noElegibles());
+                estadisticas.put("porRegion", e.porRegion());
+                estadisticas.put("porClasificacion", e.porClasificacion());
+                estadisticas.put("elegiblesPorRegion", e.elegiblesPorRegion());
+                yield Respuesta.json(200, estadisticas);
+            }
+            case "alertas" -> Respuesta.json(200, p.esperar(sistema.contarAlertas()));
+            default -> throw new NoEncontrado("Reporte inexistente: " + ruta[0]);
+        };
+    }
+
+    // ----- Registro de cambios -----
+
+    // Filas modificadas después de la marca "desde" (sin ella, desde el principio); la
+    // respuesta trae la marca para la próxima consulta
+    private Respuesta cambios(Peticion p) throws Exception {
+        String[] ruta = p.ruta();
+        if (!p.metodo().equals("GET") || ruta.length != 1) {
+            return noPermitido(p);
+        }
+        String desde = p.parametro("desde");
+        int limite = MAX_CAMBIOS;
+        if (p.parametro("limite") != null) {
+            limite = Integer.parseInt(p.parametro("limite"));
+            if (limite < 1 || limite > MAX_CAMBIOS) {
+                throw new IllegalArgumentException("El límite debe estar entre 1 y " + MAX_CAMBIOS);
+            }
+        }
+        return switch (ruta[0]) {
+            case "beneficiarios" -> cambios(p.esperar(sistema.cambiosBeneficiarios(desde, limite)), ServidorContigo::aJson);
+            case "autorizados" -> cambios(p.esperar(sistema.cambiosAutorizados(desde, limite)), ServidorContigo::aJson);
+            case "certificados" -> cambios(p.esperar(sistema.cambiosCertificados(desde, limite)), ServidorContigo::aJson);
+            case "auditoria" -> cambios(p.esperar(sistema.cambiosAuditoria(desde, limite)), ServidorContigo::aJson);
+            default -> throw new NoEncontrado("Tabla sin registro de cambios: " + ruta[0]);
+        };
+    }
+
+    private Respuesta metricas(Peticion p) {
+        if (!p.metodo().equals("GET")) {
+            return noPermitido(p);
+        }
+        return Respuesta.texto(String.format("HTTP: %d/%d peticiones en curso | rechazadas: %d | vencidas: %d | " +
+                        "permisos de base libres: %d | tareas esperando: %d%n%s",
+                maxPeticiones - enCurso.availablePermits(), maxPeticiones, rechazadas.sum(), vencidas.sum(),
+                sistema.getPermisosDisponibles(), sistema.getTareasEsperando(), Metricas.volcar()));
+    }
+
+    private static Respuesta noPermitido(Peticion p) {
+        return Respuesta.error(405, "Operación no admitida: " + p.metodo() + " " + p.intercambio.getRequestURI().getPath());
+    }
+
+    // ----- Conversión a JSON -----
+
+    private static <T> Respuesta pagina(Pagina<T> pagina, Function<T, Map<String, Object>> convertir) {
+        List<Map<String, Object>> elementos = new ArrayList<>(pagina.elementos().size());
+        pagina.elementos().forEach(e -> elementos.add(convertir.apply(e)));
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("elementos", elementos);
+        cuerpo.put("siguiente", pagina.siguiente());
+        return Respuesta.json(200, cuerpo);
+    }
+
+    private static <T> Respuesta cambios(Cambios<T> cambios, Function<T, Map<String, Object>> convertir) {
+        List<Map<String, Object>> elementos = new ArrayList<>(cambios.elementos().size());
+        cambios.elementos().forEach(e -> elementos.add(convertir.apply(e)));
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("elementos", elementos);
+        cuerpo.put("marca", cambios.marca());
+        cuerpo.put("hayMas", cambios.hayMas());
+        return Respuesta.json(200, cuerpo);
+    }
+
+    private static Map<String, Object> aJson(Beneficiario b) {
+        List<Integer> cobrados = new ArrayList<>();
+        for (int padron = 1; padron <= 6; padron++) {
+            if (b.haCobradoPadron(padron)) {
+                cobrados.add(padron);
+            }
+        }
+        int proximo = b.obtenerProximoPadronACobrar();
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("dni", b.getDni());
+        json.put("nombre", b.getNombre());
+        json.put("apellido", b.getApellido());
+        json.put("tieneCertificadoDiscapacidad", b.isTieneCertificadoDiscapacidad());
+        json.put("tieneOtrosIngresos", b.isTieneOtrosIngresos());
+        json.put("clasificacionEconomica", b.getClasificacionEconomica());
+        json.put("region", b.getRegion());
+        json.put("fechaInscripcion", b.getFechaInscripcion());
+        json.put("pensionRecibida", b.getPensionRecibida());
+        json.put("padronesCobrados", cobrados);
+        json.put("proximoPadron", proximo == -1 ? null : proximo);
+        json.put("elegible", b.verificarElegibilidad());
+        json.put("activo", b.isActivo());
+        return json;
+    }
+
+    private static Map<String, Object> aJson(Autorizado a) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("dni", a.getDni());
+        json.put("nombre", a.getNombre());
+        json.put("apellido", a.getApellido());
+        json.put("dniBeneficiario", a.getDniBeneficiario());
+        json.put("parentesco", a.getParentesco());
+        json.put("autorizado", a.isAutorizado());
+        json.put("elegible", a.verificarElegibilidad());
+        return json;
+    }
+
+    private static List<Map<String, Object>> aJson(List<Autorizado> autorizados) {
+        List<Map<String, Object>> json = new ArrayList<>(autorizados.size());
+        autorizados.forEach(a -> json.add(aJson(a)));
+        return json;
+    }
+
+    private static Map<String, Object> aJson(Certificado c) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("codigo", c.getCodigo());
+        json.put("dniPaciente", c.getDniPaciente());
+        json.put("gradoDiscapacidad", c.getGradoDiscapacidad());
+        json.put("vigente", c.isVigente());
+        json.put("califica", c.verificarElegibilidad());
+        return json;
+    }
+
+    private static Map<String, Object> aJson(CambiosDAO.RegistroAuditoria r) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", r.id());
+        json.put("dni", r.dni());
+        json.put("accion", r.accion());
+        json.put("campoModificado", r.campoModificado());
+        json.put("valorAnterior", r.valorAnterior());
+        json.put("valorNuevo", r.valorNuevo());
+        json.put("usuario", r.usuario());
+        json.put("fecha", r.fecha() == null ? null : r.fecha().toString());
+        return json;
+    }
+
+    // ----- Validación de los cuerpos (mismas reglas que la importación CSV) -----
+
+    private static String texto(Map<String, Object> datos, String campo, int longitudMaxima) {
+        if (!(datos.get(campo) instanceof String valor) || valor.isBlank()) {
+            throw new IllegalArgumentException("Falta el campo " + campo);
+        }
+        String limpio = valor.strip();
+        if (limpio.length() > longitudMaxima) {
+            throw new IllegalArgumentException("El campo " + campo + " supera " + longitudMaxima + " caracteres");
+        }
+        return limpio;
+    }
+
+    private static String dni(Map<String, Object> datos, String campo) {
+        String dni = texto(datos, campo, 8);
+        if (!Persona.esDniValido(dni)) {
+            throw new IllegalArgumentException("DNI inválido: " + dni);
+        }
+        return dni;
+    }
+
+    private static boolean booleano(Map<String, Object> datos, String campo) {
+        if (!(datos.get(campo) instanceof Boolean valor)) {
+            throw new IllegalArgumentException("El campo " + campo + " debe ser true o false");
+        }
+        return valor;
+    }
+
+    private static int entero(Map<String, Object> datos, String campo) {
+        if (!(datos.get(campo) instanceof Long valor) || valor < Integer.MIN_VALUE || valor > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("El campo " + campo + " debe ser un número entero");
+        }
+        return valor.intValue();
+    }
+}
@@ -1,7 +1,25 @@
 package app;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Scanner;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import dao.ElegibilidadDAO;
+import dao.LecturaFallida;
+import dao.Pagina;
+import interfaces.SalidaReporte;
 import models.*;
+import services.ArchivoInstantanea;
+import services.AuditoriaElegibilidad;
+import services.CronogramaMasivo;
+import services.ImportacionMasiva;
+import services.PagoMasivo;
 import services.SistemaGestion;
 
 /**
@@ -9,17 +27,9 @@ import services.SistemaGestion;
  */
 public class SistemaContigo {
     private static final Scanner scanner = new Scanner(System.in);
-    private static final SistemaGestion sistema = new SistemaGestion();
-    private static final String[] CLASIFICACIONES = {"pobre extremo", "pobre", "no pobre"};
-    private static final String[] GRADOS_DISCAPACIDAD = {"severa", "moderada", "leve"};
-    private static final String[] NOMBRES_PADRONES = {
-            "Padrón I (enero-febrero): 21 de febrero",
-            "Padrón II (marzo-abril): 25 de abril",
-            "Padrón III (mayo-junio): 20 de junio",
-            "Padrón IV (julio-agosto): 22 de agosto",
-            "Padrón V (septiembre-octubre): 24 de octubre",
-            "Padrón VI (noviembre-diciembre): 5 de diciembre"
-    };
+    private static final SistemaGestion sistema = new SistemaGestion().iniciar();
+    private static final String[] CLASIFICACIONES = Beneficiario.CLASIFICACIONES.toArray(new String[0]);
+    private static final String[] GRADOS_DISCAPACIDAD = Certificado.GRADOS_DISCAPACIDAD.toArray(new String[0]);
 
     public static void main(String[] args) {
         System.out.println("=== SISTEMA CONTIGO - GESTIÓN DE BENEFICIARIOS ===");
@@ -50,6 +60,12 @@ public class SistemaContigo {
             8. Ver Alertas
             9. Actualizar Información
             10. Eliminar un beneficiario por fallecimiento
+            11. Procesar Padrón Completo (pago masivo)
+            12. Importación Masiva desde CSV
+            13. Reconstruir Índice de Elegibilidad
+            14. Métricas de Rendimiento
+            15. Auditoría de Elegibilidad (paralela)
+            16. Copia Local de los Datos
             0. Salir""");
         System.out.print("Seleccione una opción: ");
     }
@@ -66,7 +82,16 @@ public class SistemaContigo {
             case 8 -> mostrarAlertas();
             case 9 -> actualizarInformacion();
             case 10 -> eliminarPorFallecimiento();
-            case 0 -> System.out.println("Saliendo del sistema...");
+            case 11 -> procesarPadronCompleto();
+            case 12 -> importarDesdeCsv();
+            case 13 -> reconstruirElegibilidad();
+            case 14 -> mostrarMetricas();
+            case 15 -> auditarElegibilidad();
+            case 16 -> copiaLocal();
+            case 0 -> {
+                System.out.println("Saliendo del sistema...");
+                sistema.detenerActualizaciones();
+            }
             default -> System.out.println("Opción inválida");
         }
     }
@@ -197,6 +222,13 @@ public class SistemaContigo {
         System.out.printf("Beneficiario: %s\nDNI: %s\n",
                 beneficiario.getNombreCompleto(), beneficiario.getDni());
 
+        List<Autorizado> autorizados = sistema.buscarAutorizadosDe(beneficiario.getDni());
+        for (Autorizado autorizado : autorizados) {
+            System.out.printf("Autorizado: %s (DNI: %s) - %s%s\n",
+                    autorizado.getNombreCompleto(), autorizado.getDni(), autorizado.getParentesco(),
+                    autorizado.verificarElegibilidad() ? "" : " - no puede cobrar");
+        }
+
         int proximoPadron = beneficiario.obtenerProximoPadronACobrar();
 
         if (proximoPadron == -1) {
@@ -209,7 +241,7 @@ public class SistemaContigo {
             Padrón disponible para cobrar:
             %s
             Monto: S/300
-            """, NOMBRES_PADRONES[proximoPadron - 1]);
+            """, CalendarioPadrones.vigente().nombre(proximoPadron));
 
         if (leerBoolean("\n¿Procesar pago? (s/n): ")) {
             beneficiario.recibirPension(proximoPadron);
@@ -223,25 +255,207 @@ public class SistemaContigo {
         }
     }
 
+    private static void procesarPadronCompleto() {
+        System.out.println("\n=== PROCESAMIENTO MASIVO DE PADRÓN ===");
+
+        CalendarioPadrones calendario = sistema.obtenerCalendario();
+        for (int numero : calendario.numeros()) {
+            System.out.printf("%d. %s\n", numero, calendario.nombre(numero));
+        }
+        System.out.print("Seleccione el padrón: ");
+
+        int numeroPadron = scanner.nextInt();
+        scanner.nextLine();
+
+        if (!calendario.contiene(numeroPadron)) {
+            System.out.println("Número de padrón inválido");
+            return;
+        }
+
+        if (!leerBoolean("Se pagará a todos los beneficiarios elegibles pendientes. ¿Continuar? (s/n): ")) {
+            System.out.println("Operación cancelada");
+            return;
+        }
+
+        PagoMasivo.Resultado resultado = sistema.procesarPadronCompleto(numeroPadron);
+        System.out.printf("""
+            
+            Padrón %d procesado
+            Pagos registrados: %d
+            Lotes: %d (fallidos: %d)
+            Tiempo total: %.1f s
+            """, resultado.numeroPadron(), resultado.pagados(),
+                resultado.lotes(), resultado.lotesFallidos(), resultado.milisegundos() / 1000.0);
+
+        if (resultado.lotesFallidos() > 0) {
+            System.out.println("ADVERTENCIA: Hubo lotes deshechos; vuelva a ejecutar el proceso para completarlos.");
+        }
+    }
+
+    private static void importarDesdeCsv() {
+        System.out.println("\n=== IMPORTACIÓN MASIVA DESDE CSV ===");
+        System.out.println("Deje la ruta en blanco para omitir un archivo.");
+
+        Path beneficiarios = leerRuta("Archivo de beneficiarios: ");
+        Path autorizados = leerRuta("Archivo de autorizados: ");
+        Path certificados = leerRuta("Archivo de certificados: ");
+
+        try {
+            for (ImportacionMasiva.Resultado r : sistema.importarArchivos(beneficiarios, autorizados, certificados)) {
+                System.out.printf("%s: %d filas leídas, %d cargadas, %d rechazadas%s\n",
+                        r.archivo().getFileName(), r.leidas(), r.cargadas(), r.rechazadas(),
+                        r.lineaInicial() > 0 ? " (reanudado desde la línea " + (r.lineaInicial() + 1) + ")" : "");
+                if (r.rechazadas() > 0) {
+                    System.out.println("  Detalle de rechazos en: " + r.archivo() + ".rechazados.csv");
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("ERROR: No se pudo leer el archivo: " + e.getMessage());
+        }
+    }
+
+    private static void reconstruirElegibilidad() {
+        System.out.println("\n=== RECONSTRUCCIÓN DEL ÍNDICE DE ELEGIBILIDAD ===");
+
+        ElegibilidadDAO.Resultado resultado = sistema.reconstruirElegibilidad();
+        System.out.printf("""
+            Beneficiarios recalculados: %d (en %d lotes)
+            Elegibles: %d
+            Tiempo total: %.1f s
+            """, resultado.procesados(), resultado.lotes(), resultado.elegibles(),
+                resultado.milisegundos() / 1000.0);
+    }
+
+    private static void auditarElegibilidad() {
+        System.out.println("\n=== AUDITORÍA DE ELEGIBILIDAD ===");
+
+        int predeterminado = sistema.getParalelismoAuditoria();
+        String texto = leerString("Hilos en paralelo (Enter para " + predeterminado + "): ").trim();
+        int paralelismo;
+        try {
+            paralelismo = texto.isEmpty() ? predeterminado : Integer.parseInt(texto);
+        } catch (NumberFormatException e) {
+            paralelismo = 0;
+        }
+        if (paralelismo < 1) {
+            System.out.println("Cantidad de hilos inválida");
+            return;
+        }
+
+        AuditoriaElegibilidad.Resultado resultado = sistema.auditarElegibilidad(paralelismo);
+        System.out.printf("""
+            Beneficiarios revisados: %d (%d tramos, %d hilos, %d tramos fallidos)
+            Elegibles según la regla: %d
+            Estado registrado inconsistente: %d
+            Tiempo total: %.1f s
+            """, resultado.revisados(), resultado.tramos(), resultado.paralelismo(), resultado.tramosFallidos(),
+                resultado.elegibles(), resultado.inconsistentes(), resultado.milisegundos() / 1000.0);
+
+        resultado.alertas().forEach((alerta, cantidad) ->
+                System.out.printf("ALERTA: %d beneficiarios %s\n", cantidad, alerta));
+        System.out.println("--- No elegibles por región ---");
+        resultado.noElegiblesPorRegion().forEach((region, cantidad) ->
+                System.out.printf("%s: %d\n", region, cantidad));
+
+        if (resultado.inconsistentes() == 0) {
+            return;
+        }
+        System.out.println("--- Inconsistencias (registrado -> calculado) ---");
+        resultado.inconsistencias().stream().limit(20).forEach(i ->
+                System.out.printf("- %s (DNI: %s, %s): %s -> %s\n", i.nombreCompleto(), i.dni(), i.region(),
+                        i.elegibleRegistrado() ? "Elegible" : "No elegible",
+                        i.elegibleCalculado() ? "Elegible" : "No elegible"));
+        if (leerBoolean("\n¿Reconstruir ahora el índice de elegibilidad? (s/n): ")) {
+            reconstruirElegibilidad();
+        }
+    }
+
+    private static void copiaLocal() {
+        System.out.println("\n=== COPIA LOCAL DE LOS DATOS ===");
+
+        Path ruta = sistema.getRutaArchivoLocal();
+        if (ruta == null) {
+            System.out.println("No hay copia local configurada (-Dcontigo.instantanea.archivo=ruta)");
+            return;
+        }
+        System.out.println("Archivo: " + ruta.toAbsolutePath());
+        ArchivoInstantanea archivo = sistema.getArchivoLocal();
+        if (archivo != null) {
+            System.out.printf("""
+                Leyendo de la copia local hasta ponerse al día con la base
+                Generada: %s
+                Beneficiarios: %d | Autorizados: %d | Certificados vigentes: %d (%.1f MB)
+                """, Instant.ofEpochMilli(archivo.getGeneradoEn()).atZone(ZoneId.systemDefault()).toLocalDateTime(),
+                    archivo.getBeneficiarios(), archivo.getAutorizados(), archivo.getCertificados(),
+                    archivo.getBytes() / (1024.0 * 1024.0));
+        } else {
+            System.out.println("Las lecturas se hacen sobre la base");
+        }
+
+        if (leerBoolean("\n¿Guardar ahora la copia local con los datos de la base? (s/n): ")) {
+            System.out.println(sistema.guardarArchivoLocal() ? "Copia local guardada" : "No se pudo guardar la copia local");
+        }
+    }
+
+    private static void mostrarMetricas() {
+        sistema.generarReporteMetricas();
+        sistema.generarReporteCache();
+        if (leerBoolean("\n¿Reiniciar los contadores de latencia? (s/n): ")) {
+            sistema.reiniciarMetricas();
+            System.out.println("Contadores reiniciados");
+        }
+    }
+
+    private static Path leerRuta(String prompt) {
+        String ruta = leerString(prompt).trim();
+        if (ruta.isEmpty()) {
+            return null;
+        }
+        Path path = Path.of(ruta);
+        if (!Files.isRegularFile(path)) {
+            System.out.println("ADVERTENCIA: No existe el archivo " + ruta + ", se omite");
+            return null;
+        }
+        return path;
+    }
+
     private static void mostrarEstadoPadrones(Beneficiario beneficiario) {
         System.out.println("No hay padrones disponibles para cobrar.\n\nEstado de padrones:");
-        String[] estadoPadrones = {
-                "Padrón I (enero-febrero)", "Padrón II (marzo-abril)", "Padrón III (mayo-junio)",
-                "Padrón IV (julio-agosto)", "Padrón V (septiembre-octubre)", "Padrón VI (noviembre-diciembre)"
-        };
-
-        for (int i = 0; i < 6; i++) {
-            System.out.printf("%s: %s\n", estadoPadrones[i],
-                    beneficiario.haCobradoPadron(i + 1) ? "Ya cobrado" : "No disponible");
+        CalendarioPadrones calendario = CalendarioPadrones.vigente();
+        for (int numero : calendario.numeros()) {
+            System.out.printf("%s: %s\n", calendario.nombre(numero),
+                    beneficiario.haCobradoPadron(numero) ? "Ya cobrado" : "No disponible");
         }
     }
 
     private static void generarCronogramaPago() {
         System.out.println("\n=== GENERAR CRONOGRAMA DE PAGO ===");
 
+        if (leerBoolean("¿Generar los cronogramas de toda una región a archivos? (s/n): ")) {
+            generarCronogramasPorRegion();
+            return;
+        }
+
         Beneficiario beneficiario = buscarBeneficiarioParaOperacion();
         if (beneficiario != null) {
-            System.out.println("\n" + beneficiario.generarCronogramaPagos());
+            System.out.println("\n" + beneficiario.generarCronogramaPagos(sistema.obtenerCalendario()));
+        }
+    }
+
+    private static void generarCronogramasPorRegion() {
+        String region = leerString("Región: ");
+        Path directorio = Path.of(leerString("Carpeta de destino: ").trim());
+
+        try {
+            CronogramaMasivo.Resultado resultado = sistema.generarCronogramasPorRegion(region, directorio);
+            System.out.printf("""
+                Cronogramas generados: %d (fallidos: %d)
+                Carpeta: %s (ver indice.csv)
+                Tiempo total: %.1f s
+                """, resultado.generados(), resultado.fallidos(), resultado.directorio().toAbsolutePath(),
+                    resultado.milisegundos() / 1000.0);
+        } catch (IOException | UncheckedIOException | LecturaFallida e) {
+            System.out.println("ERROR: No se pudieron escribir los cronogramas: " + e.getMessage());
         }
     }
 
@@ -253,19 +467,148 @@ public class SistemaContigo {
             2. Reporte de autorizados
             3. Reporte por región
             4. Reporte de no elegibles
-            5. Reporte de beneficiarios fallecidos""");
+            5. Reporte de beneficiarios fallecidos
+            6. Estadísticas de caché
+            7. Listado de certificados
+            8. Exportar un reporte a archivo (CSV / JSON lines)
+            9. Autorizados por beneficiario
+            10. Cambios desde la última consulta""");
         System.out.print("Seleccione tipo de reporte: ");
 
         int tipo = scanner.nextInt();
         scanner.nextLine();
 
-        switch (tipo) {
-            case 1 -> sistema.generarReporteBeneficiarios();
-            case 2 -> sistema.generarReporteAutorizados();
-            case 3 -> sistema.generarReportePorRegion(leerString("Región: "));
-            case 4 -> sistema.generarReporteNoElegibles();
-            case 5 -> sistema.generarReporteFallecidos();
-            default -> System.out.println("Opción inválida");
+        // Si la base se cae a mitad de un reporte, lo ya mostrado queda incompleto: se avisa
+        try {
+            switch (tipo) {
+                case 1 -> sistema.generarReporteBeneficiarios();
+                case 2 -> listarAutorizados();
+                case 3 -> listarPorRegion(leerString("Región: "));
+                case 4 -> sistema.generarReporteNoElegibles();
+                case 5 -> sistema.generarReporteFallecidos();
+                case 6 -> sistema.generarReporteCache();
+                case 7 -> listarCertificados();
+                case 8 -> exportarReporte();
+                case 9 -> sistema.generarReporteAutorizadosPorBeneficiario(leerRegionOpcional());
+                case 10 -> sistema.generarReporteCambios(leerConsumidor());
+                default -> System.out.println("Opción inválida");
+            }
+        } catch (LecturaFallida e) {
+            System.out.println("ERROR: El reporte quedó incompleto: " + e.getMessage());
+        }
+    }
+
+    private static void exportarReporte() {
+        System.out.println("""
+            
+            === EXPORTAR REPORTE ===
+            1. Beneficiarios
+            2. Autorizados
+            3. Por región
+            4. No elegibles
+            5. Fallecidos
+            6. Alertas
+            7. Estadísticas
+            8. Certificados observados
+            9. Autorizados por beneficiario
+            10. Cambios desde la última consulta""");
+        System.out.print("Seleccione el reporte: ");
+
+        int tipo = scanner.nextInt();
+        scanner.nextLine();
+
+        Consumer<SalidaReporte> reporte = switch (tipo) {
+            case 1 -> sistema::generarReporteBeneficiarios;
+            case 2 -> sistema::generarReporteAutorizados;
+            case 3 -> {
+                String region = leerString("Región: ");
+                yield salida -> sistema.generarReportePorRegion(region, salida);
+            }
+            case 4 -> sistema::generarReporteNoElegibles;
+            case 5 -> sistema::generarReporteFallecidos;
+            case 6 -> sistema::generarAlertas;
+            case 7 -> sistema::generarEstadisticas;
+            case 8 -> sistema::verificarCertificadosVigentes;
+            case 9 -> {
+                String region = leerRegionOpcional();
+                yield salida -> sistema.generarReporteAutorizadosPorBeneficiario(region, salida);
+            }
+            case 10 -> {
+                String consumidor = leerConsumidor();
+                yield salida -> sistema.generarReporteCambios(consumidor, salida);
+            }
+            default -> null;
+        };
+        if (reporte == null) {
+            System.out.println("Opción inválida");
+            return;
+        }
+
+        String ruta = leerString("Archivo destino (.csv o .jsonl): ").trim();
+        try {
+            long filas = sistema.exportarReporte(reporte, Path.of(ruta));
+            System.out.printf("Exportadas %d filas a %s\n", filas, ruta);
+        } catch (IllegalArgumentException | UncheckedIOException | LecturaFallida e) {
+            System.out.println("ERROR: " + e.getMessage());
+        }
+    }
+
+    // Quién pide el reporte de cambios: cada nombre guarda su propia marca
+    private static String leerConsumidor() {
+        String consumidor = leerString("Nombre para la marca de cambios (Enter: reportes): ").trim();
+        return consumidor.isEmpty() ? "reportes" : consumidor;
+    }
+
+    // Región para filtrar un reporte; null (todas) si se deja en blanco
+    private static String leerRegionOpcional() {
+        String region = leerString("Región (Enter para todas): ").trim();
+        return region.isEmpty() ? null : region;
+    }
+
+    private static void listarAutorizados() {
+        System.out.println("\n=== REPORTE DE AUTORIZADOS ===");
+        paginar(sistema::paginaAutorizados, a -> {
+            System.out.println(a.generarReporte());
+            System.out.println("---");
+        });
+    }
+
+    private static void listarPorRegion(String region) {
+        System.out.printf("\n=== REPORTE POR REGIÓN: %s ===\n", region.toUpperCase());
+        paginar(token -> sistema.paginaBeneficiariosPorRegion(region, token),
+                b -> System.out.printf("- %s (DNI: %s) - Estado: %s\n",
+                        b.getNombreCompleto(),
+                        b.getDni(),
+                        b.verificarElegibilidad() ? "Elegible" : "No elegible"));
+    }
+
+    private static void listarCertificados() {
+        System.out.println("\n=== LISTADO DE CERTIFICADOS ===");
+        paginar(sistema::paginaCertificados,
+                c -> System.out.printf("- %s (DNI paciente: %s) - Grado: %s - %s\n",
+                        c.getCodigo(),
+                        c.getDniPaciente(),
+                        c.getGradoDiscapacidad(),
+                        c.isVigente() ? "Vigente" : "No vigente"));
+    }
+
+    // Muestra una página a la vez y solo pide la siguiente si el operador quiere seguir
+    private static <T> void paginar(Function<String, Pagina<T>> siguientePagina, Consumer<T> mostrar) {
+        String token = null;
+        long mostrados = 0;
+        while (true) {
+            Pagina<T> pagina = siguientePagina.apply(token);
+            pagina.elementos().forEach(mostrar);
+            mostrados += pagina.elementos().size();
+
+            if (!pagina.hayMas()) {
+                System.out.println("Total mostrados: " + mostrados);
+                return;
+            }
+            if (!leerBoolean("Mostrados " + mostrados + ". ¿Ver más? (s/n): ")) {
+                return;
+            }
+            token = pagina.siguiente();
         }
     }
 
@@ -318,7 +661,9 @@ public class SistemaContigo {
         if (actualizado) {
             boolean exitoGuardado = sistema.actualizarBeneficiario(beneficiario);
 
-            if (exitoGuardado) {
+            if (exitoGuardado && sistema.isActualizacionDiferida()) {
+                System.out.println("Los cambios se han guardado y se escribirán en la base de datos en segundo plano");
+            } else if (exitoGuardado) {
                 System.out.println("Los cambios se han guardado exitosamente en la base de datos");
             } else {
                 System.out.println("ERROR: Los cambios se realizaron en memoria pero no se pudieron guardar en la base de datos");
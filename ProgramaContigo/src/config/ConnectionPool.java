@@ -0,0 +1,282 @@
+package config;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool acotado y thread-safe de conexiones JDBC.
+ * Un semáforo limita el total de conexiones (prestadas + en creación) a maxSize;
+ * las conexiones libres se guardan en una pila LIFO para reutilizar siempre la más reciente.
+ * Un hilo de mantenimiento cierra las conexiones ociosas por encima de minSize
+ * y, si se activó umbralFugaMs, reporta las que llevan demasiado tiempo prestadas (posibles
+ * fugas; solo se informan, no se recuperan).
+ * Una conexión libre se valida contra el servidor solo si estuvo ociosa más de
+ * validarTrasOciosoMs: las que se acaban de usar se prestan sin ida y vuelta extra.
+ * Lleva contadores de préstamos, timeouts y altas/bajas de conexiones físicas, y mide
+ * cuánto se espera un préstamo y cuánto se retiene cada conexión; todo se publica por JMX.
+ */
+public class ConnectionPool implements PoolConexionesMXBean {
+    private static final int TIMEOUT_VALIDACION_SEGUNDOS = 2;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long timeoutPrestamoMs;
+    private final long timeoutOciosoMs;
+    private final long umbralFugaMs;
+    private final long validarTrasOciosoMs;
+
+    private final LinkedBlockingDeque<PooledConnection> libres = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> prestadas = ConcurrentHashMap.newKeySet();
+    private final Semaphore permisos;
+    private final AtomicInteger totalFisicas = new AtomicInteger();
+    private final LongAdder prestamos = new LongAdder();
+    private final LongAdder timeoutsPrestamo = new LongAdder();
+    private final LongAdder creadas = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+    private final HistogramaLatencia esperaPrestamo = Metricas.operacion("Pool.esperaPrestamo");
+    private final HistogramaLatencia usoConexion = Metricas.operacion("Pool.usoConexion");
+    private final ScheduledExecutorService mantenimiento;
+    private volatile boolean cerrado;
+
+    /**
+     * Crea el pool, precarga minSize conexiones y arranca el hilo de mantenimiento.
+     * umbralFugaMs en 0 desactiva la detección de fugas (y la captura de la pila de cada préstamo).
+     */
+    public static ConnectionPool crear(String url, String username, String password,
+                                       int minSize, int maxSize, long timeoutPrestamoMs, long timeoutOciosoMs,
+                                       long umbralFugaMs, long validarTrasOciosoMs) {
+        ConnectionPool pool = new ConnectionPool(url, username, password, minSize, maxSize,
+                timeoutPrestamoMs, timeoutOciosoMs, umbralFugaMs, validarTrasOciosoMs);
+        pool.iniciar();
+        return pool;
+    }
+
+    private ConnectionPool(String url, String username, String password,
+                           int minSize, int maxSize, long timeoutPrestamoMs, long timeoutOciosoMs,
+                           long umbralFugaMs, long validarTrasOciosoMs) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Tamaño de pool inválido: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.timeoutPrestamoMs = timeoutPrestamoMs;
+        this.timeoutOciosoMs = timeoutOciosoMs;
+        this.umbralFugaMs = umbralFugaMs;
+        this.validarTrasOciosoMs = validarTrasOciosoMs;
+        this.permisos = new Semaphore(maxSize, true);
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "contigo-pool-mantenimiento");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    private void iniciar() {
+        for (int i = 0; i < minSize; i++) {
+            try {
+                libres.push(crearPooled());
+            } catch (SQLException e) {
+                System.err.println("Error al precargar conexión del pool: " + e.getMessage());
+                break;
+            }
+        }
+
+        long periodo = Math.max(1000, (umbralFugaMs > 0 ? Math.min(timeoutOciosoMs, umbralFugaMs) : timeoutOciosoMs) / 2);
+        mantenimiento.scheduleWithFixedDelay(this::mantener, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Presta una conexión (validada si estuvo ociosa mucho tiempo). Debe cerrarse
+     * (idealmente con try-with-resources) para devolverla al pool.
+     */
+    public Connection obtener() throws SQLException {
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            if (!permisos.tryAcquire(timeoutPrestamoMs, TimeUnit.MILLISECONDS)) {
+                timeoutsPrestamo.increment();
+                esperaPrestamo.error();
+                esperaPrestamo.registrar(inicio);
+                throw new SQLException("Tiempo de espera agotado al obtener conexión (" +
+                        prestadas.size() + "/" + maxSize + " en uso)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = libres.pollFirst()) != null) {
+                boolean ociosa = System.currentTimeMillis() - pooled.getUltimoUso() > validarTrasOciosoMs;
+                if (ociosa ? pooled.esValida(TIMEOUT_VALIDACION_SEGUNDOS) : !pooled.estaCerrada()) {
+                    break;
+                }
+                descartar(pooled);
+            }
+            if (pooled == null) {
+                pooled = crearPooled();
+            }
+
+            prestadas.add(pooled);
+            prestamos.increment();
+            esperaPrestamo.registrar(inicio);
+            return pooled.prestar(umbralFugaMs > 0);
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    // Sin ping al servidor: una conexión rota falla al restablecerla o se valida en el próximo préstamo
+    void devolver(PooledConnection pooled) {
+        if (!prestadas.remove(pooled)) {
+            return;
+        }
+        usoConexion.registrar(pooled.getPrestadaDesdeNanos());
+
+        try {
+            if (cerrado || pooled.estaCerrada()) {
+                descartar(pooled);
+            } else {
+                pooled.restablecer();
+                pooled.marcarDevuelta();
+                libres.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al restablecer conexión, se descarta: " + e.getMessage());
+            descartar(pooled);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    private PooledConnection crearPooled() throws SQLException {
+        Connection fisica = DriverManager.getConnection(url, username, password);
+        try {
+            PooledConnection pooled = new PooledConnection(this, fisica);
+            totalFisicas.incrementAndGet();
+            creadas.increment();
+            return pooled;
+        } catch (SQLException e) {
+            fisica.close();
+            throw e;
+        }
+    }
+
+    private void descartar(PooledConnection pooled) {
+        totalFisicas.decrementAndGet();
+        descartadas.increment();
+        pooled.cerrarFisica();
+    }
+
+    // Ejecutado periódicamente por el hilo de mantenimiento
+    private void mantener() {
+        long ahora = System.currentTimeMillis();
+
+        // Desalojo de ociosas: se recorre desde el fondo de la pila (las más antiguas)
+        Iterator<PooledConnection> antiguas = libres.descendingIterator();
+        while (antiguas.hasNext() && totalFisicas.get() > minSize) {
+            PooledConnection pooled = antiguas.next();
+            if (ahora - pooled.getUltimoUso() > timeoutOciosoMs && libres.remove(pooled)) {
+                descartar(pooled);
+            }
+        }
+
+        // Detección de fugas
+        if (umbralFugaMs > 0) {
+            for (PooledConnection pooled : prestadas) {
+                long desde = pooled.getPrestadaDesde();
+                if (desde > 0 && ahora - desde > umbralFugaMs && !pooled.isFugaReportada()) {
+                    pooled.setFugaReportada(true);
+                    System.err.println("ADVERTENCIA: Posible fuga de conexión, prestada hace " +
+                            (ahora - desde) + " ms");
+                    Throwable origen = pooled.getOrigenPrestamo();
+                    if (origen != null) {
+                        origen.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    public void cerrar() {
+        cerrado = true;
+        mantenimiento.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = libres.pollFirst()) != null) {
+            descartar(pooled);
+        }
+    }
+
+    // Estadísticas
+    @Override
+    public int getConexionesActivas() {
+        return prestadas.size();
+    }
+
+    @Override
+    public int getConexionesLibres() {
+        return libres.size();
+    }
+
+    @Override
+    public int getTotalConexiones() {
+        return totalFisicas.get();
+    }
+
+    @Override
+    public int getHilosEsperando() {
+        return permisos.getQueueLength();
+    }
+
+    @Override
+    public int getMinSize() {
+        return minSize;
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public long getPrestamos() {
+        return prestamos.sum();
+    }
+
+    @Override
+    public long getTimeoutsPrestamo() {
+        return timeoutsPrestamo.sum();
+    }
+
+    @Override
+    public long getConexionesCreadas() {
+        return creadas.sum();
+    }
+
+    @Override
+    public long getConexionesDescartadas() {
+        return descartadas.sum();
+    }
+}
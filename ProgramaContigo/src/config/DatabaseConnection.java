@@ -2,63 +2,107 @@
 package config;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 /**
- * Configuración y gestión de la conexión a la base de datos MySQL
+ * Configuración y gestión de la conexión a la base de datos MySQL.
+ * Las conexiones se prestan desde un {@link ConnectionPool}; cada DAO debe pedir
+ * una conexión por operación y cerrarla al terminar para devolverla al pool.
+ * Como las conexiones físicas se reutilizan, la caché de sentencias preparadas del
+ * driver sobrevive entre préstamos. Para aprovecharla los DAO deben usar siempre
+ * PreparedStatement (con el mismo texto SQL) y cerrar sentencias y ResultSet con
+ * try-with-resources.
+ * El tamaño y los tiempos del pool se pueden ajustar con propiedades del sistema
+ * (-Dcontigo.pool.max=20, etc.).
  */
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/program_contigo";
-    private static final String USERNAME = "root"; // Cambiar según tu configuración
-    private static final String PASSWORD = ""; // Cambiar según tu configuración
-    private static final String DRIVER = "com.mysql.cj.jdbc.Driver";
+    private static final String URL_MYSQL = "jdbc:mysql://localhost:3306/program_contigo" +
+            "?rewriteBatchedStatements=true" +
+            // Sentencias preparadas en el servidor y caché de sentencias por conexión física:
+            // cada consulta de los DAO se prepara una sola vez por conexión del pool y los
+            // close() posteriores la devuelven a la caché del driver en lugar de descartarla
+            "&useServerPrepStmts=true" +
+            "&cachePrepStmts=true" +
+            "&cacheCallableStmts=true" +
+            "&prepStmtCacheSize=" + Integer.getInteger("contigo.jdbc.cacheSentencias", 250) +
+            "&prepStmtCacheSqlLimit=2048";
+    // Se pueden reemplazar con -Dcontigo.db.url=... (por ejemplo, la base en memoria de los benchmarks)
+    private static final String URL = System.getProperty("contigo.db.url", URL_MYSQL);
+    private static final String USERNAME = System.getProperty("contigo.db.usuario", "root"); // Cambiar según tu configuración
+    private static final String PASSWORD = System.getProperty("contigo.db.clave", ""); // Cambiar según tu configuración
+    private static final String DRIVER = System.getProperty("contigo.db.driver", "com.mysql.cj.jdbc.Driver");
+    // El fetch size Integer.MIN_VALUE solo tiene sentido (y solo es válido) en Connector/J
+    private static final boolean STREAMING_MYSQL = URL.startsWith("jdbc:mysql:");
 
-    private static DatabaseConnection instance;
-    private Connection connection;
+    private static final int POOL_MIN = Integer.getInteger("contigo.pool.min", 2);
+    private static final int POOL_MAX = Integer.getInteger("contigo.pool.max", 10);
+    private static final long POOL_TIMEOUT_PRESTAMO_MS = Long.getLong("contigo.pool.timeoutPrestamoMs", 5_000L);
+    private static final long POOL_TIMEOUT_OCIOSO_MS = Long.getLong("contigo.pool.timeoutOciosoMs", 300_000L);
+    // Detección de fugas desactivada salvo que se pida: captura la pila de cada préstamo
+    private static final long POOL_UMBRAL_FUGA_MS = Long.getLong("contigo.pool.umbralFugaMs", 0L);
+    private static final long POOL_VALIDAR_TRAS_OCIOSO_MS = Long.getLong("contigo.pool.validarTrasOciosoMs", 30_000L);
+
+    private static volatile DatabaseConnection instance;
+    private final ConnectionPool pool;
 
     private DatabaseConnection() {
         try {
             Class.forName(DRIVER);
-            this.connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-            System.out.println("Conexión a base de datos establecida exitosamente");
         } catch (ClassNotFoundException e) {
-            System.err.println("Error: Driver MySQL no encontrado");
-            e.printStackTrace();
-        } catch (SQLException e) {
-            System.err.println("Error al conectar con la base de datos");
+            System.err.println("Error: Driver JDBC no encontrado: " + DRIVER);
             e.printStackTrace();
         }
+
+        this.pool = ConnectionPool.crear(URL, USERNAME, PASSWORD,
+                POOL_MIN, POOL_MAX, POOL_TIMEOUT_PRESTAMO_MS, POOL_TIMEOUT_OCIOSO_MS,
+                POOL_UMBRAL_FUGA_MS, POOL_VALIDAR_TRAS_OCIOSO_MS);
+        Metricas.registrarPool(pool);
+        System.out.printf("Pool de conexiones inicializado (min=%d, max=%d, disponibles=%d)%n",
+                POOL_MIN, POOL_MAX, pool.getTotalConexiones());
     }
 
     public static DatabaseConnection getInstance() {
-        if (instance == null) {
-            instance = new DatabaseConnection();
+        DatabaseConnection local = instance;
+        if (local == null) {
+            synchronized (DatabaseConnection.class) {
+                local = instance;
+                if (local == null) {
+                    instance = local = new DatabaseConnection();
+                }
+            }
         }
-        return instance;
+        return local;
     }
 
-    public Connection getConnection() {
-        try {
-            if (connection == null || connection.isClosed()) {
-                connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-            }
-        } catch (SQLException e) {
-            System.err.println("Error al obtener conexión");
-            e.printStackTrace();
+    /**
+     * Presta una conexión del pool. El llamador debe cerrarla para devolverla.
+     */
+    public Connection getConnection() throws SQLException {
+        return pool.obtener();
+    }
+
+    /**
+     * Prepara una consulta de solo lectura cuyas filas llegan de a una desde el servidor
+     * (streaming de filas de Connector/J), así la memoria usada no depende del tamaño del resultado.
+     * Mientras el ResultSet esté abierto no se puede ejecutar otra sentencia en esa conexión.
+     */
+    public static PreparedStatement prepararStreaming(Connection conn, String sql) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (STREAMING_MYSQL) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
         }
-        return connection;
+        return stmt;
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
     }
 
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Conexión cerrada");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error al cerrar conexión");
-            e.printStackTrace();
-        }
+        pool.cerrar();
+        System.out.println("Pool de conexiones cerrado");
     }
 }
@@ -0,0 +1,184 @@
+package config;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias de una operación con costo de registro constante y sin reservar
+ * memoria: cada duración cae en un rango logarítmico (cuatro rangos por cada potencia de dos
+ * de nanosegundos, unos 19% de error relativo como máximo) y solo se incrementa un contador.
+ * Los percentiles se calculan al leerlo, recorriendo los rangos.
+ *
+ * Uso en los DAO: envolver el cuerpo de la operación en medir(), que registra la duración
+ * y cuenta como error cualquier excepción que salga de él, sin capturarla.
+ */
+public class HistogramaLatencia implements HistogramaLatenciaMXBean {
+    private static final int SUBRANGOS_BITS = 2;
+    private static final int SUBRANGOS = 1 << SUBRANGOS_BITS;
+    private static final int RANGOS = (64 - SUBRANGOS_BITS) * SUBRANGOS;
+
+    private final String nombre;
+    private final AtomicLongArray conteos = new AtomicLongArray(RANGOS);
+    private final LongAdder llamadas = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maximoNanos = new AtomicLong();
+
+    // Cuerpo de una operación medida; E es la excepción verificada que puede lanzar
+    @FunctionalInterface
+    public interface Operacion<T, E extends Exception> {
+        T ejecutar() throws E;
+    }
+
+    @FunctionalInterface
+    public interface OperacionSinResultado<E extends Exception> {
+        void ejecutar() throws E;
+    }
+
+    public HistogramaLatencia(String nombre) {
+        this.nombre = nombre;
+    }
+
+    // Ejecuta la operación y registra su duración; si lanza una excepción la cuenta como error
+    public <T, E extends Exception> T medir(Operacion<T, E> operacion) throws E {
+        long inicio = System.nanoTime();
+        try {
+            return operacion.ejecutar();
+        } catch (Exception e) {
+            error();
+            throw e;
+        } finally {
+            registrar(inicio);
+        }
+    }
+
+    public <E extends Exception> void medir(OperacionSinResultado<E> operacion) throws E {
+        medir(() -> {
+            operacion.ejecutar();
+            return null;
+        });
+    }
+
+    // Registra el tiempo transcurrido desde inicio (un valor de System.nanoTime())
+    public void registrar(long inicio) {
+        registrarDuracion(System.nanoTime() - inicio);
+    }
+
+    public void registrarDuracion(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        conteos.incrementAndGet(rango(nanos));
+        llamadas.increment();
+        totalNanos.add(nanos);
+        if (nanos > maximoNanos.get()) {
+            maximoNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    public void error() {
+        errores.increment();
+    }
+
+    // Rango de una duración: los valores chicos van directo, el resto por exponente y subrango
+    static int rango(long nanos) {
+        if (nanos < SUBRANGOS) {
+            return (int) nanos;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(nanos);
+        int subrango = (int) (nanos >>> (exponente - SUBRANGOS_BITS)) & (SUBRANGOS - 1);
+        return (exponente - SUBRANGOS_BITS + 1) * SUBRANGOS + subrango;
+    }
+
+    // Mayor duración que cae en el rango (inclusive)
+    static long limiteSuperior(int rango) {
+        if (rango < SUBRANGOS) {
+            return rango;
+        }
+        int exponente = rango / SUBRANGOS + SUBRANGOS_BITS - 1;
+        long subrango = rango % SUBRANGOS;
+        long inicio = (SUBRANGOS + subrango) << (exponente - SUBRANGOS_BITS);
+        return inicio + (1L << (exponente - SUBRANGOS_BITS)) - 1;
+    }
+
+    public long percentilNanos(double percentil) {
+        long[] copia = new long[RANGOS];
+        long total = 0;
+        for (int i = 0; i < RANGOS; i++) {
+            copia[i] = conteos.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long objetivo = (long) Math.ceil(total * percentil / 100.0);
+        long acumulado = 0;
+        for (int i = 0; i < RANGOS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), maximoNanos.get());
+            }
+        }
+        return maximoNanos.get();
+    }
+
+    @Override
+    public String getNombre() {
+        return nombre;
+    }
+
+    @Override
+    public long getLlamadas() {
+        return llamadas.sum();
+    }
+
+    @Override
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    @Override
+    public double getPromedioMs() {
+        long n = llamadas.sum();
+        return n == 0 ? 0 : totalNanos.sum() / (n * 1_000_000.0);
+    }
+
+    @Override
+    public double getP50Ms() {
+        return percentilNanos(50) / 1_000_000.0;
+    }
+
+    @Override
+    public double getP95Ms() {
+        return percentilNanos(95) / 1_000_000.0;
+    }
+
+    @Override
+    public double getP99Ms() {
+        return percentilNanos(99) / 1_000_000.0;
+    }
+
+    @Override
+    public double getMaximoMs() {
+        return maximoNanos.get() / 1_000_000.0;
+    }
+
+    // Las lecturas concurrentes pueden ver el reinicio a medias; es aceptable para métricas
+    @Override
+    public void reiniciar() {
+        for (int i = 0; i < RANGOS; i++) {
+            conteos.set(i, 0);
+        }
+        llamadas.reset();
+        errores.reset();
+        totalNanos.reset();
+        maximoNanos.set(0);
+    }
+
+    public String resumen() {
+        return String.format("%-45s llamadas: %8d | errores: %5d | prom: %9.3f ms | p50: %9.3f | p95: %9.3f | p99: %9.3f | máx: %9.3f",
+                nombre, getLlamadas(), getErrores(), getPromedioMs(), getP50Ms(), getP95Ms(), getP99Ms(), getMaximoMs());
+    }
+}
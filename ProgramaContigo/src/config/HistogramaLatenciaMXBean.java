@@ -0,0 +1,25 @@
+package config;
+
+/**
+ * Vista JMX de un {@link HistogramaLatencia}. Los tiempos se publican en milisegundos;
+ * los percentiles son el límite superior del rango de la distribución que los contiene.
+ */
+public interface HistogramaLatenciaMXBean {
+    String getNombre();
+
+    long getLlamadas();
+
+    long getErrores();
+
+    double getPromedioMs();
+
+    double getP50Ms();
+
+    double getP95Ms();
+
+    double getP99Ms();
+
+    double getMaximoMs();
+
+    void reiniciar();
+}
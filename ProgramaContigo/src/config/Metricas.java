@@ -0,0 +1,84 @@
+package config;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registro central de métricas. Cada operación instrumentada (métodos de los DAO, reportes
+ * de SistemaGestion, procedimientos almacenados) tiene un {@link HistogramaLatencia} que se
+ * publica como MBean bajo contigo:type=Operacion,name=...; el pool se publica como
+ * contigo:type=PoolConexiones. Se pueden ver con jconsole o VisualVM sin detener el sistema,
+ * o volcar como texto con {@link #volcar()}. Con -Dcontigo.metricas.jmx=false se siguen
+ * midiendo pero no se publican.
+ */
+public final class Metricas {
+    private static final boolean JMX = Boolean.parseBoolean(System.getProperty("contigo.metricas.jmx", "true"));
+    private static final String DOMINIO = "contigo";
+
+    private static final Map<String, HistogramaLatencia> OPERACIONES = new ConcurrentSkipListMap<>();
+    private static volatile ConnectionPool pool;
+
+    private Metricas() {
+    }
+
+    /**
+     * Devuelve el histograma de la operación, creándolo y publicándolo la primera vez.
+     * Pensado para guardarse en un campo static final de la clase instrumentada.
+     */
+    public static HistogramaLatencia operacion(String nombre) {
+        return OPERACIONES.computeIfAbsent(nombre, n -> {
+            HistogramaLatencia histograma = new HistogramaLatencia(n);
+            publicar("type=Operacion,name=" + n, histograma);
+            return histograma;
+        });
+    }
+
+    static void registrarPool(ConnectionPool nuevo) {
+        pool = nuevo;
+        publicar("type=PoolConexiones", nuevo);
+    }
+
+    private static void publicar(String propiedades, Object mbean) {
+        if (!JMX) {
+            return;
+        }
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(DOMINIO + ":" + propiedades);
+            if (servidor.isRegistered(nombre)) {
+                servidor.unregisterMBean(nombre);
+            }
+            servidor.registerMBean(mbean, nombre);
+        } catch (JMException e) {
+            System.err.println("No se pudo publicar la métrica " + propiedades + ": " + e.getMessage());
+        }
+    }
+
+    public static void reiniciar() {
+        OPERACIONES.values().forEach(HistogramaLatencia::reiniciar);
+    }
+
+    // Instantánea en texto de todas las métricas, para el menú de administración
+    public static String volcar() {
+        StringBuilder texto = new StringBuilder();
+        ConnectionPool actual = pool;
+        if (actual != null) {
+            texto.append(String.format("Pool: %d activas | %d libres | %d/%d físicas (mín %d) | %d esperando | " +
+                            "préstamos: %d | timeouts: %d | creadas: %d | descartadas: %d%n",
+                    actual.getConexionesActivas(), actual.getConexionesLibres(),
+                    actual.getTotalConexiones(), actual.getMaxSize(), actual.getMinSize(),
+                    actual.getHilosEsperando(), actual.getPrestamos(), actual.getTimeoutsPrestamo(),
+                    actual.getConexionesCreadas(), actual.getConexionesDescartadas()));
+        }
+        for (HistogramaLatencia histograma : OPERACIONES.values()) {
+            if (histograma.getLlamadas() > 0 || histograma.getErrores() > 0) {
+                texto.append(histograma.resumen()).append(System.lineSeparator());
+            }
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,28 @@
+package config;
+
+/**
+ * Vista JMX del {@link ConnectionPool}: ocupación actual y contadores acumulados.
+ * Las latencias de espera y de uso de las conexiones se publican aparte, como
+ * histogramas Pool.esperaPrestamo y Pool.usoConexion.
+ */
+public interface PoolConexionesMXBean {
+    int getConexionesActivas();
+
+    int getConexionesLibres();
+
+    int getTotalConexiones();
+
+    int getHilosEsperando();
+
+    int getMinSize();
+
+    int getMaxSize();
+
+    long getPrestamos();
+
+    long getTimeoutsPrestamo();
+
+    long getConexionesCreadas();
+
+    long getConexionesDescartadas();
+}
@@ -0,0 +1,155 @@
+package config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Conexión física administrada por el {@link ConnectionPool}.
+ * Cada préstamo entrega un proxy nuevo cuyo close() devuelve la conexión al pool
+ * en lugar de cerrarla, de modo que un proxy ya devuelto no puede reutilizarse.
+ */
+class PooledConnection {
+    private final ConnectionPool pool;
+    private final Connection fisica;
+    private final int aislamientoInicial;
+    private volatile long ultimoUso;
+    private volatile long prestadaDesde;
+    private volatile long prestadaDesdeNanos;
+    private volatile Throwable origenPrestamo;
+    private volatile boolean fugaReportada;
+
+    PooledConnection(ConnectionPool pool, Connection fisica) throws SQLException {
+        this.pool = pool;
+        this.fisica = fisica;
+        this.aislamientoInicial = fisica.getTransactionIsolation();
+        this.ultimoUso = System.currentTimeMillis();
+    }
+
+    Connection prestar(boolean registrarOrigen) {
+        prestadaDesde = System.currentTimeMillis();
+        prestadaDesdeNanos = System.nanoTime();
+        origenPrestamo = registrarOrigen ? new Throwable("Conexión prestada aquí") : null;
+        fugaReportada = false;
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Manejador());
+    }
+
+    void marcarDevuelta() {
+        ultimoUso = System.currentTimeMillis();
+        prestadaDesde = 0;
+        origenPrestamo = null;
+    }
+
+    boolean esValida(int timeoutSegundos) {
+        try {
+            return !fisica.isClosed() && fisica.isValid(timeoutSegundos);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Comprobación local, sin ida y vuelta al servidor
+    boolean estaCerrada() {
+        try {
+            return fisica.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    // Deja la conexión como recién creada antes de devolverla al pool
+    void restablecer() throws SQLException {
+        if (!fisica.getAutoCommit()) {
+            fisica.rollback();
+            fisica.setAutoCommit(true);
+        }
+        if (fisica.isReadOnly()) {
+            fisica.setReadOnly(false);
+        }
+        if (fisica.getTransactionIsolation() != aislamientoInicial) {
+            fisica.setTransactionIsolation(aislamientoInicial);
+        }
+        fisica.clearWarnings();
+    }
+
+    void cerrarFisica() {
+        try {
+            fisica.close();
+        } catch (SQLException e) {
+            System.err.println("Error al cerrar conexión física: " + e.getMessage());
+        }
+    }
+
+    Connection getFisica() {
+        return fisica;
+    }
+
+    long getUltimoUso() {
+        return ultimoUso;
+    }
+
+    long getPrestadaDesde() {
+        return prestadaDesde;
+    }
+
+    long getPrestadaDesdeNanos() {
+        return prestadaDesdeNanos;
+    }
+
+    Throwable getOrigenPrestamo() {
+        return origenPrestamo;
+    }
+
+    boolean isFugaReportada() {
+        return fugaReportada;
+    }
+
+    void setFugaReportada(boolean fugaReportada) {
+        this.fugaReportada = fugaReportada;
+    }
+
+    private class Manejador implements InvocationHandler {
+        private boolean cerrado;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!cerrado) {
+                        cerrado = true;
+                        pool.devolver(PooledConnection.this);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return cerrado || fisica.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + fisica + "]";
+                }
+                default -> {
+                    if (cerrado) {
+                        throw new SQLException("La conexión ya fue devuelta al pool");
+                    }
+                    try {
+                        return method.invoke(fisica, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,16 +1,35 @@
 package dao;
 
 import config.DatabaseConnection;
+import config.HistogramaLatencia;
+import config.Metricas;
 import models.Autorizado;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class AutorizadoDAO {
-    private Connection connection;
+    private final DatabaseConnection db;
+
+    // Latencia de cada operación, publicada por JMX (ver config.Metricas)
+    private static final HistogramaLatencia LATENCIA_INSERTAR = Metricas.operacion("AutorizadoDAO.insertar");
+    private static final HistogramaLatencia LATENCIA_INSERTAR_EN_LOTE = Metricas.operacion("AutorizadoDAO.insertarEnLote");
+    private static final HistogramaLatencia LATENCIA_FILTRAR_EXISTENTES = Metricas.operacion("AutorizadoDAO.filtrarExistentes");
+    private static final HistogramaLatencia LATENCIA_BUSCAR_POR_DNI = Metricas.operacion("AutorizadoDAO.buscarPorDni");
+    private static final HistogramaLatencia LATENCIA_BUSCAR_POR_BENEFICIARIO = Metricas.operacion("AutorizadoDAO.buscarPorBeneficiario");
+    private static final HistogramaLatencia LATENCIA_BUSCAR_POR_BENEFICIARIOS = Metricas.operacion("AutorizadoDAO.buscarPorBeneficiarios");
+    private static final HistogramaLatencia LATENCIA_PAGINA = Metricas.operacion("AutorizadoDAO.pagina");
+    private static final HistogramaLatencia LATENCIA_CONTAR = Metricas.operacion("AutorizadoDAO.contar");
+    private static final HistogramaLatencia LATENCIA_RECORRER_TODOS = Metricas.operacion("AutorizadoDAO.recorrerTodos");
 
     public AutorizadoDAO() {
-        this.connection = DatabaseConnection.getInstance().getConnection();
+        this.db = DatabaseConnection.getInstance();
     }
 
     public boolean insertar(Autorizado autorizado) {
@@ -23,69 +42,251 @@ public class AutorizadoDAO {
         String sql = "INSERT INTO autorizados (dni, nombre, apellido, dni_beneficiario, parentesco, autorizado) " +
                 "VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, autorizado.getDni());
-            stmt.setString(2, autorizado.getNombre());
-            stmt.setString(3, autorizado.getApellido());
-            stmt.setString(4, autorizado.getDniBeneficiario());
-            stmt.setString(5, autorizado.getParentesco());
-            stmt.setBoolean(6, autorizado.isAutorizado());
+        try {
+            return LATENCIA_INSERTAR.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, autorizado.getDni());
+                    stmt.setString(2, autorizado.getNombre());
+                    stmt.setString(3, autorizado.getApellido());
+                    stmt.setString(4, autorizado.getDniBeneficiario());
+                    stmt.setString(5, autorizado.getParentesco());
+                    stmt.setBoolean(6, autorizado.isAutorizado());
 
-            return stmt.executeUpdate() > 0;
+                    return stmt.executeUpdate() > 0;
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error al insertar autorizado: " + e.getMessage());
             return false;
         }
     }
 
+    // Inserta un lote de autorizados en un solo batch; un DNI ya registrado hace fallar el lote
+    // (el llamador los descarta antes con filtrarExistentes). No hace commit.
+    public void insertarEnLote(Connection conn, List<Autorizado> autorizados) throws SQLException {
+        String sql = "INSERT INTO autorizados (dni, nombre, apellido, dni_beneficiario, parentesco, autorizado) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+
+        LATENCIA_INSERTAR_EN_LOTE.medir(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (Autorizado autorizado : autorizados) {
+                    stmt.setString(1, autorizado.getDni());
+                    stmt.setString(2, autorizado.getNombre());
+                    stmt.setString(3, autorizado.getApellido());
+                    stmt.setString(4, autorizado.getDniBeneficiario());
+                    stmt.setString(5, autorizado.getParentesco());
+                    stmt.setBoolean(6, autorizado.isAutorizado());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        });
+    }
+
+    // Devuelve cuáles de los DNI indicados ya están registrados como autorizados
+    public Set<String> filtrarExistentes(Connection conn, Collection<String> dnis) throws SQLException {
+        Set<String> existentes = new HashSet<>();
+        if (dnis.isEmpty()) {
+            return existentes;
+        }
+
+        LATENCIA_FILTRAR_EXISTENTES.medir(() -> {
+            for (List<String> bloque : ListaIn.bloques(dnis)) {
+                int marcadores = ListaIn.marcadores(bloque.size());
+                String sql = "SELECT dni FROM autorizados WHERE dni IN (" + ListaIn.lista(marcadores) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    ListaIn.asignar(stmt, 1, bloque, marcadores);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            existentes.add(rs.getString(1));
+                        }
+                    }
+                }
+            }
+        });
+        return existentes;
+    }
+
     public Autorizado buscarPorDni(String dni) {
         String sql = "SELECT * FROM autorizados WHERE dni = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, dni);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                Autorizado autorizado = new Autorizado(
-                        rs.getString("dni"),
-                        rs.getString("nombre"),
-                        rs.getString("apellido"),
-                        rs.getString("dni_beneficiario"),
-                        rs.getString("parentesco")
-                );
-                autorizado.setAutorizado(rs.getBoolean("autorizado"));
-                return autorizado;
-            }
+        try {
+            return LATENCIA_BUSCAR_POR_DNI.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, dni);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            return new MapeadorAutorizado(rs).mapear(rs);
+                        }
+                        return null;
+                    }
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error al buscar autorizado: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Autorizados de un beneficiario, por el índice idx_autorizados_beneficiario
+    public List<Autorizado> buscarPorBeneficiario(String dniBeneficiario) {
+        String sql = "SELECT * FROM autorizados WHERE dni_beneficiario = ? ORDER BY apellido, nombre, dni";
+
+        List<Autorizado> autorizados = new ArrayList<>();
+        try {
+            LATENCIA_BUSCAR_POR_BENEFICIARIO.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, dniBeneficiario);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        MapeadorAutorizado mapeador = new MapeadorAutorizado(rs);
+                        while (rs.next()) {
+                            autorizados.add(mapeador.mapear(rs));
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Error al buscar autorizados del beneficiario: " + e.getMessage());
+        }
+        return autorizados;
+    }
+
+    /**
+     * Autorizados de varios beneficiarios agrupados por DNI del beneficiario; los que no tienen
+     * ninguno no aparecen en el mapa. Se consulta con listas IN por bloques (ver ListaIn) sobre
+     * idx_autorizados_beneficiario, todo con una sola conexión.
+     */
+    public Map<String, List<Autorizado>> buscarPorBeneficiarios(Collection<String> dnisBeneficiarios) {
+        Map<String, List<Autorizado>> porBeneficiario = new HashMap<>();
+        if (dnisBeneficiarios.isEmpty()) {
+            return porBeneficiario;
+        }
+        try (Connection conn = db.getConnection()) {
+            recorrerPorBeneficiarios(conn, dnisBeneficiarios, a ->
+                    porBeneficiario.computeIfAbsent(a.getDniBeneficiario(), dni -> new ArrayList<>(2)).add(a));
+        } catch (SQLException e) {
+            System.err.println("Error al buscar autorizados por beneficiario: " + e.getMessage());
         }
+        return porBeneficiario;
+    }
 
-        return null;
+    // Igual que buscarPorBeneficiarios, fila por fila y sobre una conexión del llamador. Dentro de
+    // cada bloque las filas llegan ordenadas por beneficiario y luego por apellido y nombre.
+    public void recorrerPorBeneficiarios(Connection conn, Collection<String> dnisBeneficiarios,
+                                         Consumer<Autorizado> consumidor) throws SQLException {
+        LATENCIA_BUSCAR_POR_BENEFICIARIOS.medir(() -> {
+            for (List<String> bloque : ListaIn.bloques(dnisBeneficiarios)) {
+                int marcadores = ListaIn.marcadores(bloque.size());
+                String sql = "SELECT * FROM autorizados WHERE dni_beneficiario IN (" + ListaIn.lista(marcadores) +
+                        ") ORDER BY dni_beneficiario, apellido, nombre, dni";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    ListaIn.asignar(stmt, 1, bloque, marcadores);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        MapeadorAutorizado mapeador = new MapeadorAutorizado(rs);
+                        while (rs.next()) {
+                            consumidor.accept(mapeador.mapear(rs));
+                        }
+                    }
+                }
+            }
+        });
     }
 
     public List<Autorizado> obtenerTodos() {
         List<Autorizado> autorizados = new ArrayList<>();
-        String sql = "SELECT * FROM autorizados ORDER BY apellido, nombre";
+        recorrerTodos(autorizados::add);
+        return autorizados;
+    }
+
+    /**
+     * Página de autorizados ordenada por (apellido, nombre, dni), continuando después de la
+     * última fila de la página anterior con el índice del mismo orden, sin OFFSET.
+     */
+    public Pagina<Autorizado> pagina(String token, int tamano) {
+        String[] desde = Pagina.clave(token, 3);
+        String sql = "SELECT * FROM autorizados " +
+                (desde == null ? "" : "WHERE (apellido, nombre, dni) > (?, ?, ?) ") +
+                "ORDER BY apellido, nombre, dni LIMIT ?";
+
+        List<Autorizado> autorizados = new ArrayList<>(tamano);
+        try {
+            LATENCIA_PAGINA.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    int i = 1;
+                    if (desde != null) {
+                        for (String valor : desde) {
+                            stmt.setString(i++, valor);
+                        }
+                    }
+                    // Una fila de más indica si existe una página siguiente
+                    stmt.setInt(i, tamano + 1);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        MapeadorAutorizado mapeador = new MapeadorAutorizado(rs);
+                        while (rs.next()) {
+                            autorizados.add(mapeador.mapear(rs));
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Error al paginar autorizados: " + e.getMessage());
+        }
+
+        if (autorizados.size() <= tamano) {
+            return new Pagina<>(autorizados, null);
+        }
+        autorizados.remove(tamano);
+        Autorizado ultimo = autorizados.get(tamano - 1);
+        return new Pagina<>(autorizados, Pagina.token(ultimo.getApellido(), ultimo.getNombre(), ultimo.getDni()));
+    }
 
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                Autorizado autorizado = new Autorizado(
-                        rs.getString("dni"),
-                        rs.getString("nombre"),
-                        rs.getString("apellido"),
-                        rs.getString("dni_beneficiario"),
-                        rs.getString("parentesco")
-                );
-                autorizado.setAutorizado(rs.getBoolean("autorizado"));
-                autorizados.add(autorizado);
+    public long contar() {
+        try (Connection conn = db.getConnection()) {
+            return contar(conn);
+        } catch (SQLException e) {
+            System.err.println("Error al contar autorizados: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // Cuenta los autorizados sobre una conexión del llamador (p. ej. dentro de una instantánea)
+    public long contar(Connection conn) throws SQLException {
+        return LATENCIA_CONTAR.medir(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM autorizados");
+                 ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
             }
+        });
+    }
+
+    // Recorre los autorizados fila por fila sin cargarlos todos en memoria
+    public void recorrerTodos(Consumer<Autorizado> consumidor) {
+        try (Connection conn = db.getConnection()) {
+            recorrerTodos(conn, consumidor);
         } catch (SQLException e) {
-            System.err.println("Error al obtener autorizados: " + e.getMessage());
+            throw new LecturaFallida("Error al obtener autorizados", e);
         }
+    }
 
-        return autorizados;
+    // Igual que recorrerTodos(Consumer) pero sobre una conexión del llamador, dentro de su transacción
+    public void recorrerTodos(Connection conn, Consumer<Autorizado> consumidor) throws SQLException {
+        String sql = "SELECT * FROM autorizados ORDER BY apellido, nombre";
+
+        LATENCIA_RECORRER_TODOS.medir(() -> {
+            try (PreparedStatement stmt = DatabaseConnection.prepararStreaming(conn, sql);
+                 ResultSet rs = stmt.executeQuery()) {
+
+                MapeadorAutorizado mapeador = new MapeadorAutorizado(rs);
+                while (rs.next()) {
+                    consumidor.accept(mapeador.mapear(rs));
+                }
+            }
+        });
     }
 
 }
\ No newline at end of file
@@ -1,19 +1,121 @@
 package dao;
 
 import config.DatabaseConnection;
+import config.HistogramaLatencia;
+import config.Metricas;
 import models.Beneficiario;
 import java.sql.*;
         import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object para la gestión de beneficiarios en base de datos
  */
 public class BeneficiarioDAO {
-    private Connection connection;
+    private final DatabaseConnection db;
+    private final ElegibilidadDAO elegibilidad;
+
+    // Activos con su certificado vigente más reciente: el ranking se resuelve una sola vez
+    // para toda la tabla de certificados en lugar de consultar por cada beneficiario
+    private static final String SQL_ACTIVOS_CON_CERTIFICADO =
+            "SELECT b.*, c.codigo AS cert_codigo, c.grado_discapacidad AS cert_grado_discapacidad, " +
+            "c.vigente AS cert_vigente " +
+            "FROM v_beneficiarios_activos b " +
+            "LEFT JOIN (SELECT codigo, dni_paciente, grado_discapacidad, vigente, " +
+            "ROW_NUMBER() OVER (PARTITION BY dni_paciente ORDER BY fecha_emision DESC, codigo DESC) AS orden " +
+            "FROM certificados WHERE vigente = TRUE) c " +
+            "ON c.dni_paciente = b.dni AND c.orden = 1";
+
+    // Compartida por todas las instancias para que cualquier escritura invalide la misma caché
+    private static final CacheLectura<String, Beneficiario> CACHE_POR_DNI = new CacheLectura<>(
+            "beneficiarios por DNI",
+            Integer.getInteger("contigo.cache.beneficiarios.max", 10_000),
+            Long.getLong("contigo.cache.beneficiarios.ttlMs", 60_000L));
+
+    // Latencia de cada operación, publicada por JMX (ver config.Metricas)
+    private static final HistogramaLatencia LATENCIA_INSERTAR = Metricas.operacion("BeneficiarioDAO.insertar");
+    private static final HistogramaLatencia LATENCIA_INSERTAR_EN_LOTE = Metricas.operacion("BeneficiarioDAO.insertarEnLote");
+    private static final HistogramaLatencia LATENCIA_FILTRAR_EXISTENTES = Metricas.operacion("BeneficiarioDAO.filtrarExistentes");
+    private static final HistogramaLatencia LATENCIA_MARCAR_CON_CERTIFICADO_EN_LOTE = Metricas.operacion("BeneficiarioDAO.marcarConCertificadoEnLote");
+    private static final HistogramaLatencia LATENCIA_BUSCAR_POR_DNI = Metricas.operacion("BeneficiarioDAO.buscarPorDni");
+    private static final HistogramaLatencia LATENCIA_RECORRER_TODOS = Metricas.operacion("BeneficiarioDAO.recorrerTodos");
+    private static final HistogramaLatencia LATENCIA_RECORRER_POR_ELEGIBILIDAD = Metricas.operacion("BeneficiarioDAO.recorrerPorElegibilidad");
+    private static final HistogramaLatencia LATENCIA_ACTUALIZAR = Metricas.operacion("BeneficiarioDAO.actualizar");
+    private static final HistogramaLatencia LATENCIA_RECORRER_POR_REGION = Metricas.operacion("BeneficiarioDAO.recorrerPorRegion");
+    private static final HistogramaLatencia LATENCIA_PAGINA_POR_REGION = Metricas.operacion("BeneficiarioDAO.paginaPorRegion");
+    private static final HistogramaLatencia LATENCIA_REGISTRAR_PAGO = Metricas.operacion("BeneficiarioDAO.registrarPago");
+    private static final HistogramaLatencia LATENCIA_PROCESAR_PAGO = Metricas.operacion("BeneficiarioDAO.procesarPago");
+    private static final HistogramaLatencia LATENCIA_SP_PROCESAR_PAGO = Metricas.operacion("Procedimiento.sp_procesar_pago");
+    private static final HistogramaLatencia LATENCIA_OBTENER_PENDIENTES_DE_PAGO = Metricas.operacion("BeneficiarioDAO.obtenerPendientesDePago");
+    private static final HistogramaLatencia LATENCIA_REGISTRAR_PAGOS_EN_LOTE = Metricas.operacion("BeneficiarioDAO.registrarPagosEnLote");
+    private static final HistogramaLatencia LATENCIA_MARCAR_COMO_FALLECIDO = Metricas.operacion("BeneficiarioDAO.marcarComoFallecido");
+    private static final HistogramaLatencia LATENCIA_RECORRER_FALLECIDOS = Metricas.operacion("BeneficiarioDAO.recorrerFallecidos");
+    private static final HistogramaLatencia LATENCIA_LIMITES_DE_RANGOS = Metricas.operacion("BeneficiarioDAO.limitesDeRangos");
+    private static final HistogramaLatencia LATENCIA_RECORRER_RANGO = Metricas.operacion("BeneficiarioDAO.recorrerRango");
+    private static final HistogramaLatencia LATENCIA_RECORRER_TABLA = Metricas.operacion("BeneficiarioDAO.recorrerTabla");
+    private static final HistogramaLatencia LATENCIA_ACTUALIZAR_COLUMNAS_EN_LOTE = Metricas.operacion("BeneficiarioDAO.actualizarColumnasEnLote");
+
+    // Datos del beneficiario que se pueden escribir por separado (ver actualizarColumnasEnLote).
+    // Pensión y padrones no están: los escriben los pagos, sumando sobre el valor de la base.
+    // Las de texto libre llevan el largo de la columna (el mismo que exige la importación).
+    public enum Columna {
+        NOMBRE("nombre", false, false, 100),
+        APELLIDO("apellido", false, false, 100),
+        CERTIFICADO("tiene_certificado_discapacidad", true, true, 0),
+        OTROS_INGRESOS("tiene_otros_ingresos", true, true, 0),
+        CLASIFICACION("clasificacion_economica", false, true, 0),
+        REGION("region", false, false, 100);
+
+        private final String nombre;
+        private final boolean logica;
+        private final boolean afectaElegibilidad;
+        private final int longitudMaxima;
+
+        Columna(String nombre, boolean logica, boolean afectaElegibilidad, int longitudMaxima) {
+            this.nombre = nombre;
+            this.logica = logica;
+            this.afectaElegibilidad = afectaElegibilidad;
+            this.longitudMaxima = longitudMaxima;
+        }
+
+        // Lanza IllegalArgumentException si la base rechazaría el valor: vacío o demasiado largo
+        public void validar(String valor) {
+            if (longitudMaxima == 0) {
+                return;
+            }
+            if (valor == null || valor.isBlank()) {
+                throw new IllegalArgumentException("Falta el campo " + nombre);
+            }
+            if (valor.length() > longitudMaxima) {
+                throw new IllegalArgumentException("El campo " + nombre + " supera " + longitudMaxima + " caracteres");
+            }
+        }
+
+        // Los valores viajan como texto; las columnas BOOLEAN usan "true" / "false"
+        private void asignar(PreparedStatement stmt, int indice, String valor) throws SQLException {
+            if (logica) {
+                stmt.setBoolean(indice, Boolean.parseBoolean(valor));
+            } else {
+                stmt.setString(indice, valor);
+            }
+        }
+
+        public boolean afectaElegibilidad() {
+            return afectaElegibilidad;
+        }
+    }
 
     public BeneficiarioDAO() {
-        this.connection = DatabaseConnection.getInstance().getConnection();
+        this.db = DatabaseConnection.getInstance();
+        this.elegibilidad = new ElegibilidadDAO();
     }
 
     public boolean insertar(Beneficiario beneficiario) {
@@ -21,185 +123,480 @@ public class BeneficiarioDAO {
                 "tiene_otros_ingresos, clasificacion_economica, region, pension_recibida, fecha_inscripcion) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, beneficiario.getDni());
-            stmt.setString(2, beneficiario.getNombre());
-            stmt.setString(3, beneficiario.getApellido());
-            stmt.setBoolean(4, beneficiario.isTieneCertificadoDiscapacidad());
-            stmt.setBoolean(5, beneficiario.isTieneOtrosIngresos());
-            stmt.setString(6, beneficiario.getClasificacionEconomica());
-            stmt.setString(7, beneficiario.getRegion());
-            stmt.setDouble(8, beneficiario.getPensionRecibida());
-            stmt.setDate(9, Date.valueOf(beneficiario.getFechaInscripcion()));
-
-            int filasAfectadas = stmt.executeUpdate();
-            return filasAfectadas > 0;
-
+        try {
+            return LATENCIA_INSERTAR.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    conn.setAutoCommit(false);
+                    stmt.setString(1, beneficiario.getDni());
+                    stmt.setString(2, beneficiario.getNombre());
+                    stmt.setString(3, beneficiario.getApellido());
+                    stmt.setBoolean(4, beneficiario.isTieneCertificadoDiscapacidad());
+                    stmt.setBoolean(5, beneficiario.isTieneOtrosIngresos());
+                    stmt.setString(6, beneficiario.getClasificacionEconomica());
+                    stmt.setString(7, beneficiario.getRegion());
+                    stmt.setDouble(8, beneficiario.getPensionRecibida());
+                    stmt.setDate(9, Date.valueOf(beneficiario.getFechaInscripcion()));
+
+                    int filasAfectadas = stmt.executeUpdate();
+                    elegibilidad.recalcular(conn, beneficiario.getDni());
+                    conn.commit();
+                    CACHE_POR_DNI.invalidar(beneficiario.getDni());
+                    return filasAfectadas > 0;
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error al insertar beneficiario: " + e.getMessage());
             return false;
         }
     }
 
+    /**
+     * Inserta un lote de beneficiarios con un único batch (multi-fila gracias a
+     * rewriteBatchedStatements). Un DNI ya registrado hace fallar el lote: el llamador los
+     * descarta antes con filtrarExistentes. También calcula su elegibilidad. No hace commit.
+     */
+    public void insertarEnLote(Connection conn, List<Beneficiario> beneficiarios) throws SQLException {
+        String sql = "INSERT INTO beneficiarios (dni, nombre, apellido, tiene_certificado_discapacidad, " +
+                "tiene_otros_ingresos, clasificacion_economica, region, pension_recibida, fecha_inscripcion) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        LATENCIA_INSERTAR_EN_LOTE.medir(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (Beneficiario beneficiario : beneficiarios) {
+                    stmt.setString(1, beneficiario.getDni());
+                    stmt.setString(2, beneficiario.getNombre());
+                    stmt.setString(3, beneficiario.getApellido());
+                    stmt.setBoolean(4, beneficiario.isTieneCertificadoDiscapacidad());
+                    stmt.setBoolean(5, beneficiario.isTieneOtrosIngresos());
+                    stmt.setString(6, beneficiario.getClasificacionEconomica());
+                    stmt.setString(7, beneficiario.getRegion());
+                    stmt.setDouble(8, beneficiario.getPensionRecibida());
+                    stmt.setDate(9, Date.valueOf(beneficiario.getFechaInscripcion()));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                elegibilidad.recalcular(conn, beneficiarios.stream().map(Beneficiario::getDni).toList());
+            }
+        });
+    }
+
+    // Devuelve cuáles de los DNI indicados existen en la tabla beneficiarios
+    public Set<String> filtrarExistentes(Connection conn, Collection<String> dnis) throws SQLException {
+        Set<String> existentes = new HashSet<>();
+        if (dnis.isEmpty()) {
+            return existentes;
+        }
+
+        LATENCIA_FILTRAR_EXISTENTES.medir(() -> {
+            for (List<String> bloque : ListaIn.bloques(dnis)) {
+                int marcadores = ListaIn.marcadores(bloque.size());
+                String sql = "SELECT dni FROM beneficiarios WHERE dni IN (" + ListaIn.lista(marcadores) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    ListaIn.asignar(stmt, 1, bloque, marcadores);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            existentes.add(rs.getString(1));
+                        }
+                    }
+                }
+            }
+        });
+        return existentes;
+    }
+
+    // Marca en batch que los beneficiarios indicados tienen certificado registrado y recalcula
+    // la elegibilidad de los que cambiaron. No hace commit.
+    public void marcarConCertificadoEnLote(Connection conn, Collection<String> dnis) throws SQLException {
+        String sql = "UPDATE beneficiarios SET tiene_certificado_discapacidad = TRUE " +
+                "WHERE dni = ? AND tiene_certificado_discapacidad = FALSE";
+
+        LATENCIA_MARCAR_CON_CERTIFICADO_EN_LOTE.medir(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                List<String> lista = new ArrayList<>(dnis);
+                for (String dni : lista) {
+                    stmt.setString(1, dni);
+                    stmt.addBatch();
+                }
+                int[] filas = stmt.executeBatch();
+                List<String> marcados = new ArrayList<>();
+                for (int i = 0; i < filas.length; i++) {
+                    if (filas[i] != 0) {
+                        marcados.add(lista.get(i));
+                    }
+                }
+                if (!marcados.isEmpty()) {
+                    elegibilidad.recalcular(conn, marcados);
+                }
+            }
+        });
+    }
+
+    /**
+     * Busca un beneficiario pasando por la caché de lectura. Se devuelve una copia,
+     * así los cambios que haga el llamador no alteran la entrada en caché.
+     */
     public Beneficiario buscarPorDni(String dni) {
+        return LATENCIA_BUSCAR_POR_DNI.medir(() -> {
+            Beneficiario beneficiario = CACHE_POR_DNI.obtener(dni, this::cargarPorDni);
+            return beneficiario == null ? null : new Beneficiario(beneficiario);
+        });
+    }
+
+    private Beneficiario cargarPorDni(String dni) {
         String sql = "SELECT * FROM beneficiarios WHERE dni = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection conn = db.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, dni);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                Beneficiario beneficiario = new Beneficiario(
-                        rs.getString("dni"),
-                        rs.getString("nombre"),
-                        rs.getString("apellido"),
-                        rs.getBoolean("tiene_certificado_discapacidad"),
-                        rs.getBoolean("tiene_otros_ingresos"),
-                        rs.getString("clasificacion_economica"),
-                        rs.getString("region")
-                );
-
-                // Establecer valores adicionales
-                beneficiario.setPensionRecibida(rs.getDouble("pension_recibida"));
-                beneficiario.setFechaInscripcion(rs.getDate("fecha_inscripcion").toLocalDate());
-
-                // Establecer padrones cobrados
-                boolean[] padrones = new boolean[6];
-                padrones[0] = rs.getBoolean("padron_1_cobrado");
-                padrones[1] = rs.getBoolean("padron_2_cobrado");
-                padrones[2] = rs.getBoolean("padron_3_cobrado");
-                padrones[3] = rs.getBoolean("padron_4_cobrado");
-                padrones[4] = rs.getBoolean("padron_5_cobrado");
-                padrones[5] = rs.getBoolean("padron_6_cobrado");
-                beneficiario.setPadronesRecibidos(padrones);
-
-                return beneficiario;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new MapeadorBeneficiario(rs).mapear(rs);
+                }
             }
 
         } catch (SQLException e) {
+            LATENCIA_BUSCAR_POR_DNI.error();
             System.err.println("Error al buscar beneficiario: " + e.getMessage());
         }
 
         return null;
     }
 
-
-
     public List<Beneficiario> obtenerTodos() {
+        return obtenerTodos(false);
+    }
+
+    public List<Beneficiario> obtenerTodos(boolean conCertificado) {
         List<Beneficiario> beneficiarios = new ArrayList<>();
-        String sql = "SELECT * FROM v_beneficiarios_activos";
-
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                Beneficiario beneficiario = new Beneficiario(
-                        rs.getString("dni"),
-                        rs.getString("nombre"),
-                        rs.getString("apellido"),
-                        rs.getBoolean("tiene_certificado_discapacidad"),
-                        rs.getBoolean("tiene_otros_ingresos"),
-                        rs.getString("clasificacion_economica"),
-                        rs.getString("region")
-                );
-
-                beneficiario.setPensionRecibida(rs.getDouble("pension_recibida"));
-                beneficiario.setFechaInscripcion(rs.getDate("fecha_inscripcion").toLocalDate());
-
-                boolean[] padrones = new boolean[6];
-                padrones[0] = rs.getBoolean("padron_1_cobrado");
-                padrones[1] = rs.getBoolean("padron_2_cobrado");
-                padrones[2] = rs.getBoolean("padron_3_cobrado");
-                padrones[3] = rs.getBoolean("padron_4_cobrado");
-                padrones[4] = rs.getBoolean("padron_5_cobrado");
-                padrones[5] = rs.getBoolean("padron_6_cobrado");
-                beneficiario.setPadronesRecibidos(padrones);
-
-                beneficiarios.add(beneficiario);
-            }
+        recorrerTodos(conCertificado, beneficiarios::add);
+        return beneficiarios;
+    }
 
+    public void recorrerTodos(Consumer<Beneficiario> consumidor) {
+        recorrerTodos(false, consumidor);
+    }
+
+    /**
+     * Recorre los beneficiarios activos fila por fila, sin cargarlos todos en memoria.
+     * Mientras dure el recorrido la conexión queda ocupada por el streaming de MySQL.
+     * Con conCertificado, cada beneficiario trae asociado su certificado vigente más reciente,
+     * obtenido en la misma consulta (sin una consulta adicional por persona). Si la base falla
+     * a mitad del recorrido lanza LecturaFallida: el consumidor ya recibió una parte de las filas.
+     */
+    public void recorrerTodos(boolean conCertificado, Consumer<Beneficiario> consumidor) {
+        try (Connection conn = db.getConnection()) {
+            recorrerTodos(conn, conCertificado, consumidor);
         } catch (SQLException e) {
-            System.err.println("Error al obtener beneficiarios: " + e.getMessage());
+            throw new LecturaFallida("Error al obtener beneficiarios", e);
         }
+    }
 
-        return beneficiarios;
+    /**
+     * Igual que {@link #recorrerTodos(boolean, Consumer)} pero sobre una conexión del llamador,
+     * para poder leer dentro de una transacción (por ejemplo, una instantánea consistente).
+     */
+    public void recorrerTodos(Connection conn, boolean conCertificado,
+                              Consumer<Beneficiario> consumidor) throws SQLException {
+        String sql = conCertificado ? SQL_ACTIVOS_CON_CERTIFICADO : "SELECT * FROM v_beneficiarios_activos";
+
+        LATENCIA_RECORRER_TODOS.medir(() -> {
+            try (PreparedStatement stmt = DatabaseConnection.prepararStreaming(conn, sql);
+                 ResultSet rs = stmt.executeQuery()) {
+
+                MapeadorBeneficiario mapeador = new MapeadorBeneficiario(rs);
+                while (rs.next()) {
+                    consumidor.accept(mapeador.mapear(rs));
+                }
+            }
+        });
+    }
+
+    /**
+     * Límites para repartir los beneficiarios activos en tramos de DNI de tamaño parecido: el
+     * tramo i va de limites[i - 1] (exclusivo) a limites[i] (inclusivo); el primero empieza en ""
+     * y el último no tiene tope. Devuelve a lo sumo partes - 1 límites (ninguno si la tabla
+     * está vacía). Se calcula con NTILE sobre la clave primaria, sin leer las filas.
+     */
+    public List<String> limitesDeRangos(Connection conn, int partes) throws SQLException {
+        String sql = "SELECT MAX(dni) FROM (SELECT dni, NTILE(?) OVER (ORDER BY dni) AS parte " +
+                "FROM v_beneficiarios_activos) t GROUP BY parte ORDER BY parte";
+
+        List<String> limites = new ArrayList<>(partes);
+        LATENCIA_LIMITES_DE_RANGOS.medir(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, partes);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        limites.add(rs.getString(1));
+                    }
+                }
+            }
+        });
+        // El máximo del último tramo se descarta: ese tramo queda abierto hacia arriba
+        if (!limites.isEmpty()) {
+            limites.remove(limites.size() - 1);
+        }
+        return limites;
+    }
+
+    /**
+     * Beneficiarios activos con DNI en (desdeDni, hastaDni], en streaming, ordenados por DNI y
+     * con su certificado vigente más reciente; hastaDni null no pone tope. El ranking de certificados se limita al
+     * mismo tramo, así cada tramo lee solo sus filas de las dos tablas.
+     */
+    public void recorrerRango(Connection conn, String desdeDni, String hastaDni,
+                              Consumer<Beneficiario> consumidor) throws SQLException {
+        String tope = hastaDni == null ? "" : " AND %s <= ?";
+        String sql = "SELECT b.*, c.codigo AS cert_codigo, c.grado_discapacidad AS cert_grado_discapacidad, " +
+                "c.vigente AS cert_vigente " +
+                "FROM v_beneficiarios_activos b " +
+                "LEFT JOIN (SELECT codigo, dni_paciente, grado_discapacidad, vigente, " +
+                "ROW_NUMBER() OVER (PARTITION BY dni_paciente ORDER BY fecha_emision DESC, codigo DESC) AS orden " +
+                "FROM certificados WHERE vigente = TRUE AND dni_paciente > ?" + tope.formatted("dni_paciente") + ") c " +
+                "ON c.dni_paciente = b.dni AND c.orden = 1 " +
+                "WHERE b.dni > ?" + tope.formatted("b.dni") + " ORDER BY b.dni";
+
+        LATENCIA_RECORRER_RANGO.medir(() -> {
+            try (PreparedStatement stmt = DatabaseConnection.prepararStreaming(conn, sql)) {
+                int i = 1;
+                stmt.setString(i++, desdeDni);
+                if (hastaDni != null) {
+                    stmt.setString(i++, hastaDni);
+                }
+                stmt.setString(i++, desdeDni);
+                if (hastaDni != null) {
+                    stmt.setString(i, hastaDni);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    MapeadorBeneficiario mapeador = new MapeadorBeneficiario(rs);
+                    while (rs.next()) {
+                        consumidor.accept(mapeador.mapear(rs));
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Todos los beneficiarios, activos o no, en streaming y ordenados por DNI; sin certificado,
+     * igual que buscarPorDni. Sobre una conexión del llamador, para leer dentro de su transacción.
+     */
+    public void recorrerTabla(Connection conn, Consumer<Beneficiario> consumidor) throws SQLException {
+        String sql = "SELECT * FROM beneficiarios ORDER BY dni";
+
+        LATENCIA_RECORRER_TABLA.medir(() -> {
+            try (PreparedStatement stmt = DatabaseConnection.prepararStreaming(conn, sql);
+                 ResultSet rs = stmt.executeQuery()) {
+
+                MapeadorBeneficiario mapeador = new MapeadorBeneficiario(rs);
+                while (rs.next()) {
+                    consumidor.accept(mapeador.mapear(rs));
+                }
+            }
+        });
+    }
+
+    /**
+     * Recorre en streaming los beneficiarios activos con el estado de elegibilidad indicado.
+     * Usa la columna elegible precalculada y el índice (activo, elegible, dni), sin evaluar
+     * la regla fila por fila ni cruzar con certificados.
+     */
+    public void recorrerPorElegibilidad(boolean elegible, Consumer<Beneficiario> consumidor) {
+        String sql = "SELECT * FROM v_beneficiarios_activos WHERE elegible = ? ORDER BY dni";
+
+        try {
+            LATENCIA_RECORRER_POR_ELEGIBILIDAD.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = DatabaseConnection.prepararStreaming(conn, sql)) {
+                    stmt.setBoolean(1, elegible);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        MapeadorBeneficiario mapeador = new MapeadorBeneficiario(rs);
+                        while (rs.next()) {
+                            consumidor.accept(mapeador.mapear(rs));
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            throw new LecturaFallida("Error al obtener beneficiarios por elegibilidad", e);
+        }
     }
 
     public boolean actualizar(Beneficiario beneficiario) {
         String sql = "UPDATE beneficiarios SET nombre = ?, apellido = ?, " +
                 "tiene_certificado_discapacidad = ?, tiene_otros_ingresos = ?, " +
                 "clasificacion_economica = ?, region = ?, pension_recibida = ?, " +
-                "padron_1_cobrado = ?, padron_2_cobrado = ?, padron_3_cobrado = ?, " +
-                "padron_4_cobrado = ?, padron_5_cobrado = ?, padron_6_cobrado = ? " +
-                "WHERE dni = ?";
-
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, beneficiario.getNombre());
-            stmt.setString(2, beneficiario.getApellido());
-            stmt.setBoolean(3, beneficiario.isTieneCertificadoDiscapacidad());
-            stmt.setBoolean(4, beneficiario.isTieneOtrosIngresos());
-            stmt.setString(5, beneficiario.getClasificacionEconomica());
-            stmt.setString(6, beneficiario.getRegion());
-            stmt.setDouble(7, beneficiario.getPensionRecibida());
-
-            boolean[] padrones = beneficiario.getPadronesRecibidos();
-            for (int i = 0; i < 6; i++) {
-                stmt.setBoolean(8 + i, padrones[i]);
-            }
-            stmt.setString(14, beneficiario.getDni());
-
-            int filasAfectadas = stmt.executeUpdate();
-            return filasAfectadas > 0;
-
+                "padrones_cobrados = ? WHERE dni = ?";
+
+        try {
+            return LATENCIA_ACTUALIZAR.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    conn.setAutoCommit(false);
+                    stmt.setString(1, beneficiario.getNombre());
+                    stmt.setString(2, beneficiario.getApellido());
+                    stmt.setBoolean(3, beneficiario.isTieneCertificadoDiscapacidad());
+                    stmt.setBoolean(4, beneficiario.isTieneOtrosIngresos());
+                    stmt.setString(5, beneficiario.getClasificacionEconomica());
+                    stmt.setString(6, beneficiario.getRegion());
+                    stmt.setDouble(7, beneficiario.getPensionRecibida());
+
+                    stmt.setInt(8, beneficiario.getPadronesCobrados());
+                    stmt.setString(9, beneficiario.getDni());
+
+                    int filasAfectadas = stmt.executeUpdate();
+                    elegibilidad.recalcular(conn, beneficiario.getDni());
+                    conn.commit();
+                    CACHE_POR_DNI.invalidar(beneficiario.getDni());
+                    return filasAfectadas > 0;
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error al actualizar beneficiario: " + e.getMessage());
             return false;
         }
     }
 
-    public List<Beneficiario> buscarPorRegion(String region) {
-        List<Beneficiario> beneficiarios = new ArrayList<>();
-        String sql = "SELECT * FROM beneficiarios WHERE region = ? ORDER BY apellido, nombre";
-
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, region);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                Beneficiario beneficiario = new Beneficiario(
-                        rs.getString("dni"),
-                        rs.getString("nombre"),
-                        rs.getString("apellido"),
-                        rs.getBoolean("tiene_certificado_discapacidad"),
-                        rs.getBoolean("tiene_otros_ingresos"),
-                        rs.getString("clasificacion_economica"),
-                        rs.getString("region")
-                );
-
-                beneficiario.setPensionRecibida(rs.getDouble("pension_recibida"));
-                beneficiario.setFechaInscripcion(rs.getDate("fecha_inscripcion").toLocalDate());
-
-                beneficiarios.add(beneficiario);
+    /**
+     * Escribe solo las columnas indicadas de cada beneficiario y recalcula la elegibilidad de
+     * los que cambiaron algo que la afecta, sobre la conexión del llamador y sin commit. Las
+     * filas se agrupan por conjunto de columnas: un batch por cada forma distinta de UPDATE.
+     * La caché no se toca; el llamador la invalida después del commit.
+     */
+    public void actualizarColumnasEnLote(Connection conn, Map<String, ? extends Map<Columna, String>> cambios)
+            throws SQLException {
+        Map<Set<Columna>, List<String>> porColumnas = new HashMap<>();
+        List<String> aRecalcular = new ArrayList<>();
+        cambios.forEach((dni, valores) -> {
+            if (valores.isEmpty()) {
+                return;
             }
+            porColumnas.computeIfAbsent(EnumSet.copyOf(valores.keySet()), c -> new ArrayList<>()).add(dni);
+            if (valores.keySet().stream().anyMatch(Columna::afectaElegibilidad)) {
+                aRecalcular.add(dni);
+            }
+        });
+
+        LATENCIA_ACTUALIZAR_COLUMNAS_EN_LOTE.medir(() -> {
+            for (Map.Entry<Set<Columna>, List<String>> grupo : porColumnas.entrySet()) {
+                StringJoiner asignaciones = new StringJoiner(", ");
+                grupo.getKey().forEach(columna -> asignaciones.add(columna.nombre + " = ?"));
+                String sql = "UPDATE beneficiarios SET " + asignaciones + " WHERE dni = ?";
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (String dni : grupo.getValue()) {
+                        Map<Columna, String> valores = cambios.get(dni);
+                        int i = 1;
+                        for (Columna columna : grupo.getKey()) {
+                            columna.asignar(stmt, i++, valores.get(columna));
+                        }
+                        stmt.setString(i, dni);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+            }
+            elegibilidad.recalcular(conn, aRecalcular);
+        });
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Error al buscar por región: " + e.getMessage());
-        }
-
+    public List<Beneficiario> buscarPorRegion(String region) {
+        List<Beneficiario> beneficiarios = new ArrayList<>();
+        recorrerPorRegion(region, beneficiarios::add);
         return beneficiarios;
     }
 
+    public void recorrerPorRegion(String region, Consumer<Beneficiario> consumidor) {
+        recorrerPorRegion(region, false, consumidor);
+    }
 
-    public boolean registrarPago(String dni, int numeroPadron) {
-        String sql = "INSERT INTO pagos_realizados (dni_beneficiario, numero_padron, monto) VALUES (?, ?, 300.00)";
+    // Beneficiarios de la región en streaming, ordenados por apellido y nombre
+    public void recorrerPorRegion(String region, boolean soloActivos, Consumer<Beneficiario> consumidor) {
+        String sql = "SELECT * FROM " + (soloActivos ? "v_beneficiarios_activos" : "beneficiarios") +
+                " WHERE region = ? ORDER BY apellido, nombre";
+
+        try {
+            LATENCIA_RECORRER_POR_REGION.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = DatabaseConnection.prepararStreaming(conn, sql)) {
+                    stmt.setString(1, region);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        MapeadorBeneficiario mapeador = new MapeadorBeneficiario(rs);
+                        while (rs.next()) {
+                            consumidor.accept(mapeador.mapear(rs));
+                        }
+                    }
+
+                }
+            });
+        } catch (SQLException e) {
+            throw new LecturaFallida("Error al buscar por región", e);
+        }
+    }
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
 
-            stmt.setString(1, dni);
-            stmt.setInt(2, numeroPadron);
+    /**
+     * Página de beneficiarios de una región ordenada por (apellido, nombre, dni), que es una
+     * clave única y estable. Cada página continúa después de la última fila de la anterior
+     * usando el índice (region, apellido, nombre, dni), sin OFFSET.
+     */
+    public Pagina<Beneficiario> paginaPorRegion(String region, String token, int tamano) {
+        String[] desde = Pagina.clave(token, 3);
+        String sql = "SELECT * FROM beneficiarios WHERE region = ? " +
+                (desde == null ? "" : "AND (apellido, nombre, dni) > (?, ?, ?) ") +
+                "ORDER BY apellido, nombre, dni LIMIT ?";
+
+        List<Beneficiario> beneficiarios = new ArrayList<>(tamano);
+        try {
+            LATENCIA_PAGINA_POR_REGION.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    int i = 1;
+                    stmt.setString(i++, region);
+                    if (desde != null) {
+                        for (String valor : desde) {
+                            stmt.setString(i++, valor);
+                        }
+                    }
+                    // Una fila de más indica si existe una página siguiente
+                    stmt.setInt(i, tamano + 1);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        MapeadorBeneficiario mapeador = new MapeadorBeneficiario(rs);
+                        while (rs.next()) {
+                            beneficiarios.add(mapeador.mapear(rs));
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Error al paginar por región: " + e.getMessage());
+        }
 
-            return stmt.executeUpdate() > 0;
+        if (beneficiarios.size() <= tamano) {
+            return new Pagina<>(beneficiarios, null);
+        }
+        beneficiarios.remove(tamano);
+        Beneficiario ultimo = beneficiarios.get(tamano - 1);
+        return new Pagina<>(beneficiarios, Pagina.token(ultimo.getApellido(), ultimo.getNombre(), ultimo.getDni()));
+    }
 
+    /**
+     * Pago directo, sin el procedimiento almacenado: marca el padrón y suma la pensión al
+     * beneficiario y registra el pago, en una transacción. Devuelve false si ya lo había cobrado.
+     */
+    public boolean registrarPago(String dni, int numeroPadron) {
+        try {
+            return LATENCIA_REGISTRAR_PAGO.medir(() -> {
+                try (Connection conn = db.getConnection()) {
+                    conn.setAutoCommit(false);
+                    boolean registrado = !registrarPagosEnLote(conn, numeroPadron, List.of(dni), 300.00).isEmpty();
+                    conn.commit();
+                    CACHE_POR_DNI.invalidar(dni);
+                    return registrado;
+                }
+            });
         } catch (SQLException e) {
             System.out.println("Error al registrar pago: " + e.getMessage());
             return false;
@@ -209,34 +606,165 @@ public class BeneficiarioDAO {
     public boolean procesarPago(String dni, int numeroPadron) {
         String sql = "CALL sp_procesar_pago(?, ?, @resultado)";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, dni);
-            stmt.setInt(2, numeroPadron);
-            stmt.execute();
-
-            Statement stmt2 = connection.createStatement();
-            ResultSet rs = stmt2.executeQuery("SELECT @resultado");
-
-            if (rs.next()) {
-                String resultado = rs.getString(1);
-                System.out.println("Resultado del pago: " + resultado);
-                return resultado.contains("EXITOSAMENTE");
-            }
+        try {
+            return LATENCIA_PROCESAR_PAGO.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, dni);
+                    stmt.setInt(2, numeroPadron);
+                    LATENCIA_SP_PROCESAR_PAGO.medir(() -> stmt.execute());
+                    CACHE_POR_DNI.invalidar(dni);
+
+                    // @resultado es una variable de sesión: debe leerse con la misma conexión
+                    try (PreparedStatement stmt2 = conn.prepareStatement("SELECT @resultado");
+                         ResultSet rs = stmt2.executeQuery()) {
+                        if (rs.next()) {
+                            String resultado = rs.getString(1);
+                            System.out.println("Resultado del pago: " + resultado);
+                            return resultado.contains("EXITOSAMENTE");
+                        }
+                    }
+                    return false;
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error al procesar pago: " + e.getMessage());
             // Si falla el procedimiento, usar el método directo
             return registrarPago(dni, numeroPadron);
         }
+    }
+
+
+    /**
+     * Selecciona, en orden de DNI y a partir de desdeDni (exclusivo), hasta limite beneficiarios
+     * elegibles que aún no cobraron el padrón (ni tienen el pago registrado, aunque les falte el
+     * bit) y que estaban inscritos en su fecha de pago.
+     * Usa la conexión del llamador para poder participar de su transacción.
+     * Se recorre idx_beneficiarios_pendientes (elegible, dni, padrones_cobrados) como un único
+     * rango desde desdeDni, ya en el orden del ORDER BY: sin filesort, y el LIMIT corta el
+     * recorrido en cada lote. La lista de máscaras sin el bit se evalúa sobre el mismo índice.
+     */
+    public List<String> obtenerPendientesDePago(Connection conn, int numeroPadron,
+                                                String desdeDni, int limite) throws SQLException {
+        String sql = "SELECT e.dni FROM beneficiarios e " +
+                "JOIN padrones p ON p.numero_padron = ? AND p.activo = TRUE " +
+                "WHERE e.elegible = TRUE AND e.padrones_cobrados IN (" + mascarasSinPadron(numeroPadron) + ") " +
+                "AND e.fecha_inscripcion <= p.fecha_pago AND e.dni > ? " +
+                "AND NOT EXISTS (SELECT 1 FROM pagos_realizados pr " +
+                "WHERE pr.dni_beneficiario = e.dni AND pr.numero_padron = p.numero_padron) " +
+                "ORDER BY e.dni LIMIT ?";
+
+        List<String> dnis = new ArrayList<>(limite);
+        LATENCIA_OBTENER_PENDIENTES_DE_PAGO.medir(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, numeroPadron);
+                stmt.setString(2, desdeDni);
+                stmt.setInt(3, limite);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        dnis.add(rs.getString(1));
+                    }
+                }
+            }
+        });
+        return dnis;
+    }
+
+    /**
+     * Registra el pago del padrón para los DNI indicados con dos sentencias en batch. Primero
+     * el update del beneficiario, que solo alcanza a quien no tiene el bit del padrón ni un pago
+     * registrado (un pago por ventanilla hecho después de la selección); después el insert en
+     * pagos_realizados, solo para esos. Devuelve los DNI pagados. No hace commit: el llamador
+     * define el tamaño de la transacción. Si aun así la clave única uq_beneficiario_padron
+     * rechaza un pago (uno concurrente entre ambas sentencias), el batch falla y el llamador
+     * debe deshacer el lote.
+     */
+    public List<String> registrarPagosEnLote(Connection conn, int numeroPadron, List<String> dnis,
+                                             double monto) throws SQLException {
+        // Solo alcanza filas sin el bit, así que sumarlo equivale a encenderlo
+        String sqlBeneficiario = "UPDATE beneficiarios SET pension_recibida = pension_recibida + ?, " +
+                "padrones_cobrados = padrones_cobrados + ? WHERE dni = ? " +
+                "AND padrones_cobrados NOT IN (" + mascarasConPadron(numeroPadron) + ") " +
+                "AND NOT EXISTS (SELECT 1 FROM pagos_realizados WHERE dni_beneficiario = ? AND numero_padron = ?)";
+        String sqlPago = "INSERT INTO pagos_realizados (dni_beneficiario, numero_padron, monto) VALUES (?, ?, ?)";
+        int bit = Beneficiario.bitPadron(numeroPadron);
+
+        return LATENCIA_REGISTRAR_PAGOS_EN_LOTE.medir(() -> {
+            try (PreparedStatement beneficiario = conn.prepareStatement(sqlBeneficiario);
+                 PreparedStatement pago = conn.prepareStatement(sqlPago)) {
+                for (String dni : dnis) {
+                    beneficiario.setDouble(1, monto);
+                    beneficiario.setInt(2, bit);
+                    beneficiario.setString(3, dni);
+                    beneficiario.setString(4, dni);
+                    beneficiario.setInt(5, numeroPadron);
+                    beneficiario.addBatch();
+                }
+                int[] actualizados = beneficiario.executeBatch();
+
+                List<String> pagados = new ArrayList<>(dnis.size());
+                for (int i = 0; i < dnis.size(); i++) {
+                    // Sin la cuenta por fila (SUCCESS_NO_INFO) se intenta el pago y decide la clave única
+                    if (actualizados[i] > 0 || actualizados[i] == Statement.SUCCESS_NO_INFO) {
+                        pago.setString(1, dnis.get(i));
+                        pago.setInt(2, numeroPadron);
+                        pago.setDouble(3, monto);
+                        pago.addBatch();
+                        pagados.add(dnis.get(i));
+                    }
+                }
+                if (!pagados.isEmpty()) {
+                    pago.executeBatch();
+                }
+                return pagados;
+            }
+        });
+    }
+
+    // Para escrituras hechas en una transacción del llamador: invalidar después del commit
+    public void invalidarCache(Collection<String> dnis) {
+        dnis.forEach(CACHE_POR_DNI::invalidar);
+    }
 
-        return false;
+    public static CacheLectura<String, Beneficiario> getCache() {
+        return CACHE_POR_DNI;
     }
 
+    // Las 32 máscaras de 6 bits que no incluyen el padrón (bitPadron valida el número)
+    private static String mascarasSinPadron(int numeroPadron) {
+        return mascaras(numeroPadron, false);
+    }
+
+    // Las 32 que sí lo incluyen
+    private static String mascarasConPadron(int numeroPadron) {
+        return mascaras(numeroPadron, true);
+    }
+
+    private static String mascaras(int numeroPadron, boolean conPadron) {
+        int bit = Beneficiario.bitPadron(numeroPadron);
+        StringJoiner mascaras = new StringJoiner(",");
+        for (int mascara = 0; mascara < 64; mascara++) {
+            if (((mascara & bit) != 0) == conPadron) {
+                mascaras.add(Integer.toString(mascara));
+            }
+        }
+        return mascaras.toString();
+    }
 
     public boolean marcarComoFallecido(String dni) {
-        String sql = "UPDATE beneficiarios SET activo = false WHERE dni = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, dni);
-            return stmt.executeUpdate() > 0;
+        // Un beneficiario inactivo nunca es elegible: el estado se actualiza en la misma sentencia
+        String sql = "UPDATE beneficiarios SET activo = false, elegible = false WHERE dni = ?";
+        try {
+            return LATENCIA_MARCAR_COMO_FALLECIDO.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, dni);
+                    boolean marcado = stmt.executeUpdate() > 0;
+                    CACHE_POR_DNI.invalidar(dni);
+                    return marcado;
+                }
+            });
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
@@ -245,33 +773,29 @@ public class BeneficiarioDAO {
 
     public List<Beneficiario> obtenerFallecidos() {
         List<Beneficiario> beneficiarios = new ArrayList<>();
-        String sql = "SELECT * FROM v_beneficiarios_inactivos";
-
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+        recorrerFallecidos(beneficiarios::add);
+        return beneficiarios;
+    }
 
-            while (rs.next()) {
-                Beneficiario beneficiario = new Beneficiario(
-                        rs.getString("dni"),
-                        rs.getString("nombre"),
-                        rs.getString("apellido"),
-                        rs.getBoolean("tiene_certificado_discapacidad"),
-                        rs.getBoolean("tiene_otros_ingresos"),
-                        rs.getString("clasificacion_economica"),
-                        rs.getString("region")
-                );
+    public void recorrerFallecidos(Consumer<Beneficiario> consumidor) {
+        String sql = "SELECT * FROM v_beneficiarios_inactivos";
 
-                beneficiario.setPensionRecibida(rs.getDouble("pension_recibida"));
-                beneficiario.setFechaInscripcion(rs.getDate("fecha_inscripcion").toLocalDate());
+        try {
+            LATENCIA_RECORRER_FALLECIDOS.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = DatabaseConnection.prepararStreaming(conn, sql);
+                     ResultSet rs = stmt.executeQuery()) {
 
-                beneficiarios.add(beneficiario);
-            }
+                    MapeadorBeneficiario mapeador = new MapeadorBeneficiario(rs);
+                    while (rs.next()) {
+                        consumidor.accept(mapeador.mapear(rs));
+                    }
 
+                }
+            });
         } catch (SQLException e) {
-            System.err.println("Error al obtener beneficiarios fallecidos: " + e.getMessage());
+            throw new LecturaFallida("Error al obtener beneficiarios fallecidos", e);
         }
-
-        return beneficiarios;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package dao;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de lectura acotada delante de las búsquedas puntuales de los DAO.
+ * Desaloja por tamaño (la entrada usada hace más tiempo, LRU) y por antigüedad (TTL),
+ * y lleva estadísticas de aciertos y fallos. No guarda resultados nulos, así un registro
+ * recién insertado se encuentra en la siguiente búsqueda. Los DAO deben invalidar
+ * las claves que modifican.
+ */
+public class CacheLectura<K, V> {
+    private final String nombre;
+    private final int capacidad;
+    private final long ttlMs;
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+    // Aumenta con cada invalidación; una carga que se cruzó con una invalidación no se guarda
+    private long version;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+
+    private record Entrada<V>(V valor, long cargadaEn) {}
+
+    public CacheLectura(String nombre, int capacidad, long ttlMs) {
+        this.nombre = nombre;
+        this.capacidad = capacidad;
+        this.ttlMs = ttlMs;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> mayor) {
+                if (size() > CacheLectura.this.capacidad) {
+                    desalojos.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Devuelve el valor en caché o lo carga con cargador. La carga se hace fuera del lock
+     * para no bloquear otras búsquedas mientras se consulta la base de datos.
+     */
+    public V obtener(K clave, Function<K, V> cargador) {
+        long versionCarga;
+        synchronized (this) {
+            versionCarga = version;
+            Entrada<V> entrada = entradas.get(clave);
+            if (entrada != null) {
+                if (System.currentTimeMillis() - entrada.cargadaEn() <= ttlMs) {
+                    aciertos.incrementAndGet();
+                    return entrada.valor();
+                }
+                entradas.remove(clave);
+                desalojos.incrementAndGet();
+            }
+        }
+
+        fallos.incrementAndGet();
+        V valor = cargador.apply(clave);
+        if (valor != null) {
+            synchronized (this) {
+                if (version == versionCarga) {
+                    entradas.put(clave, new Entrada<>(valor, System.currentTimeMillis()));
+                }
+            }
+        }
+        return valor;
+    }
+
+    public synchronized void invalidar(K clave) {
+        version++;
+        entradas.remove(clave);
+    }
+
+    public synchronized void invalidarSi(Predicate<V> condicion) {
+        version++;
+        Iterator<Entrada<V>> it = entradas.values().iterator();
+        while (it.hasNext()) {
+            if (condicion.test(it.next().valor())) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void limpiar() {
+        version++;
+        entradas.clear();
+    }
+
+    public synchronized int getTamano() {
+        return entradas.size();
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    public long getDesalojos() {
+        return desalojos.get();
+    }
+
+    public String resumen() {
+        long a = aciertos.get();
+        long f = fallos.get();
+        double tasa = a + f == 0 ? 0 : 100.0 * a / (a + f);
+        return String.format("%s: %d/%d entradas | aciertos: %d | fallos: %d | tasa de acierto: %.1f%% | desalojos: %d",
+                nombre, getTamano(), capacidad, a, f, tasa, desalojos.get());
+    }
+}
@@ -0,0 +1,16 @@
+package dao;
+
+import java.util.List;
+
+/**
+ * Un tramo del registro de cambios de una tabla: las filas modificadas después de una marca,
+ * en orden de (fecha de actualización, clave). marca es el token opaco que se pasa para pedir
+ * lo que sigue; hayMas indica que el tramo se cortó por el límite y conviene pedir otro de
+ * inmediato. Sin hayMas, lo que quede se pide más tarde con la misma marca.
+ */
+public record Cambios<T>(List<T> elementos, String marca, boolean hayMas) {
+
+    public boolean estaVacio() {
+        return elementos.isEmpty();
+    }
+}
@@ -0,0 +1,273 @@
+package dao;
+
+import config.HistogramaLatencia;
+import config.Metricas;
+import models.Autorizado;
+import models.Beneficiario;
+import models.Certificado;
+import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registro de cambios de beneficiarios, autorizados, certificados y auditoria_beneficiarios:
+ * las filas modificadas después de una marca, leídas por clave (fecha de actualización, clave
+ * primaria) sobre los índices idx_*_actualizacion. Las bajas de beneficiarios son lógicas
+ * (activo = false) y llegan como una modificación más.
+ *
+ * Una fila puede tomar su fecha_actualizacion y confirmarse segundos después, cuando otras
+ * filas más nuevas ya se leyeron. Por eso se distingue entre lo firme, modificado hasta la
+ * hora de la base menos -Dcontigo.cambios.margenMs (5000 por defecto), y lo reciente: lo
+ * reciente se entrega, pero la marca final no lo pasa y se vuelve a entregar en la lectura
+ * siguiente. Quien consume debe tolerar recibir una fila más de una vez (por ejemplo,
+ * reemplazando o invalidando por clave).
+ *
+ * Las marcas son tokens opacos. La de un tramo con hayMas sirve solo para pedir enseguida el
+ * tramo siguiente; la que se guarda es la del último tramo. Las de consumidores con nombre se
+ * guardan en marcas_cambios.
+ */
+public class CambiosDAO {
+    private static final long MARGEN_MS = Long.getLong("contigo.cambios.margenMs", 5_000L);
+
+    private static final HistogramaLatencia LATENCIA_MARCA_ACTUAL = Metricas.operacion("CambiosDAO.marcaActual");
+    private static final HistogramaLatencia LATENCIA_LEER_MARCA = Metricas.operacion("CambiosDAO.leerMarca");
+    private static final HistogramaLatencia LATENCIA_GUARDAR_MARCA = Metricas.operacion("CambiosDAO.guardarMarca");
+
+    // Tablas con registro de cambios: columna de fecha y clave que ordenan la lectura
+    public enum Tabla {
+        BENEFICIARIOS("beneficiarios", "fecha_actualizacion", "dni", false, "CambiosDAO.beneficiariosDesde"),
+        AUTORIZADOS("autorizados", "fecha_actualizacion", "dni", false, "CambiosDAO.autorizadosDesde"),
+        CERTIFICADOS("certificados", "fecha_actualizacion", "codigo", false, "CambiosDAO.certificadosDesde"),
+        AUDITORIA("auditoria_beneficiarios", "fecha_modificacion", "id", true, "CambiosDAO.auditoriaDesde");
+
+        private final String nombre;
+        private final String columnaFecha;
+        private final String columnaClave;
+        private final boolean claveNumerica;
+        private final HistogramaLatencia latencia;
+
+        Tabla(String nombre, String columnaFecha, String columnaClave, boolean claveNumerica, String operacion) {
+            this.nombre = nombre;
+            this.columnaFecha = columnaFecha;
+            this.columnaClave = columnaClave;
+            this.claveNumerica = claveNumerica;
+            this.latencia = Metricas.operacion(operacion);
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+    }
+
+    // Una fila de auditoria_beneficiarios (la escribe el trigger tr_beneficiarios_update)
+    public record RegistroAuditoria(long id, String dni, String accion, String campoModificado,
+                                    String valorAnterior, String valorNuevo, String usuario,
+                                    LocalDateTime fecha) {}
+
+    // Posición en el registro de una tabla; clave "" queda antes que cualquier fila de esa fecha
+    private record Posicion(Timestamp fecha, String clave) {}
+
+    /**
+     * leida es hasta dónde se recorrió; segura, hasta dónde se puede dar por leído todo (null:
+     * nada). Difieren mientras se recorren filas recientes en varios tramos.
+     */
+    private record Marca(Posicion leida, Posicion segura) {
+
+        Marca(Posicion posicion) {
+            this(posicion, posicion);
+        }
+
+        static Marca leer(String token) {
+            if (token == null || token.isEmpty()) {
+                return null;
+            }
+            try {
+                String[] valores = Pagina.clave(token, 4);
+                Posicion segura = valores[2].isEmpty() ? null
+                        : new Posicion(Timestamp.from(Instant.parse(valores[2])), valores[3]);
+                return new Marca(new Posicion(Timestamp.from(Instant.parse(valores[0])), valores[1]), segura);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Marca de cambios inválida", e);
+            }
+        }
+
+        // Las fechas van como instantes ISO, con la precisión completa de la columna
+        String token() {
+            return Pagina.token(leida.fecha().toInstant().toString(), leida.clave(),
+                    segura == null ? "" : segura.fecha().toInstant().toString(), segura == null ? "" : segura.clave());
+        }
+    }
+
+    @FunctionalInterface
+    private interface CreadorMapeador<T> {
+        MapeadorFila<T> crear(ResultSet rs) throws SQLException;
+    }
+
+    public Cambios<Beneficiario> beneficiariosDesde(Connection conn, String marca, int limite) throws SQLException {
+        return leer(conn, Tabla.BENEFICIARIOS, marca, limite, MapeadorBeneficiario::new);
+    }
+
+    public Cambios<Autorizado> autorizadosDesde(Connection conn, String marca, int limite) throws SQLException {
+        return leer(conn, Tabla.AUTORIZADOS, marca, limite, MapeadorAutorizado::new);
+    }
+
+    public Cambios<Certificado> certificadosDesde(Connection conn, String marca, int limite) throws SQLException {
+        return leer(conn, Tabla.CERTIFICADOS, marca, limite, MapeadorCertificado::new);
+    }
+
+    public Cambios<RegistroAuditoria> auditoriaDesde(Connection conn, String marca, int limite) throws SQLException {
+        return leer(conn, Tabla.AUDITORIA, marca, limite, MapeadorAuditoria::new);
+    }
+
+    /**
+     * Filas de la tabla modificadas después de la marca (null: desde el principio), a lo sumo
+     * limite, en orden de (fecha, clave).
+     */
+    private <T> Cambios<T> leer(Connection conn, Tabla tabla, String marca, int limite,
+                                CreadorMapeador<T> creador) throws SQLException {
+        if (limite < 1) {
+            throw new IllegalArgumentException("El límite debe ser positivo: " + limite);
+        }
+        Marca desde = Marca.leer(marca);
+        return tabla.latencia.medir(() -> leerDesde(conn, tabla, desde, limite, creador));
+    }
+
+    private <T> Cambios<T> leerDesde(Connection conn, Tabla tabla, Marca desde, int limite,
+                                     CreadorMapeador<T> creador) throws SQLException {
+        Posicion leida = desde == null ? null : desde.leida();
+        Posicion segura = desde == null ? null : desde.segura();
+        String sql = "SELECT * FROM " + tabla.nombre + " WHERE " +
+                (leida == null ? tabla.columnaFecha + " IS NOT NULL " :
+                        "(" + tabla.columnaFecha + ", " + tabla.columnaClave + ") > (?, ?) ") +
+                "ORDER BY " + tabla.columnaFecha + ", " + tabla.columnaClave + " LIMIT ?";
+
+        List<T> elementos = new ArrayList<>(Math.min(limite, 1024));
+        // La posición segura avanza mientras no quede atrás ninguna fila reciente
+        boolean sinRecientes = desde == null || desde.leida().equals(desde.segura());
+        Timestamp corte = corte(conn);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (leida != null) {
+                stmt.setTimestamp(i++, leida.fecha());
+                if (tabla.claveNumerica) {
+                    stmt.setLong(i++, leida.clave().isEmpty() ? 0 : Long.parseLong(leida.clave()));
+                } else {
+                    stmt.setString(i++, leida.clave());
+                }
+            }
+            stmt.setInt(i, limite);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorFila<T> mapeador = creador.crear(rs);
+                int fecha = rs.findColumn(tabla.columnaFecha);
+                int clave = rs.findColumn(tabla.columnaClave);
+                while (rs.next()) {
+                    elementos.add(mapeador.mapear(rs));
+                    Timestamp actualizada = rs.getTimestamp(fecha);
+                    leida = new Posicion(actualizada, rs.getString(clave));
+                    // Las filas vienen en orden de fecha: las firmes siempre van primero
+                    sinRecientes = sinRecientes && !actualizada.after(corte);
+                    if (sinRecientes) {
+                        segura = leida;
+                    }
+                }
+            }
+        }
+
+        if (elementos.size() == limite) {
+            return new Cambios<>(elementos, new Marca(leida, segura).token(), true);
+        }
+        // Se llegó al final: sin filas recientes, lo firme está leído entero hasta el corte
+        if (sinRecientes && (segura == null || segura.fecha().before(corte))) {
+            segura = new Posicion(corte, "");
+        }
+        return new Cambios<>(elementos, segura == null ? null : new Marca(segura).token(), false);
+    }
+
+    /**
+     * Marca que corresponde a este momento de la base: lo que se lea desde ella incluye todo lo
+     * modificado después de una lectura completa que empiece ahora. Sirve para tomar la marca
+     * de una carga completa (una instantánea, por ejemplo) antes de empezar a leer.
+     */
+    public String marcaActual(Connection conn) throws SQLException {
+        return LATENCIA_MARCA_ACTUAL.medir(() -> new Marca(new Posicion(corte(conn), "")).token());
+    }
+
+    // Hora de la base menos el margen: lo modificado hasta ahí ya se considera confirmado
+    private static Timestamp corte(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT CURRENT_TIMESTAMP");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return new Timestamp(rs.getTimestamp(1).getTime() - MARGEN_MS);
+        }
+    }
+
+    // ----- Marcas guardadas por consumidor -----
+
+    // Marca guardada del consumidor para la tabla, o null si nunca leyó cambios
+    public String leerMarca(Connection conn, String consumidor, Tabla tabla) throws SQLException {
+        String sql = "SELECT fecha, clave FROM marcas_cambios WHERE consumidor = ? AND tabla = ?";
+        return LATENCIA_LEER_MARCA.medir(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, consumidor);
+                stmt.setString(2, tabla.nombre);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? new Marca(new Posicion(rs.getTimestamp(1), rs.getString(2))).token() : null;
+                }
+            }
+        });
+    }
+
+    public void guardarMarca(Connection conn, String consumidor, Tabla tabla, String marca) throws SQLException {
+        Marca leida = Marca.leer(marca);
+        if (leida == null || leida.segura() == null) {
+            throw new IllegalArgumentException("No hay marca para guardar");
+        }
+        Posicion posicion = leida.segura();
+        String sql = "INSERT INTO marcas_cambios (consumidor, tabla, fecha, clave) VALUES (?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE fecha = VALUES(fecha), clave = VALUES(clave)";
+        LATENCIA_GUARDAR_MARCA.medir(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, consumidor);
+                stmt.setString(2, tabla.nombre);
+                stmt.setTimestamp(3, posicion.fecha());
+                stmt.setString(4, posicion.clave());
+                stmt.executeUpdate();
+            }
+        });
+    }
+
+    private static final class MapeadorAuditoria extends MapeadorFila<RegistroAuditoria> {
+        private final int id;
+        private final int dni;
+        private final int accion;
+        private final int campo;
+        private final int anterior;
+        private final int nuevo;
+        private final int usuario;
+        private final int fecha;
+
+        MapeadorAuditoria(ResultSet rs) throws SQLException {
+            super(rs);
+            id = indice("id");
+            dni = indice("dni");
+            accion = indice("accion");
+            campo = indice("campo_modificado");
+            anterior = indice("valor_anterior");
+            nuevo = indice("valor_nuevo");
+            usuario = indice("usuario");
+            fecha = indice("fecha_modificacion");
+        }
+
+        @Override
+        public RegistroAuditoria mapear(ResultSet rs) throws SQLException {
+            Timestamp modificacion = rs.getTimestamp(fecha);
+            return new RegistroAuditoria(rs.getLong(id), rs.getString(dni), rs.getString(accion),
+                    rs.getString(campo), rs.getString(anterior), rs.getString(nuevo), rs.getString(usuario),
+                    modificacion == null ? null : modificacion.toLocalDateTime());
+        }
+    }
+}
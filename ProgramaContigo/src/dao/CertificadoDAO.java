@@ -1,36 +1,75 @@
 package dao;
 
 import config.DatabaseConnection;
+import config.HistogramaLatencia;
+import config.Metricas;
 import models.Certificado;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class CertificadoDAO {
-    private Connection connection;
+    private final DatabaseConnection db;
+    private final ElegibilidadDAO elegibilidad;
+
+    // Cachés compartidas por todas las instancias; Certificado es inmutable, no hace falta copiar
+    private static final CacheLectura<String, Certificado> CACHE_POR_CODIGO = new CacheLectura<>(
+            "certificados por código",
+            Integer.getInteger("contigo.cache.certificados.max", 10_000),
+            Long.getLong("contigo.cache.certificados.ttlMs", 60_000L));
+    private static final CacheLectura<String, Certificado> CACHE_POR_PACIENTE = new CacheLectura<>(
+            "certificado vigente por DNI",
+            Integer.getInteger("contigo.cache.certificados.max", 10_000),
+            Long.getLong("contigo.cache.certificados.ttlMs", 60_000L));
+
+    // Latencia de cada operación, publicada por JMX (ver config.Metricas)
+    private static final HistogramaLatencia LATENCIA_INSERTAR = Metricas.operacion("CertificadoDAO.insertar");
+    private static final HistogramaLatencia LATENCIA_INSERTAR_EN_LOTE = Metricas.operacion("CertificadoDAO.insertarEnLote");
+    private static final HistogramaLatencia LATENCIA_PACIENTES_POR_CODIGO = Metricas.operacion("CertificadoDAO.pacientesPorCodigo");
+    private static final HistogramaLatencia LATENCIA_ACTUALIZAR = Metricas.operacion("CertificadoDAO.actualizar");
+    private static final HistogramaLatencia LATENCIA_BUSCAR_POR_DNI_PACIENTE = Metricas.operacion("CertificadoDAO.buscarPorDniPaciente");
+    private static final HistogramaLatencia LATENCIA_BUSCAR_POR_CODIGO = Metricas.operacion("CertificadoDAO.buscarPorCodigo");
+    private static final HistogramaLatencia LATENCIA_OBTENER_TODOS = Metricas.operacion("CertificadoDAO.obtenerTodos");
+    private static final HistogramaLatencia LATENCIA_PAGINA = Metricas.operacion("CertificadoDAO.pagina");
+    private static final HistogramaLatencia LATENCIA_RECORRER_VIGENTES = Metricas.operacion("CertificadoDAO.recorrerVigentes");
+    private static final HistogramaLatencia LATENCIA_MARCAR_COMO_NO_VIGENTE = Metricas.operacion("CertificadoDAO.marcarComoNoVigente");
 
     public CertificadoDAO() {
-        this.connection = DatabaseConnection.getInstance().getConnection();
+        this.db = DatabaseConnection.getInstance();
+        this.elegibilidad = new ElegibilidadDAO();
     }
 
     public boolean insertar(Certificado certificado) {
         String sql = "INSERT INTO certificados (codigo, dni_paciente, grado_discapacidad, vigente) " +
                 "VALUES (?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, certificado.getCodigo());
-            stmt.setString(2, certificado.getDniPaciente());
-            stmt.setString(3, certificado.getGradoDiscapacidad());
-            stmt.setBoolean(4, certificado.isVigente());
+        try {
+            return LATENCIA_INSERTAR.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    conn.setAutoCommit(false);
+                    stmt.setString(1, certificado.getCodigo());
+                    stmt.setString(2, certificado.getDniPaciente());
+                    stmt.setString(3, certificado.getGradoDiscapacidad());
+                    stmt.setBoolean(4, certificado.isVigente());
 
-            int filasAfectadas = stmt.executeUpdate();
+                    int filasAfectadas = stmt.executeUpdate();
+                    elegibilidad.recalcular(conn, certificado.getDniPaciente());
+                    conn.commit();
+                    invalidarCache(certificado.getCodigo(), certificado.getDniPaciente());
 
-            if (filasAfectadas > 0) {
-                System.out.println("Certificado guardado en BD: " + certificado.getCodigo());
-                return true;
-            }
+                    if (filasAfectadas > 0) {
+                        System.out.println("Certificado guardado en BD: " + certificado.getCodigo());
+                        return true;
+                    }
 
-            return false;
+                    return false;
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error al insertar certificado: " + e.getMessage());
             e.printStackTrace();
@@ -38,18 +77,75 @@ public class CertificadoDAO {
         }
     }
 
+    // Inserta un lote de certificados en un solo batch; un código ya registrado hace fallar
+    // el lote (ver pacientesPorCodigo para detectarlos antes). Recalcula la elegibilidad de
+    // los pacientes. No hace commit.
+    public void insertarEnLote(Connection conn, List<Certificado> certificados) throws SQLException {
+        String sql = "INSERT INTO certificados (codigo, dni_paciente, grado_discapacidad, vigente) " +
+                "VALUES (?, ?, ?, ?)";
+
+        LATENCIA_INSERTAR_EN_LOTE.medir(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (Certificado certificado : certificados) {
+                    stmt.setString(1, certificado.getCodigo());
+                    stmt.setString(2, certificado.getDniPaciente());
+                    stmt.setString(3, certificado.getGradoDiscapacidad());
+                    stmt.setBoolean(4, certificado.isVigente());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                elegibilidad.recalcular(conn, certificados.stream().map(Certificado::getDniPaciente).distinct().toList());
+            }
+        });
+    }
+
+    // Devuelve, de los códigos indicados, los ya registrados junto con el DNI de su paciente
+    public Map<String, String> pacientesPorCodigo(Connection conn, Collection<String> codigos) throws SQLException {
+        Map<String, String> registrados = new HashMap<>();
+        if (codigos.isEmpty()) {
+            return registrados;
+        }
+
+        LATENCIA_PACIENTES_POR_CODIGO.medir(() -> {
+            for (List<String> bloque : ListaIn.bloques(codigos)) {
+                int marcadores = ListaIn.marcadores(bloque.size());
+                String sql = "SELECT codigo, dni_paciente FROM certificados WHERE codigo IN (" +
+                        ListaIn.lista(marcadores) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    ListaIn.asignar(stmt, 1, bloque, marcadores);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            registrados.put(rs.getString(1), rs.getString(2));
+                        }
+                    }
+                }
+            }
+        });
+        return registrados;
+    }
+
     // Metodo para actualizar certificado existente
     public boolean actualizar(Certificado certificado) {
         String sql = "UPDATE certificados SET grado_discapacidad = ?, vigente = ? " +
                 "WHERE codigo = ? AND dni_paciente = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, certificado.getGradoDiscapacidad());
-            stmt.setBoolean(2, certificado.isVigente());
-            stmt.setString(3, certificado.getCodigo());
-            stmt.setString(4, certificado.getDniPaciente());
+        try {
+            return LATENCIA_ACTUALIZAR.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    conn.setAutoCommit(false);
+                    stmt.setString(1, certificado.getGradoDiscapacidad());
+                    stmt.setBoolean(2, certificado.isVigente());
+                    stmt.setString(3, certificado.getCodigo());
+                    stmt.setString(4, certificado.getDniPaciente());
 
-            return stmt.executeUpdate() > 0;
+                    boolean actualizado = stmt.executeUpdate() > 0;
+                    elegibilidad.recalcular(conn, certificado.getDniPaciente());
+                    conn.commit();
+                    invalidarCache(certificado.getCodigo(), certificado.getDniPaciente());
+                    return actualizado;
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error al actualizar certificado: " + e.getMessage());
             return false;
@@ -57,21 +153,22 @@ public class CertificadoDAO {
     }
 
     public Certificado buscarPorDniPaciente(String dniPaciente) {
+        return LATENCIA_BUSCAR_POR_DNI_PACIENTE.medir(() -> CACHE_POR_PACIENTE.obtener(dniPaciente, this::cargarPorDniPaciente));
+    }
+
+    private Certificado cargarPorDniPaciente(String dniPaciente) {
         String sql = "SELECT * FROM certificados WHERE dni_paciente = ? AND vigente = TRUE ORDER BY fecha_emision DESC LIMIT 1";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection conn = db.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, dniPaciente);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return new Certificado(
-                        rs.getString("codigo"),
-                        rs.getString("dni_paciente"),
-                        rs.getString("grado_discapacidad"),
-                        rs.getBoolean("vigente")
-                );
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new MapeadorCertificado(rs).mapear(rs);
+                }
             }
         } catch (SQLException e) {
+            LATENCIA_BUSCAR_POR_DNI_PACIENTE.error();
             System.err.println("Error al buscar certificado por DNI: " + e.getMessage());
         }
 
@@ -80,21 +177,22 @@ public class CertificadoDAO {
 
     //Buscar por código
     public Certificado buscarPorCodigo(String codigo) {
+        return LATENCIA_BUSCAR_POR_CODIGO.medir(() -> CACHE_POR_CODIGO.obtener(codigo, this::cargarPorCodigo));
+    }
+
+    private Certificado cargarPorCodigo(String codigo) {
         String sql = "SELECT * FROM certificados WHERE codigo = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection conn = db.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, codigo);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return new Certificado(
-                        rs.getString("codigo"),
-                        rs.getString("dni_paciente"),
-                        rs.getString("grado_discapacidad"),
-                        rs.getBoolean("vigente")
-                );
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new MapeadorCertificado(rs).mapear(rs);
+                }
             }
         } catch (SQLException e) {
+            LATENCIA_BUSCAR_POR_CODIGO.error();
             System.err.println("Error al buscar certificado por código: " + e.getMessage());
         }
 
@@ -106,17 +204,18 @@ public class CertificadoDAO {
         List<Certificado> certificados = new ArrayList<>();
         String sql = "SELECT * FROM certificados ORDER BY fecha_emision DESC";
 
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try {
+            LATENCIA_OBTENER_TODOS.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql);
+                     ResultSet rs = stmt.executeQuery()) {
 
-            while (rs.next()) {
-                certificados.add(new Certificado(
-                        rs.getString("codigo"),
-                        rs.getString("dni_paciente"),
-                        rs.getString("grado_discapacidad"),
-                        rs.getBoolean("vigente")
-                ));
-            }
+                    MapeadorCertificado mapeador = new MapeadorCertificado(rs);
+                    while (rs.next()) {
+                        certificados.add(mapeador.mapear(rs));
+                    }
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error al obtener certificados: " + e.getMessage());
         }
@@ -124,16 +223,130 @@ public class CertificadoDAO {
         return certificados;
     }
 
+    /**
+     * El certificado que devolvería buscarPorDniPaciente para cada paciente que tenga alguno
+     * vigente, en streaming y ordenados por DNI. Se ordena en la consulta y se toma el primero
+     * de cada paciente, sin ranking por ventana. Sobre una conexión del llamador.
+     */
+    public void recorrerVigentes(Connection conn, Consumer<Certificado> consumidor) throws SQLException {
+        String sql = "SELECT * FROM certificados WHERE vigente = TRUE " +
+                "ORDER BY dni_paciente, fecha_emision DESC, codigo DESC";
+
+        LATENCIA_RECORRER_VIGENTES.medir(() -> {
+            try (PreparedStatement stmt = DatabaseConnection.prepararStreaming(conn, sql);
+                 ResultSet rs = stmt.executeQuery()) {
+
+                MapeadorCertificado mapeador = new MapeadorCertificado(rs);
+                String anterior = null;
+                while (rs.next()) {
+                    Certificado certificado = mapeador.mapear(rs);
+                    if (!certificado.getDniPaciente().equals(anterior)) {
+                        anterior = certificado.getDniPaciente();
+                        consumidor.accept(certificado);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Página de certificados del más reciente al más antiguo, ordenada por
+     * (fecha_emision, codigo) descendente. Continúa antes de la última fila de la página
+     * anterior usando el índice (fecha_emision, codigo), sin OFFSET.
+     */
+    public Pagina<Certificado> pagina(String token, int tamano) {
+        String[] desde = Pagina.clave(token, 2);
+        String sql = "SELECT * FROM certificados " +
+                (desde == null ? "" : "WHERE (fecha_emision, codigo) < (?, ?) ") +
+                "ORDER BY fecha_emision DESC, codigo DESC LIMIT ?";
+
+        List<Certificado> certificados = new ArrayList<>(tamano);
+        try {
+            String tokenSiguiente = LATENCIA_PAGINA.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    int i = 1;
+                    if (desde != null) {
+                        stmt.setDate(i++, Date.valueOf(desde[0]));
+                        stmt.setString(i++, desde[1]);
+                    }
+                    // Una fila de más indica si existe una página siguiente
+                    stmt.setInt(i, tamano + 1);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        MapeadorCertificado mapeador = new MapeadorCertificado(rs);
+                        // La fecha de emisión no está en el modelo: se toma de la fila para el token
+                        String ultimaFecha = null;
+                        while (rs.next()) {
+                            if (certificados.size() == tamano) {
+                                Certificado ultimo = certificados.get(tamano - 1);
+                                return Pagina.token(ultimaFecha, ultimo.getCodigo());
+                            }
+                            certificados.add(mapeador.mapear(rs));
+                            ultimaFecha = rs.getDate("fecha_emision").toString();
+                        }
+                    }
+                    return null;
+                }
+            });
+            return new Pagina<>(certificados, tokenSiguiente);
+        } catch (SQLException e) {
+            System.err.println("Error al paginar certificados: " + e.getMessage());
+            return new Pagina<>(certificados, null);
+        }
+    }
+
     //Marcar certificado como no vigente
     public boolean marcarComoNoVigente(String codigo) {
         String sql = "UPDATE certificados SET vigente = FALSE WHERE codigo = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, codigo);
-            return stmt.executeUpdate() > 0;
+        try {
+            return LATENCIA_MARCAR_COMO_NO_VIGENTE.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    conn.setAutoCommit(false);
+                    stmt.setString(1, codigo);
+                    boolean marcado = stmt.executeUpdate() > 0;
+
+                    // El paciente se necesita para recalcular su elegibilidad e invalidar sus cachés
+                    String dniPaciente = null;
+                    try (PreparedStatement consulta = conn.prepareStatement(
+                            "SELECT dni_paciente FROM certificados WHERE codigo = ?")) {
+                        consulta.setString(1, codigo);
+                        try (ResultSet rs = consulta.executeQuery()) {
+                            if (rs.next()) {
+                                dniPaciente = rs.getString(1);
+                            }
+                        }
+                    }
+                    if (dniPaciente != null) {
+                        elegibilidad.recalcular(conn, dniPaciente);
+                    }
+                    conn.commit();
+
+                    if (dniPaciente != null) {
+                        invalidarCache(codigo, dniPaciente);
+                    } else {
+                        CACHE_POR_CODIGO.invalidar(codigo);
+                    }
+                    return marcado;
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error al marcar certificado como no vigente: " + e.getMessage());
             return false;
         }
     }
+
+    // Para escrituras hechas en una transacción del llamador: invalidar después del commit
+    public void invalidarCache(String codigo, String dniPaciente) {
+        CACHE_POR_CODIGO.invalidar(codigo);
+        CACHE_POR_PACIENTE.invalidar(dniPaciente);
+        // El beneficiario en caché lleva su elegibilidad, que depende del certificado
+        BeneficiarioDAO.getCache().invalidar(dniPaciente);
+    }
+
+    public static List<CacheLectura<String, Certificado>> getCaches() {
+        return List.of(CACHE_POR_CODIGO, CACHE_POR_PACIENTE);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package dao;
+
+import config.DatabaseConnection;
+import config.HistogramaLatencia;
+import config.Metricas;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Mantiene la columna beneficiarios.elegible, el estado de elegibilidad precalculado.
+ * La regla es la misma de Beneficiario.verificarElegibilidad(): activo, sin otros ingresos,
+ * clasificación pobre o pobre extremo, y certificado válido. El certificado vigente más
+ * reciente decide (tiene que ser severo); sin certificado vigente cuenta la marca
+ * tiene_certificado_discapacidad. Los DAO la recalculan en la misma transacción de cada
+ * escritura que afecta a esos datos; reconstruir() la recalcula para toda la tabla.
+ */
+public class ElegibilidadDAO {
+    private static final int TAMANO_LOTE = Integer.getInteger("contigo.elegibilidad.tamanoLote", 5000);
+
+    private static final String SQL_RECALCULAR =
+            "UPDATE beneficiarios b SET b.elegible = (" +
+            "b.activo = TRUE AND b.tiene_otros_ingresos = FALSE " +
+            "AND b.clasificacion_economica IN ('pobre', 'pobre extremo') " +
+            "AND COALESCE((SELECT c.grado_discapacidad = 'severa' FROM certificados c " +
+            "WHERE c.dni_paciente = b.dni AND c.vigente = TRUE " +
+            "ORDER BY c.fecha_emision DESC, c.codigo DESC LIMIT 1), " +
+            "b.tiene_certificado_discapacidad)) ";
+
+    private final DatabaseConnection db;
+
+    public record Resultado(long procesados, long elegibles, int lotes, long milisegundos) {}
+
+    // Latencia de cada operación, publicada por JMX (ver config.Metricas)
+    private static final HistogramaLatencia LATENCIA_RECALCULAR = Metricas.operacion("ElegibilidadDAO.recalcular");
+    private static final HistogramaLatencia LATENCIA_RECALCULAR_LOTE = Metricas.operacion("ElegibilidadDAO.recalcularLote");
+    private static final HistogramaLatencia LATENCIA_RECONSTRUIR = Metricas.operacion("ElegibilidadDAO.reconstruir");
+
+    public ElegibilidadDAO() {
+        this.db = DatabaseConnection.getInstance();
+    }
+
+    // Recalcula un beneficiario sobre la conexión del llamador. No hace commit.
+    public void recalcular(Connection conn, String dni) throws SQLException {
+        LATENCIA_RECALCULAR.medir(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_RECALCULAR + "WHERE b.dni = ?")) {
+                stmt.setString(1, dni);
+                stmt.executeUpdate();
+            }
+        });
+    }
+
+    // Recalcula varios beneficiarios en un solo batch. No hace commit.
+    public void recalcular(Connection conn, Collection<String> dnis) throws SQLException {
+        if (dnis.isEmpty()) {
+            return;
+        }
+        LATENCIA_RECALCULAR_LOTE.medir(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_RECALCULAR + "WHERE b.dni = ?")) {
+                for (String dni : dnis) {
+                    stmt.setString(1, dni);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Recalcula toda la tabla en tramos de DNI consecutivos, cada uno en su propia
+     * transacción, para no bloquear la tabla completa mientras dura la reconstrucción.
+     */
+    public Resultado reconstruir() {
+        long inicio = System.nanoTime();
+        long procesados = 0;
+        long elegibles = 0;
+        int lotes = 0;
+        String desdeDni = "";
+
+        try (Connection conn = db.getConnection()) {
+            conn.setAutoCommit(false);
+
+            while (true) {
+                List<String> tramo = siguienteTramo(conn, desdeDni);
+                if (tramo.isEmpty()) {
+                    break;
+                }
+                String hastaDni = tramo.get(tramo.size() - 1);
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        SQL_RECALCULAR + "WHERE b.dni > ? AND b.dni <= ?")) {
+                    stmt.setString(1, desdeDni);
+                    stmt.setString(2, hastaDni);
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+
+                lotes++;
+                procesados += tramo.size();
+                desdeDni = hastaDni;
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT COUNT(*) FROM beneficiarios WHERE elegible = TRUE");
+                 ResultSet rs = stmt.executeQuery()) {
+                elegibles = rs.next() ? rs.getLong(1) : 0;
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            LATENCIA_RECONSTRUIR.error();
+            System.err.println("Error al reconstruir la elegibilidad (hasta DNI " + desdeDni + "): " + e.getMessage());
+        }
+
+        BeneficiarioDAO.getCache().limpiar();
+        LATENCIA_RECONSTRUIR.registrar(inicio);
+        long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+        return new Resultado(procesados, elegibles, lotes, milisegundos);
+    }
+
+    private List<String> siguienteTramo(Connection conn, String desdeDni) throws SQLException {
+        List<String> dnis = new ArrayList<>(TAMANO_LOTE);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT dni FROM beneficiarios WHERE dni > ? ORDER BY dni LIMIT ?")) {
+            stmt.setString(1, desdeDni);
+            stmt.setInt(2, TAMANO_LOTE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    dnis.add(rs.getString(1));
+                }
+            }
+        }
+        return dnis;
+    }
+}
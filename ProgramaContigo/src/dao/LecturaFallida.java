@@ -0,0 +1,21 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Un recorrido en streaming que se cortó porque la base falló a mitad de camino. Es no
+ * verificada para poder atravesar los Consumer del recorrido: quien escribe un reporte a
+ * archivo la recibe y lo descarta, en lugar de publicar un resultado truncado.
+ */
+public class LecturaFallida extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public LecturaFallida(String mensaje, SQLException causa) {
+        super(mensaje + ": " + causa.getMessage(), causa);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
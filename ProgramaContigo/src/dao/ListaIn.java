@@ -0,0 +1,54 @@
+package dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Consultas con lista IN de DNI, partidas en bloques. Cada bloque se completa hasta una
+ * potencia de dos repitiendo su último valor, así solo existen unas pocas variantes del SQL
+ * (8, 16, ... hasta el máximo) y todas se reutilizan desde la caché de sentencias; el tope
+ * de cada bloque (-Dcontigo.listaIn.maximo, 512) mantiene acotados el SQL y el plan.
+ */
+final class ListaIn {
+    static final int MAXIMO = Integer.highestOneBit(Math.max(8, Integer.getInteger("contigo.listaIn.maximo", 512)));
+
+    private ListaIn() {
+    }
+
+    // Valores sin repetir, en bloques de hasta MAXIMO
+    static List<List<String>> bloques(Collection<String> valores) {
+        List<String> distintos = new ArrayList<>(new LinkedHashSet<>(valores));
+        List<List<String>> bloques = new ArrayList<>((distintos.size() + MAXIMO - 1) / MAXIMO);
+        for (int desde = 0; desde < distintos.size(); desde += MAXIMO) {
+            bloques.add(distintos.subList(desde, Math.min(desde + MAXIMO, distintos.size())));
+        }
+        return bloques;
+    }
+
+    // Cantidad de marcadores para un bloque: la potencia de dos siguiente, como mínimo 8
+    static int marcadores(int cantidad) {
+        return Integer.highestOneBit(Math.max(8, cantidad) - 1) << 1;
+    }
+
+    // "?, ?, ..." para armar el IN
+    static String lista(int marcadores) {
+        return String.join(", ", Collections.nCopies(marcadores, "?"));
+    }
+
+    // Asigna el bloque desde el parámetro indicado y completa con el último valor
+    static void asignar(PreparedStatement stmt, int desde, List<String> bloque, int marcadores) throws SQLException {
+        int i = desde;
+        for (String valor : bloque) {
+            stmt.setString(i++, valor);
+        }
+        String ultimo = bloque.get(bloque.size() - 1);
+        while (i < desde + marcadores) {
+            stmt.setString(i++, ultimo);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package dao;
+
+import models.Autorizado;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public final class MapeadorAutorizado extends MapeadorFila<Autorizado> {
+    private final int dni;
+    private final int nombre;
+    private final int apellido;
+    private final int dniBeneficiario;
+    private final int parentesco;
+    private final int autorizado;
+
+    public MapeadorAutorizado(ResultSet rs) throws SQLException {
+        super(rs);
+        dni = indice("dni");
+        nombre = indice("nombre");
+        apellido = indice("apellido");
+        dniBeneficiario = indice("dni_beneficiario");
+        parentesco = indice("parentesco");
+        autorizado = indice("autorizado");
+    }
+
+    @Override
+    public Autorizado mapear(ResultSet rs) throws SQLException {
+        Autorizado resultado = new Autorizado(
+                rs.getString(dni),
+                rs.getString(nombre),
+                rs.getString(apellido),
+                rs.getString(dniBeneficiario),
+                rs.getString(parentesco)
+        );
+        resultado.setAutorizado(rs.getBoolean(autorizado));
+        return resultado;
+    }
+}
@@ -0,0 +1,100 @@
+package dao;
+
+import models.Beneficiario;
+import models.Certificado;
+import models.ClasificacionEconomica;
+import models.GradoDiscapacidad;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Mapeo único de filas de beneficiarios (tabla y vistas). Los padrones cobrados, el estado
+ * de elegibilidad precalculado, la marca de activo y el certificado asociado (columnas cert_*)
+ * se leen cuando la consulta los incluye. Clasificación y grado se leen directamente como constantes y la
+ * región como la instancia compartida del diccionario de regiones.
+ */
+public final class MapeadorBeneficiario extends MapeadorFila<Beneficiario> {
+    private final int dni;
+    private final int nombre;
+    private final int apellido;
+    private final int tieneCertificado;
+    private final int tieneIngresos;
+    private final int clasificacion;
+    private final int region;
+    private final int pension;
+    private final int fechaInscripcion;
+    private final int padronesCobrados;
+    private final int elegible;
+    private final int activo;
+    private final int certCodigo;
+    private final int certGrado;
+    private final int certVigente;
+
+    public MapeadorBeneficiario(ResultSet rs) throws SQLException {
+        super(rs);
+        dni = indice("dni");
+        nombre = indice("nombre");
+        apellido = indice("apellido");
+        tieneCertificado = indice("tiene_certificado_discapacidad");
+        tieneIngresos = indice("tiene_otros_ingresos");
+        clasificacion = indice("clasificacion_economica");
+        region = indice("region");
+        pension = indiceOpcional("pension_recibida");
+        fechaInscripcion = indiceOpcional("fecha_inscripcion");
+        padronesCobrados = indiceOpcional("padrones_cobrados");
+        elegible = indiceOpcional("elegible");
+        activo = indiceOpcional("activo");
+        certCodigo = indiceOpcional("cert_codigo");
+        certGrado = indiceOpcional("cert_grado_discapacidad");
+        certVigente = indiceOpcional("cert_vigente");
+    }
+
+    @Override
+    public Beneficiario mapear(ResultSet rs) throws SQLException {
+        Beneficiario beneficiario = new Beneficiario(
+                rs.getString(dni),
+                rs.getString(nombre),
+                rs.getString(apellido),
+                rs.getBoolean(tieneCertificado),
+                rs.getBoolean(tieneIngresos),
+                ClasificacionEconomica.desde(rs.getString(clasificacion)),
+                rs.getString(region)
+        );
+
+        if (pension > 0) {
+            beneficiario.setPensionRecibida(rs.getDouble(pension));
+        }
+        if (fechaInscripcion > 0) {
+            Date fecha = rs.getDate(fechaInscripcion);
+            if (fecha != null) {
+                beneficiario.setFechaInscripcion(fecha.toLocalDate());
+            }
+        }
+
+        if (padronesCobrados > 0) {
+            beneficiario.setPadronesCobrados(rs.getInt(padronesCobrados));
+        }
+        if (activo > 0) {
+            beneficiario.setActivo(rs.getBoolean(activo));
+        }
+
+        if (certCodigo > 0) {
+            String codigo = rs.getString(certCodigo);
+            if (codigo != null) {
+                beneficiario.setCertificadoMedico(new Certificado(
+                        codigo,
+                        beneficiario.getDni(),
+                        GradoDiscapacidad.desde(rs.getString(certGrado)),
+                        rs.getBoolean(certVigente)));
+            }
+        }
+
+        // Al final, porque asociar el certificado descarta el estado registrado
+        if (elegible > 0) {
+            beneficiario.setElegibilidadRegistrada(rs.getBoolean(elegible));
+        }
+
+        return beneficiario;
+    }
+}
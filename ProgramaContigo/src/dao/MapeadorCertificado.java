@@ -0,0 +1,31 @@
+package dao;
+
+import models.Certificado;
+import models.GradoDiscapacidad;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public final class MapeadorCertificado extends MapeadorFila<Certificado> {
+    private final int codigo;
+    private final int dniPaciente;
+    private final int grado;
+    private final int vigente;
+
+    public MapeadorCertificado(ResultSet rs) throws SQLException {
+        super(rs);
+        codigo = indice("codigo");
+        dniPaciente = indice("dni_paciente");
+        grado = indice("grado_discapacidad");
+        vigente = indice("vigente");
+    }
+
+    @Override
+    public Certificado mapear(ResultSet rs) throws SQLException {
+        return new Certificado(
+                rs.getString(codigo),
+                rs.getString(dniPaciente),
+                GradoDiscapacidad.desde(rs.getString(grado)),
+                rs.getBoolean(vigente)
+        );
+    }
+}
@@ -0,0 +1,39 @@
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Convierte filas de un ResultSet en objetos del modelo.
+ * Los índices de columna se resuelven una sola vez al crear el mapeador (uno por ResultSet)
+ * y luego cada fila se lee por posición, sin buscar columnas por nombre.
+ */
+public abstract class MapeadorFila<T> {
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    protected MapeadorFila(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        for (int i = meta.getColumnCount(); i >= 1; i--) {
+            // Si una etiqueta se repite (p. ej. en un JOIN) gana la primera columna
+            indices.put(meta.getColumnLabel(i).toLowerCase(), i);
+        }
+    }
+
+    public abstract T mapear(ResultSet rs) throws SQLException;
+
+    protected final int indice(String columna) throws SQLException {
+        Integer indice = indices.get(columna);
+        if (indice == null) {
+            throw new SQLException("La consulta no devuelve la columna " + columna);
+        }
+        return indice;
+    }
+
+    // Devuelve 0 si la columna no está en la consulta
+    protected final int indiceOpcional(String columna) {
+        return indices.getOrDefault(columna, 0);
+    }
+}
@@ -0,0 +1,136 @@
+package dao;
+
+import config.DatabaseConnection;
+import config.HistogramaLatencia;
+import config.Metricas;
+import models.CalendarioPadrones;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object para la tabla de padrones (calendario de pagos)
+ */
+public class PadronDAO {
+    private final DatabaseConnection db;
+
+    // El calendario cambia a lo sumo una vez al año: se lee una vez por año y se comparte
+    private static final CacheLectura<Integer, CalendarioPadrones> CACHE_CALENDARIOS = new CacheLectura<>(
+            "calendarios de padrones",
+            16,
+            Long.getLong("contigo.cache.padrones.ttlMs", 3_600_000L));
+
+    // Latencia de cada operación, publicada por JMX (ver config.Metricas)
+    private static final HistogramaLatencia LATENCIA_OBTENER_MONTO = Metricas.operacion("PadronDAO.obtenerMonto");
+    private static final HistogramaLatencia LATENCIA_CARGAR_CALENDARIO = Metricas.operacion("PadronDAO.cargarCalendario");
+    private static final HistogramaLatencia LATENCIA_ANIO_VIGENTE = Metricas.operacion("PadronDAO.anioVigente");
+
+    public PadronDAO() {
+        this.db = DatabaseConnection.getInstance();
+    }
+
+    // Devuelve el monto del padrón activo indicado, o -1 si no existe
+    public double obtenerMonto(int numeroPadron) {
+        String sql = "SELECT monto FROM padrones WHERE numero_padron = ? AND activo = TRUE";
+
+        try {
+            return LATENCIA_OBTENER_MONTO.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, numeroPadron);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            return rs.getDouble("monto");
+                        }
+                        return -1.0;
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Error al obtener monto del padrón: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Calendario de los padrones activos del año, leído de la base la primera vez y servido
+     * desde la caché después. Devuelve null si el año no tiene padrones o hubo un error.
+     * Con uk_numero_padron la tabla guarda un solo año a la vez (ver db.sql): los demás años
+     * devuelven null hasta que se cargue su calendario en lugar del actual.
+     */
+    public CalendarioPadrones obtenerCalendario(int anio) {
+        return CACHE_CALENDARIOS.obtener(anio, this::cargarCalendario);
+    }
+
+    /**
+     * Calendario del año configurado con -Dcontigo.padrones.anio o, si no se indica, del año
+     * del último padrón activo registrado. Devuelve null si la tabla no tiene padrones.
+     */
+    public CalendarioPadrones obtenerCalendarioVigente() {
+        Integer anio = Integer.getInteger("contigo.padrones.anio");
+        if (anio == null) {
+            anio = anioVigente();
+        }
+        return anio == null ? null : obtenerCalendario(anio);
+    }
+
+    public static void invalidarCalendarios() {
+        CACHE_CALENDARIOS.limpiar();
+    }
+
+    public static CacheLectura<Integer, CalendarioPadrones> getCache() {
+        return CACHE_CALENDARIOS;
+    }
+
+    private CalendarioPadrones cargarCalendario(int anio) {
+        // Rango de fechas en lugar de YEAR(fecha_pago) para no envolver la columna en una función
+        String sql = "SELECT numero_padron, periodo_meses, fecha_pago, monto FROM padrones " +
+                "WHERE activo = TRUE AND fecha_pago >= ? AND fecha_pago < ? ORDER BY fecha_pago";
+
+        try {
+            return LATENCIA_CARGAR_CALENDARIO.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setDate(1, Date.valueOf(anio + "-01-01"));
+                    stmt.setDate(2, Date.valueOf((anio + 1) + "-01-01"));
+
+                    List<CalendarioPadrones.Fecha> fechas = new ArrayList<>();
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            fechas.add(new CalendarioPadrones.Fecha(
+                                    rs.getInt("numero_padron"),
+                                    rs.getString("periodo_meses"),
+                                    rs.getDate("fecha_pago").toLocalDate(),
+                                    rs.getDouble("monto")));
+                        }
+                    }
+                    return fechas.isEmpty() ? null : new CalendarioPadrones(anio, fechas);
+                }
+            });
+        } catch (SQLException | IllegalArgumentException e) {
+            System.err.println("Error al cargar el calendario de padrones " + anio + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Integer anioVigente() {
+        String sql = "SELECT MAX(fecha_pago) FROM padrones WHERE activo = TRUE";
+
+        try {
+            return LATENCIA_ANIO_VIGENTE.medir(() -> {
+                try (Connection conn = db.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql);
+                     ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next() && rs.getDate(1) != null) {
+                        return rs.getDate(1).toLocalDate().getYear();
+                    }
+                    return null;
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Error al obtener el año de los padrones: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Una página de un listado paginado por clave (keyset). siguiente es el token opaco que
+ * se pasa para pedir la página que sigue, o null si esta es la última. El token codifica
+ * los valores de la clave de orden de la última fila; así cada página se busca directamente
+ * en el índice y la página N cuesta lo mismo que la primera.
+ */
+public record Pagina<T>(List<T> elementos, String siguiente) {
+    private static final String SEPARADOR = "\u001F";
+
+    public boolean hayMas() {
+        return siguiente != null;
+    }
+
+    // Arma el token con los valores de la clave de orden de la última fila
+    static String token(String... clave) {
+        byte[] bytes = String.join(SEPARADOR, clave).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // Devuelve los valores de la clave; null para la primera página
+    static String[] clave(String token, int partes) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] valores = texto.split(SEPARADOR, -1);
+            if (valores.length != partes) {
+                throw new IllegalArgumentException("Token de página inválido");
+            }
+            return valores;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Token de página inválido", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package interfaces;
+
+import java.util.function.Supplier;
+
+/**
+ * Destino de un reporte: consola, CSV o JSON lines. El reporte declara sus columnas con
+ * iniciar y luego entrega las filas de a una, a medida que las lee de la base; ninguna
+ * implementación retiene filas, así la memoria usada no depende del tamaño del padrón.
+ * Los errores de escritura se informan con UncheckedIOException.
+ */
+public interface SalidaReporte extends AutoCloseable {
+
+    void iniciar(String titulo, String... columnas);
+
+    // valores en el orden de las columnas; texto es la forma legible de la fila y solo se
+    // evalúa si la salida la usa
+    void fila(Supplier<String> texto, Object... valores);
+
+    // Subtítulos y totales para lectura humana; las salidas a archivo los omiten
+    default void mensaje(String texto) {
+    }
+
+    @Override
+    void close();
+}
@@ -7,12 +7,14 @@ public class Autorizado extends Persona implements Verificable, Reportable {
     private String dniBeneficiario;
     private String parentesco;
     private boolean autorizado;
+    private boolean parentescoValido; // Se evalúa una vez, al asignar el parentesco
 
     public Autorizado(String dni, String nombre, String apellido,
                       String dniBeneficiario, String parentesco) {
         super(dni, nombre, apellido);
         this.dniBeneficiario = dniBeneficiario;
         this.parentesco = parentesco;
+        this.parentescoValido = Parentesco.esValido(parentesco);
         this.autorizado = true; // Por defecto se crea como autorizado
     }
 
@@ -32,18 +34,9 @@ public class Autorizado extends Persona implements Verificable, Reportable {
         return autorizado && esParentescoValido();
     }
 
+    // Parentescos permitidos según normativa (ver Parentesco.PERMITIDOS)
     public boolean esParentescoValido() {
-        // Validar parentescos permitidos según normativa
-        String[] parentescosValidos = {"hijo", "hija", "esposo", "esposa",
-                "padre", "madre", "hermano", "hermana",
-                "tutor", "tutora"};
-
-        for (String parentescoValido : parentescosValidos) {
-            if (parentesco.toLowerCase().contains(parentescoValido)) {
-                return true;
-            }
-        }
-        return false;
+        return parentescoValido;
     }
 
     @Override
@@ -77,5 +70,6 @@ public class Autorizado extends Persona implements Verificable, Reportable {
 
     public void setParentesco(String parentesco) {
         this.parentesco = parentesco;
+        this.parentescoValido = Parentesco.esValido(parentesco);
     }
 }
\ No newline at end of file
@@ -3,28 +3,58 @@ import interfaces.Verificable;
 import interfaces.Reportable;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 public class Beneficiario extends Persona implements Verificable, Reportable {
+    // Valores permitidos por el ENUM clasificacion_economica de la tabla beneficiarios
+    public static final List<String> CLASIFICACIONES = ClasificacionEconomica.valores();
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
     private boolean tieneCertificadoDiscapacidad;
     private boolean tieneOtrosIngresos;
-    private String clasificacionEconomica;
+    private ClasificacionEconomica clasificacionEconomica;
     private String region;
     private double pensionRecibida;
     private Certificado certificadoMedico;
     private LocalDate fechaInscripcion;
-    private boolean[] padronesRecibidos; // Array para rastrear qué padrones ha cobrado
+    private int padronesCobrados; // Máscara de bits: el bit (n - 1) encendido indica que cobró el padrón n
+    private Boolean elegibilidadRegistrada; // Estado precalculado en la BD; null si hay que evaluar la regla
+    private boolean activo = true; // false una vez dado de baja por fallecimiento
 
     public Beneficiario(String dni, String nombre, String apellido,
                         boolean tieneCertificado, boolean tieneIngresos,
                         String clasificacion, String region) {
+        this(dni, nombre, apellido, tieneCertificado, tieneIngresos,
+                ClasificacionEconomica.desde(clasificacion), region);
+    }
+
+    // Usado por los DAO, que ya leen la clasificación como constante
+    public Beneficiario(String dni, String nombre, String apellido,
+                        boolean tieneCertificado, boolean tieneIngresos,
+                        ClasificacionEconomica clasificacion, String region) {
         super(dni, nombre, apellido);
         this.tieneCertificadoDiscapacidad = tieneCertificado;
         this.tieneOtrosIngresos = tieneIngresos;
         this.clasificacionEconomica = clasificacion;
-        this.region = region;
+        this.region = Regiones.normalizar(region);
         this.pensionRecibida = 0.0;
         this.fechaInscripcion = LocalDate.now();
-        this.padronesRecibidos = new boolean[6]; // 6 padrones anuales
+        this.padronesCobrados = 0; // 6 padrones anuales, ninguno cobrado
+    }
+
+    // Copia independiente del beneficiario
+    public Beneficiario(Beneficiario otro) {
+        super(otro.dni, otro.nombre, otro.apellido);
+        this.tieneCertificadoDiscapacidad = otro.tieneCertificadoDiscapacidad;
+        this.tieneOtrosIngresos = otro.tieneOtrosIngresos;
+        this.clasificacionEconomica = otro.clasificacionEconomica;
+        this.region = otro.region;
+        this.pensionRecibida = otro.pensionRecibida;
+        this.certificadoMedico = otro.certificadoMedico;
+        this.fechaInscripcion = otro.fechaInscripcion;
+        this.padronesCobrados = otro.padronesCobrados;
+        this.elegibilidadRegistrada = otro.elegibilidadRegistrada;
+        this.activo = otro.activo;
     }
 
     @Override
@@ -32,13 +62,21 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
         System.out.println("Beneficiario: " + getNombreCompleto() +
                 " - DNI: " + dni +
                 " - Región: " + region +
-                " - Fecha inscripción: " + fechaInscripcion.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")) +
+                " - Fecha inscripción: " + fechaInscripcion.format(FORMATO_FECHA) +
                 " - Pensión acumulada: S/" + pensionRecibida +
                 " - Estado: " + (verificarElegibilidad() ? "Elegible" : "No elegible"));
     }
 
     @Override
     public boolean verificarElegibilidad() {
+        if (elegibilidadRegistrada != null) {
+            return elegibilidadRegistrada;
+        }
+        return cumpleRequisitos();
+    }
+
+    // Evalúa la regla con los datos del objeto, sin mirar el estado registrado en la BD
+    public boolean cumpleRequisitos() {
         boolean certificadoValido = tieneCertificadoDiscapacidad;
 
         if (certificadoMedico != null) {
@@ -47,8 +85,7 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
 
         return certificadoValido &&
                 !tieneOtrosIngresos &&
-                (clasificacionEconomica.equals("pobre") ||
-                        clasificacionEconomica.equals("pobre extremo"));
+                clasificacionEconomica.habilitaPension();
     }
 
     @Override
@@ -56,7 +93,7 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
         return "Beneficiario: " + getNombreCompleto() + "\n" +
                 "DNI: " + dni + "\n" +
                 "Región: " + region + "\n" +
-                "Fecha de inscripción: " + fechaInscripcion.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")) + "\n" +
+                "Fecha de inscripción: " + fechaInscripcion.format(FORMATO_FECHA) + "\n" +
                 "Clasificación: " + clasificacionEconomica + "\n" +
                 "Tiene certificado: " + (tieneCertificadoDiscapacidad ? "Sí" : "No") + "\n" +
                 "Tiene otros ingresos: " + (tieneOtrosIngresos ? "Sí" : "No") + "\n" +
@@ -66,9 +103,9 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
 
     public void recibirPension(int numeroPadron) {
         if (verificarElegibilidad() && numeroPadron >= 1 && numeroPadron <= 6) {
-            if (!padronesRecibidos[numeroPadron - 1]) {
+            if (!haCobradoPadron(numeroPadron)) {
                 pensionRecibida += 300;
-                padronesRecibidos[numeroPadron - 1] = true;
+                padronesCobrados |= bitPadron(numeroPadron);
                 System.out.println(nombre + " ha recibido S/300 del Padrón " + numeroPadron +
                         ". Total acumulado: S/" + pensionRecibida);
             } else {
@@ -87,71 +124,43 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
     }
 
     public int obtenerProximoPadronACobrar() {
-        // Definir fechas de pago de 2025
-        LocalDate[] fechasPago = {
-                LocalDate.of(2025, 2, 21),  // Padrón I
-                LocalDate.of(2025, 4, 25),  // Padrón II
-                LocalDate.of(2025, 6, 20),  // Padrón III
-                LocalDate.of(2025, 8, 22),  // Padrón IV
-                LocalDate.of(2025, 10, 24), // Padrón V
-                LocalDate.of(2025, 12, 5)   // Padrón VI
-        };
-
-        LocalDate hoy = LocalDate.now();
+        return obtenerProximoPadronACobrar(CalendarioPadrones.vigente());
+    }
 
-        for (int i = 0; i < 6; i++) {
-            // Si puede cobrar este padrón y no lo ha cobrado aún
-            if (puedeRecibirPadron(i + 1, fechasPago[i]) &&
-                    !padronesRecibidos[i] &&
-                    hoy.isBefore(fechasPago[i])) {
-                return i + 1;
-            }
-        }
-        return -1; // No hay próximo padrón disponible
+    // Próximo padrón según el calendario indicado, o -1 si no hay ninguno disponible
+    public int obtenerProximoPadronACobrar(CalendarioPadrones calendario) {
+        return calendario.proximoPadron(fechaInscripcion, padronesCobrados, LocalDate.now());
     }
 
     public String generarCronogramaPagos() {
-        StringBuilder cronograma = new StringBuilder();
+        return generarCronogramaPagos(CalendarioPadrones.vigente());
+    }
 
-        cronograma.append("=== CRONOGRAMA DE PAGOS 2025 ===\n");
+    public String generarCronogramaPagos(CalendarioPadrones calendario) {
+        StringBuilder cronograma = new StringBuilder(640);
+        LocalDate hoy = LocalDate.now();
+
+        cronograma.append("=== CRONOGRAMA DE PAGOS ").append(calendario.getAnio()).append(" ===\n");
         cronograma.append("Beneficiario: ").append(getNombreCompleto()).append("\n");
         cronograma.append("DNI: ").append(dni).append("\n");
-        cronograma.append("Fecha de inscripción: ").append(fechaInscripcion.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))).append("\n");
-        cronograma.append("Fecha de generación: ").append(LocalDate.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))).append("\n\n");
-
-        // Definir fechas y nombres de padrones
-        String[] nombresPadrones = {
-                "Padrón I (enero-febrero): 21 de febrero",
-                "Padrón II (marzo-abril): 25 de abril",
-                "Padrón III (mayo-junio): 20 de junio",
-                "Padrón IV (julio-agosto): 22 de agosto",
-                "Padrón V (septiembre-octubre): 24 de octubre",
-                "Padrón VI (noviembre-diciembre): 5 de diciembre"
-        };
-
-        LocalDate[] fechasPago = {
-                LocalDate.of(2025, 2, 21),  // Padrón I
-                LocalDate.of(2025, 4, 25),  // Padrón II
-                LocalDate.of(2025, 6, 20),  // Padrón III
-                LocalDate.of(2025, 8, 22),  // Padrón IV
-                LocalDate.of(2025, 10, 24), // Padrón V
-                LocalDate.of(2025, 12, 5)   // Padrón VI
-        };
-
-        int proximoPadron = obtenerProximoPadronACobrar();
+        cronograma.append("Fecha de inscripción: ").append(fechaInscripcion.format(FORMATO_FECHA)).append("\n");
+        cronograma.append("Fecha de generación: ").append(hoy.format(FORMATO_FECHA)).append("\n\n");
+
+        int proximoPadron = calendario.proximoPadron(fechaInscripcion, padronesCobrados, hoy);
         boolean hayInscripcionTardia = false;
 
-        for (int i = 0; i < 6; i++) {
-            cronograma.append(nombresPadrones[i]);
+        for (int numeroPadron : calendario.numeros()) {
+            LocalDate fechaPago = calendario.fechaPago(numeroPadron);
+            cronograma.append(calendario.nombre(numeroPadron));
 
-            if (padronesRecibidos[i]) {
+            if (haCobradoPadron(numeroPadron)) {
                 cronograma.append(" (Ya cobrado)");
-            } else if (!puedeRecibirPadron(i + 1, fechasPago[i])) {
+            } else if (!puedeRecibirPadron(numeroPadron, fechaPago)) {
                 cronograma.append(" (No cobrado - inscripción tardía)");
                 hayInscripcionTardia = true;
-            } else if (i + 1 == proximoPadron) {
+            } else if (numeroPadron == proximoPadron) {
                 cronograma.append(" (Próximo pago - Primer padrón a cobrar)");
-            } else if (LocalDate.now().isAfter(fechasPago[i])) {
+            } else if (hoy.isAfter(fechaPago)) {
                 cronograma.append(" (Perdido - fecha vencida)");
             } else {
                 cronograma.append(" (Disponible)");
@@ -172,6 +181,7 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
         if (certificado.getDniPaciente().equals(this.dni)) {
             this.certificadoMedico = certificado;
             this.tieneCertificadoDiscapacidad = true;
+            this.elegibilidadRegistrada = null;
             System.out.println("Certificado asignado correctamente a " + getNombreCompleto());
         } else {
             System.out.println("Error: El certificado no corresponde a este beneficiario");
@@ -180,12 +190,13 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
 
     // RF3 - Métodos de actualización de información
     public void actualizarClasificacion(String nuevaClasificacion) {
-        String clasificacionAnterior = this.clasificacionEconomica;
-        this.clasificacionEconomica = nuevaClasificacion;
+        ClasificacionEconomica clasificacionAnterior = this.clasificacionEconomica;
+        this.clasificacionEconomica = ClasificacionEconomica.desde(nuevaClasificacion);
+        this.elegibilidadRegistrada = null;
 
         System.out.println("Clasificación socioeconómica actualizada:");
         System.out.println("Anterior: " + clasificacionAnterior);
-        System.out.println("Nueva: " + nuevaClasificacion);
+        System.out.println("Nueva: " + clasificacionEconomica);
 
         if (!verificarElegibilidad()) {
             System.out.println("ADVERTENCIA: El beneficiario ya no cumple los requisitos de elegibilidad");
@@ -195,6 +206,7 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
     public void actualizarIngresos(boolean tieneIngresos) {
         boolean estadoAnterior = this.tieneOtrosIngresos;
         this.tieneOtrosIngresos = tieneIngresos;
+        this.elegibilidadRegistrada = null;
 
         System.out.println("Estado de otros ingresos actualizado:");
         System.out.println("Anterior: " + (estadoAnterior ? "Sí tiene" : "No tiene"));
@@ -207,13 +219,28 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
 
     public void actualizarRegion(String nuevaRegion) {
         String regionAnterior = this.region;
-        this.region = nuevaRegion;
+        this.region = Regiones.normalizar(nuevaRegion);
 
         System.out.println("Región actualizada:");
         System.out.println("Anterior: " + regionAnterior);
         System.out.println("Nueva: " + nuevaRegion);
     }
 
+    // Asignaciones sin mensajes para cambios ya validados (por ejemplo, los de una escritura diferida)
+    public void setClasificacion(ClasificacionEconomica clasificacion) {
+        this.clasificacionEconomica = clasificacion;
+        this.elegibilidadRegistrada = null;
+    }
+
+    public void setTieneOtrosIngresos(boolean tieneOtrosIngresos) {
+        this.tieneOtrosIngresos = tieneOtrosIngresos;
+        this.elegibilidadRegistrada = null;
+    }
+
+    public void setRegion(String region) {
+        this.region = Regiones.normalizar(region);
+    }
+
     public void setPensionRecibida(double pensionRecibida) {
         this.pensionRecibida = pensionRecibida;
     }
@@ -222,8 +249,32 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
         this.fechaInscripcion = fechaInscripcion;
     }
 
-    public void setPadronesRecibidos(boolean[] padronesRecibidos) {
-        this.padronesRecibidos = padronesRecibidos;
+    // Asocia el certificado leído de la BD sin validaciones ni mensajes (uso de los DAO)
+    public void setCertificadoMedico(Certificado certificadoMedico) {
+        this.certificadoMedico = certificadoMedico;
+        this.elegibilidadRegistrada = null;
+    }
+
+    // Estado leído de la columna elegible; cualquier cambio posterior en los datos lo descarta
+    public void setElegibilidadRegistrada(boolean elegible) {
+        this.elegibilidadRegistrada = elegible;
+    }
+
+    // Estado leído de la columna elegible, o null si no se leyó o quedó descartado
+    public Boolean getElegibilidadRegistrada() {
+        return elegibilidadRegistrada;
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    public void setActivo(boolean activo) {
+        this.activo = activo;
+    }
+
+    public void setPadronesCobrados(int padronesCobrados) {
+        this.padronesCobrados = padronesCobrados;
     }
 
     // Getter adicional para el nombre (heredado de Persona)
@@ -240,7 +291,12 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
         return pensionRecibida;
     }
 
+    // Texto del ENUM de la base, tal como se guarda y se informa
     public String getClasificacionEconomica() {
+        return clasificacionEconomica.getValor();
+    }
+
+    public ClasificacionEconomica getClasificacion() {
         return clasificacionEconomica;
     }
 
@@ -268,18 +324,31 @@ public class Beneficiario extends Persona implements Verificable, Reportable {
         return fechaInscripcion;
     }
 
-    public boolean[] getPadronesRecibidos() {
-        return padronesRecibidos;
+    public int getPadronesCobrados() {
+        return padronesCobrados;
     }
     // En Beneficiario.java, asegúrate de tener este método:
     public void setTieneCertificadoDiscapacidad(boolean tieneCertificadoDiscapacidad) {
         this.tieneCertificadoDiscapacidad = tieneCertificadoDiscapacidad;
+        this.elegibilidadRegistrada = null;
+    }
+
+    public static boolean esClasificacionValida(String clasificacion) {
+        return ClasificacionEconomica.buscar(clasificacion) != null;
     }
 
     public boolean haCobradoPadron(int numeroPadron) {
         if (numeroPadron >= 1 && numeroPadron <= 6) {
-            return padronesRecibidos[numeroPadron - 1];
+            return (padronesCobrados & bitPadron(numeroPadron)) != 0;
         }
         return false;
     }
+
+    // Bit que representa al padrón en la máscara (misma codificación que la columna padrones_cobrados)
+    public static int bitPadron(int numeroPadron) {
+        if (numeroPadron < 1 || numeroPadron > 6) {
+            throw new IllegalArgumentException("Número de padrón inválido: " + numeroPadron);
+        }
+        return 1 << (numeroPadron - 1);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package models;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Calendario de padrones de un año: número, periodo, fecha de pago y monto de cada uno.
+ * Es inmutable y se comparte entre todos los beneficiarios; lo carga PadronDAO desde la
+ * tabla padrones. Al construirlo se precalcula, para cada día del año, el primer padrón cuya
+ * fecha de pago es ese día o posterior, y la máscara de bits de los padrones desde ahí en
+ * adelante: el próximo padrón a cobrar sale de dos búsquedas en arreglos y una operación
+ * de bits, sin recorrer el calendario.
+ */
+public final class CalendarioPadrones {
+    private static final String[] ROMANOS = {"I", "II", "III", "IV", "V", "VI"};
+    private static final DateTimeFormatter DIA_Y_MES = DateTimeFormatter.ofPattern("d 'de' MMMM", Locale.of("es", "PE"));
+
+    // Calendario 2025 usado hasta que se carga el de la base
+    public static final CalendarioPadrones PREDETERMINADO = new CalendarioPadrones(2025, List.of(
+            new Fecha(1, "enero-febrero", LocalDate.of(2025, 2, 21), 300),
+            new Fecha(2, "marzo-abril", LocalDate.of(2025, 4, 25), 300),
+            new Fecha(3, "mayo-junio", LocalDate.of(2025, 6, 20), 300),
+            new Fecha(4, "julio-agosto", LocalDate.of(2025, 8, 22), 300),
+            new Fecha(5, "septiembre-octubre", LocalDate.of(2025, 10, 24), 300),
+            new Fecha(6, "noviembre-diciembre", LocalDate.of(2025, 12, 5), 300)));
+
+    private static volatile CalendarioPadrones vigente = PREDETERMINADO;
+
+    // Una fila de la tabla padrones
+    public record Fecha(int numeroPadron, String periodoMeses, LocalDate fechaPago, double monto) {}
+
+    private final int anio;
+    private final Fecha[] porNumero = new Fecha[ROMANOS.length + 1];
+    private final String[] nombres = new String[ROMANOS.length + 1];
+    private final int[] numeros;
+    private final long primerDia;
+    // Índice (en numeros) del primer padrón con fecha de pago >= cada día del año; numeros.length si no hay
+    private final byte[] primeroDesde;
+    // Máscara de bits de los padrones desde cada índice hasta el final
+    private final int[] mascaraDesde;
+
+    public CalendarioPadrones(int anio, List<Fecha> fechas) {
+        List<Fecha> ordenadas = new ArrayList<>(fechas);
+        ordenadas.sort(Comparator.comparing(Fecha::fechaPago));
+
+        this.anio = anio;
+        this.numeros = new int[ordenadas.size()];
+        for (int i = 0; i < ordenadas.size(); i++) {
+            Fecha fecha = ordenadas.get(i);
+            int numero = fecha.numeroPadron();
+            Beneficiario.bitPadron(numero);
+            if (fecha.fechaPago().getYear() != anio) {
+                throw new IllegalArgumentException("El padrón " + numero + " no es del año " + anio);
+            }
+            if (porNumero[numero] != null || (i > 0 && numero < numeros[i - 1])) {
+                throw new IllegalArgumentException("Los padrones deben numerarse en el orden de sus fechas de pago");
+            }
+            numeros[i] = numero;
+            porNumero[numero] = fecha;
+            nombres[numero] = "Padrón " + ROMANOS[numero - 1] + " (" + fecha.periodoMeses() + "): " +
+                    fecha.fechaPago().format(DIA_Y_MES);
+        }
+
+        this.primerDia = LocalDate.of(anio, 1, 1).toEpochDay();
+        this.primeroDesde = new byte[LocalDate.of(anio, 1, 1).lengthOfYear()];
+        int indice = 0;
+        for (int dia = 0; dia < primeroDesde.length; dia++) {
+            while (indice < numeros.length && porNumero[numeros[indice]].fechaPago().toEpochDay() < primerDia + dia) {
+                indice++;
+            }
+            primeroDesde[dia] = (byte) indice;
+        }
+
+        this.mascaraDesde = new int[numeros.length + 1];
+        for (int i = numeros.length - 1; i >= 0; i--) {
+            mascaraDesde[i] = mascaraDesde[i + 1] | Beneficiario.bitPadron(numeros[i]);
+        }
+    }
+
+    // Calendario que usan los beneficiarios cuando no se les pasa uno
+    public static CalendarioPadrones vigente() {
+        return vigente;
+    }
+
+    public static void establecerVigente(CalendarioPadrones calendario) {
+        vigente = calendario;
+    }
+
+    // Índice del primer padrón con fecha de pago en ese día o después
+    private int primeroDesde(LocalDate fecha) {
+        long dia = fecha.toEpochDay() - primerDia;
+        if (dia < 0) {
+            return 0;
+        }
+        return dia >= primeroDesde.length ? numeros.length : primeroDesde[(int) dia];
+    }
+
+    /**
+     * Primer padrón que el beneficiario todavía puede cobrar: con fecha de pago posterior a hoy,
+     * no anterior a su inscripción y no cobrado. Devuelve -1 si no queda ninguno.
+     */
+    public int proximoPadron(LocalDate fechaInscripcion, int padronesCobrados, LocalDate hoy) {
+        int desde = Math.max(primeroDesde(fechaInscripcion), primeroDesde(hoy.plusDays(1)));
+        int disponibles = mascaraDesde[desde] & ~padronesCobrados;
+        return disponibles == 0 ? -1 : Integer.numberOfTrailingZeros(disponibles) + 1;
+    }
+
+    public boolean contiene(int numeroPadron) {
+        return numeroPadron >= 1 && numeroPadron < porNumero.length && porNumero[numeroPadron] != null;
+    }
+
+    private Fecha fecha(int numeroPadron) {
+        if (!contiene(numeroPadron)) {
+            throw new IllegalArgumentException("El padrón " + numeroPadron + " no está en el calendario " + anio);
+        }
+        return porNumero[numeroPadron];
+    }
+
+    public LocalDate fechaPago(int numeroPadron) {
+        return fecha(numeroPadron).fechaPago();
+    }
+
+    public double monto(int numeroPadron) {
+        return fecha(numeroPadron).monto();
+    }
+
+    // Nombre para mostrar, por ejemplo "Padrón I (enero-febrero): 21 de febrero"
+    public String nombre(int numeroPadron) {
+        fecha(numeroPadron);
+        return nombres[numeroPadron];
+    }
+
+    // Números de padrón en orden de fecha de pago
+    public int[] numeros() {
+        return numeros.clone();
+    }
+
+    public int getAnio() {
+        return anio;
+    }
+
+    public int getCantidad() {
+        return numeros.length;
+    }
+}
@@ -1,13 +1,21 @@
 package models;
 import interfaces.Verificable;
+import java.util.List;
 
 public class Certificado implements Verificable {
+    // Valores permitidos por el ENUM grado_discapacidad de la tabla certificados
+    public static final List<String> GRADOS_DISCAPACIDAD = GradoDiscapacidad.valores();
+
     private String codigo;
     private String dniPaciente;
-    private String gradoDiscapacidad;
+    private GradoDiscapacidad gradoDiscapacidad;
     private boolean vigente;
 
     public Certificado(String codigo, String dniPaciente, String gradoDiscapacidad, boolean vigente) {
+        this(codigo, dniPaciente, GradoDiscapacidad.desde(gradoDiscapacidad), vigente);
+    }
+
+    public Certificado(String codigo, String dniPaciente, GradoDiscapacidad gradoDiscapacidad, boolean vigente) {
         this.codigo = codigo;
         this.dniPaciente = dniPaciente;
         this.gradoDiscapacidad = gradoDiscapacidad;
@@ -17,7 +25,11 @@ public class Certificado implements Verificable {
     @Override
     public boolean verificarElegibilidad() {
         // Un certificado es elegible si está vigente y es de discapacidad severa
-        return vigente && gradoDiscapacidad.equalsIgnoreCase("severa");
+        return vigente && gradoDiscapacidad == GradoDiscapacidad.SEVERA;
+    }
+
+    public static boolean esGradoValido(String grado) {
+        return GradoDiscapacidad.buscar(grado) != null;
     }
 
     public String getCodigo() {
@@ -29,6 +41,10 @@ public class Certificado implements Verificable {
     }
 
     public String getGradoDiscapacidad() {
+        return gradoDiscapacidad.getValor();
+    }
+
+    public GradoDiscapacidad getGrado() {
         return gradoDiscapacidad;
     }
 
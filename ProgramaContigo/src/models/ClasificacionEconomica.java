@@ -0,0 +1,69 @@
+package models;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Valores del ENUM clasificacion_economica de la tabla beneficiarios. La regla de
+ * elegibilidad compara la constante, sin comparar textos en cada evaluación.
+ */
+public enum ClasificacionEconomica {
+    POBRE_EXTREMO("pobre extremo", true),
+    POBRE("pobre", true),
+    NO_POBRE("no pobre", false);
+
+    private static final List<String> VALORES = List.of(POBRE_EXTREMO.valor, POBRE.valor, NO_POBRE.valor);
+
+    private final String valor;
+    private final boolean habilitaPension;
+
+    ClasificacionEconomica(String valor, boolean habilitaPension) {
+        this.valor = valor;
+        this.habilitaPension = habilitaPension;
+    }
+
+    // Constante para el texto de la base; acepta mayúsculas. Devuelve null si no es un valor del ENUM
+    public static ClasificacionEconomica buscar(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        ClasificacionEconomica clasificacion = exacta(valor);
+        return clasificacion != null ? clasificacion : exacta(valor.toLowerCase(Locale.ROOT));
+    }
+
+    private static ClasificacionEconomica exacta(String valor) {
+        return switch (valor) {
+            case "pobre extremo" -> POBRE_EXTREMO;
+            case "pobre" -> POBRE;
+            case "no pobre" -> NO_POBRE;
+            default -> null;
+        };
+    }
+
+    public static ClasificacionEconomica desde(String valor) {
+        ClasificacionEconomica clasificacion = buscar(valor);
+        if (clasificacion == null) {
+            throw new IllegalArgumentException("Clasificación socioeconómica inválida: " + valor);
+        }
+        return clasificacion;
+    }
+
+    // Textos en el orden del ENUM, para menús y validaciones
+    public static List<String> valores() {
+        return VALORES;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    // Pobre y pobre extremo cumplen el requisito socioeconómico de la pensión
+    public boolean habilitaPension() {
+        return habilitaPension;
+    }
+
+    @Override
+    public String toString() {
+        return valor;
+    }
+}
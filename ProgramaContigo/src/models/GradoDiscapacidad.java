@@ -0,0 +1,60 @@
+package models;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Valores del ENUM grado_discapacidad de la tabla certificados.
+ */
+public enum GradoDiscapacidad {
+    SEVERA("severa"),
+    MODERADA("moderada"),
+    LEVE("leve");
+
+    private static final List<String> VALORES = List.of(SEVERA.valor, MODERADA.valor, LEVE.valor);
+
+    private final String valor;
+
+    GradoDiscapacidad(String valor) {
+        this.valor = valor;
+    }
+
+    // Constante para el texto de la base; acepta mayúsculas. Devuelve null si no es un valor del ENUM
+    public static GradoDiscapacidad buscar(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        GradoDiscapacidad grado = exacto(valor);
+        return grado != null ? grado : exacto(valor.toLowerCase(Locale.ROOT));
+    }
+
+    private static GradoDiscapacidad exacto(String valor) {
+        return switch (valor) {
+            case "severa" -> SEVERA;
+            case "moderada" -> MODERADA;
+            case "leve" -> LEVE;
+            default -> null;
+        };
+    }
+
+    public static GradoDiscapacidad desde(String valor) {
+        GradoDiscapacidad grado = buscar(valor);
+        if (grado == null) {
+            throw new IllegalArgumentException("Grado de discapacidad inválido: " + valor);
+        }
+        return grado;
+    }
+
+    public static List<String> valores() {
+        return VALORES;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    @Override
+    public String toString() {
+        return valor;
+    }
+}
@@ -0,0 +1,68 @@
+package models;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parentescos que la normativa admite para un autorizado. Un parentesco es válido si su
+ * texto contiene alguno de ellos, sin distinguir mayúsculas ("Hija mayor", "tutora legal").
+ *
+ * Las palabras se agrupan al cargar la clase por su letra inicial: la validación recorre el
+ * texto una vez y en cada posición solo compara las palabras que empiezan con esa letra, sin
+ * pasar el texto a minúsculas ni crear objetos.
+ */
+public final class Parentesco {
+    public static final List<String> PERMITIDOS = List.of("hijo", "hija", "esposo", "esposa",
+            "padre", "madre", "hermano", "hermana", "tutor", "tutora");
+
+    // Palabras por letra inicial (solo letras a-z); tutora queda cubierta por tutor
+    private static final char[][][] POR_INICIAL = new char[26][][];
+
+    static {
+        for (String permitido : PERMITIDOS) {
+            int inicial = permitido.charAt(0) - 'a';
+            char[][] palabras = POR_INICIAL[inicial] == null ? new char[0][] : POR_INICIAL[inicial];
+            char[][] ampliadas = Arrays.copyOf(palabras, palabras.length + 1);
+            ampliadas[palabras.length] = permitido.toCharArray();
+            POR_INICIAL[inicial] = ampliadas;
+        }
+    }
+
+    private Parentesco() {
+    }
+
+    public static boolean esValido(String parentesco) {
+        if (parentesco == null) {
+            return false;
+        }
+        int largo = parentesco.length();
+        for (int i = 0; i < largo; i++) {
+            int inicial = minuscula(parentesco.charAt(i)) - 'a';
+            if (inicial < 0 || inicial >= 26 || POR_INICIAL[inicial] == null) {
+                continue;
+            }
+            for (char[] palabra : POR_INICIAL[inicial]) {
+                if (coincide(parentesco, i, palabra)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean coincide(String texto, int desde, char[] palabra) {
+        if (desde + palabra.length > texto.length()) {
+            return false;
+        }
+        for (int j = 1; j < palabra.length; j++) {
+            if (minuscula(texto.charAt(desde + j)) != palabra[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char minuscula(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : Character.toLowerCase(c);
+    }
+}
@@ -14,6 +14,20 @@ public abstract class Persona {
     // Metodo abstracto que deberán implementar las clases hijas
     public abstract void mostrarInformacion();
 
+    // DNI de 8 dígitos ASCII; Character.isDigit aceptaría también dígitos de otros alfabetos
+    public static boolean esDniValido(String dni) {
+        if (dni == null || dni.length() != 8) {
+            return false;
+        }
+        for (int i = 0; i < dni.length(); i++) {
+            char c = dni.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     // Métodos concretos compartidos por todas las personas
     public String getNombreCompleto() {
         return nombre + " " + apellido;
@@ -0,0 +1,40 @@
+package models;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diccionario de regiones compartido por todo el sistema. Cada beneficiario guarda la
+ * instancia canónica del nombre de su región, así los miles de beneficiarios de una región
+ * comparten un solo String (en las cachés y en las instantáneas) y las comparaciones
+ * suelen resolverse por identidad.
+ *
+ * El diccionario tiene un tope para que un texto arbitrario (p. ej. un CSV con errores) no
+ * lo haga crecer sin límite; pasado el tope los nombres nuevos se usan tal como llegan.
+ */
+public final class Regiones {
+    private static final int MAXIMO = Integer.getInteger("contigo.regiones.maximo", 1024);
+    private static final ConcurrentHashMap<String, String> CANONICAS = new ConcurrentHashMap<>();
+
+    private Regiones() {
+    }
+
+    // Instancia canónica del nombre de región
+    public static String normalizar(String region) {
+        if (region == null) {
+            return null;
+        }
+        String canonica = CANONICAS.get(region);
+        if (canonica != null) {
+            return canonica;
+        }
+        if (CANONICAS.size() >= MAXIMO) {
+            return region;
+        }
+        canonica = CANONICAS.putIfAbsent(region, region);
+        return canonica != null ? canonica : region;
+    }
+
+    public static int cantidad() {
+        return CANONICAS.size();
+    }
+}
@@ -0,0 +1,646 @@
+package services;
+
+import models.Autorizado;
+import models.Beneficiario;
+import models.Certificado;
+import models.ClasificacionEconomica;
+import models.GradoDiscapacidad;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Copia local de beneficiarios, autorizados y certificados vigentes en un archivo binario que
+ * se lee mapeado en memoria (MappedByteBuffer). Abrirlo no lee nada: el sistema operativo trae
+ * las páginas a medida que se consultan, así búsquedas y reportes responden desde el arranque
+ * y aunque la base no esté disponible (ver SistemaGestion). Es de solo lectura y se puede
+ * consultar desde varios hilos, porque solo se usan lecturas absolutas del buffer.
+ *
+ * Formato (enteros big-endian), en este orden:
+ * - cabecera de 64 bytes con cantidades, largo de los textos y la marca del registro de
+ *   cambios (ver CambiosDAO) en la que se tomaron los datos;
+ * - registros de ancho fijo, una sección contigua por tabla;
+ * - índices: pares (DNI como entero, número de registro) ordenados, que se buscan por
+ *   bisección dentro del archivo mapeado sin armar ningún mapa en el heap;
+ * - textos en UTF-8: cada registro guarda posición y largo de los suyos, y las regiones y
+ *   parentescos repetidos se guardan una sola vez.
+ * Solo se indexan los DNI de 8 dígitos; los demás aparecen en los recorridos pero no se
+ * encuentran por DNI. El archivo se escribe en un .tmp que se renombra al terminar.
+ */
+public final class ArchivoInstantanea {
+    private static final int MAGIA = 0x43544731; // "CTG1"
+    private static final int VERSION = 1;
+    private static final int LARGO_CABECERA = 64;
+    private static final int LARGO_DNI = 8;
+    private static final int LARGO_ENTRADA_INDICE = 8;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    private static final int SIN_TEXTO = -1;
+    private static final int SIN_FECHA = Integer.MIN_VALUE;
+
+    // Posiciones dentro de cada registro. Un DNI ocupa 8 bytes y un texto 6: posición (int) en
+    // la sección de textos y largo (short).
+    // Beneficiario: dni, nombre, apellido, región, clasificación, banderas, padrones cobrados,
+    // fecha de inscripción (día epoch) y pensión en céntimos
+    private static final int B_NOMBRE = 8;
+    private static final int B_APELLIDO = 14;
+    private static final int B_REGION = 20;
+    private static final int B_CLASIFICACION = 26;
+    private static final int B_BANDERAS = 27;
+    private static final int B_PADRONES = 28;
+    private static final int B_FECHA = 29;
+    private static final int B_PENSION = 33;
+    private static final int LARGO_BENEFICIARIO = 41;
+
+    private static final int CON_CERTIFICADO = 1;
+    private static final int CON_OTROS_INGRESOS = 2;
+    private static final int ACTIVO = 4;
+    private static final int ELEGIBILIDAD_REGISTRADA = 8;
+    private static final int ELEGIBLE = 16;
+
+    // Autorizado: dni, nombre, apellido, dni del beneficiario, parentesco y si está autorizado
+    private static final int A_NOMBRE = 8;
+    private static final int A_APELLIDO = 14;
+    private static final int A_BENEFICIARIO = 20;
+    private static final int A_PARENTESCO = 28;
+    private static final int A_AUTORIZADO = 34;
+    private static final int LARGO_AUTORIZADO = 35;
+
+    // Certificado: código, dni del paciente, grado y vigencia
+    private static final int C_PACIENTE = 6;
+    private static final int C_GRADO = 14;
+    private static final int C_VIGENTE = 15;
+    private static final int LARGO_CERTIFICADO = 16;
+
+    private static final ClasificacionEconomica[] CLASIFICACIONES = ClasificacionEconomica.values();
+    private static final GradoDiscapacidad[] GRADOS = GradoDiscapacidad.values();
+    private static final Comparator<Autorizado> ORDEN_AUTORIZADOS = Comparator.comparing(Autorizado::getApellido)
+            .thenComparing(Autorizado::getNombre)
+            .thenComparing(Autorizado::getDni);
+
+    private final Path ruta;
+    private final MappedByteBuffer datos;
+    private final long generadoEn;
+    private final int beneficiarios;
+    private final int autorizados;
+    private final int certificados;
+    private final int inicioAutorizados;
+    private final int inicioCertificados;
+    private final Indice porDni;
+    private final Indice autorizadosPorDni;
+    private final Indice autorizadosPorBeneficiario;
+    private final Indice certificadosPorPaciente;
+    private final int inicioTextos;
+    private final String marca;
+
+    // Sección de índice dentro del archivo: entradas de (clave, número de registro) ordenadas
+    private record Indice(int inicio, int entradas) {}
+
+    // Volcado de las tres tablas a un Escritor, en el orden de las secciones
+    @FunctionalInterface
+    interface Volcado {
+        void volcar(Escritor escritor) throws SQLException;
+    }
+
+    private ArchivoInstantanea(Path ruta, MappedByteBuffer datos) throws IOException {
+        this.ruta = ruta;
+        this.datos = datos;
+        if (datos.getInt(0) != MAGIA) {
+            throw new IOException("No es una instantánea local: " + ruta);
+        }
+        if (datos.getInt(4) != VERSION) {
+            throw new IOException("Versión de instantánea local no soportada: " + datos.getInt(4));
+        }
+        this.generadoEn = datos.getLong(8);
+        this.beneficiarios = datos.getInt(16);
+        this.autorizados = datos.getInt(20);
+        this.certificados = datos.getInt(24);
+
+        long posicion = LARGO_CABECERA + (long) beneficiarios * LARGO_BENEFICIARIO;
+        this.inicioAutorizados = (int) posicion;
+        posicion += (long) autorizados * LARGO_AUTORIZADO;
+        this.inicioCertificados = (int) posicion;
+        posicion += (long) certificados * LARGO_CERTIFICADO;
+        int[] entradas = {datos.getInt(28), datos.getInt(32), datos.getInt(36), datos.getInt(40)};
+        Indice[] indices = new Indice[entradas.length];
+        for (int i = 0; i < entradas.length; i++) {
+            indices[i] = new Indice((int) posicion, entradas[i]);
+            posicion += (long) entradas[i] * LARGO_ENTRADA_INDICE;
+        }
+        this.porDni = indices[0];
+        this.autorizadosPorDni = indices[1];
+        this.autorizadosPorBeneficiario = indices[2];
+        this.certificadosPorPaciente = indices[3];
+        this.inicioTextos = (int) posicion;
+        if (posicion + datos.getLong(52) != datos.capacity()) {
+            throw new IOException("Instantánea local incompleta o dañada: " + ruta);
+        }
+
+        int posicionMarca = datos.getInt(44);
+        this.marca = posicionMarca == SIN_TEXTO ? null : leerTexto(posicionMarca, datos.getInt(48));
+    }
+
+    /**
+     * Mapea el archivo en memoria y valida su cabecera y su tamaño; no lee los registros.
+     * El mapeo sigue vigente después de cerrar el canal.
+     */
+    public static ArchivoInstantanea abrir(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            long largo = canal.size();
+            if (largo < LARGO_CABECERA || largo > Integer.MAX_VALUE) {
+                throw new IOException("Tamaño de instantánea local inválido (" + largo + " bytes): " + ruta);
+            }
+            return new ArchivoInstantanea(ruta, canal.map(FileChannel.MapMode.READ_ONLY, 0, largo));
+        }
+    }
+
+    /**
+     * Escribe el archivo con lo que entregue el volcado y la marca del registro de cambios
+     * a la que corresponden esos datos (null si no se conoce). Si algo falla, el destino queda
+     * como estaba.
+     */
+    static void escribir(Path destino, String marca, Volcado volcado) throws IOException, SQLException {
+        Escritor escritor = new Escritor(destino);
+        try {
+            volcado.volcar(escritor);
+            escritor.terminar(marca);
+        } catch (UncheckedIOException e) {
+            escritor.descartar();
+            throw e.getCause();
+        } catch (IOException | SQLException | RuntimeException e) {
+            escritor.descartar();
+            throw e;
+        }
+    }
+
+    // ----- Búsquedas por DNI -----
+
+    // null si el DNI no está en el archivo
+    public Beneficiario beneficiario(String dni) {
+        int registro = buscar(porDni, clave(dni));
+        return registro < 0 ? null : leerBeneficiario(registro);
+    }
+
+    public boolean contieneBeneficiario(String dni) {
+        return buscar(porDni, clave(dni)) >= 0;
+    }
+
+    public Autorizado autorizado(String dni) {
+        int registro = buscar(autorizadosPorDni, clave(dni));
+        return registro < 0 ? null : leerAutorizado(registro);
+    }
+
+    // Autorizados del beneficiario ordenados por apellido, nombre y DNI, como en AutorizadoDAO
+    public List<Autorizado> autorizadosDe(String dniBeneficiario) {
+        List<Autorizado> resultado = new ArrayList<>(2);
+        int clave = clave(dniBeneficiario);
+        if (clave < 0) {
+            return resultado;
+        }
+        Indice indice = autorizadosPorBeneficiario;
+        for (int i = primeraEntrada(indice, clave); i < indice.entradas() && claveEn(indice, i) == clave; i++) {
+            resultado.add(leerAutorizado(registroEn(indice, i)));
+        }
+        resultado.sort(ORDEN_AUTORIZADOS);
+        return resultado;
+    }
+
+    // Certificado vigente más reciente del paciente, o null si no tiene
+    public Certificado certificado(String dniPaciente) {
+        int registro = buscar(certificadosPorPaciente, clave(dniPaciente));
+        return registro < 0 ? null : leerCertificado(registro);
+    }
+
+    // ----- Recorridos -----
+
+    // Beneficiarios activos en orden de DNI, como el recorrido de BeneficiarioDAO
+    public void recorrerActivos(Consumer<Beneficiario> consumidor) {
+        for (int registro = 0; registro < beneficiarios; registro++) {
+            int posicion = LARGO_CABECERA + registro * LARGO_BENEFICIARIO;
+            if ((datos.get(posicion + B_BANDERAS) & ACTIVO) != 0) {
+                consumidor.accept(leerBeneficiario(registro));
+            }
+        }
+    }
+
+    // Autorizados por apellido y nombre, el orden en que se volcaron
+    public void recorrerAutorizados(Consumer<Autorizado> consumidor) {
+        for (int registro = 0; registro < autorizados; registro++) {
+            consumidor.accept(leerAutorizado(registro));
+        }
+    }
+
+    /**
+     * Instantánea analítica armada desde el archivo, con su marca: sirve de base para
+     * actualizarla después con los cambios de la base (ver SistemaGestion.actualizarInstantanea).
+     */
+    InstantaneaBeneficiarios instantanea() {
+        long inicio = System.nanoTime();
+        InstantaneaBeneficiarios nueva = new InstantaneaBeneficiarios();
+        recorrerActivos(nueva::agregar);
+        nueva.completar(autorizados, (System.nanoTime() - inicio) / 1_000_000);
+        nueva.marcar(marca, marca);
+        return nueva;
+    }
+
+    // ----- Lectura de registros -----
+
+    private Beneficiario leerBeneficiario(int registro) {
+        int posicion = LARGO_CABECERA + registro * LARGO_BENEFICIARIO;
+        int banderas = datos.get(posicion + B_BANDERAS);
+        Beneficiario b = new Beneficiario(leerDni(posicion), leerTexto(posicion + B_NOMBRE),
+                leerTexto(posicion + B_APELLIDO),
+                (banderas & CON_CERTIFICADO) != 0,
+                (banderas & CON_OTROS_INGRESOS) != 0,
+                CLASIFICACIONES[datos.get(posicion + B_CLASIFICACION)],
+                leerTexto(posicion + B_REGION));
+        b.setPensionRecibida(datos.getLong(posicion + B_PENSION) / 100.0);
+        int dia = datos.getInt(posicion + B_FECHA);
+        if (dia != SIN_FECHA) {
+            b.setFechaInscripcion(LocalDate.ofEpochDay(dia));
+        }
+        b.setPadronesCobrados(datos.get(posicion + B_PADRONES) & 0xFF);
+        b.setActivo((banderas & ACTIVO) != 0);
+        if ((banderas & ELEGIBILIDAD_REGISTRADA) != 0) {
+            b.setElegibilidadRegistrada((banderas & ELEGIBLE) != 0);
+        }
+        return b;
+    }
+
+    private Autorizado leerAutorizado(int registro) {
+        int posicion = inicioAutorizados + registro * LARGO_AUTORIZADO;
+        Autorizado a = new Autorizado(leerDni(posicion), leerTexto(posicion + A_NOMBRE),
+                leerTexto(posicion + A_APELLIDO), leerDni(posicion + A_BENEFICIARIO),
+                leerTexto(posicion + A_PARENTESCO));
+        a.setAutorizado(datos.get(posicion + A_AUTORIZADO) != 0);
+        return a;
+    }
+
+    private Certificado leerCertificado(int registro) {
+        int posicion = inicioCertificados + registro * LARGO_CERTIFICADO;
+        return new Certificado(leerTexto(posicion), leerDni(posicion + C_PACIENTE),
+                GRADOS[datos.get(posicion + C_GRADO)],
+                datos.get(posicion + C_VIGENTE) != 0);
+    }
+
+    // DNI guardado en 8 bytes ASCII, completado con ceros si es más corto
+    private String leerDni(int posicion) {
+        byte[] dni = new byte[LARGO_DNI];
+        datos.get(posicion, dni);
+        int largo = LARGO_DNI;
+        while (largo > 0 && dni[largo - 1] == 0) {
+            largo--;
+        }
+        return new String(dni, 0, largo, StandardCharsets.US_ASCII);
+    }
+
+    private String leerTexto(int posicion) {
+        return leerTexto(datos.getInt(posicion), datos.getShort(posicion + 4) & 0xFFFF);
+    }
+
+    private String leerTexto(int inicio, int largo) {
+        if (inicio == SIN_TEXTO) {
+            return null;
+        }
+        byte[] bytes = new byte[largo];
+        datos.get(inicioTextos + inicio, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ----- Índices -----
+
+    // Clave numérica de un DNI de 8 dígitos, o -1 si no tiene esa forma (no se indexa)
+    private static int clave(String dni) {
+        if (dni == null || dni.length() != LARGO_DNI) {
+            return -1;
+        }
+        int clave = 0;
+        for (int i = 0; i < LARGO_DNI; i++) {
+            char c = dni.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            clave = clave * 10 + (c - '0');
+        }
+        return clave;
+    }
+
+    // Número de registro de la primera entrada con esa clave, o -1 si no hay ninguna
+    private int buscar(Indice indice, int clave) {
+        if (clave < 0) {
+            return -1;
+        }
+        int i = primeraEntrada(indice, clave);
+        return i < indice.entradas() && claveEn(indice, i) == clave ? registroEn(indice, i) : -1;
+    }
+
+    // Bisección: primera entrada con clave mayor o igual
+    private int primeraEntrada(Indice indice, int clave) {
+        int desde = 0;
+        int hasta = indice.entradas();
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (claveEn(indice, medio) < clave) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde;
+    }
+
+    private int claveEn(Indice indice, int entrada) {
+        return datos.getInt(indice.inicio() + entrada * LARGO_ENTRADA_INDICE);
+    }
+
+    private int registroEn(Indice indice, int entrada) {
+        return datos.getInt(indice.inicio() + entrada * LARGO_ENTRADA_INDICE + 4);
+    }
+
+    public Path getRuta() {
+        return ruta;
+    }
+
+    // Marca del registro de cambios de los datos del archivo; null si no se conoce
+    public String getMarca() {
+        return marca;
+    }
+
+    public long getGeneradoEn() {
+        return generadoEn;
+    }
+
+    public int getBeneficiarios() {
+        return beneficiarios;
+    }
+
+    public int getAutorizados() {
+        return autorizados;
+    }
+
+    public int getCertificados() {
+        return certificados;
+    }
+
+    public long getBytes() {
+        return datos.capacity();
+    }
+
+    /**
+     * Arma el archivo en un solo recorrido por tabla. Los registros van directo al .tmp del
+     * destino y los textos a un segundo temporal que se agrega al final; en memoria solo
+     * quedan las entradas de los índices (8 bytes por fila), que se ordenan al terminar.
+     */
+    static final class Escritor {
+        private final Path destino;
+        private final Path temporal;
+        private final Path temporalTextos;
+        private final FileChannel canal;
+        private final FileChannel canalTextos;
+        private final ByteBuffer registros = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        private final ByteBuffer textos = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        // Regiones y parentescos ya escritos, con su posición
+        private final Map<String, Integer> repetidos = new HashMap<>();
+        private long largoTextos;
+        private int seccion;
+        private int beneficiarios;
+        private int autorizados;
+        private int certificados;
+        // Entradas de índice empaquetadas como (clave << 32 | registro): ordenarlas ordena por clave
+        private final EntradasIndice porDni = new EntradasIndice();
+        private final EntradasIndice autorizadosPorDni = new EntradasIndice();
+        private final EntradasIndice autorizadosPorBeneficiario = new EntradasIndice();
+        private final EntradasIndice certificadosPorPaciente = new EntradasIndice();
+
+        private Escritor(Path destino) throws IOException {
+            this.destino = destino;
+            this.temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+            this.temporalTextos = destino.resolveSibling(destino.getFileName() + ".textos.tmp");
+            this.canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                this.canalTextos = FileChannel.open(temporalTextos, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                canal.close();
+                throw e;
+            }
+            canal.position(LARGO_CABECERA);
+        }
+
+        void agregarBeneficiario(Beneficiario b) {
+            entrarEnSeccion(0);
+            porDni.agregar(clave(b.getDni()), beneficiarios++);
+            reservar(LARGO_BENEFICIARIO);
+            escribirDni(b.getDni());
+            escribirTexto(b.getNombre(), false);
+            escribirTexto(b.getApellido(), false);
+            escribirTexto(b.getRegion(), true);
+            registros.put((byte) b.getClasificacion().ordinal());
+
+            Boolean elegibilidad = b.getElegibilidadRegistrada();
+            int banderas = (b.isTieneCertificadoDiscapacidad() ? CON_CERTIFICADO : 0)
+                    | (b.isTieneOtrosIngresos() ? CON_OTROS_INGRESOS : 0)
+                    | (b.isActivo() ? ACTIVO : 0)
+                    | (elegibilidad != null ? ELEGIBILIDAD_REGISTRADA : 0)
+                    | (Boolean.TRUE.equals(elegibilidad) ? ELEGIBLE : 0);
+            registros.put((byte) banderas);
+            registros.put((byte) b.getPadronesCobrados());
+            LocalDate fecha = b.getFechaInscripcion();
+            registros.putInt(fecha == null ? SIN_FECHA : (int) fecha.toEpochDay());
+            registros.putLong(Math.round(b.getPensionRecibida() * 100));
+        }
+
+        void agregarAutorizado(Autorizado a) {
+            entrarEnSeccion(1);
+            autorizadosPorDni.agregar(clave(a.getDni()), autorizados);
+            autorizadosPorBeneficiario.agregar(clave(a.getDniBeneficiario()), autorizados);
+            autorizados++;
+            reservar(LARGO_AUTORIZADO);
+            escribirDni(a.getDni());
+            escribirTexto(a.getNombre(), false);
+            escribirTexto(a.getApellido(), false);
+            escribirDni(a.getDniBeneficiario());
+            escribirTexto(a.getParentesco(), true);
+            registros.put((byte) (a.isAutorizado() ? 1 : 0));
+        }
+
+        // Se espera a lo sumo un certificado por paciente: el vigente más reciente
+        void agregarCertificado(Certificado c) {
+            entrarEnSeccion(2);
+            certificadosPorPaciente.agregar(clave(c.getDniPaciente()), certificados++);
+            reservar(LARGO_CERTIFICADO);
+            escribirTexto(c.getCodigo(), false);
+            escribirDni(c.getDniPaciente());
+            registros.put((byte) c.getGrado().ordinal());
+            registros.put((byte) (c.isVigente() ? 1 : 0));
+        }
+
+        private void entrarEnSeccion(int nueva) {
+            if (nueva < seccion) {
+                throw new IllegalStateException("Las secciones se escriben en orden: beneficiarios, autorizados y certificados");
+            }
+            seccion = nueva;
+        }
+
+        private void escribirDni(String dni) {
+            byte[] bytes = dni.getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length > LARGO_DNI) {
+                throw new IllegalArgumentException("DNI de más de " + LARGO_DNI + " caracteres: " + dni);
+            }
+            registros.put(bytes);
+            for (int i = bytes.length; i < LARGO_DNI; i++) {
+                registros.put((byte) 0);
+            }
+        }
+
+        private void escribirTexto(String texto, boolean repetible) {
+            if (texto == null) {
+                registros.putInt(SIN_TEXTO).putShort((short) 0);
+                return;
+            }
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("Texto demasiado largo para la instantánea local");
+            }
+            Integer posicion = repetible ? repetidos.get(texto) : null;
+            if (posicion == null) {
+                posicion = agregarTexto(bytes);
+                if (repetible) {
+                    repetidos.put(texto, posicion);
+                }
+            }
+            registros.putInt(posicion).putShort((short) bytes.length);
+        }
+
+        private int agregarTexto(byte[] bytes) {
+            if (largoTextos + bytes.length > Integer.MAX_VALUE) {
+                throw new UncheckedIOException(new IOException("La instantánea local supera los 2 GB"));
+            }
+            int posicion = (int) largoTextos;
+            try {
+                int escritos = 0;
+                while (escritos < bytes.length) {
+                    if (!textos.hasRemaining()) {
+                        vaciar(textos, canalTextos);
+                    }
+                    int parte = Math.min(textos.remaining(), bytes.length - escritos);
+                    textos.put(bytes, escritos, parte);
+                    escritos += parte;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al escribir " + temporalTextos, e);
+            }
+            largoTextos += bytes.length;
+            return posicion;
+        }
+
+        // Deja lugar en el buffer para un registro completo
+        private void reservar(int largo) {
+            if (registros.remaining() < largo) {
+                try {
+                    vaciar(registros, canal);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error al escribir " + temporal, e);
+                }
+            }
+        }
+
+        private static void vaciar(ByteBuffer buffer, FileChannel destino) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                destino.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        // Índices, textos y cabecera; después publica el archivo en el destino
+        private void terminar(String marca) throws IOException {
+            EntradasIndice[] indices = {porDni, autorizadosPorDni, autorizadosPorBeneficiario, certificadosPorPaciente};
+            for (EntradasIndice indice : indices) {
+                for (long entrada : indice.ordenadas()) {
+                    reservar(LARGO_ENTRADA_INDICE);
+                    registros.putLong(entrada);
+                }
+            }
+            vaciar(registros, canal);
+
+            int posicionMarca = SIN_TEXTO;
+            byte[] bytesMarca = marca == null ? new byte[0] : marca.getBytes(StandardCharsets.UTF_8);
+            if (marca != null) {
+                posicionMarca = agregarTexto(bytesMarca);
+            }
+            vaciar(textos, canalTextos);
+            long copiados = 0;
+            while (copiados < largoTextos) {
+                copiados += canalTextos.transferTo(copiados, largoTextos - copiados, canal);
+            }
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IOException("La instantánea local supera los 2 GB");
+            }
+
+            ByteBuffer cabecera = ByteBuffer.allocate(LARGO_CABECERA);
+            cabecera.putInt(MAGIA).putInt(VERSION).putLong(System.currentTimeMillis())
+                    .putInt(beneficiarios).putInt(autorizados).putInt(certificados);
+            for (EntradasIndice indice : indices) {
+                cabecera.putInt(indice.cantidad);
+            }
+            cabecera.putInt(posicionMarca).putInt(bytesMarca.length).putLong(largoTextos);
+            cabecera.flip();
+            while (cabecera.hasRemaining()) {
+                canal.write(cabecera, cabecera.position());
+            }
+            canal.force(true);
+            canal.close();
+            canalTextos.close();
+            Files.delete(temporalTextos);
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private void descartar() {
+            try (canal; canalTextos) {
+                Files.deleteIfExists(temporal);
+                Files.deleteIfExists(temporalTextos);
+            } catch (IOException e) {
+                System.err.println("No se pudo eliminar " + temporal + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Arreglo creciente de entradas de un índice; las claves negativas (DNI sin 8 dígitos) se omiten
+    private static final class EntradasIndice {
+        private long[] entradas = new long[1024];
+        private int cantidad;
+
+        void agregar(int clave, int registro) {
+            if (clave < 0) {
+                return;
+            }
+            if (cantidad == entradas.length) {
+                entradas = Arrays.copyOf(entradas, cantidad * 2);
+            }
+            entradas[cantidad++] = ((long) clave << 32) | registro;
+        }
+
+        long[] ordenadas() {
+            long[] ordenadas = Arrays.copyOf(entradas, cantidad);
+            Arrays.sort(ordenadas);
+            return ordenadas;
+        }
+    }
+}
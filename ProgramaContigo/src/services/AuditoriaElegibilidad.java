@@ -0,0 +1,212 @@
+package services;
+
+import config.DatabaseConnection;
+import dao.BeneficiarioDAO;
+import models.Beneficiario;
+import models.ClasificacionEconomica;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Auditoría nocturna de elegibilidad sobre todos los beneficiarios activos. La población se
+ * reparte en tramos de DNI de tamaño parecido (varios por hilo, para que los hilos que
+ * terminan antes tomen trabajo de los demás) y un ForkJoinPool los audita en paralelo, cada
+ * tramo en streaming sobre su propia conexión. Por cada beneficiario se evalúa la regla de
+ * elegibilidad y se compara con el estado registrado en la columna elegible, y se cuentan las
+ * mismas alertas que generarAlertas. Los resultados parciales se combinan al unir las tareas.
+ *
+ * El paralelismo (-Dcontigo.auditoria.paralelismo, por defecto la cantidad de procesadores)
+ * nunca supera el tamaño máximo del pool de conexiones: cada hilo ocupa una conexión mientras
+ * audita su tramo. El predeterminado deja además una conexión libre para el resto del
+ * sistema. Un tramo que falla se informa y no detiene a los demás.
+ */
+public class AuditoriaElegibilidad {
+    private static final int TRAMOS_POR_HILO = Integer.getInteger("contigo.auditoria.tramosPorHilo", 4);
+    private static final int MAX_INCONSISTENCIAS = Integer.getInteger("contigo.auditoria.maxInconsistencias", 1000);
+    // Mismas alertas que generarAlertas, en el mismo orden
+    private static final String[] ALERTAS = {"sin certificado de discapacidad", "con otros ingresos", "con CSE incompatible"};
+
+    private final BeneficiarioDAO beneficiarioDAO;
+    private final DatabaseConnection db;
+
+    // Beneficiario cuyo estado registrado no coincide con la regla
+    public record Inconsistencia(String dni, String nombreCompleto, String region,
+                                 boolean elegibleRegistrado, boolean elegibleCalculado) {}
+
+    /**
+     * elegibles cuenta según la regla, no según la columna. inconsistencias trae a lo sumo
+     * -Dcontigo.auditoria.maxInconsistencias casos (ordenados por DNI); inconsistentes, el total.
+     */
+    public record Resultado(long revisados, long elegibles, long inconsistentes, List<Inconsistencia> inconsistencias,
+                            Map<String, Long> alertas, Map<String, Long> noElegiblesPorRegion,
+                            int tramos, int tramosFallidos, int paralelismo, long milisegundos) {}
+
+    public AuditoriaElegibilidad(BeneficiarioDAO beneficiarioDAO) {
+        this.beneficiarioDAO = beneficiarioDAO;
+        this.db = DatabaseConnection.getInstance();
+    }
+
+    public int paralelismoPredeterminado() {
+        int configurado = Integer.getInteger("contigo.auditoria.paralelismo", Runtime.getRuntime().availableProcessors());
+        return Math.max(1, Math.min(configurado, db.getPool().getMaxSize() - 1));
+    }
+
+    // Resultado vacío de una auditoría que no llegó a empezar
+    public Resultado sinEjecutar(int paralelismo) {
+        return new Parcial().resultado(0, paralelismo, System.nanoTime());
+    }
+
+    public Resultado ejecutar() {
+        return ejecutar(paralelismoPredeterminado());
+    }
+
+    public Resultado ejecutar(int paralelismo) {
+        if (paralelismo < 1) {
+            throw new IllegalArgumentException("El paralelismo debe ser positivo: " + paralelismo);
+        }
+        paralelismo = Math.min(paralelismo, db.getPool().getMaxSize());
+        long inicio = System.nanoTime();
+
+        List<String> limites;
+        try (Connection conn = db.getConnection()) {
+            limites = beneficiarioDAO.limitesDeRangos(conn, paralelismo * TRAMOS_POR_HILO);
+        } catch (SQLException e) {
+            System.err.println("Error al repartir la auditoría en tramos: " + e.getMessage());
+            return new Parcial().resultado(0, paralelismo, inicio);
+        }
+
+        int tramos = limites.size() + 1;
+        ForkJoinPool hilos = new ForkJoinPool(paralelismo);
+        try {
+            return hilos.invoke(new Tramos(limites, 0, tramos)).resultado(tramos, paralelismo, inicio);
+        } finally {
+            hilos.shutdown();
+        }
+    }
+
+    // Tramos [desde, hasta): se parten por la mitad hasta quedar uno solo, que se audita
+    private final class Tramos extends RecursiveTask<Parcial> {
+        private static final long serialVersionUID = 1L;
+
+        // Las tareas no se serializan nunca; RecursiveTask es Serializable solo por herencia
+        private final transient List<String> limites;
+        private final int desde;
+        private final int hasta;
+
+        Tramos(List<String> limites, int desde, int hasta) {
+            this.limites = limites;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (hasta - desde == 1) {
+                return auditarTramo(limites, desde);
+            }
+            int medio = (desde + hasta) >>> 1;
+            Tramos izquierda = new Tramos(limites, desde, medio);
+            izquierda.fork();
+            Parcial derecha = new Tramos(limites, medio, hasta).compute();
+            return izquierda.join().combinar(derecha);
+        }
+    }
+
+    private Parcial auditarTramo(List<String> limites, int tramo) {
+        String desdeDni = tramo == 0 ? "" : limites.get(tramo - 1);
+        String hastaDni = tramo == limites.size() ? null : limites.get(tramo);
+
+        Parcial parcial = new Parcial();
+        try (Connection conn = db.getConnection()) {
+            beneficiarioDAO.recorrerRango(conn, desdeDni, hastaDni, parcial::revisar);
+        } catch (SQLException e) {
+            System.err.printf("Tramo %d sin auditar (DNI mayores a '%s' hasta %s): %s\n",
+                    tramo + 1, desdeDni, hastaDni == null ? "el final" : "'" + hastaDni + "'", e.getMessage());
+            Parcial fallido = new Parcial();
+            fallido.tramosFallidos = 1;
+            return fallido;
+        }
+        return parcial;
+    }
+
+    // Hallazgos de uno o más tramos; cada tarea llena el suyo sin compartirlo
+    private static final class Parcial {
+        private long revisados;
+        private long elegibles;
+        private long inconsistentes;
+        private int tramosFallidos;
+        private final List<Inconsistencia> inconsistencias = new ArrayList<>();
+        private final long[] alertas = new long[ALERTAS.length];
+        private final Map<String, Long> noElegiblesPorRegion = new HashMap<>();
+
+        void revisar(Beneficiario b) {
+            revisados++;
+            boolean calculado = b.cumpleRequisitos();
+            if (calculado) {
+                elegibles++;
+            } else {
+                noElegiblesPorRegion.merge(b.getRegion(), 1L, Long::sum);
+            }
+
+            Boolean registrado = b.getElegibilidadRegistrada();
+            if (registrado != null && registrado != calculado) {
+                inconsistentes++;
+                if (inconsistencias.size() < MAX_INCONSISTENCIAS) {
+                    inconsistencias.add(new Inconsistencia(b.getDni(), b.getNombreCompleto(), b.getRegion(),
+                            registrado, calculado));
+                }
+            }
+
+            if (!b.isTieneCertificadoDiscapacidad()) {
+                alertas[0]++;
+            }
+            if (b.isTieneOtrosIngresos()) {
+                alertas[1]++;
+            }
+            if (b.getClasificacion() == ClasificacionEconomica.NO_POBRE) {
+                alertas[2]++;
+            }
+        }
+
+        Parcial combinar(Parcial otro) {
+            revisados += otro.revisados;
+            elegibles += otro.elegibles;
+            inconsistentes += otro.inconsistentes;
+            tramosFallidos += otro.tramosFallidos;
+            for (Inconsistencia inconsistencia : otro.inconsistencias) {
+                if (inconsistencias.size() >= MAX_INCONSISTENCIAS) {
+                    break;
+                }
+                inconsistencias.add(inconsistencia);
+            }
+            for (int i = 0; i < alertas.length; i++) {
+                alertas[i] += otro.alertas[i];
+            }
+            otro.noElegiblesPorRegion.forEach((region, cantidad) -> noElegiblesPorRegion.merge(region, cantidad, Long::sum));
+            return this;
+        }
+
+        Resultado resultado(int tramos, int paralelismo, long inicio) {
+            inconsistencias.sort(Comparator.comparing(Inconsistencia::dni));
+            Map<String, Long> porAlerta = new LinkedHashMap<>();
+            for (int i = 0; i < ALERTAS.length; i++) {
+                porAlerta.put(ALERTAS[i], alertas[i]);
+            }
+            long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+            return new Resultado(revisados, elegibles, inconsistentes, List.copyOf(inconsistencias),
+                    Collections.unmodifiableMap(porAlerta),
+                    Collections.unmodifiableMap(new TreeMap<>(noElegiblesPorRegion)),
+                    tramos, tramosFallidos, paralelismo, milisegundos);
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package services;
+
+import config.DatabaseConnection;
+import dao.BeneficiarioDAO;
+import dao.BeneficiarioDAO.Columna;
+import models.Beneficiario;
+import models.ClasificacionEconomica;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Escritura diferida de las modificaciones de beneficiarios (-Dcontigo.actualizaciones.diario).
+ * Cada modificación se reduce a las columnas que cambian, se graba en un diario en disco (con
+ * fsync) antes de confirmarla y queda pendiente en memoria combinada por DNI: si la misma
+ * persona se modifica varias veces antes de escribir, vale el último valor de cada columna y
+ * la base recibe un solo UPDATE con esas columnas, así el trigger de auditoría se dispara una
+ * vez por persona. Un hilo de fondo escribe lo pendiente en lotes JDBC cuando se juntan
+ * -Dcontigo.actualizaciones.lote beneficiarios (500) o pasan -Dcontigo.actualizaciones.intervaloMs
+ * (2000) desde la modificación pendiente más antigua.
+ *
+ * El diario se divide en segmentos: cada escritura pasa a uno nuevo y borra los anteriores
+ * recién después del commit. Si el proceso se cae, al arrancar se releen los segmentos en orden
+ * y lo pendiente se vuelve a escribir; como los valores son absolutos, repetir una escritura
+ * ya hecha no cambia nada. Un registro a medio grabar al final de un segmento se descarta por
+ * su CRC. Si la base rechaza un lote por sus datos, se reintenta de a un beneficiario y los que
+ * se siguen rechazando se anotan en rechazados.csv del mismo directorio, para que no frenen al
+ * resto de la cola. Las búsquedas por DNI de SistemaGestion aplican encima lo pendiente y lo
+ * que se está escribiendo (leer): quien modifica ve su cambio de inmediato; los reportes lo
+ * ven cuando llega a la base.
+ */
+public class ColaActualizaciones implements AutoCloseable {
+    private static final int LOTE = Integer.getInteger("contigo.actualizaciones.lote", 500);
+    private static final long INTERVALO_MS = Long.getLong("contigo.actualizaciones.intervaloMs", 2_000L);
+    private static final String PREFIJO_SEGMENTO = "pendientes-";
+    private static final String EXTENSION_SEGMENTO = ".log";
+    private static final String ARCHIVO_RECHAZADOS = "rechazados.csv";
+    private static final Columna[] COLUMNAS = Columna.values();
+
+    private final Path directorio;
+    private final Destino destino;
+    // Recibe los DNI de cada lote ya escrito (o rechazado por la base)
+    private final Consumer<Set<String>> alEscribir;
+    private final Thread hilo;
+    // Una escritura a la vez, sea del hilo de fondo o de vaciar
+    private final Object escritura = new Object();
+    private volatile boolean cerrada;
+
+    // Protegidos por this
+    private Map<String, EnumMap<Columna, String>> pendientes = new LinkedHashMap<>();
+    private long desdePendiente; // nanoTime de la modificación pendiente más antigua
+    private FileChannel segmento;
+    private long numeroSegmento;
+    // Segmentos cerrados que todavía respaldan modificaciones sin escribir
+    private final List<Path> segmentosAnteriores = new ArrayList<>();
+
+    // Lote en escritura: las lecturas lo siguen viendo hasta que la caché queda invalidada
+    private volatile Map<String, EnumMap<Columna, String>> enEscritura = Map.of();
+
+    // Dónde termina cada lote: en la base, salvo en las pruebas del diario
+    @FunctionalInterface
+    interface Destino {
+        void escribir(Map<String, EnumMap<Columna, String>> lote) throws SQLException;
+    }
+
+    /**
+     * Abre el diario del directorio (lo crea si no existe) y recupera lo que haya quedado sin
+     * escribir; el hilo de fondo lo escribe en cuanto arranca.
+     */
+    public ColaActualizaciones(Path directorio, BeneficiarioDAO beneficiarioDAO,
+                               Consumer<Set<String>> alEscribir) throws IOException {
+        this(directorio, lote -> escribirEnBase(beneficiarioDAO, lote), alEscribir);
+    }
+
+    // Igual, pero los lotes van al destino indicado en lugar de la base
+    ColaActualizaciones(Path directorio, Destino destino, Consumer<Set<String>> alEscribir) throws IOException {
+        this.directorio = directorio;
+        this.destino = destino;
+        this.alEscribir = alEscribir;
+        Files.createDirectories(directorio);
+
+        List<Path> segmentos;
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            segmentos = archivos.filter(p -> numeroDeSegmento(p) >= 0)
+                    .sorted((a, b) -> Long.compare(numeroDeSegmento(a), numeroDeSegmento(b)))
+                    .toList();
+        }
+        for (Path anterior : segmentos) {
+            recuperar(anterior);
+            numeroSegmento = Math.max(numeroSegmento, numeroDeSegmento(anterior));
+        }
+        if (pendientes.isEmpty()) {
+            for (Path anterior : segmentos) {
+                Files.delete(anterior);
+            }
+        } else {
+            segmentosAnteriores.addAll(segmentos);
+            desdePendiente = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(INTERVALO_MS);
+            System.out.println("Escritura diferida: " + pendientes.size() + " beneficiarios con cambios sin escribir recuperados del diario");
+        }
+        abrirSegmento();
+        this.hilo = Thread.ofVirtual().name("contigo-actualizaciones").start(this::trabajar);
+    }
+
+    /**
+     * Registra las columnas en que modificado difiere de actual (el estado que ve el llamador,
+     * con lo pendiente ya aplicado). Devuelve false sin registrar nada si cambian la pensión o
+     * los padrones, que no se difieren, o si no se pudo grabar el diario: entonces el llamador
+     * debe vaciar la cola y escribir en el momento. Un valor que la base no aceptaría (vacío o
+     * más largo que la columna) lanza IllegalArgumentException y no se registra.
+     */
+    public boolean encolar(Beneficiario actual, Beneficiario modificado) {
+        if (actual.getPensionRecibida() != modificado.getPensionRecibida()
+                || actual.getPadronesCobrados() != modificado.getPadronesCobrados()) {
+            return false;
+        }
+        EnumMap<Columna, String> cambios = new EnumMap<>(Columna.class);
+        for (Columna columna : COLUMNAS) {
+            String valor = valor(modificado, columna);
+            if (!Objects.equals(valor(actual, columna), valor)) {
+                columna.validar(valor);
+                cambios.put(columna, valor);
+            }
+        }
+        if (cambios.isEmpty()) {
+            return true;
+        }
+
+        String dni = modificado.getDni();
+        synchronized (this) {
+            try {
+                grabar(dni, cambios);
+            } catch (IOException e) {
+                System.err.println("No se pudo grabar el diario de escritura diferida: " + e.getMessage());
+                return false;
+            }
+            if (pendientes.isEmpty()) {
+                desdePendiente = System.nanoTime();
+            }
+            pendientes.computeIfAbsent(dni, d -> new EnumMap<>(Columna.class)).putAll(cambios);
+            if (pendientes.size() >= LOTE) {
+                LockSupport.unpark(hilo);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lee el beneficiario con lectura y le aplica lo que aún no llegó a la base. Lo pendiente se
+     * toma antes de leer: si una escritura termina en el medio, la lectura ya trae sus valores,
+     * y aplicarlos otra vez no cambia nada.
+     */
+    public Beneficiario leer(String dni, Function<String, Beneficiario> lectura) {
+        EnumMap<Columna, String> cambios = null;
+        synchronized (this) {
+            // El lote pasa de pendientes a enEscritura dentro de este mismo bloqueo
+            EnumMap<Columna, String> escribiendo = enEscritura.get(dni);
+            EnumMap<Columna, String> pendiente = pendientes.get(dni);
+            if (escribiendo != null || pendiente != null) {
+                cambios = new EnumMap<>(Columna.class);
+                if (escribiendo != null) {
+                    cambios.putAll(escribiendo);
+                }
+                if (pendiente != null) {
+                    cambios.putAll(pendiente);
+                }
+            }
+        }
+
+        Beneficiario beneficiario = lectura.apply(dni);
+        if (beneficiario != null && cambios != null) {
+            cambios.forEach((columna, valor) -> aplicar(beneficiario, columna, valor));
+        }
+        return beneficiario;
+    }
+
+    /**
+     * Escribe ya todo lo pendiente. Devuelve true si no quedó nada sin escribir; si la base
+     * falla, lo pendiente se conserva y se reintenta más tarde.
+     */
+    public boolean vaciar() {
+        return escribirPendientes();
+    }
+
+    public synchronized int getPendientes() {
+        return pendientes.size();
+    }
+
+    // Detiene el hilo de fondo después de un último intento de escribir lo pendiente
+    @Override
+    public void close() {
+        cerrada = true;
+        LockSupport.unpark(hilo);
+        try {
+            hilo.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean escrito = escribirPendientes();
+        synchronized (this) {
+            try {
+                segmento.close();
+                if (escrito && pendientes.isEmpty()) {
+                    Files.deleteIfExists(rutaSegmento(numeroSegmento));
+                }
+            } catch (IOException e) {
+                System.err.println("Error al cerrar el diario de escritura diferida: " + e.getMessage());
+            }
+        }
+    }
+
+    private void trabajar() {
+        while (!cerrada) {
+            long espera;
+            synchronized (this) {
+                espera = TimeUnit.MILLISECONDS.toNanos(INTERVALO_MS);
+                if (!pendientes.isEmpty()) {
+                    espera -= System.nanoTime() - desdePendiente;
+                }
+                if (!pendientes.isEmpty() && (pendientes.size() >= LOTE || espera <= 0)) {
+                    espera = 0;
+                }
+            }
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            } else if (!escribirPendientes()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(INTERVALO_MS));
+            }
+        }
+    }
+
+    /**
+     * Pasa lo pendiente a un lote y el diario a un segmento nuevo, escribe el lote en una sola
+     * transacción y recién después del commit borra los segmentos que lo respaldaban. Si falla,
+     * el lote vuelve a pendiente sin pisar lo que se haya modificado mientras tanto.
+     */
+    private boolean escribirPendientes() {
+        synchronized (escritura) {
+            Map<String, EnumMap<Columna, String>> lote;
+            List<Path> respaldo;
+            long desde;
+            synchronized (this) {
+                if (pendientes.isEmpty()) {
+                    return true;
+                }
+                try {
+                    respaldo = rotarSegmento();
+                } catch (IOException e) {
+                    System.err.println("No se pudo abrir un segmento nuevo del diario: " + e.getMessage());
+                    return false;
+                }
+                lote = pendientes;
+                desde = desdePendiente;
+                enEscritura = lote;
+                pendientes = new LinkedHashMap<>();
+            }
+
+            Map<String, EnumMap<Columna, String>> sinEscribir;
+            try {
+                destino.escribir(lote);
+                sinEscribir = Map.of();
+            } catch (SQLException e) {
+                System.err.println("Error en la escritura diferida de " + lote.size() + " beneficiarios: " + e.getMessage());
+                if (!esRechazoDeDatos(e)) {
+                    reponer(lote, respaldo, desde);
+                    return false;
+                }
+                sinEscribir = escribirPorSeparado(lote);
+            }
+
+            if (!sinEscribir.isEmpty() && !reponerEnSegmentoNuevo(sinEscribir, desde)) {
+                // Sin poder volver a grabarlos, los segmentos viejos siguen respaldándolos
+                synchronized (this) {
+                    segmentosAnteriores.addAll(0, respaldo);
+                    enEscritura = Map.of();
+                }
+                return false;
+            }
+
+            enEscritura = Map.of();
+            for (Path anterior : respaldo) {
+                try {
+                    Files.deleteIfExists(anterior);
+                } catch (IOException e) {
+                    System.err.println("No se pudo borrar el segmento " + anterior + ": " + e.getMessage());
+                }
+            }
+            // Los rechazados también: lo que se veía aplicado encima deja de valer
+            Set<String> resueltos = new HashSet<>(lote.keySet());
+            resueltos.removeAll(sinEscribir.keySet());
+            if (!resueltos.isEmpty()) {
+                alEscribir.accept(resueltos);
+            }
+            synchronized (this) {
+                return pendientes.isEmpty();
+            }
+        }
+    }
+
+    // Lo que no se escribió vuelve a pendiente delante de lo modificado mientras tanto; los
+    // segmentos que lo respaldaban se conservan
+    private synchronized void reponer(Map<String, EnumMap<Columna, String>> lote, List<Path> respaldo, long desde) {
+        Map<String, EnumMap<Columna, String>> repuestos = new LinkedHashMap<>(lote);
+        pendientes.forEach((dni, nuevos) -> repuestos.merge(dni, nuevos, (viejos, recientes) -> {
+            viejos.putAll(recientes);
+            return viejos;
+        }));
+        pendientes = repuestos;
+        desdePendiente = desde;
+        segmentosAnteriores.addAll(0, respaldo);
+        enEscritura = Map.of();
+    }
+
+    /**
+     * Parte del lote quedó escrita o rechazada: lo que falta se vuelve a grabar en el segmento
+     * actual, combinado con lo modificado mientras tanto, para poder borrar los segmentos viejos
+     * sin que una recuperación repita los rechazados. false si no se pudo grabar.
+     */
+    private synchronized boolean reponerEnSegmentoNuevo(Map<String, EnumMap<Columna, String>> sinEscribir, long desde) {
+        Map<String, EnumMap<Columna, String>> repuestos = new LinkedHashMap<>(sinEscribir);
+        pendientes.forEach((dni, nuevos) -> repuestos.merge(dni, nuevos, (viejos, recientes) -> {
+            viejos.putAll(recientes);
+            return viejos;
+        }));
+        try {
+            for (String dni : sinEscribir.keySet()) {
+                grabar(dni, repuestos.get(dni));
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo grabar el diario de escritura diferida: " + e.getMessage());
+            pendientes = repuestos;
+            desdePendiente = desde;
+            return false;
+        }
+        pendientes = repuestos;
+        desdePendiente = desde;
+        return true;
+    }
+
+    /**
+     * La base rechazó el lote por sus datos: se escribe un beneficiario por vez para que uno
+     * inválido no bloquee al resto. Los que se siguen rechazando pasan a rechazados.csv; si la
+     * base deja de responder, se corta y lo que falta queda sin escribir. Devuelve lo no escrito.
+     */
+    private Map<String, EnumMap<Columna, String>> escribirPorSeparado(Map<String, EnumMap<Columna, String>> lote) {
+        Map<String, EnumMap<Columna, String>> sinEscribir = new LinkedHashMap<>();
+        for (Map.Entry<String, EnumMap<Columna, String>> fila : lote.entrySet()) {
+            if (!sinEscribir.isEmpty()) {
+                sinEscribir.put(fila.getKey(), fila.getValue());
+                continue;
+            }
+            try {
+                destino.escribir(Map.of(fila.getKey(), fila.getValue()));
+            } catch (SQLException e) {
+                if (esRechazoDeDatos(e)) {
+                    rechazar(fila.getKey(), fila.getValue(), e);
+                } else {
+                    sinEscribir.put(fila.getKey(), fila.getValue());
+                }
+            }
+        }
+        return sinEscribir;
+    }
+
+    // Deja constancia de una modificación que la base no acepta, para corregirla a mano
+    private void rechazar(String dni, EnumMap<Columna, String> cambios, SQLException motivo) {
+        System.err.println("Modificación diferida de " + dni + " rechazada por la base, se pasa a "
+                + directorio.resolve(ARCHIVO_RECHAZADOS) + ": " + motivo.getMessage());
+        StringBuilder lineas = new StringBuilder();
+        String fecha = LocalDateTime.now().toString();
+        cambios.forEach((columna, valor) -> lineas.append(fecha).append(',').append(dni).append(',')
+                .append(columna.name().toLowerCase()).append(',').append(ImportacionMasiva.escaparCsv(valor))
+                .append(',').append(ImportacionMasiva.escaparCsv(String.valueOf(motivo.getMessage())))
+                .append(System.lineSeparator()));
+        try {
+            Files.writeString(directorio.resolve(ARCHIVO_RECHAZADOS), lineas, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("No se pudo escribir " + ARCHIVO_RECHAZADOS + ", se descarta: " + lineas);
+        }
+    }
+
+    // Errores de datos (SQLState 22) o de restricciones (23): repetir la misma fila no los arregla
+    private static boolean esRechazoDeDatos(SQLException e) {
+        String estado = e.getSQLState();
+        return estado != null && (estado.startsWith("22") || estado.startsWith("23"));
+    }
+
+    // Todo el lote en una transacción; después se invalida la caché de esos DNI
+    private static void escribirEnBase(BeneficiarioDAO beneficiarioDAO,
+                                       Map<String, EnumMap<Columna, String>> lote) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                beneficiarioDAO.actualizarColumnasEnLote(conn, lote);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        beneficiarioDAO.invalidarCache(lote.keySet());
+    }
+
+    // ----- Diario -----
+
+    // Registro: largo (int), DNI y pares (columna, valor), CRC32 (int) de lo anterior al largo
+    private void grabar(String dni, EnumMap<Columna, String> cambios) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream datos = new DataOutputStream(bytes)) {
+            datos.writeUTF(dni);
+            datos.writeByte(cambios.size());
+            for (Map.Entry<Columna, String> cambio : cambios.entrySet()) {
+                datos.writeByte(cambio.getKey().ordinal());
+                datos.writeUTF(cambio.getValue());
+            }
+        }
+        byte[] contenido = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(contenido);
+
+        ByteBuffer registro = ByteBuffer.allocate(contenido.length + 8);
+        registro.putInt(contenido.length).put(contenido).putInt((int) crc.getValue());
+        registro.flip();
+        while (registro.hasRemaining()) {
+            segmento.write(registro);
+        }
+        segmento.force(false);
+    }
+
+    private void recuperar(Path ruta) throws IOException {
+        ByteBuffer registros = ByteBuffer.wrap(Files.readAllBytes(ruta));
+        while (registros.remaining() >= 4) {
+            int largo = registros.getInt();
+            if (largo < 0 || registros.remaining() < largo + 4) {
+                System.err.println("Registro incompleto al final de " + ruta + ", se descarta");
+                return;
+            }
+            byte[] contenido = new byte[largo];
+            registros.get(contenido);
+            CRC32 crc = new CRC32();
+            crc.update(contenido);
+            if ((int) crc.getValue() != registros.getInt()) {
+                System.err.println("Registro dañado en " + ruta + ", se descarta desde ahí");
+                return;
+            }
+
+            try (DataInputStream datos = new DataInputStream(new ByteArrayInputStream(contenido))) {
+                String dni = datos.readUTF();
+                EnumMap<Columna, String> cambios = pendientes.computeIfAbsent(dni, d -> new EnumMap<>(Columna.class));
+                int cantidad = datos.readUnsignedByte();
+                for (int i = 0; i < cantidad; i++) {
+                    Columna columna = COLUMNAS[datos.readUnsignedByte()];
+                    cambios.put(columna, datos.readUTF());
+                }
+            }
+        }
+    }
+
+    // Cierra el segmento actual y abre el siguiente; devuelve los que respaldan lo pendiente
+    private List<Path> rotarSegmento() throws IOException {
+        FileChannel anterior = segmento;
+        numeroSegmento++;
+        abrirSegmento();
+        anterior.close();
+        List<Path> respaldo = new ArrayList<>(segmentosAnteriores);
+        respaldo.add(rutaSegmento(numeroSegmento - 1));
+        segmentosAnteriores.clear();
+        return respaldo;
+    }
+
+    private void abrirSegmento() throws IOException {
+        if (segmentosAnteriores.contains(rutaSegmento(numeroSegmento))) {
+            numeroSegmento++;
+        }
+        segmento = FileChannel.open(rutaSegmento(numeroSegmento), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path rutaSegmento(long numero) {
+        return directorio.resolve(PREFIJO_SEGMENTO + numero + EXTENSION_SEGMENTO);
+    }
+
+    // Número de un segmento del diario, o -1 si el archivo no es uno
+    private static long numeroDeSegmento(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        if (!nombre.startsWith(PREFIJO_SEGMENTO) || !nombre.endsWith(EXTENSION_SEGMENTO)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(nombre.substring(PREFIJO_SEGMENTO.length(), nombre.length() - EXTENSION_SEGMENTO.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ----- Columnas del beneficiario -----
+
+    private static String valor(Beneficiario b, Columna columna) {
+        return switch (columna) {
+            case NOMBRE -> b.getNombre();
+            case APELLIDO -> b.getApellido();
+            case CERTIFICADO -> String.valueOf(b.isTieneCertificadoDiscapacidad());
+            case OTROS_INGRESOS -> String.valueOf(b.isTieneOtrosIngresos());
+            case CLASIFICACION -> b.getClasificacionEconomica();
+            case REGION -> b.getRegion();
+        };
+    }
+
+    private static void aplicar(Beneficiario b, Columna columna, String valor) {
+        switch (columna) {
+            case NOMBRE -> b.setNombre(valor);
+            case APELLIDO -> b.setApellido(valor);
+            case CERTIFICADO -> b.setTieneCertificadoDiscapacidad(Boolean.parseBoolean(valor));
+            case OTROS_INGRESOS -> b.setTieneOtrosIngresos(Boolean.parseBoolean(valor));
+            case CLASIFICACION -> b.setClasificacion(ClasificacionEconomica.desde(valor));
+            case REGION -> b.setRegion(valor);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package services;
+
+import config.HistogramaLatencia;
+import config.Metricas;
+import dao.BeneficiarioDAO;
+import models.Beneficiario;
+import models.CalendarioPadrones;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generación masiva de cronogramas de pago: un archivo cronograma_{dni}.txt por cada
+ * beneficiario activo de la región, más un indice.csv con el próximo padrón de cada uno.
+ *
+ * Los beneficiarios llegan en streaming desde la base y cada cronograma se arma y escribe en
+ * su propio hilo virtual. Un semáforo limita los cronogramas en curso
+ * (-Dcontigo.cronograma.paralelismo); cuando se llena, la lectura espera, así la memoria usada
+ * no depende del tamaño de la región. Todos usan el mismo calendario, leído una sola vez.
+ * Si la base falla durante la lectura, indice.csv no se publica y el error se propaga.
+ */
+public class CronogramaMasivo {
+    private static final int PARALELISMO = Integer.getInteger("contigo.cronograma.paralelismo",
+            Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    private static final HistogramaLatencia LATENCIA_CRONOGRAMA = Metricas.operacion("CronogramaMasivo.escribirCronograma");
+
+    private final BeneficiarioDAO beneficiarioDAO;
+
+    public record Resultado(String region, Path directorio, long generados, long fallidos, long milisegundos) {}
+
+    public CronogramaMasivo(BeneficiarioDAO beneficiarioDAO) {
+        this.beneficiarioDAO = beneficiarioDAO;
+    }
+
+    public Resultado generarPorRegion(String region, CalendarioPadrones calendario, Path directorio) throws IOException {
+        long inicio = System.nanoTime();
+        Files.createDirectories(directorio);
+
+        LongAdder generados = new LongAdder();
+        LongAdder fallidos = new LongAdder();
+        Semaphore enCurso = new Semaphore(PARALELISMO);
+
+        SalidaArchivo indice = new SalidaCsv(directorio.resolve("indice.csv"));
+        try (ExecutorService hilos = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("contigo-cronograma-", 0).factory())) {
+            indice.iniciar("CRONOGRAMAS " + region.toUpperCase(), "dni", "nombre_completo", "proximo_padron", "archivo");
+
+            beneficiarioDAO.recorrerPorRegion(region, true, b -> {
+                String archivo = "cronograma_" + b.getDni() + ".txt";
+                int proximo = b.obtenerProximoPadronACobrar(calendario);
+                indice.fila(() -> "", b.getDni(), b.getNombreCompleto(), proximo == -1 ? null : proximo, archivo);
+
+                enCurso.acquireUninterruptibly();
+                hilos.execute(() -> {
+                    try {
+                        escribir(b, calendario, directorio.resolve(archivo));
+                        generados.increment();
+                    } catch (UncheckedIOException e) {
+                        fallidos.increment();
+                        System.err.println("No se pudo escribir " + archivo + ": " + e.getCause().getMessage());
+                    } finally {
+                        enCurso.release();
+                    }
+                });
+            });
+            // Al cerrar, el executor espera a que terminen los cronogramas en curso
+        } catch (RuntimeException e) {
+            // La lectura se cortó (LecturaFallida): el índice quedaría incompleto y no se publica
+            indice.descartar();
+            throw e;
+        }
+        indice.close();
+
+        return new Resultado(region, directorio, generados.sum(), fallidos.sum(),
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private static void escribir(Beneficiario beneficiario, CalendarioPadrones calendario, Path archivo) {
+        try {
+            LATENCIA_CRONOGRAMA.medir(() ->
+                    Files.writeString(archivo, beneficiario.generarCronogramaPagos(calendario), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package services;
+
+import config.DatabaseConnection;
+import dao.AutorizadoDAO;
+import dao.BeneficiarioDAO;
+import dao.CertificadoDAO;
+import models.Autorizado;
+import models.Beneficiario;
+import models.Certificado;
+import models.ClasificacionEconomica;
+import models.GradoDiscapacidad;
+import models.Persona;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+/**
+ * Importación masiva de beneficiarios, autorizados y certificados desde archivos CSV.
+ *
+ * Cada archivo se lee en bloques de líneas; el bloque siguiente se parsea y valida en paralelo
+ * mientras el actual se carga en la base de datos con un batch multi-fila dentro de su propia
+ * transacción. Las filas rechazadas se escriben en "archivo.rechazados.csv" y el número de la
+ * última línea confirmada en "archivo.progreso", de modo que una importación interrumpida
+ * continúa desde allí al volver a ejecutarla. Los archivos se cargan en el orden que exigen
+ * las claves foráneas: beneficiarios, autorizados y certificados.
+ */
+public class ImportacionMasiva {
+    private static final int TAMANO_BLOQUE = Integer.getInteger("contigo.importacion.tamanoBloque", 5000);
+
+    private final BeneficiarioDAO beneficiarioDAO;
+    private final AutorizadoDAO autorizadoDAO;
+    private final CertificadoDAO certificadoDAO;
+
+    public record Resultado(Path archivo, long leidas, long cargadas, long rechazadas, long lineaInicial) {}
+
+    // Fila ya validada (entidad != null) o rechazada (motivo != null)
+    private record Fila<T>(long linea, String texto, T entidad, String motivo) {}
+
+    private record Bloque<T>(List<Fila<T>> filas, long ultimaLinea) {}
+
+    /**
+     * Describe cómo convertir y cargar un tipo de registro. convertir() valida los campos
+     * con las mismas reglas del modelo y lanza IllegalArgumentException si la fila no es válida.
+     */
+    private interface Formato<T> {
+        T convertir(String[] campos);
+
+        // DNI de beneficiario que la fila referencia por clave foránea (null si no aplica)
+        String dniReferenciado(T entidad);
+
+        void cargar(Connection conn, List<T> entidades) throws SQLException;
+
+        // Motivo de rechazo de cada entidad por chocar con lo ya cargado o con otra fila del
+        // bloque, en el mismo orden (null = sin conflicto). Se llama antes de cargar().
+        default List<String> conflictos(Connection conn, List<T> entidades) throws SQLException {
+            return null;
+        }
+
+        // Se llama después del commit del bloque (por ejemplo, para invalidar cachés)
+        default void confirmado(List<T> entidades) {
+        }
+    }
+
+    public ImportacionMasiva(BeneficiarioDAO beneficiarioDAO, AutorizadoDAO autorizadoDAO,
+                             CertificadoDAO certificadoDAO) {
+        this.beneficiarioDAO = beneficiarioDAO;
+        this.autorizadoDAO = autorizadoDAO;
+        this.certificadoDAO = certificadoDAO;
+    }
+
+    /**
+     * Importa los archivos indicados respetando el orden de claves foráneas.
+     * Cualquiera de las rutas puede ser null para omitir ese tipo de registro.
+     */
+    public List<Resultado> importar(Path beneficiarios, Path autorizados, Path certificados) throws IOException {
+        List<Resultado> resultados = new ArrayList<>();
+        if (beneficiarios != null) {
+            resultados.add(importarArchivo(beneficiarios, formatoBeneficiario()));
+        }
+        if (autorizados != null) {
+            resultados.add(importarArchivo(autorizados, formatoAutorizado()));
+        }
+        if (certificados != null) {
+            resultados.add(importarArchivo(certificados, formatoCertificado()));
+        }
+        return resultados;
+    }
+
+    // Formato: dni,nombre,apellido,tiene_certificado,tiene_otros_ingresos,clasificacion_economica,region[,fecha_inscripcion]
+    private Formato<Beneficiario> formatoBeneficiario() {
+        return new Formato<>() {
+            @Override
+            public Beneficiario convertir(String[] campos) {
+                exigirCampos(campos, 7);
+                ClasificacionEconomica clasificacion = ClasificacionEconomica.buscar(campos[5]);
+                if (clasificacion == null) {
+                    throw new IllegalArgumentException("Clasificación socioeconómica inválida: " + campos[5]);
+                }
+
+                Beneficiario beneficiario = new Beneficiario(
+                        validarDni(campos[0]),
+                        requerido(campos[1], "nombre", 100),
+                        requerido(campos[2], "apellido", 100),
+                        leerBooleano(campos[3]),
+                        leerBooleano(campos[4]),
+                        clasificacion,
+                        requerido(campos[6], "región", 100));
+
+                if (campos.length > 7 && !campos[7].isEmpty()) {
+                    try {
+                        beneficiario.setFechaInscripcion(LocalDate.parse(campos[7]));
+                    } catch (DateTimeParseException e) {
+                        throw new IllegalArgumentException("Fecha de inscripción inválida: " + campos[7]);
+                    }
+                }
+                return beneficiario;
+            }
+
+            @Override
+            public String dniReferenciado(Beneficiario entidad) {
+                return null;
+            }
+
+            @Override
+            public List<String> conflictos(Connection conn, List<Beneficiario> entidades) throws SQLException {
+                List<String> dnis = entidades.stream().map(Beneficiario::getDni).toList();
+                return conflictosPorDni(dnis, beneficiarioDAO.filtrarExistentes(conn, dnis), "beneficiario");
+            }
+
+            @Override
+            public void cargar(Connection conn, List<Beneficiario> entidades) throws SQLException {
+                beneficiarioDAO.insertarEnLote(conn, entidades);
+            }
+        };
+    }
+
+    // Formato: dni,nombre,apellido,dni_beneficiario,parentesco
+    private Formato<Autorizado> formatoAutorizado() {
+        return new Formato<>() {
+            @Override
+            public Autorizado convertir(String[] campos) {
+                exigirCampos(campos, 5);
+                Autorizado autorizado = new Autorizado(
+                        validarDni(campos[0]),
+                        requerido(campos[1], "nombre", 100),
+                        requerido(campos[2], "apellido", 100),
+                        validarDni(campos[3]),
+                        requerido(campos[4], "parentesco", 50));
+
+                // Validar usando el metodo de la propia clase Autorizado
+                if (!autorizado.esParentescoValido()) {
+                    throw new IllegalArgumentException("Parentesco inválido: " + campos[4]);
+                }
+                return autorizado;
+            }
+
+            @Override
+            public String dniReferenciado(Autorizado entidad) {
+                return entidad.getDniBeneficiario();
+            }
+
+            @Override
+            public List<String> conflictos(Connection conn, List<Autorizado> entidades) throws SQLException {
+                List<String> dnis = entidades.stream().map(Autorizado::getDni).toList();
+                return conflictosPorDni(dnis, autorizadoDAO.filtrarExistentes(conn, dnis), "autorizado");
+            }
+
+            @Override
+            public void cargar(Connection conn, List<Autorizado> entidades) throws SQLException {
+                autorizadoDAO.insertarEnLote(conn, entidades);
+            }
+        };
+    }
+
+    // Formato: codigo,dni_paciente,grado_discapacidad,vigente
+    private Formato<Certificado> formatoCertificado() {
+        return new Formato<>() {
+            @Override
+            public Certificado convertir(String[] campos) {
+                exigirCampos(campos, 4);
+                GradoDiscapacidad grado = GradoDiscapacidad.buscar(campos[2]);
+                if (grado == null) {
+                    throw new IllegalArgumentException("Grado de discapacidad inválido: " + campos[2]);
+                }
+                return new Certificado(
+                        requerido(campos[0], "código", 20),
+                        validarDni(campos[1]),
+                        grado,
+                        leerBooleano(campos[3]));
+            }
+
+            @Override
+            public String dniReferenciado(Certificado entidad) {
+                return entidad.getDniPaciente();
+            }
+
+            @Override
+            public List<String> conflictos(Connection conn, List<Certificado> entidades) throws SQLException {
+                Map<String, String> registrados = certificadoDAO.pacientesPorCodigo(conn,
+                        entidades.stream().map(Certificado::getCodigo).toList());
+                Set<String> enBloque = new HashSet<>();
+                List<String> motivos = new ArrayList<>(entidades.size());
+                for (Certificado certificado : entidades) {
+                    String codigo = certificado.getCodigo();
+                    String paciente = registrados.get(codigo);
+                    if (paciente == null && enBloque.add(codigo)) {
+                        motivos.add(null);
+                    } else if (paciente == null) {
+                        motivos.add("Código de certificado repetido en el archivo: " + codigo);
+                    } else if (paciente.equals(certificado.getDniPaciente())) {
+                        motivos.add("El certificado " + codigo + " ya estaba registrado");
+                    } else {
+                        motivos.add("El certificado " + codigo + " ya está registrado para otro beneficiario");
+                    }
+                }
+                return motivos;
+            }
+
+            @Override
+            public void cargar(Connection conn, List<Certificado> entidades) throws SQLException {
+                // Cada certificado llega sin conflictos, así que todos se insertan; solo los vigentes
+                // marcan al paciente (y marcarConCertificadoEnLote recalcula su elegibilidad)
+                certificadoDAO.insertarEnLote(conn, entidades);
+                Set<String> conVigente = new LinkedHashSet<>();
+                entidades.stream().filter(Certificado::isVigente).forEach(c -> conVigente.add(c.getDniPaciente()));
+                if (!conVigente.isEmpty()) {
+                    beneficiarioDAO.marcarConCertificadoEnLote(conn, conVigente);
+                }
+            }
+
+            @Override
+            public void confirmado(List<Certificado> entidades) {
+                entidades.forEach(c -> certificadoDAO.invalidarCache(c.getCodigo(), c.getDniPaciente()));
+                beneficiarioDAO.invalidarCache(entidades.stream().map(Certificado::getDniPaciente).toList());
+            }
+        };
+    }
+
+    // Un DNI ya registrado, o repetido dentro del bloque, se rechaza en lugar de contarse como cargado
+    private static List<String> conflictosPorDni(List<String> dnis, Set<String> registrados, String tipo) {
+        Set<String> enBloque = new HashSet<>();
+        List<String> motivos = new ArrayList<>(dnis.size());
+        for (String dni : dnis) {
+            if (registrados.contains(dni)) {
+                motivos.add("El " + tipo + " " + dni + " ya estaba registrado");
+            } else if (!enBloque.add(dni)) {
+                motivos.add("DNI de " + tipo + " repetido en el archivo: " + dni);
+            } else {
+                motivos.add(null);
+            }
+        }
+        return motivos;
+    }
+
+    private <T> Resultado importarArchivo(Path archivo, Formato<T> formato) throws IOException {
+        Path progreso = archivo.resolveSibling(archivo.getFileName() + ".progreso");
+        Path rechazados = archivo.resolveSibling(archivo.getFileName() + ".rechazados.csv");
+        long lineaInicial = leerProgreso(progreso);
+        long leidas = 0;
+        long cargadas = 0;
+        long rechazadasTotal = 0;
+
+        if (lineaInicial > 0) {
+            System.out.printf("Reanudando %s desde la línea %d\n", archivo.getFileName(), lineaInicial + 1);
+        }
+
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8);
+             BufferedWriter errores = Files.newBufferedWriter(rechazados, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             Connection conn = DatabaseConnection.getInstance().getConnection()) {
+
+            // Línea 1: encabezado; luego se saltan las líneas ya confirmadas en una ejecución anterior
+            long linea = 0;
+            while (linea < Math.max(1, lineaInicial) && lector.readLine() != null) {
+                linea++;
+            }
+
+            conn.setAutoCommit(false);
+            long primeraLinea = linea;
+            CompletableFuture<Bloque<T>> siguiente =
+                    CompletableFuture.supplyAsync(() -> leerBloque(lector, primeraLinea, formato));
+
+            while (true) {
+                Bloque<T> bloque = siguiente.join();
+                if (bloque.filas().isEmpty()) {
+                    break;
+                }
+                // Se lee y valida el próximo bloque mientras se carga el actual
+                siguiente = CompletableFuture.supplyAsync(() -> leerBloque(lector, bloque.ultimaLinea(), formato));
+
+                long inicio = System.nanoTime();
+                List<Fila<T>> rechazadas = new ArrayList<>();
+                List<T> validas;
+
+                try {
+                    validas = separarValidas(conn, bloque.filas(), formato, rechazadas);
+                    if (!validas.isEmpty()) {
+                        formato.cargar(conn, validas);
+                    }
+                    conn.commit();
+                    formato.confirmado(validas);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    // No cerrar el archivo mientras se está leyendo el bloque siguiente
+                    siguiente.exceptionally(t -> null).join();
+                    throw new SQLException("Fallo al cargar el bloque que termina en la línea " +
+                            bloque.ultimaLinea() + "; vuelva a ejecutar para reanudar", e);
+                }
+
+                for (Fila<T> fila : rechazadas) {
+                    errores.write(fila.linea() + "," + escaparCsv(fila.motivo()) + "," + escaparCsv(fila.texto()));
+                    errores.newLine();
+                }
+                errores.flush();
+                guardarProgreso(progreso, bloque.ultimaLinea());
+
+                leidas += bloque.filas().size();
+                cargadas += validas.size();
+                rechazadasTotal += rechazadas.size();
+
+                double segundos = (System.nanoTime() - inicio) / 1e9;
+                System.out.printf("%s: hasta línea %d - %d cargadas, %d rechazadas (%.0f filas/s)\n",
+                        archivo.getFileName(), bloque.ultimaLinea(), validas.size(), rechazadas.size(),
+                        bloque.filas().size() / Math.max(segundos, 1e-9));
+            }
+        } catch (SQLException e) {
+            System.err.println("Importación de " + archivo.getFileName() + " interrumpida: " + e.getMessage());
+            return new Resultado(archivo, leidas, cargadas, rechazadasTotal, lineaInicial);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+
+        // Importación completa: la próxima vez el archivo se procesa desde el inicio
+        Files.deleteIfExists(progreso);
+        return new Resultado(archivo, leidas, cargadas, rechazadasTotal, lineaInicial);
+    }
+
+    // Lee hasta TAMANO_BLOQUE líneas y las convierte/valida en paralelo conservando el orden
+    private <T> Bloque<T> leerBloque(BufferedReader lector, long lineaAnterior, Formato<T> formato) {
+        List<String> lineas = new ArrayList<>(TAMANO_BLOQUE);
+        try {
+            String linea;
+            while (lineas.size() < TAMANO_BLOQUE && (linea = lector.readLine()) != null) {
+                lineas.add(linea);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<Fila<T>> filas = IntStream.range(0, lineas.size())
+                .parallel()
+                .mapToObj(i -> convertirFila(lineaAnterior + i + 1, lineas.get(i), formato))
+                .filter(Objects::nonNull)
+                .toList();
+
+        return new Bloque<>(filas, lineaAnterior + lineas.size());
+    }
+
+    private <T> Fila<T> convertirFila(long numero, String texto, Formato<T> formato) {
+        if (texto.isBlank()) {
+            return null;
+        }
+        try {
+            return new Fila<>(numero, texto, formato.convertir(separarCampos(texto)), null);
+        } catch (IllegalArgumentException e) {
+            return new Fila<>(numero, texto, null, e.getMessage());
+        }
+    }
+
+    // Rechaza las filas inválidas, las que referencian un beneficiario inexistente y las que
+    // el formato reporta en conflicto
+    private <T> List<T> separarValidas(Connection conn, List<Fila<T>> filas, Formato<T> formato,
+                                       List<Fila<T>> rechazadas) throws SQLException {
+        Set<String> referenciados = new LinkedHashSet<>();
+        for (Fila<T> fila : filas) {
+            if (fila.entidad() != null && formato.dniReferenciado(fila.entidad()) != null) {
+                referenciados.add(formato.dniReferenciado(fila.entidad()));
+            }
+        }
+        Set<String> existentes = referenciados.isEmpty() ? Set.of()
+                : beneficiarioDAO.filtrarExistentes(conn, referenciados);
+
+        List<Fila<T>> aceptadas = new ArrayList<>(filas.size());
+        for (Fila<T> fila : filas) {
+            if (fila.entidad() == null) {
+                rechazadas.add(fila);
+                continue;
+            }
+            String dni = formato.dniReferenciado(fila.entidad());
+            if (dni != null && !existentes.contains(dni)) {
+                rechazadas.add(new Fila<>(fila.linea(), fila.texto(), null, "No existe beneficiario con DNI " + dni));
+            } else {
+                aceptadas.add(fila);
+            }
+        }
+
+        List<T> entidades = aceptadas.stream().map(Fila::entidad).toList();
+        List<String> conflictos = entidades.isEmpty() ? null : formato.conflictos(conn, entidades);
+        if (conflictos == null) {
+            return new ArrayList<>(entidades);
+        }
+
+        List<T> validas = new ArrayList<>(aceptadas.size());
+        for (int i = 0; i < aceptadas.size(); i++) {
+            Fila<T> fila = aceptadas.get(i);
+            if (conflictos.get(i) != null) {
+                rechazadas.add(new Fila<>(fila.linea(), fila.texto(), null, conflictos.get(i)));
+            } else {
+                validas.add(fila.entidad());
+            }
+        }
+        rechazadas.sort(Comparator.comparingLong(Fila::linea));
+        return validas;
+    }
+
+    // Separa una línea CSV admitiendo campos entre comillas dobles
+    static String[] separarCampos(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString().trim());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        campos.add(actual.toString().trim());
+        return campos.toArray(new String[0]);
+    }
+
+    static String escaparCsv(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    private static void exigirCampos(String[] campos, int minimo) {
+        if (campos.length < minimo) {
+            throw new IllegalArgumentException("Se esperaban " + minimo + " campos y hay " + campos.length);
+        }
+    }
+
+    private static String validarDni(String dni) {
+        if (!Persona.esDniValido(dni)) {
+            throw new IllegalArgumentException("DNI inválido: " + dni);
+        }
+        return dni;
+    }
+
+    private static String requerido(String valor, String campo, int longitudMaxima) {
+        if (valor.isEmpty()) {
+            throw new IllegalArgumentException("Falta el campo " + campo);
+        }
+        if (valor.length() > longitudMaxima) {
+            throw new IllegalArgumentException("El campo " + campo + " supera " + longitudMaxima + " caracteres");
+        }
+        return valor;
+    }
+
+    private static boolean leerBooleano(String valor) {
+        return switch (valor.toLowerCase()) {
+            case "1", "true", "s", "si", "sí" -> true;
+            case "0", "false", "n", "no" -> false;
+            default -> throw new IllegalArgumentException("Valor booleano inválido: " + valor);
+        };
+    }
+
+    private static long leerProgreso(Path progreso) throws IOException {
+        if (!Files.exists(progreso)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(progreso).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void guardarProgreso(Path progreso, long linea) throws IOException {
+        Path temporal = progreso.resolveSibling(progreso.getFileName() + ".tmp");
+        Files.writeString(temporal, Long.toString(linea));
+        Files.move(temporal, progreso, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
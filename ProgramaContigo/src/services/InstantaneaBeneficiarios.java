@@ -0,0 +1,404 @@
+package services;
+
+import models.Beneficiario;
+import models.ClasificacionEconomica;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Instantánea analítica de los beneficiarios activos guardada por columnas en arreglos
+ * primitivos: región codificada con diccionario, clasificación por su posición en el ENUM,
+ * marcas en BitSet, fechas como días epoch y textos en un único bloque de bytes. Una fila ocupa unas decenas de bytes
+ * en lugar de un objeto Beneficiario con sus String y LocalDate.
+ *
+ * Los filtros devuelven un BitSet de filas que se combina con and/or/andNot y luego se
+ * cuenta o agrupa. Se arma en un solo recorrido (agregar) y después es de solo lectura.
+ * Para refrescarla no hace falta volver a leer todo: aplicar arma una nueva a partir de esta
+ * y de los beneficiarios modificados desde sus marcas del registro de cambios (ver CambiosDAO).
+ */
+public class InstantaneaBeneficiarios {
+    private static final int LARGO_DNI = 8;
+
+    private final long generadaEn = System.currentTimeMillis();
+    private int filas;
+    private long totalAutorizados;
+    private long milisegundosConstruccion;
+    // Marcas del registro de cambios hasta las que llegan los datos; null si no se conocen
+    private String marcaBeneficiarios;
+    private String marcaAutorizados;
+
+    private byte[] dnis = new byte[1024 * LARGO_DNI];
+    private byte[] nombres = new byte[1024 * 24];
+    private int[] finNombre = new int[1024];
+    private int bytesNombres;
+    private short[] region = new short[1024];
+    private byte[] clasificacion = new byte[1024];
+    private int[] fechaInscripcion = new int[1024];
+    private int[] pensionCentimos = new int[1024];
+    private byte[] padronesCobrados = new byte[1024];
+    private final BitSet conCertificado = new BitSet();
+    private final BitSet conOtrosIngresos = new BitSet();
+    private final BitSet elegible = new BitSet();
+
+    private final Diccionario regiones = new Diccionario();
+
+    // Valores de texto repetidos guardados una sola vez; cada fila lleva solo el código
+    private static final class Diccionario {
+        private final List<String> valores = new ArrayList<>();
+        private final Map<String, Integer> codigos = new HashMap<>();
+
+        int codificar(String valor) {
+            return codigos.computeIfAbsent(valor, v -> {
+                valores.add(v);
+                return valores.size() - 1;
+            });
+        }
+
+        int codigo(String valor) {
+            return codigos.getOrDefault(valor, -1);
+        }
+
+        String valor(int codigo) {
+            return valores.get(codigo);
+        }
+
+        int tamano() {
+            return valores.size();
+        }
+    }
+
+    InstantaneaBeneficiarios() {
+    }
+
+    // Incorpora una fila del recorrido; no debe llamarse después de publicar la instantánea
+    void agregar(Beneficiario b) {
+        asegurarCapacidad(filas + 1);
+        int fila = filas++;
+
+        byte[] dni = b.getDni().getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(dni, 0, dnis, fila * LARGO_DNI, Math.min(dni.length, LARGO_DNI));
+
+        byte[] nombre = b.getNombreCompleto().getBytes(StandardCharsets.UTF_8);
+        if (bytesNombres + nombre.length > nombres.length) {
+            nombres = Arrays.copyOf(nombres, Math.max(nombres.length * 3 / 2, bytesNombres + nombre.length));
+        }
+        System.arraycopy(nombre, 0, nombres, bytesNombres, nombre.length);
+        bytesNombres += nombre.length;
+        finNombre[fila] = bytesNombres;
+
+        region[fila] = (short) regiones.codificar(b.getRegion());
+        clasificacion[fila] = (byte) b.getClasificacion().ordinal();
+        fechaInscripcion[fila] = (int) b.getFechaInscripcion().toEpochDay();
+        pensionCentimos[fila] = (int) Math.round(b.getPensionRecibida() * 100);
+        padronesCobrados[fila] = (byte) b.getPadronesCobrados();
+        conCertificado.set(fila, b.isTieneCertificadoDiscapacidad());
+        conOtrosIngresos.set(fila, b.isTieneOtrosIngresos());
+        elegible.set(fila, b.verificarElegibilidad());
+    }
+
+    // Copia la fila de otra instantánea; los diccionarios de ambas tienen los mismos códigos
+    private void copiar(InstantaneaBeneficiarios origen, int filaOrigen) {
+        asegurarCapacidad(filas + 1);
+        int fila = filas++;
+
+        System.arraycopy(origen.dnis, filaOrigen * LARGO_DNI, dnis, fila * LARGO_DNI, LARGO_DNI);
+
+        int inicioNombre = filaOrigen == 0 ? 0 : origen.finNombre[filaOrigen - 1];
+        int largoNombre = origen.finNombre[filaOrigen] - inicioNombre;
+        if (bytesNombres + largoNombre > nombres.length) {
+            nombres = Arrays.copyOf(nombres, Math.max(nombres.length * 3 / 2, bytesNombres + largoNombre));
+        }
+        System.arraycopy(origen.nombres, inicioNombre, nombres, bytesNombres, largoNombre);
+        bytesNombres += largoNombre;
+        finNombre[fila] = bytesNombres;
+
+        region[fila] = origen.region[filaOrigen];
+        clasificacion[fila] = origen.clasificacion[filaOrigen];
+        fechaInscripcion[fila] = origen.fechaInscripcion[filaOrigen];
+        pensionCentimos[fila] = origen.pensionCentimos[filaOrigen];
+        padronesCobrados[fila] = origen.padronesCobrados[filaOrigen];
+        conCertificado.set(fila, origen.conCertificado.get(filaOrigen));
+        conOtrosIngresos.set(fila, origen.conOtrosIngresos.get(filaOrigen));
+        elegible.set(fila, origen.elegible.get(filaOrigen));
+    }
+
+    /**
+     * Nueva instantánea con los cambios aplicados sobre esta: las filas de los DNI modificados
+     * se reemplazan por su versión nueva, o se quitan si el beneficiario ya no está activo, y
+     * el resto se copia columna por columna. Si un DNI llega más de una vez vale la última.
+     * Esta instantánea no se modifica; la nueva queda por completar.
+     */
+    InstantaneaBeneficiarios aplicar(Collection<Beneficiario> cambios) {
+        Map<String, Beneficiario> porDni = new HashMap<>();
+        for (Beneficiario b : cambios) {
+            porDni.put(b.getDni(), b);
+        }
+
+        InstantaneaBeneficiarios nueva = new InstantaneaBeneficiarios();
+        for (int codigo = 0; codigo < regiones.tamano(); codigo++) {
+            nueva.regiones.codificar(regiones.valor(codigo));
+        }
+        nueva.asegurarCapacidad(filas + porDni.size());
+        for (int fila = 0; fila < filas; fila++) {
+            if (porDni.isEmpty() || !porDni.containsKey(dni(fila))) {
+                nueva.copiar(this, fila);
+            }
+        }
+        for (Beneficiario b : porDni.values()) {
+            if (b.isActivo()) {
+                nueva.agregar(b);
+            }
+        }
+        return nueva;
+    }
+
+    void marcar(String marcaBeneficiarios, String marcaAutorizados) {
+        this.marcaBeneficiarios = marcaBeneficiarios;
+        this.marcaAutorizados = marcaAutorizados;
+    }
+
+    // Ajusta los arreglos al tamaño final al terminar el recorrido
+    void completar(long totalAutorizados, long milisegundosConstruccion) {
+        this.totalAutorizados = totalAutorizados;
+        this.milisegundosConstruccion = milisegundosConstruccion;
+        dnis = Arrays.copyOf(dnis, filas * LARGO_DNI);
+        nombres = Arrays.copyOf(nombres, bytesNombres);
+        finNombre = Arrays.copyOf(finNombre, filas);
+        region = Arrays.copyOf(region, filas);
+        clasificacion = Arrays.copyOf(clasificacion, filas);
+        fechaInscripcion = Arrays.copyOf(fechaInscripcion, filas);
+        pensionCentimos = Arrays.copyOf(pensionCentimos, filas);
+        padronesCobrados = Arrays.copyOf(padronesCobrados, filas);
+    }
+
+    private void asegurarCapacidad(int requerida) {
+        if (requerida <= finNombre.length) {
+            return;
+        }
+        int capacidad = Math.max(requerida, finNombre.length * 3 / 2);
+        dnis = Arrays.copyOf(dnis, capacidad * LARGO_DNI);
+        finNombre = Arrays.copyOf(finNombre, capacidad);
+        region = Arrays.copyOf(region, capacidad);
+        clasificacion = Arrays.copyOf(clasificacion, capacidad);
+        fechaInscripcion = Arrays.copyOf(fechaInscripcion, capacidad);
+        pensionCentimos = Arrays.copyOf(pensionCentimos, capacidad);
+        padronesCobrados = Arrays.copyOf(padronesCobrados, capacidad);
+    }
+
+    // ----- Filtros: cada uno devuelve un BitSet nuevo que el llamador puede modificar -----
+
+    public BitSet todos() {
+        BitSet resultado = new BitSet(filas);
+        resultado.set(0, filas);
+        return resultado;
+    }
+
+    public BitSet conCertificado() {
+        return (BitSet) conCertificado.clone();
+    }
+
+    public BitSet sinCertificado() {
+        BitSet resultado = todos();
+        resultado.andNot(conCertificado);
+        return resultado;
+    }
+
+    public BitSet conOtrosIngresos() {
+        return (BitSet) conOtrosIngresos.clone();
+    }
+
+    public BitSet elegibles() {
+        return (BitSet) elegible.clone();
+    }
+
+    public BitSet noElegibles() {
+        BitSet resultado = todos();
+        resultado.andNot(elegible);
+        return resultado;
+    }
+
+    public BitSet deRegion(String valor) {
+        BitSet resultado = new BitSet(filas);
+        int codigo = regiones.codigo(valor);
+        if (codigo >= 0) {
+            for (int i = 0; i < filas; i++) {
+                if (region[i] == codigo) {
+                    resultado.set(i);
+                }
+            }
+        }
+        return resultado;
+    }
+
+    public BitSet deClasificacion(String valor) {
+        ClasificacionEconomica buscada = ClasificacionEconomica.buscar(valor);
+        return buscada == null ? new BitSet(filas) : deClasificacion(buscada);
+    }
+
+    public BitSet deClasificacion(ClasificacionEconomica valor) {
+        BitSet resultado = new BitSet(filas);
+        int codigo = valor.ordinal();
+        for (int i = 0; i < filas; i++) {
+            if (clasificacion[i] == codigo) {
+                resultado.set(i);
+            }
+        }
+        return resultado;
+    }
+
+    // Inscritos entre las dos fechas, ambas inclusive
+    public BitSet inscritosEntre(LocalDate desde, LocalDate hasta) {
+        BitSet resultado = new BitSet(filas);
+        int inicio = (int) desde.toEpochDay();
+        int fin = (int) hasta.toEpochDay();
+        for (int i = 0; i < filas; i++) {
+            if (fechaInscripcion[i] >= inicio && fechaInscripcion[i] <= fin) {
+                resultado.set(i);
+            }
+        }
+        return resultado;
+    }
+
+    public BitSet cobraronPadron(int numeroPadron) {
+        BitSet resultado = new BitSet(filas);
+        int bit = Beneficiario.bitPadron(numeroPadron);
+        for (int i = 0; i < filas; i++) {
+            if ((padronesCobrados[i] & bit) != 0) {
+                resultado.set(i);
+            }
+        }
+        return resultado;
+    }
+
+    // ----- Agregados sobre un conjunto de filas -----
+
+    public long contar(BitSet seleccion) {
+        return seleccion.cardinality();
+    }
+
+    public Map<String, Long> contarPorRegion(BitSet seleccion) {
+        long[] conteos = new long[regiones.tamano()];
+        for (int i = seleccion.nextSetBit(0); i >= 0; i = seleccion.nextSetBit(i + 1)) {
+            conteos[region[i]]++;
+        }
+        return agrupar(conteos, regiones);
+    }
+
+    public Map<String, Long> contarPorClasificacion(BitSet seleccion) {
+        ClasificacionEconomica[] valores = ClasificacionEconomica.values();
+        long[] conteos = new long[valores.length];
+        for (int i = seleccion.nextSetBit(0); i >= 0; i = seleccion.nextSetBit(i + 1)) {
+            conteos[clasificacion[i]]++;
+        }
+        Map<String, Long> resultado = new TreeMap<>();
+        for (ClasificacionEconomica valor : valores) {
+            if (conteos[valor.ordinal()] > 0) {
+                resultado.put(valor.getValor(), conteos[valor.ordinal()]);
+            }
+        }
+        return Collections.unmodifiableMap(resultado);
+    }
+
+    public double sumarPension(BitSet seleccion) {
+        long centimos = 0;
+        for (int i = seleccion.nextSetBit(0); i >= 0; i = seleccion.nextSetBit(i + 1)) {
+            centimos += pensionCentimos[i];
+        }
+        return centimos / 100.0;
+    }
+
+    private static Map<String, Long> agrupar(long[] conteos, Diccionario diccionario) {
+        Map<String, Long> resultado = new TreeMap<>();
+        for (int codigo = 0; codigo < conteos.length; codigo++) {
+            if (conteos[codigo] > 0) {
+                resultado.put(diccionario.valor(codigo), conteos[codigo]);
+            }
+        }
+        return Collections.unmodifiableMap(resultado);
+    }
+
+    // Filas de cada alerta crítica, en el orden en que se informan
+    public Map<String, BitSet> alertas() {
+        Map<String, BitSet> alertas = new LinkedHashMap<>();
+        alertas.put("sin certificado de discapacidad", sinCertificado());
+        alertas.put("con otros ingresos", conOtrosIngresos());
+        alertas.put("con CSE incompatible", deClasificacion(ClasificacionEconomica.NO_POBRE));
+        return alertas;
+    }
+
+    // ----- Acceso a una fila (para listar los casos de un filtro) -----
+
+    public String dni(int fila) {
+        int inicio = fila * LARGO_DNI;
+        int largo = 0;
+        while (largo < LARGO_DNI && dnis[inicio + largo] != 0) {
+            largo++;
+        }
+        return new String(dnis, inicio, largo, StandardCharsets.US_ASCII);
+    }
+
+    public String nombreCompleto(int fila) {
+        int inicio = fila == 0 ? 0 : finNombre[fila - 1];
+        return new String(nombres, inicio, finNombre[fila] - inicio, StandardCharsets.UTF_8);
+    }
+
+    public String region(int fila) {
+        return regiones.valor(region[fila]);
+    }
+
+    public String clasificacion(int fila) {
+        return ClasificacionEconomica.values()[clasificacion[fila]].getValor();
+    }
+
+    // ----- Totales y metadatos -----
+
+    public long getTotalBeneficiarios() {
+        return filas;
+    }
+
+    public long getTotalAutorizados() {
+        return totalAutorizados;
+    }
+
+    public long getElegibles() {
+        return elegible.cardinality();
+    }
+
+    public long getNoElegibles() {
+        return filas - elegible.cardinality();
+    }
+
+    public long getMilisegundosConstruccion() {
+        return milisegundosConstruccion;
+    }
+
+    public String getMarcaBeneficiarios() {
+        return marcaBeneficiarios;
+    }
+
+    public String getMarcaAutorizados() {
+        return marcaAutorizados;
+    }
+
+    public boolean estaVencida(long vigenciaMs) {
+        return System.currentTimeMillis() - generadaEn >= vigenciaMs;
+    }
+
+    // Tamaño aproximado de los datos por columna, sin contar los diccionarios
+    public long bytesAproximados() {
+        long bitsets = (conCertificado.size() + conOtrosIngresos.size() + elegible.size()) / 8;
+        return dnis.length + nombres.length + 4L * finNombre.length + 2L * region.length
+                + clasificacion.length + 4L * fechaInscripcion.length + 4L * pensionCentimos.length
+                + padronesCobrados.length + bitsets;
+    }
+}
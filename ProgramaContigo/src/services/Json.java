@@ -0,0 +1,230 @@
+package services;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JSON mínimo para la API HTTP y la exportación JSON lines, sin dependencias externas.
+ * La escritura admite mapas, colecciones, textos, números, booleanos y null; la lectura solo
+ * objetos planos (un nivel, valores de texto, número, booleano o null), que es todo lo que
+ * reciben los endpoints.
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    // ----- Escritura -----
+
+    public static String escribir(Object valor) {
+        StringBuilder texto = new StringBuilder();
+        escribir(texto, valor);
+        return texto.toString();
+    }
+
+    public static void escribir(StringBuilder texto, Object valor) {
+        if (valor == null) {
+            texto.append("null");
+        } else if (valor instanceof String s) {
+            escribirTexto(texto, s);
+        } else if (valor instanceof Number || valor instanceof Boolean) {
+            texto.append(valor);
+        } else if (valor instanceof Map<?, ?> mapa) {
+            texto.append('{');
+            boolean primero = true;
+            for (Map.Entry<?, ?> entrada : mapa.entrySet()) {
+                if (!primero) {
+                    texto.append(',');
+                }
+                primero = false;
+                escribirTexto(texto, String.valueOf(entrada.getKey()));
+                texto.append(':');
+                escribir(texto, entrada.getValue());
+            }
+            texto.append('}');
+        } else if (valor instanceof Collection<?> elementos) {
+            texto.append('[');
+            boolean primero = true;
+            for (Object elemento : elementos) {
+                if (!primero) {
+                    texto.append(',');
+                }
+                primero = false;
+                escribir(texto, elemento);
+            }
+            texto.append(']');
+        } else {
+            escribirTexto(texto, valor.toString());
+        }
+    }
+
+    public static void escribirTexto(StringBuilder texto, String s) {
+        texto.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> texto.append("\\\"");
+                case '\\' -> texto.append("\\\\");
+                case '\n' -> texto.append("\\n");
+                case '\r' -> texto.append("\\r");
+                case '\t' -> texto.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        texto.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        texto.append(c);
+                    }
+                }
+            }
+        }
+        texto.append('"');
+    }
+
+    // ----- Lectura de objetos planos -----
+
+    /**
+     * Lee un objeto JSON de un nivel. Los números se devuelven como Long o Double.
+     * Cualquier error de formato lanza IllegalArgumentException, que la API responde con 400.
+     */
+    public static Map<String, Object> leerObjeto(String json) {
+        Lector lector = new Lector(json);
+        Map<String, Object> objeto = lector.objeto();
+        lector.saltarEspacios();
+        if (!lector.termino()) {
+            throw new IllegalArgumentException("Contenido sobrante después del objeto JSON");
+        }
+        return objeto;
+    }
+
+    private static final class Lector {
+        private final String json;
+        private int pos;
+
+        Lector(String json) {
+            this.json = json;
+        }
+
+        boolean termino() {
+            return pos >= json.length();
+        }
+
+        void saltarEspacios() {
+            while (!termino() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        void esperar(char c) {
+            saltarEspacios();
+            if (termino() || json.charAt(pos) != c) {
+                throw new IllegalArgumentException("JSON inválido: se esperaba '" + c + "' en la posición " + pos);
+            }
+            pos++;
+        }
+
+        Map<String, Object> objeto() {
+            Map<String, Object> objeto = new LinkedHashMap<>();
+            esperar('{');
+            saltarEspacios();
+            if (!termino() && json.charAt(pos) == '}') {
+                pos++;
+                return objeto;
+            }
+            do {
+                saltarEspacios();
+                String clave = texto();
+                esperar(':');
+                objeto.put(clave, valor());
+                saltarEspacios();
+            } while (!termino() && json.charAt(pos++) == ',');
+            if (json.charAt(pos - 1) != '}') {
+                throw new IllegalArgumentException("JSON inválido: objeto sin cerrar");
+            }
+            return objeto;
+        }
+
+        Object valor() {
+            saltarEspacios();
+            if (termino()) {
+                throw new IllegalArgumentException("JSON inválido: falta un valor");
+            }
+            char c = json.charAt(pos);
+            if (c == '"') {
+                return texto();
+            }
+            if (json.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (json.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            if (json.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return numero();
+            }
+            throw new IllegalArgumentException("JSON inválido: valor no admitido en la posición " + pos);
+        }
+
+        String texto() {
+            esperar('"');
+            StringBuilder texto = new StringBuilder();
+            while (!termino()) {
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    return texto.toString();
+                }
+                if (c != '\\') {
+                    texto.append(c);
+                    continue;
+                }
+                if (termino()) {
+                    break;
+                }
+                char escape = json.charAt(pos++);
+                switch (escape) {
+                    case '"', '\\', '/' -> texto.append(escape);
+                    case 'n' -> texto.append('\n');
+                    case 'r' -> texto.append('\r');
+                    case 't' -> texto.append('\t');
+                    case 'b' -> texto.append('\b');
+                    case 'f' -> texto.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > json.length()) {
+                            throw new IllegalArgumentException("JSON inválido: escape \\u incompleto");
+                        }
+                        try {
+                            texto.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("JSON inválido: escape \\u incorrecto");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw new IllegalArgumentException("JSON inválido: escape \\" + escape);
+                }
+            }
+            throw new IllegalArgumentException("JSON inválido: texto sin cerrar");
+        }
+
+        Number numero() {
+            int inicio = pos;
+            while (!termino() && "+-0123456789.eE".indexOf(json.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String numero = json.substring(inicio, pos);
+            try {
+                if (numero.contains(".") || numero.contains("e") || numero.contains("E")) {
+                    return Double.parseDouble(numero);
+                }
+                return Long.parseLong(numero);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("JSON inválido: número incorrecto " + numero);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package services;
+
+import config.DatabaseConnection;
+import dao.BeneficiarioDAO;
+import dao.PadronDAO;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Procesamiento masivo de un padrón completo: paga a todos los beneficiarios elegibles
+ * pendientes en lotes, cada uno en su propia transacción. Quien cobró por ventanilla después
+ * de la selección se saltea sin afectar al resto del lote. Un lote fallido se deshace y se
+ * vuelve a seleccionar (hasta -Dcontigo.pago.reintentosLote veces, 2); si sigue fallando se
+ * informa y se pasa al siguiente. Como la selección excluye a quienes ya cobraron, volver a
+ * ejecutar el proceso solo paga lo que quedó pendiente.
+ */
+public class PagoMasivo {
+    private static final int TAMANO_LOTE = Integer.getInteger("contigo.pago.tamanoLote", 1000);
+    private static final int REINTENTOS_LOTE = Integer.getInteger("contigo.pago.reintentosLote", 2);
+
+    private final BeneficiarioDAO beneficiarioDAO;
+    private final PadronDAO padronDAO;
+
+    public record Resultado(int numeroPadron, long pagados, int lotes, int lotesFallidos, long milisegundos) {}
+
+    public PagoMasivo(BeneficiarioDAO beneficiarioDAO, PadronDAO padronDAO) {
+        this.beneficiarioDAO = beneficiarioDAO;
+        this.padronDAO = padronDAO;
+    }
+
+    public Resultado ejecutar(int numeroPadron) {
+        long inicio = System.nanoTime();
+        long pagados = 0;
+        int lotes = 0;
+        int lotesFallidos = 0;
+
+        double monto = padronDAO.obtenerMonto(numeroPadron);
+        if (monto < 0) {
+            System.out.println("ERROR: El padrón " + numeroPadron + " no existe o no está activo");
+            return new Resultado(numeroPadron, 0, 0, 0, 0);
+        }
+
+        String ultimoDni = "";
+        int reintentos = 0;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+
+            while (true) {
+                long inicioLote = System.nanoTime();
+                List<String> dnis = beneficiarioDAO.obtenerPendientesDePago(conn, numeroPadron, ultimoDni, TAMANO_LOTE);
+                if (dnis.isEmpty()) {
+                    conn.commit();
+                    break;
+                }
+                String hastaDni = dnis.get(dnis.size() - 1);
+
+                try {
+                    List<String> pagadosLote = beneficiarioDAO.registrarPagosEnLote(conn, numeroPadron, dnis, monto);
+                    conn.commit();
+                    beneficiarioDAO.invalidarCache(dnis);
+                    lotes++;
+                    reintentos = 0;
+                    ultimoDni = hastaDni;
+                    pagados += pagadosLote.size();
+
+                    double segundos = (System.nanoTime() - inicioLote) / 1e9;
+                    System.out.printf("Lote %d: %d pagos en %.2f s (%.0f pagos/s) - hasta DNI %s%s\n",
+                            lotes, pagadosLote.size(), segundos, pagadosLote.size() / Math.max(segundos, 1e-9), ultimoDni,
+                            pagadosLote.size() < dnis.size() ? " (" + (dnis.size() - pagadosLote.size()) + " ya habían cobrado)" : "");
+                } catch (SQLException e) {
+                    conn.rollback();
+                    if (reintentos < REINTENTOS_LOTE) {
+                        reintentos++;
+                        System.err.printf("Lote %d deshecho (DNI %s a %s), se reintenta: %s\n",
+                                lotes + 1, dnis.get(0), hastaDni, e.getMessage());
+                        continue;
+                    }
+                    lotes++;
+                    lotesFallidos++;
+                    reintentos = 0;
+                    ultimoDni = hastaDni;
+                    System.err.printf("Lote %d deshecho (DNI %s a %s): %s\n",
+                            lotes, dnis.get(0), hastaDni, e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error en el procesamiento masivo del padrón: " + e.getMessage());
+        }
+
+        long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+        return new Resultado(numeroPadron, pagados, lotes, lotesFallidos, milisegundos);
+    }
+}
@@ -0,0 +1,175 @@
+package services;
+
+import interfaces.SalidaReporte;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Base de las salidas de reporte a archivo. Cada fila se arma en un StringBuilder reutilizado,
+ * se codifica en UTF-8 dentro de un buffer directo de 64 KB y se escribe al FileChannel
+ * cuando el buffer se llena: la memoria usada es fija sin importar cuántas filas tenga el
+ * reporte. Se escribe sobre un archivo .tmp que close renombra al destino de forma atómica,
+ * así quien lee el destino nunca ve una exportación a medias.
+ */
+public abstract class SalidaArchivo implements SalidaReporte {
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final Path destino;
+    private final Path temporal;
+    private final FileChannel canal;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+    private final CharsetEncoder codificador = StandardCharsets.UTF_8.newEncoder();
+    private char[] caracteres = new char[1024];
+    private String[] columnas;
+    private long filas;
+    private boolean cerrada;
+
+    // Línea en construcción; las subclases la llenan y llaman a terminarLinea
+    protected final StringBuilder linea = new StringBuilder(1024);
+
+    protected SalidaArchivo(Path destino) {
+        this.destino = destino;
+        this.temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try {
+            this.canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear " + temporal, e);
+        }
+    }
+
+    // Elige el formato por la extensión del destino: .csv o .jsonl / .ndjson
+    public static SalidaArchivo abrir(Path destino) {
+        String nombre = destino.getFileName().toString().toLowerCase();
+        if (nombre.endsWith(".csv")) {
+            return new SalidaCsv(destino);
+        }
+        if (nombre.endsWith(".jsonl") || nombre.endsWith(".ndjson")) {
+            return new SalidaJsonLineas(destino);
+        }
+        throw new IllegalArgumentException("Formato de exportación no reconocido (use .csv o .jsonl): " + destino);
+    }
+
+    @Override
+    public final void iniciar(String titulo, String... columnas) {
+        if (this.columnas != null) {
+            throw new IllegalStateException("Un archivo de exportación admite un solo reporte");
+        }
+        this.columnas = columnas.clone();
+        escribirEncabezado(this.columnas);
+    }
+
+    @Override
+    public final void fila(Supplier<String> texto, Object... valores) {
+        if (columnas == null) {
+            throw new IllegalStateException("Falta iniciar el reporte antes de escribir filas");
+        }
+        if (valores.length != columnas.length) {
+            throw new IllegalArgumentException("Se esperaban " + columnas.length + " valores y llegaron " + valores.length);
+        }
+        escribirFila(columnas, valores);
+        filas++;
+    }
+
+    protected abstract void escribirEncabezado(String[] columnas);
+
+    protected abstract void escribirFila(String[] columnas, Object[] valores);
+
+    // Codifica la línea en construcción (más el salto) hacia el buffer y la deja vacía
+    protected final void terminarLinea() {
+        linea.append('\n');
+        int largo = linea.length();
+        if (caracteres.length < largo) {
+            caracteres = Arrays.copyOf(caracteres, Math.max(largo, caracteres.length * 2));
+        }
+        linea.getChars(0, largo, caracteres, 0);
+        linea.setLength(0);
+
+        CharBuffer entrada = CharBuffer.wrap(caracteres, 0, largo);
+        try {
+            while (true) {
+                CoderResult resultado = codificador.encode(entrada, buffer, false);
+                if (resultado.isOverflow()) {
+                    vaciar();
+                } else if (resultado.isError()) {
+                    resultado.throwException();
+                } else {
+                    break;
+                }
+            }
+        } catch (CharacterCodingException e) {
+            throw new UncheckedIOException("Texto no representable en UTF-8", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al escribir " + temporal, e);
+        }
+    }
+
+    private void vaciar() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Texto de un valor de celda; LocalDate y números quedan en su forma ISO / decimal
+    protected static String texto(Object valor) {
+        return valor == null ? "" : valor.toString();
+    }
+
+    /**
+     * Escribe lo pendiente y publica el archivo en el destino, reemplazando uno anterior.
+     */
+    @Override
+    public void close() {
+        if (cerrada) {
+            return;
+        }
+        cerrada = true;
+        try (canal) {
+            vaciar();
+            canal.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al escribir " + temporal, e);
+        }
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo publicar " + destino, e);
+        }
+    }
+
+    // Abandona la exportación (por ejemplo, si el reporte falló) sin tocar el destino
+    public void descartar() {
+        if (cerrada) {
+            return;
+        }
+        cerrada = true;
+        try (canal) {
+            Files.deleteIfExists(temporal);
+        } catch (IOException e) {
+            System.err.println("No se pudo eliminar " + temporal + ": " + e.getMessage());
+        }
+    }
+
+    public Path getDestino() {
+        return destino;
+    }
+
+    public long getFilas() {
+        return filas;
+    }
+}
@@ -0,0 +1,51 @@
+package services;
+
+import interfaces.SalidaReporte;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Supplier;
+
+/**
+ * Salida de reportes por consola, con el mismo formato que se imprimía antes. Acumula en
+ * un buffer propio y escribe en System.out por bloques, en lugar de un println sincronizado
+ * por línea; close vacía el buffer pero no cierra System.out.
+ */
+public class SalidaConsola implements SalidaReporte {
+    private final Writer salida = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 64 * 1024);
+
+    @Override
+    public void iniciar(String titulo, String... columnas) {
+        escribir("\n=== " + titulo + " ===");
+    }
+
+    @Override
+    public void fila(Supplier<String> texto, Object... valores) {
+        escribir(texto.get());
+    }
+
+    @Override
+    public void mensaje(String texto) {
+        escribir(texto);
+    }
+
+    private void escribir(String linea) {
+        try {
+            salida.write(linea);
+            salida.write(System.lineSeparator());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            salida.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package services;
+
+import java.nio.file.Path;
+
+/**
+ * Exportación en CSV (RFC 4180): encabezado con los nombres de columna, separador coma y
+ * comillas dobles solo en los valores que contienen coma, comillas o saltos de línea.
+ */
+public class SalidaCsv extends SalidaArchivo {
+
+    public SalidaCsv(Path destino) {
+        super(destino);
+    }
+
+    @Override
+    protected void escribirEncabezado(String[] columnas) {
+        escribirLinea(columnas);
+    }
+
+    @Override
+    protected void escribirFila(String[] columnas, Object[] valores) {
+        escribirLinea(valores);
+    }
+
+    private void escribirLinea(Object[] valores) {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                linea.append(',');
+            }
+            String valor = texto(valores[i]);
+            if (requiereComillas(valor)) {
+                linea.append('"').append(valor.replace("\"", "\"\"")).append('"');
+            } else {
+                linea.append(valor);
+            }
+        }
+        terminarLinea();
+    }
+
+    private static boolean requiereComillas(String valor) {
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package services;
+
+import java.nio.file.Path;
+
+/**
+ * Exportación en JSON lines: un objeto por línea con una propiedad por columna. Números y
+ * booleanos se escriben como tales, null como null y el resto como texto.
+ */
+public class SalidaJsonLineas extends SalidaArchivo {
+
+    public SalidaJsonLineas(Path destino) {
+        super(destino);
+    }
+
+    @Override
+    protected void escribirEncabezado(String[] columnas) {
+        // Cada línea lleva sus nombres de propiedad; no hay encabezado
+    }
+
+    @Override
+    protected void escribirFila(String[] columnas, Object[] valores) {
+        linea.append('{');
+        for (int i = 0; i < columnas.length; i++) {
+            if (i > 0) {
+                linea.append(',');
+            }
+            Json.escribirTexto(linea, columnas[i]);
+            linea.append(':');
+            Object valor = valores[i];
+            if (valor == null || valor instanceof Number || valor instanceof Boolean) {
+                linea.append(valor);
+            } else {
+                Json.escribirTexto(linea, valor.toString());
+            }
+        }
+        linea.append('}');
+        terminarLinea();
+    }
+}
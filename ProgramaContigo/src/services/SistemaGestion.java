@@ -3,85 +3,480 @@ package services;
 import dao.*;
 import models.*;
 import interfaces.Reportable;
+import interfaces.SalidaReporte;
+import config.DatabaseConnection;
+import config.HistogramaLatencia;
+import config.Metricas;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 public class SistemaGestion implements Reportable {
     private final BeneficiarioDAO beneficiarioDAO;
     private final AutorizadoDAO autorizadoDAO;
     private final CertificadoDAO certificadoDAO;
+    private final PagoMasivo pagoMasivo;
+    private final ImportacionMasiva importacion;
+    private final ElegibilidadDAO elegibilidadDAO;
+    private final PadronDAO padronDAO;
+    private final CronogramaMasivo cronogramaMasivo;
+    private final AuditoriaElegibilidad auditoria;
+    private final CambiosDAO cambiosDAO;
+
+    private static final long VIGENCIA_RESUMEN_MS = Long.getLong("contigo.instantanea.vigenciaMs", 30_000L);
+    private static final int TAMANO_PAGINA = Integer.getInteger("contigo.pagina.tamano", 20);
+    // Beneficiarios por consulta de autorizados en el reporte agrupado
+    private static final int TAMANO_BLOQUE_AUTORIZADOS = Integer.getInteger("contigo.reporte.bloqueAutorizados", 1024);
+    // Filas por lectura del registro de cambios
+    private static final int LIMITE_CAMBIOS = Integer.getInteger("contigo.cambios.limite", 1000);
+    // Con más beneficiarios modificados que esto, conviene reconstruir la instantánea entera
+    private static final int MAX_CAMBIOS_INSTANTANEA = Integer.getInteger("contigo.instantanea.maxCambios", 50_000);
+    private volatile InstantaneaBeneficiarios instantanea;
+    // Última instantánea armada, aunque se haya invalidado: base para actualizarla con los cambios
+    private volatile InstantaneaBeneficiarios ultimaInstantanea;
+    // Aumenta con cada escritura; evita publicar una instantánea armada antes de un cambio
+    private long versionDatos;
+
+    // Copia local en disco (-Dcontigo.instantanea.archivo); null si no se configuró
+    private final Path rutaArchivoLocal;
+    // Copia local de la que se sirven lecturas y reportes hasta ponerse al día con la base; después, null
+    private volatile ArchivoInstantanea archivoLocal;
+    // Pone al día la copia local en segundo plano; null sin copia local o antes de iniciar
+    private volatile Thread hiloArchivoLocal;
+    private final Object escrituraArchivoLocal = new Object();
+    // DNI escritos desde este sistema mientras se lee de la copia local: para ellos la copia
+    // quedó vieja y se lee de la base. Después de una escritura masiva no se usa para ninguno.
+    private final Set<String> escritosDesdeArchivo = ConcurrentHashMap.newKeySet();
+    private volatile boolean archivoDesactualizado;
+    private static final long REINTENTO_ARCHIVO_LOCAL_MS = Long.getLong("contigo.instantanea.reintentoMs", 15_000L);
+
+    // Escritura diferida de modificaciones (-Dcontigo.actualizaciones.diario); null si se escribe en el momento
+    private volatile ColaActualizaciones actualizaciones;
+    private boolean iniciado;
+
+    // Latencia de cada reporte y proceso, publicada por JMX (ver config.Metricas)
+    private static final HistogramaLatencia LATENCIA_REPORTE_BENEFICIARIOS = Metricas.operacion("SistemaGestion.generarReporteBeneficiarios");
+    private static final HistogramaLatencia LATENCIA_REPORTE_AUTORIZADOS = Metricas.operacion("SistemaGestion.generarReporteAutorizados");
+    private static final HistogramaLatencia LATENCIA_REPORTE_AUTORIZADOS_POR_BENEFICIARIO = Metricas.operacion("SistemaGestion.generarReporteAutorizadosPorBeneficiario");
+    private static final HistogramaLatencia LATENCIA_REPORTE_POR_REGION = Metricas.operacion("SistemaGestion.generarReportePorRegion");
+    private static final HistogramaLatencia LATENCIA_REPORTE_NO_ELEGIBLES = Metricas.operacion("SistemaGestion.generarReporteNoElegibles");
+    private static final HistogramaLatencia LATENCIA_ALERTAS = Metricas.operacion("SistemaGestion.generarAlertas");
+    private static final HistogramaLatencia LATENCIA_VALIDAR_INCOMPATIBILIDADES = Metricas.operacion("SistemaGestion.validarIncompatibilidades");
+    private static final HistogramaLatencia LATENCIA_VERIFICAR_CERTIFICADOS = Metricas.operacion("SistemaGestion.verificarCertificadosVigentes");
+    private static final HistogramaLatencia LATENCIA_ESTADISTICAS = Metricas.operacion("SistemaGestion.generarEstadisticas");
+    private static final HistogramaLatencia LATENCIA_REPORTE_GENERAL = Metricas.operacion("SistemaGestion.generarReporte");
+    private static final HistogramaLatencia LATENCIA_REPORTE_FALLECIDOS = Metricas.operacion("SistemaGestion.generarReporteFallecidos");
+    private static final HistogramaLatencia LATENCIA_PADRON_COMPLETO = Metricas.operacion("SistemaGestion.procesarPadronCompleto");
+    private static final HistogramaLatencia LATENCIA_AUDITAR_ELEGIBILIDAD = Metricas.operacion("SistemaGestion.auditarElegibilidad");
+    private static final HistogramaLatencia LATENCIA_CONSTRUIR_INSTANTANEA = Metricas.operacion("SistemaGestion.construirInstantanea");
+    private static final HistogramaLatencia LATENCIA_ACTUALIZAR_INSTANTANEA = Metricas.operacion("SistemaGestion.actualizarInstantanea");
+    private static final HistogramaLatencia LATENCIA_REPORTE_CAMBIOS = Metricas.operacion("SistemaGestion.generarReporteCambios");
+    private static final HistogramaLatencia LATENCIA_GUARDAR_ARCHIVO_LOCAL = Metricas.operacion("SistemaGestion.guardarArchivoLocal");
+
+    // Una lectura del registro de cambios de una tabla desde una marca
+    @FunctionalInterface
+    private interface LecturaCambios<T> {
+        Cambios<T> leer(Connection conn, String marca) throws SQLException;
+    }
 
     public SistemaGestion() {
         this.beneficiarioDAO = new BeneficiarioDAO();
         this.autorizadoDAO = new AutorizadoDAO();
         this.certificadoDAO = new CertificadoDAO();
+        this.padronDAO = new PadronDAO();
+        this.pagoMasivo = new PagoMasivo(beneficiarioDAO, padronDAO);
+        this.importacion = new ImportacionMasiva(beneficiarioDAO, autorizadoDAO, certificadoDAO);
+        this.elegibilidadDAO = new ElegibilidadDAO();
+        this.cronogramaMasivo = new CronogramaMasivo(beneficiarioDAO);
+        this.auditoria = new AuditoriaElegibilidad(beneficiarioDAO);
+        this.cambiosDAO = new CambiosDAO();
+
+        String ruta = System.getProperty("contigo.instantanea.archivo", "").trim();
+        this.rutaArchivoLocal = ruta.isEmpty() ? null : Path.of(ruta);
+    }
+
+    /**
+     * Abre la copia local y el diario de actualizaciones, lee el calendario de padrones y
+     * arranca el hilo que pone al día la copia local. Se llama una vez, antes de usar el
+     * sistema; el constructor no lo hace para no pasar this a otro hilo a medio construir.
+     */
+    public synchronized SistemaGestion iniciar() {
+        if (iniciado) {
+            return this;
+        }
+        iniciado = true;
+        if (rutaArchivoLocal != null) {
+            abrirArchivoLocal();
+        }
+        actualizaciones = abrirColaActualizaciones();
+        obtenerCalendario();
+        if (rutaArchivoLocal != null) {
+            hiloArchivoLocal = Thread.ofVirtual().name("contigo-archivo-local").start(this::ponerAlDiaArchivoLocal);
+        }
+        return this;
+    }
+
+    /**
+     * Calendario de padrones vigente según la tabla padrones. Queda además como calendario
+     * por defecto de los beneficiarios; si la tabla no tiene padrones se sigue usando el último
+     * publicado (al inicio, el de 2025).
+     */
+    public CalendarioPadrones obtenerCalendario() {
+        CalendarioPadrones calendario = padronDAO.obtenerCalendarioVigente();
+        if (calendario == null) {
+            return CalendarioPadrones.vigente();
+        }
+        CalendarioPadrones.establecerVigente(calendario);
+        return calendario;
+    }
+
+    private ColaActualizaciones abrirColaActualizaciones() {
+        String diario = System.getProperty("contigo.actualizaciones.diario", "").trim();
+        if (diario.isEmpty()) {
+            return null;
+        }
+        try {
+            return new ColaActualizaciones(Path.of(diario), beneficiarioDAO, dnis -> invalidarResumen());
+        } catch (IOException e) {
+            System.err.println("No se pudo abrir el diario de actualizaciones " + diario
+                    + ", las modificaciones se escriben en el momento: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Calendario de un año en particular, o null si ese año no tiene padrones registrados
+    public CalendarioPadrones obtenerCalendario(int anio) {
+        return padronDAO.obtenerCalendario(anio);
+    }
+
+    // Cronogramas de todos los beneficiarios activos de la región, un archivo por beneficiario
+    public CronogramaMasivo.Resultado generarCronogramasPorRegion(String region, Path directorio) throws IOException {
+        return cronogramaMasivo.generarPorRegion(region, obtenerCalendario(), directorio);
     }
 
     // RF1 - Registro de beneficiarios
     public boolean registrarBeneficiario(Beneficiario beneficiario) {
-        return beneficiarioDAO.insertar(beneficiario);
+        marcarEscrito(beneficiario.getDni());
+        boolean exito = beneficiarioDAO.insertar(beneficiario);
+        invalidarResumen();
+        return exito;
     }
 
     // RF5 - Gestión de autorizaciones
     public boolean registrarAutorizado(Autorizado autorizado) {
-        return autorizadoDAO.insertar(autorizado);
+        marcarEscrito(autorizado.getDni());
+        marcarEscrito(autorizado.getDniBeneficiario());
+        boolean exito = autorizadoDAO.insertar(autorizado);
+        invalidarResumen();
+        return exito;
     }
 
     public boolean registrarCertificado(Certificado certificado) {
-        return certificadoDAO.insertar(certificado);
+        marcarEscrito(certificado.getDniPaciente());
+        boolean exito = certificadoDAO.insertar(certificado);
+        invalidarResumen();
+        return exito;
     }
 
-    // Métodos de búsqueda unificados
+    // Métodos de búsqueda unificados. Mientras se lee de la copia local, lo que no está en ella
+    // o se modificó desde este sistema después de abrirla (ver archivoPara) se busca en la base.
+    // Con escritura diferida, el beneficiario incluye las modificaciones que todavía no llegaron
+    // a la base.
     public Beneficiario buscarBeneficiario(String dni) {
-        return beneficiarioDAO.buscarPorDni(dni);
+        return actualizaciones == null ? leerBeneficiario(dni) : actualizaciones.leer(dni, this::leerBeneficiario);
+    }
+
+    private Beneficiario leerBeneficiario(String dni) {
+        ArchivoInstantanea archivo = archivoPara(dni);
+        Beneficiario local = archivo == null ? null : archivo.beneficiario(dni);
+        return local != null ? local : beneficiarioDAO.buscarPorDni(dni);
+    }
+
+    // La fila de la base; solo si la base no responde, la de la copia local
+    private Beneficiario leerBeneficiarioDeBase(String dni) {
+        Beneficiario actual = beneficiarioDAO.buscarPorDni(dni);
+        ArchivoInstantanea archivo = archivoLocal;
+        return actual != null || archivo == null ? actual : archivo.beneficiario(dni);
     }
 
     public Autorizado buscarAutorizado(String dni) {
-        return autorizadoDAO.buscarPorDni(dni);
+        ArchivoInstantanea archivo = archivoPara(dni);
+        Autorizado local = archivo == null ? null : archivo.autorizado(dni);
+        return local != null ? local : autorizadoDAO.buscarPorDni(dni);
+    }
+
+    // Quiénes pueden cobrar por el beneficiario
+    public List<Autorizado> buscarAutorizadosDe(String dniBeneficiario) {
+        ArchivoInstantanea archivo = archivoPara(dniBeneficiario);
+        if (archivo != null && archivo.contieneBeneficiario(dniBeneficiario)) {
+            return archivo.autorizadosDe(dniBeneficiario);
+        }
+        return autorizadoDAO.buscarPorBeneficiario(dniBeneficiario);
+    }
+
+    // Autorizados de muchos beneficiarios a la vez, agrupados por DNI del beneficiario
+    public Map<String, List<Autorizado>> buscarAutorizadosDe(Collection<String> dnisBeneficiarios) {
+        ArchivoInstantanea archivo = archivoLocal;
+        if (archivo != null && dnisBeneficiarios.stream().allMatch(
+                dni -> archivoPara(dni) == archivo && archivo.contieneBeneficiario(dni))) {
+            Map<String, List<Autorizado>> porBeneficiario = new HashMap<>();
+            for (String dni : dnisBeneficiarios) {
+                List<Autorizado> autorizados = archivo.autorizadosDe(dni);
+                if (!autorizados.isEmpty()) {
+                    porBeneficiario.put(dni, autorizados);
+                }
+            }
+            return porBeneficiario;
+        }
+        return autorizadoDAO.buscarPorBeneficiarios(dnisBeneficiarios);
     }
 
     public Certificado buscarCertificado(String dniPaciente) {
+        ArchivoInstantanea archivo = archivoPara(dniPaciente);
+        if (archivo != null && archivo.contieneBeneficiario(dniPaciente)) {
+            return archivo.certificado(dniPaciente);
+        }
         return certificadoDAO.buscarPorDniPaciente(dniPaciente);
     }
 
+    // La copia local si sirve para leer el registro dni; null si no hay o si quedó vieja para él
+    private ArchivoInstantanea archivoPara(String dni) {
+        ArchivoInstantanea archivo = archivoLocal;
+        if (archivo == null || archivoDesactualizado || escritosDesdeArchivo.contains(dni)) {
+            return null;
+        }
+        return archivo;
+    }
+
+    // Se marca antes de escribir: desde ahí las lecturas de ese DNI van a la base
+    private void marcarEscrito(String dni) {
+        if (archivoLocal != null) {
+            escritosDesdeArchivo.add(dni);
+        }
+    }
+
+    // Importación, pago de padrón o recálculo de elegibilidad: la copia local deja de servir búsquedas
+    private void marcarEscrituraMasiva() {
+        if (archivoLocal != null) {
+            archivoDesactualizado = true;
+        }
+    }
+
+    /**
+     * Con escritura diferida, la modificación queda en el diario y se confirma sin esperar a la
+     * base (ver ColaActualizaciones); los cambios de pensión o padrones, o un diario que no se
+     * pudo grabar, se escriben en el momento después de vaciar lo pendiente. Los cambios se
+     * calculan contra la fila de la base; la copia local se usa solo si la base no responde.
+     * Un valor que la base no aceptaría se rechaza antes de encolarlo.
+     */
     public boolean actualizarBeneficiario(Beneficiario beneficiario) {
-        return beneficiarioDAO.actualizar(beneficiario);
+        marcarEscrito(beneficiario.getDni());
+        if (actualizaciones != null) {
+            Beneficiario actual = actualizaciones.leer(beneficiario.getDni(), this::leerBeneficiarioDeBase);
+            if (actual == null) {
+                return false;
+            }
+            try {
+                if (actualizaciones.encolar(actual, beneficiario)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("Modificación rechazada para " + beneficiario.getDni() + ": " + e.getMessage());
+                return false;
+            }
+            if (!actualizaciones.vaciar()) {
+                return false;
+            }
+        }
+        boolean exito = beneficiarioDAO.actualizar(beneficiario);
+        invalidarResumen();
+        return exito;
     }
 
     // RF6 - Procesamiento de pagos
     public boolean procesarPago(String dni, int numeroPadron) {
-        return beneficiarioDAO.procesarPago(dni, numeroPadron);
+        marcarEscrito(dni);
+        if (!vaciarAntesDe("el pago")) {
+            return false;
+        }
+        boolean exito = beneficiarioDAO.procesarPago(dni, numeroPadron);
+        invalidarResumen();
+        return exito;
+    }
+
+    // RF1 - Registro masivo desde archivos CSV (null para omitir un archivo)
+    public List<ImportacionMasiva.Resultado> importarArchivos(Path beneficiarios, Path autorizados,
+                                                              Path certificados) throws IOException {
+        marcarEscrituraMasiva();
+        List<ImportacionMasiva.Resultado> resultados = importacion.importar(beneficiarios, autorizados, certificados);
+        invalidarResumen();
+        return resultados;
+    }
+
+    // RF6 - Pago de un padrón completo en lotes
+    public PagoMasivo.Resultado procesarPadronCompleto(int numeroPadron) {
+        return LATENCIA_PADRON_COMPLETO.medir(() -> {
+            marcarEscrituraMasiva();
+            if (!vaciarAntesDe("el pago del padrón")) {
+                LATENCIA_PADRON_COMPLETO.error();
+                return new PagoMasivo.Resultado(numeroPadron, 0, 0, 0, 0);
+            }
+            PagoMasivo.Resultado resultado = pagoMasivo.ejecutar(numeroPadron);
+            invalidarResumen();
+            return resultado;
+        });
     }
 
 
+    // Recalcula el estado de elegibilidad precalculado de todos los beneficiarios
+    public ElegibilidadDAO.Resultado reconstruirElegibilidad() {
+        marcarEscrituraMasiva();
+        if (!vaciarAntesDe("la reconstrucción de la elegibilidad")) {
+            return new ElegibilidadDAO.Resultado(0, 0, 0, 0);
+        }
+        ElegibilidadDAO.Resultado resultado = elegibilidadDAO.reconstruir();
+        invalidarResumen();
+        return resultado;
+    }
+
+    // Auditoría paralela de elegibilidad y alertas sobre todos los activos (ver AuditoriaElegibilidad)
+    public AuditoriaElegibilidad.Resultado auditarElegibilidad() {
+        return auditarElegibilidad(auditoria.paralelismoPredeterminado());
+    }
+
+    public AuditoriaElegibilidad.Resultado auditarElegibilidad(int paralelismo) {
+        return LATENCIA_AUDITAR_ELEGIBILIDAD.medir(() -> {
+            if (!vaciarAntesDe("la auditoría")) {
+                LATENCIA_AUDITAR_ELEGIBILIDAD.error();
+                return auditoria.sinEjecutar(paralelismo);
+            }
+            AuditoriaElegibilidad.Resultado resultado = auditoria.ejecutar(paralelismo);
+            if (resultado.tramosFallidos() > 0) {
+                LATENCIA_AUDITAR_ELEGIBILIDAD.error();
+            }
+            return resultado;
+        });
+    }
+
+    /**
+     * Escribe ya las modificaciones diferidas; los pagos, la elegibilidad, la auditoría y la
+     * copia local lo hacen antes de leer la base y no siguen si falla. Devuelve false si quedó
+     * algo sin escribir.
+     */
+    public boolean vaciarActualizaciones() {
+        return actualizaciones == null || actualizaciones.vaciar();
+    }
+
+    // Si lo diferido no llega a la base, la operación se cancela: leería clasificación, ingresos
+    // o elegibilidad viejos de las personas con cambios pendientes
+    private boolean vaciarAntesDe(String operacion) {
+        if (vaciarActualizaciones()) {
+            return true;
+        }
+        System.err.println("No se pudieron escribir las " + getActualizacionesPendientes() +
+                " modificaciones diferidas pendientes; se cancela " + operacion);
+        return false;
+    }
+
+    public boolean isActualizacionDiferida() {
+        return actualizaciones != null;
+    }
+
+    // Modificaciones diferidas que todavía no llegaron a la base
+    public int getActualizacionesPendientes() {
+        return actualizaciones == null ? 0 : actualizaciones.getPendientes();
+    }
+
+    // Al salir: escribe lo pendiente y cierra el diario
+    public void detenerActualizaciones() {
+        if (actualizaciones != null) {
+            actualizaciones.close();
+        }
+    }
+
+    public int getParalelismoAuditoria() {
+        return auditoria.paralelismoPredeterminado();
+    }
+
     // RF8 - Generación de reportes optimizada
+    // Cada reporte se escribe en una SalidaReporte; sin argumento, en la consola
     public void generarReporteBeneficiarios() {
-        System.out.println("\n=== REPORTE GENERAL DE BENEFICIARIOS ===");
-        List<Beneficiario> beneficiarios = beneficiarioDAO.obtenerTodos();
+        try (SalidaReporte salida = new SalidaConsola()) {
+            generarReporteBeneficiarios(salida);
+        }
+    }
 
-        Map<Boolean, List<Beneficiario>> elegibilidad = beneficiarios.stream()
-                .collect(Collectors.partitioningBy(Beneficiario::verificarElegibilidad));
+    public void generarReporteBeneficiarios(SalidaReporte salida) {
+        LATENCIA_REPORTE_BENEFICIARIOS.medir(() -> {
+            salida.iniciar("REPORTE GENERAL DE BENEFICIARIOS", "dni", "nombre", "apellido", "region",
+                    "clasificacion_economica", "fecha_inscripcion", "tiene_certificado_discapacidad",
+                    "tiene_otros_ingresos", "elegible", "pension_recibida", "padrones_cobrados");
 
-        System.out.printf("Total: %d | Elegibles: %d | No elegibles: %d\n",
-                beneficiarios.size(),
-                elegibilidad.get(true).size(),
-                elegibilidad.get(false).size());
+            // Se recorre en streaming; el resumen se escribe al final para no retener la lista.
+            // La elegibilidad viene precalculada en cada fila, no hace falta traer el certificado.
+            long[] elegibilidad = new long[2]; // [elegibles, no elegibles]
+            Consumer<Beneficiario> fila = b -> {
+                boolean elegible = b.verificarElegibilidad();
+                elegibilidad[elegible ? 0 : 1]++;
+                salida.fila(() -> b.generarReporte() + "\n---",
+                        b.getDni(), b.getNombre(), b.getApellido(), b.getRegion(),
+                        b.getClasificacionEconomica(), b.getFechaInscripcion(), b.isTieneCertificadoDiscapacidad(),
+                        b.isTieneOtrosIngresos(), elegible, b.getPensionRecibida(), b.getPadronesCobrados());
+            };
+            ArchivoInstantanea archivo = archivoLocal;
+            if (archivo != null) {
+                archivo.recorrerActivos(fila);
+            } else {
+                beneficiarioDAO.recorrerTodos(false, fila);
+            }
 
-        beneficiarios.forEach(b -> {
-            System.out.println(b.generarReporte());
-            System.out.println("---");
+            salida.mensaje(String.format("Total: %d | Elegibles: %d | No elegibles: %d",
+                    elegibilidad[0] + elegibilidad[1],
+                    elegibilidad[0],
+                    elegibilidad[1]));
         });
     }
 
+    /**
+     * Escribe un reporte en un archivo .csv o .jsonl y devuelve la cantidad de filas exportadas.
+     * Si el reporte falla a mitad de camino (por ejemplo, LecturaFallida si la base se cae
+     * durante el recorrido), el destino queda como estaba y la excepción se propaga.
+     */
+    public long exportarReporte(Consumer<SalidaReporte> reporte, Path destino) {
+        SalidaArchivo salida = SalidaArchivo.abrir(destino);
+        try {
+            reporte.accept(salida);
+        } catch (RuntimeException e) {
+            salida.descartar();
+            throw e;
+        }
+        salida.close();
+        return salida.getFilas();
+    }
+
     public boolean eliminarPorFallecimiento(String dni) {
         Beneficiario beneficiario = buscarBeneficiario(dni);
         if (beneficiario == null) {
             System.out.println("No se encontró al beneficiario con DNI: " + dni);
             return false;
         }
+        marcarEscrito(dni);
         boolean exito = beneficiarioDAO.marcarComoFallecido(dni);
+        invalidarResumen();
         if (exito) {
             System.out.println("Beneficiario marcado como fallecido: " + beneficiario.getNombreCompleto());
         } else {
@@ -91,143 +486,306 @@ public class SistemaGestion implements Reportable {
     }
 
     public void generarReporteAutorizados() {
-        System.out.println("\n=== REPORTE DE AUTORIZADOS ===");
-        List<Autorizado> autorizados = autorizadoDAO.obtenerTodos();
-        System.out.println("Total de autorizados: " + autorizados.size());
+        try (SalidaReporte salida = new SalidaConsola()) {
+            generarReporteAutorizados(salida);
+        }
+    }
+
+    public void generarReporteAutorizados(SalidaReporte salida) {
+        LATENCIA_REPORTE_AUTORIZADOS.medir(() -> {
+            salida.iniciar("REPORTE DE AUTORIZADOS", "dni", "nombre", "apellido", "dni_beneficiario",
+                    "parentesco", "autorizado", "elegible");
+
+            long[] total = {0};
+            Consumer<Autorizado> fila = a -> {
+                total[0]++;
+                salida.fila(() -> a.generarReporte() + "\n---",
+                        a.getDni(), a.getNombre(), a.getApellido(), a.getDniBeneficiario(),
+                        a.getParentesco(), a.isAutorizado(), a.verificarElegibilidad());
+            };
+            ArchivoInstantanea archivo = archivoLocal;
+            if (archivo != null) {
+                archivo.recorrerAutorizados(fila);
+            } else {
+                autorizadoDAO.recorrerTodos(fila);
+            }
 
-        autorizados.forEach(a -> {
-            System.out.println(a.generarReporte());
-            System.out.println("---");
+            salida.mensaje("Total de autorizados: " + total[0]);
         });
     }
 
+    public void generarReporteAutorizadosPorBeneficiario(String region) {
+        try (SalidaReporte salida = new SalidaConsola()) {
+            generarReporteAutorizadosPorBeneficiario(region, salida);
+        }
+    }
+
+    /**
+     * Autorizados agrupados por beneficiario activo, de una región o de todas si region es null.
+     * Los beneficiarios se leen en streaming y sus autorizados se buscan por bloques, con una
+     * consulta por bloque (lista IN sobre idx_autorizados_beneficiario) en lugar de una por persona.
+     */
+    public void generarReporteAutorizadosPorBeneficiario(String region, SalidaReporte salida) {
+        LATENCIA_REPORTE_AUTORIZADOS_POR_BENEFICIARIO.medir(() -> {
+            salida.iniciar(region == null ? "AUTORIZADOS POR BENEFICIARIO"
+                            : "AUTORIZADOS POR BENEFICIARIO - REGIÓN " + region.toUpperCase(),
+                    "dni_beneficiario", "beneficiario", "dni", "nombre_completo", "parentesco", "autorizado", "elegible");
+
+            long[] totales = new long[3]; // [beneficiarios, con autorizados, autorizados]
+            List<Beneficiario> bloque = new ArrayList<>(TAMANO_BLOQUE_AUTORIZADOS);
+            Consumer<Beneficiario> acumular = b -> {
+                bloque.add(b);
+                if (bloque.size() == TAMANO_BLOQUE_AUTORIZADOS) {
+                    escribirAutorizadosDe(bloque, salida, totales);
+                    bloque.clear();
+                }
+            };
+            if (region == null) {
+                beneficiarioDAO.recorrerTodos(false, acumular);
+            } else {
+                beneficiarioDAO.recorrerPorRegion(region, true, acumular);
+            }
+            escribirAutorizadosDe(bloque, salida, totales);
+
+            salida.mensaje(String.format("\nBeneficiarios: %d | Con autorizados: %d | Sin autorizados: %d | Autorizados: %d",
+                    totales[0], totales[1], totales[0] - totales[1], totales[2]));
+        });
+    }
+
+    private void escribirAutorizadosDe(List<Beneficiario> bloque, SalidaReporte salida, long[] totales) {
+        if (bloque.isEmpty()) {
+            return;
+        }
+        List<String> dnis = new ArrayList<>(bloque.size());
+        for (Beneficiario b : bloque) {
+            dnis.add(b.getDni());
+        }
+        Map<String, List<Autorizado>> porBeneficiario = autorizadoDAO.buscarPorBeneficiarios(dnis);
+
+        for (Beneficiario b : bloque) {
+            totales[0]++;
+            List<Autorizado> autorizados = porBeneficiario.get(b.getDni());
+            if (autorizados == null) {
+                continue;
+            }
+            totales[1]++;
+            totales[2] += autorizados.size();
+            salida.mensaje(String.format("\n%s (DNI: %s) - %d autorizado(s)",
+                    b.getNombreCompleto(), b.getDni(), autorizados.size()));
+            for (Autorizado a : autorizados) {
+                boolean elegible = a.verificarElegibilidad();
+                salida.fila(() -> String.format("  - %s (DNI: %s) - %s - %s",
+                                a.getNombreCompleto(), a.getDni(), a.getParentesco(),
+                                elegible ? "Puede cobrar" : "No puede cobrar"),
+                        b.getDni(), b.getNombreCompleto(), a.getDni(), a.getNombreCompleto(),
+                        a.getParentesco(), a.isAutorizado(), elegible);
+            }
+        }
+    }
+
     public void generarReportePorRegion(String region) {
-        System.out.printf("\n=== REPORTE POR REGIÓN: %s ===\n", region.toUpperCase());
+        try (SalidaReporte salida = new SalidaConsola()) {
+            generarReportePorRegion(region, salida);
+        }
+    }
+
+    public void generarReportePorRegion(String region, SalidaReporte salida) {
+        LATENCIA_REPORTE_POR_REGION.medir(() -> {
+            salida.iniciar("REPORTE POR REGIÓN: " + region.toUpperCase(), "dni", "nombre_completo", "elegible");
 
-        List<Beneficiario> beneficiariosRegion = beneficiarioDAO.buscarPorRegion(region);
-        System.out.printf("Beneficiarios en %s: %d\n", region, beneficiariosRegion.size());
+            // En streaming: el total se informa al final en lugar de antes del listado
+            long[] total = {0};
+            beneficiarioDAO.recorrerPorRegion(region, b -> {
+                total[0]++;
+                boolean elegible = b.verificarElegibilidad();
+                salida.fila(() -> String.format("- %s (DNI: %s) - Estado: %s",
+                                b.getNombreCompleto(),
+                                b.getDni(),
+                                elegible ? "Elegible" : "No elegible"),
+                        b.getDni(), b.getNombreCompleto(), elegible);
+            });
 
-        beneficiariosRegion.forEach(b ->
-                System.out.printf("- %s (DNI: %s) - Estado: %s\n",
-                        b.getNombreCompleto(),
-                        b.getDni(),
-                        b.verificarElegibilidad() ? "Elegible" : "No elegible"));
+            salida.mensaje(String.format("Beneficiarios en %s: %d", region, total[0]));
+        });
     }
 
     public void generarReporteNoElegibles() {
-        System.out.println("\n=== REPORTE DE NO ELEGIBLES ===");
+        try (SalidaReporte salida = new SalidaConsola()) {
+            generarReporteNoElegibles(salida);
+        }
+    }
 
-        List<Beneficiario> noElegibles = beneficiarioDAO.obtenerTodos().stream()
-                .filter(b -> !b.verificarElegibilidad())
-                .toList();
+    public void generarReporteNoElegibles(SalidaReporte salida) {
+        LATENCIA_REPORTE_NO_ELEGIBLES.medir(() -> {
+            salida.iniciar("REPORTE DE NO ELEGIBLES", "dni", "nombre_completo", "clasificacion_economica");
 
-        System.out.println("Total de beneficiarios no elegibles: " + noElegibles.size());
+            // Solo se leen los no elegibles, por el índice de elegibilidad
+            long[] total = {0};
+            beneficiarioDAO.recorrerPorElegibilidad(false, b -> {
+                total[0]++;
+                salida.fila(() -> String.format("- %s (DNI: %s) - Clasificación: %s",
+                                b.getNombreCompleto(),
+                                b.getDni(),
+                                b.getClasificacionEconomica()),
+                        b.getDni(), b.getNombreCompleto(), b.getClasificacionEconomica());
+            });
 
-        noElegibles.forEach(b ->
-                System.out.printf("- %s (DNI: %s) - Clasificación: %s\n",
-                        b.getNombreCompleto(),
-                        b.getDni(),
-                        b.getClasificacionEconomica()));
+            salida.mensaje("Total de beneficiarios no elegibles: " + total[0]);
+        });
     }
 
-    // RF7 - Alertas optimizadas con método auxiliar
+    // RF7 - Alertas calculadas sobre la instantánea compartida
     public void generarAlertas() {
-        System.out.println("=== ALERTAS CRÍTICAS ===");
-        List<Beneficiario> beneficiarios = beneficiarioDAO.obtenerTodos();
-
-        AlertaInfo[] alertas = {
-                new AlertaInfo("sin certificado de discapacidad",
-                        b -> !b.isTieneCertificadoDiscapacidad()),
-                new AlertaInfo("con otros ingresos",
-                        Beneficiario::isTieneOtrosIngresos),
-                new AlertaInfo("con CSE incompatible",
-                        b -> "no pobre".equals(b.getClasificacionEconomica()))
-        };
-
-        boolean hayAlertas = false;
-        for (AlertaInfo alerta : alertas) {
-            List<Beneficiario> casos = beneficiarios.stream()
-                    .filter(alerta.condicion)
-                    .toList();
-
-            if (!casos.isEmpty()) {
-                hayAlertas = true;
-                System.out.printf("ALERTA: %d beneficiarios %s:\n", casos.size(), alerta.descripcion);
-                casos.forEach(b -> System.out.printf("  - %s (DNI: %s)%s\n",
-                        b.getNombreCompleto(),
-                        b.getDni(),
-                        alerta.descripcion.contains("CSE") ? " - CSE: " + b.getClasificacionEconomica() : ""));
-            }
-        }
-
-        if (!hayAlertas) {
-            System.out.println("No hay alertas críticas en el sistema");
+        try (SalidaReporte salida = new SalidaConsola()) {
+            generarAlertas(salida);
         }
     }
 
-    // Clase auxiliar para alertas
-    private record AlertaInfo(String descripcion, Predicate<Beneficiario> condicion) {}
+    public void generarAlertas(SalidaReporte salida) {
+        LATENCIA_ALERTAS.medir(() -> {
+            salida.iniciar("ALERTAS CRÍTICAS", "alerta", "dni", "nombre_completo", "clasificacion_economica");
+            InstantaneaBeneficiarios instantanea = obtenerInstantanea();
+            if (instantanea == null) {
+                LATENCIA_ALERTAS.error();
+                salida.mensaje("No se pudieron calcular las alertas: la base no respondió");
+                return;
+            }
+
+            boolean hayAlertas = false;
+            for (Map.Entry<String, BitSet> alerta : instantanea.alertas().entrySet()) {
+                String descripcion = alerta.getKey();
+                BitSet casos = alerta.getValue();
+
+                if (!casos.isEmpty()) {
+                    hayAlertas = true;
+                    boolean mostrarCse = descripcion.contains("CSE");
+                    salida.mensaje(String.format("ALERTA: %d beneficiarios %s:", instantanea.contar(casos), descripcion));
+                    casos.stream().forEach(fila -> salida.fila(() -> String.format("  - %s (DNI: %s)%s",
+                                    instantanea.nombreCompleto(fila),
+                                    instantanea.dni(fila),
+                                    mostrarCse ? " - CSE: " + instantanea.clasificacion(fila) : ""),
+                            descripcion, instantanea.dni(fila), instantanea.nombreCompleto(fila),
+                            instantanea.clasificacion(fila)));
+                }
+            }
+
+            if (!hayAlertas) {
+                salida.mensaje("No hay alertas críticas en el sistema");
+            }
+        });
+    }
 
     // RF6 - Validación de incompatibilidades simplificada
     public void validarIncompatibilidades() {
-        beneficiarioDAO.obtenerTodos().stream()
-                .filter(b -> !b.verificarElegibilidad())
-                .forEach(b -> System.out.printf("Beneficiario %s marcado como NO ELEGIBLE\n",
-                        b.getNombreCompleto()));
+        try (SalidaReporte salida = new SalidaConsola()) {
+            validarIncompatibilidades(salida);
+        }
+    }
+
+    public void validarIncompatibilidades(SalidaReporte salida) {
+        LATENCIA_VALIDAR_INCOMPATIBILIDADES.medir(() -> {
+            salida.iniciar("INCOMPATIBILIDADES", "dni", "nombre_completo");
+            beneficiarioDAO.recorrerPorElegibilidad(false, b ->
+                    salida.fila(() -> String.format("Beneficiario %s marcado como NO ELEGIBLE", b.getNombreCompleto()),
+                            b.getDni(), b.getNombreCompleto()));
+        });
     }
 
     // Verificación de certificados optimizada
     public void verificarCertificadosVigentes() {
-        System.out.println("\n=== VERIFICACIÓN DE CERTIFICADOS ===");
-
-        beneficiarioDAO.obtenerTodos().stream()
-                .filter(Beneficiario::isTieneCertificadoDiscapacidad)
-                .forEach(b -> {
-                    Certificado cert = certificadoDAO.buscarPorDniPaciente(b.getDni());
-                    if (cert == null) {
-                        System.out.printf("%s tiene marcado certificado pero no se encuentra en BD\n",
-                                b.getNombreCompleto());
-                    } else if (!cert.isVigente()) {
-                        System.out.printf("Certificado vencido para %s\n", b.getNombreCompleto());
-                    }
-                });
+        try (SalidaReporte salida = new SalidaConsola()) {
+            verificarCertificadosVigentes(salida);
+        }
+    }
+
+    public void verificarCertificadosVigentes(SalidaReporte salida) {
+        LATENCIA_VERIFICAR_CERTIFICADOS.medir(() -> {
+            salida.iniciar("VERIFICACIÓN DE CERTIFICADOS", "dni", "nombre_completo", "observacion");
+
+            // El certificado vigente llega junto con cada beneficiario: una sola consulta en total
+            beneficiarioDAO.recorrerTodos(true, b -> {
+                if (!b.isTieneCertificadoDiscapacidad()) {
+                    return;
+                }
+                Certificado cert = b.getCertificadoMedico();
+                if (cert == null) {
+                    salida.fila(() -> b.getNombreCompleto() + " tiene marcado certificado pero no se encuentra en BD",
+                            b.getDni(), b.getNombreCompleto(), "sin certificado en BD");
+                } else if (!cert.isVigente()) {
+                    salida.fila(() -> "Certificado vencido para " + b.getNombreCompleto(),
+                            b.getDni(), b.getNombreCompleto(), "certificado vencido");
+                }
+            });
+        });
     }
 
-    // Estadísticas avanzadas optimizadas
+    // Estadísticas avanzadas sobre la instantánea compartida
     public void generarEstadisticas() {
-        System.out.println("\n=== ESTADÍSTICAS DEL SISTEMA ===");
-        List<Beneficiario> beneficiarios = beneficiarioDAO.obtenerTodos();
+        try (SalidaReporte salida = new SalidaConsola()) {
+            generarEstadisticas(salida);
+        }
+    }
+
+    public void generarEstadisticas(SalidaReporte salida) {
+        LATENCIA_ESTADISTICAS.medir(() -> {
+            salida.iniciar("ESTADÍSTICAS DEL SISTEMA", "grupo", "clave", "beneficiarios");
+            InstantaneaBeneficiarios instantanea = obtenerInstantanea();
+            if (instantanea == null) {
+                LATENCIA_ESTADISTICAS.error();
+                salida.mensaje("No se pudieron calcular las estadísticas: la base no respondió");
+                return;
+            }
+            BitSet todos = instantanea.todos();
+
+            salida.fila(() -> "Total beneficiarios: " + instantanea.getTotalBeneficiarios(),
+                    "total", "beneficiarios", instantanea.getTotalBeneficiarios());
+            salida.fila(() -> "Total autorizados: " + instantanea.getTotalAutorizados(),
+                    "total", "autorizados", instantanea.getTotalAutorizados());
 
-        System.out.printf("Total beneficiarios: %d\nTotal autorizados: %d\n",
-                beneficiarios.size(), autorizadoDAO.obtenerTodos().size());
+            // Estadísticas por región
+            salida.mensaje("\n--- Por Región ---");
+            escribirEstadisticas(salida, "region", instantanea.contarPorRegion(todos));
 
-        // Estadísticas por región
-        System.out.println("\n--- Por Región ---");
-        imprimirEstadisticas(beneficiarios, Beneficiario::getRegion);
+            // Estadísticas por clasificación económica
+            salida.mensaje("\n--- Por Clasificación Económica ---");
+            escribirEstadisticas(salida, "clasificacion", instantanea.contarPorClasificacion(todos));
 
-        // Estadísticas por clasificación económica
-        System.out.println("\n--- Por Clasificación Económica ---");
-        imprimirEstadisticas(beneficiarios, Beneficiario::getClasificacionEconomica);
+            // Estadísticas de elegibilidad
+            salida.mensaje("\n--- Elegibilidad ---");
+            salida.fila(() -> "Elegibles: " + instantanea.getElegibles(),
+                    "elegibilidad", "elegibles", instantanea.getElegibles());
+            salida.fila(() -> "No elegibles: " + instantanea.getNoElegibles(),
+                    "elegibilidad", "no elegibles", instantanea.getNoElegibles());
 
-        // Estadísticas de elegibilidad
-        long elegibles = beneficiarios.stream().filter(Beneficiario::verificarElegibilidad).count();
-        System.out.printf("\n--- Elegibilidad ---\nElegibles: %d\nNo elegibles: %d\n",
-                elegibles, beneficiarios.size() - elegibles);
+            // Elegibles por región: intersección de filtros sin volver a la BD
+            salida.mensaje("\n--- Elegibles por Región ---");
+            escribirEstadisticas(salida, "elegibles_por_region", instantanea.contarPorRegion(instantanea.elegibles()));
+
+            salida.mensaje(String.format("\nInstantánea: %d filas, %.1f MB, construida en %d ms",
+                    instantanea.getTotalBeneficiarios(), instantanea.bytesAproximados() / (1024.0 * 1024.0),
+                    instantanea.getMilisegundosConstruccion()));
+        });
     }
 
     // Metodo auxiliar para estadísticas
-    private <T> void imprimirEstadisticas(List<Beneficiario> beneficiarios,
-                                          java.util.function.Function<Beneficiario, T> clasificador) {
-        beneficiarios.stream()
-                .collect(Collectors.groupingBy(clasificador, Collectors.counting()))
-                .forEach((clave, count) -> System.out.printf("%s: %d beneficiarios\n", clave, count));
+    private void escribirEstadisticas(SalidaReporte salida, String grupo, Map<String, Long> conteos) {
+        conteos.forEach((clave, count) ->
+                salida.fila(() -> clave + ": " + count + " beneficiarios", grupo, clave, count));
     }
 
     @Override
     public String generarReporte() {
-        List<Beneficiario> beneficiarios = beneficiarioDAO.obtenerTodos();
-        long elegibles = beneficiarios.stream().filter(Beneficiario::verificarElegibilidad).count();
+        return LATENCIA_REPORTE_GENERAL.medir(() -> {
+            InstantaneaBeneficiarios instantanea = obtenerInstantanea();
+            if (instantanea == null) {
+                LATENCIA_REPORTE_GENERAL.error();
+                return "No se pudo generar el reporte general: la base no respondió\n";
+            }
+            return formatearReporte(instantanea);
+        });
+    }
 
+    static String formatearReporte(InstantaneaBeneficiarios instantanea) {
         return String.format("""
                 === REPORTE GENERAL DEL SISTEMA ===
                 Total de beneficiarios: %d
@@ -235,10 +793,256 @@ public class SistemaGestion implements Reportable {
                 Beneficiarios elegibles: %d
                 Beneficiarios no elegibles: %d
                 """,
-                beneficiarios.size(),
-                autorizadoDAO.obtenerTodos().size(),
-                elegibles,
-                beneficiarios.size() - elegibles);
+                instantanea.getTotalBeneficiarios(),
+                instantanea.getTotalAutorizados(),
+                instantanea.getElegibles(),
+                instantanea.getNoElegibles());
+    }
+
+    /**
+     * Devuelve la instantánea vigente o la refresca. Estadísticas, alertas y el reporte
+     * general salen de ella. Se invalida con cada escritura hecha desde este sistema y caduca
+     * a los pocos segundos para reflejar cambios de otros operadores; en ambos casos se
+     * refresca aplicando a la anterior solo los beneficiarios modificados desde entonces.
+     * Mientras se lee de la copia local, es la armada desde ella y no se consulta la base.
+     * Devuelve null si hubo que reconstruirla y la lectura falló: una instantánea a medias no
+     * se publica.
+     */
+    public InstantaneaBeneficiarios obtenerInstantanea() {
+        if (archivoLocal != null) {
+            return ultimaInstantanea;
+        }
+        InstantaneaBeneficiarios actual = instantanea;
+        if (actual == null || actual.estaVencida(VIGENCIA_RESUMEN_MS)) {
+            long version = versionDatos();
+            actual = actualizarInstantanea();
+            if (actual == null) {
+                actual = construirInstantanea();
+                if (actual == null) {
+                    return null;
+                }
+            }
+            publicarInstantanea(actual, version);
+        }
+        return actual;
+    }
+
+    /**
+     * Arma la instantánea completa con un único recorrido dentro de una transacción
+     * REPEATABLE READ, así las cifras de una misma instantánea son consistentes entre sí.
+     * La marca del registro de cambios se toma al empezar, para poder actualizarla después.
+     * Devuelve null si falla la lectura.
+     */
+    InstantaneaBeneficiarios construirInstantanea() {
+        long inicio = System.nanoTime();
+        try {
+            return LATENCIA_CONSTRUIR_INSTANTANEA.medir(() -> {
+                InstantaneaBeneficiarios nueva = new InstantaneaBeneficiarios();
+                try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                    conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                    conn.setReadOnly(true);
+                    conn.setAutoCommit(false);
+
+                    String marca = cambiosDAO.marcaActual(conn);
+                    long totalAutorizados = autorizadoDAO.contar(conn);
+                    beneficiarioDAO.recorrerTodos(conn, false, nueva::agregar);
+                    conn.commit();
+
+                    nueva.completar(totalAutorizados, (System.nanoTime() - inicio) / 1_000_000);
+                    nueva.marcar(marca, marca);
+                    return nueva;
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Error al construir la instantánea del sistema: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Instantánea nueva a partir de la última armada y de los beneficiarios modificados desde
+     * su marca; las entradas de esos DNI en la caché se invalidan, por si los cambió otro
+     * operador. El total de autorizados se vuelve a contar solo si hubo cambios en la tabla.
+     * Devuelve null si no hay base, si la base no tiene marca, si hay demasiados cambios
+     * (-Dcontigo.instantanea.maxCambios) o si falla la lectura: entonces hay que reconstruirla.
+     */
+    InstantaneaBeneficiarios actualizarInstantanea() {
+        InstantaneaBeneficiarios base = ultimaInstantanea;
+        if (base == null || base.getMarcaBeneficiarios() == null || base.getMarcaAutorizados() == null) {
+            return null;
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            return LATENCIA_ACTUALIZAR_INSTANTANEA.medir(() -> {
+                List<Beneficiario> cambios = new ArrayList<>();
+                String marcaBeneficiarios = base.getMarcaBeneficiarios();
+                String marcaAutorizados;
+                long totalAutorizados = base.getTotalAutorizados();
+                try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                    Cambios<Beneficiario> tramo;
+                    do {
+                        tramo = cambiosDAO.beneficiariosDesde(conn, marcaBeneficiarios, LIMITE_CAMBIOS);
+                        cambios.addAll(tramo.elementos());
+                        marcaBeneficiarios = tramo.marca();
+                        if (cambios.size() > MAX_CAMBIOS_INSTANTANEA) {
+                            return null;
+                        }
+                    } while (tramo.hayMas());
+
+                    // Basta saber si hubo alguno: la marca se toma antes de contar
+                    Cambios<Autorizado> autorizados = cambiosDAO.autorizadosDesde(conn, base.getMarcaAutorizados(), 1);
+                    marcaAutorizados = autorizados.marca();
+                    if (!autorizados.estaVacio()) {
+                        marcaAutorizados = cambiosDAO.marcaActual(conn);
+                        totalAutorizados = autorizadoDAO.contar(conn);
+                    }
+                }
+
+                beneficiarioDAO.invalidarCache(cambios.stream().map(Beneficiario::getDni).toList());
+                InstantaneaBeneficiarios nueva = base.aplicar(cambios);
+                nueva.completar(totalAutorizados, (System.nanoTime() - inicio) / 1_000_000);
+                nueva.marcar(marcaBeneficiarios, marcaAutorizados);
+                return nueva;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error al actualizar la instantánea del sistema: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Marca actual del registro de cambios, o null si no se pudo leer
+    String marcaActual() {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            return cambiosDAO.marcaActual(conn);
+        } catch (SQLException e) {
+            System.err.println("Error al leer la marca del registro de cambios: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Una escritura que llegó a la base indica que está disponible: se adelanta el próximo intento
+    // de ponerse al día, para dejar cuanto antes de leer de la copia local
+    private synchronized void invalidarResumen() {
+        versionDatos++;
+        instantanea = null;
+        if (archivoLocal != null) {
+            LockSupport.unpark(hiloArchivoLocal);
+        }
+    }
+
+    // La instantánea vigente, o null si hay que reconstruirla
+    InstantaneaBeneficiarios instantaneaVigente() {
+        if (archivoLocal != null) {
+            return ultimaInstantanea;
+        }
+        InstantaneaBeneficiarios actual = instantanea;
+        return actual == null || actual.estaVencida(VIGENCIA_RESUMEN_MS) ? null : actual;
+    }
+
+    synchronized long versionDatos() {
+        return versionDatos;
+    }
+
+    // Publica una instantánea si no hubo escrituras desde que se empezó a leer; en todo caso
+    // queda como base de la próxima actualización, porque su marca corresponde a sus datos
+    synchronized void publicarInstantanea(InstantaneaBeneficiarios nueva, long version) {
+        if (version == versionDatos) {
+            instantanea = nueva;
+        }
+        ultimaInstantanea = nueva;
+    }
+
+    // Mapea la copia local, si existe, y publica la instantánea armada desde ella
+    private void abrirArchivoLocal() {
+        if (!Files.isRegularFile(rutaArchivoLocal)) {
+            return;
+        }
+        try {
+            ArchivoInstantanea archivo = ArchivoInstantanea.abrir(rutaArchivoLocal);
+            publicarInstantanea(archivo.instantanea(), versionDatos());
+            archivoLocal = archivo;
+        } catch (IOException e) {
+            System.err.println("No se pudo abrir la copia local " + rutaArchivoLocal + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Trabajo del hilo de la copia local: aplica a la instantánea los cambios de la base
+     * posteriores a la marca del archivo y recién entonces pasa las lecturas a la base; después
+     * reescribe el archivo para el próximo arranque. Si la base no responde se reintenta cada
+     * -Dcontigo.instantanea.reintentoMs, mientras tanto se sigue leyendo del archivo.
+     */
+    private void ponerAlDiaArchivoLocal() {
+        while (archivoLocal != null && !ponerAlDia()) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(REINTENTO_ARCHIVO_LOCAL_MS));
+        }
+        guardarArchivoLocal();
+    }
+
+    // true si la instantánea quedó al día con la base y se dejó de leer de la copia local
+    boolean ponerAlDia() {
+        long version = versionDatos();
+        InstantaneaBeneficiarios nueva = actualizarInstantanea();
+        if (nueva == null) {
+            nueva = construirInstantanea();
+            if (nueva == null) {
+                return false;
+            }
+        }
+        publicarInstantanea(nueva, version);
+        archivoLocal = null;
+        escritosDesdeArchivo.clear();
+        return true;
+    }
+
+    /**
+     * Vuelca beneficiarios, autorizados y certificados vigentes a la copia local dentro de una
+     * transacción REPEATABLE READ, con la marca del registro de cambios tomada al empezar.
+     * Devuelve false si no hay copia local configurada, si quedan modificaciones diferidas sin
+     * escribir o si falla la lectura o la escritura; en ese caso el archivo anterior queda como estaba. En Windows, reemplazar un archivo que
+     * sigue mapeado puede fallar: se informa y se vuelve a intentar en el próximo arranque.
+     */
+    public boolean guardarArchivoLocal() {
+        if (rutaArchivoLocal == null) {
+            return false;
+        }
+        if (!vaciarAntesDe("el guardado de la copia local")) {
+            return false;
+        }
+        long inicio = System.nanoTime();
+        synchronized (escrituraArchivoLocal) {
+            try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                conn.setReadOnly(true);
+                conn.setAutoCommit(false);
+
+                String marca = cambiosDAO.marcaActual(conn);
+                ArchivoInstantanea.escribir(rutaArchivoLocal, marca, escritor -> {
+                    beneficiarioDAO.recorrerTabla(conn, escritor::agregarBeneficiario);
+                    autorizadoDAO.recorrerTodos(conn, escritor::agregarAutorizado);
+                    certificadoDAO.recorrerVigentes(conn, escritor::agregarCertificado);
+                });
+                conn.commit();
+                return true;
+            } catch (SQLException | IOException e) {
+                LATENCIA_GUARDAR_ARCHIVO_LOCAL.error();
+                System.err.println("Error al guardar la copia local: " + e.getMessage());
+                return false;
+            } finally {
+                LATENCIA_GUARDAR_ARCHIVO_LOCAL.registrar(inicio);
+            }
+        }
+    }
+
+    // Ruta de la copia local, o null si no se configuró
+    public Path getRutaArchivoLocal() {
+        return rutaArchivoLocal;
+    }
+
+    // La copia local mientras se sirven lecturas de ella, o null
+    public ArchivoInstantanea getArchivoLocal() {
+        return archivoLocal;
     }
 
     // Getters optimizados
@@ -254,11 +1058,175 @@ public class SistemaGestion implements Reportable {
         return beneficiarioDAO.buscarPorRegion(region);
     }
 
+    // Registro de cambios para consumidores externos: marca null pide desde el principio
+    public Cambios<Beneficiario> cambiosBeneficiarios(String marca, int limite) {
+        return leerCambios(marca, (conn, desde) -> cambiosDAO.beneficiariosDesde(conn, desde, limite));
+    }
+
+    public Cambios<Autorizado> cambiosAutorizados(String marca, int limite) {
+        return leerCambios(marca, (conn, desde) -> cambiosDAO.autorizadosDesde(conn, desde, limite));
+    }
+
+    public Cambios<Certificado> cambiosCertificados(String marca, int limite) {
+        return leerCambios(marca, (conn, desde) -> cambiosDAO.certificadosDesde(conn, desde, limite));
+    }
+
+    public Cambios<CambiosDAO.RegistroAuditoria> cambiosAuditoria(String marca, int limite) {
+        return leerCambios(marca, (conn, desde) -> cambiosDAO.auditoriaDesde(conn, desde, limite));
+    }
+
+    // Si la lectura falla no hay cambios y la marca no avanza: se reintenta con la misma
+    private <T> Cambios<T> leerCambios(String marca, LecturaCambios<T> lectura) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            return lectura.leer(conn, marca);
+        } catch (SQLException e) {
+            System.err.println("Error al leer el registro de cambios: " + e.getMessage());
+            return new Cambios<>(List.of(), marca, false);
+        }
+    }
+
+    // Listados paginados: token null pide la primera página
+    public Pagina<Beneficiario> paginaBeneficiariosPorRegion(String region, String token) {
+        return beneficiarioDAO.paginaPorRegion(region, token, TAMANO_PAGINA);
+    }
+
+    public Pagina<Autorizado> paginaAutorizados(String token) {
+        return autorizadoDAO.pagina(token, TAMANO_PAGINA);
+    }
+
+    public Pagina<Certificado> paginaCertificados(String token) {
+        return certificadoDAO.pagina(token, TAMANO_PAGINA);
+    }
+
+    public void generarReporteCache() {
+        System.out.println("\n=== ESTADÍSTICAS DE CACHÉ ===");
+        System.out.println(BeneficiarioDAO.getCache().resumen());
+        CertificadoDAO.getCaches().forEach(cache -> System.out.println(cache.resumen()));
+        System.out.println(PadronDAO.getCache().resumen());
+    }
+
+    // Latencias por operación y estado del pool; lo mismo que se publica por JMX
+    public void generarReporteMetricas() {
+        System.out.println("\n=== MÉTRICAS DE RENDIMIENTO ===");
+        String metricas = Metricas.volcar();
+        System.out.print(metricas.isEmpty() ? "Todavía no hay operaciones registradas\n" : metricas);
+        if (actualizaciones != null) {
+            System.out.println("Modificaciones diferidas sin escribir: " + actualizaciones.getPendientes());
+        }
+    }
+
+    public void reiniciarMetricas() {
+        Metricas.reiniciar();
+    }
+
     public void generarReporteFallecidos() {
-        System.out.println("\n=== REPORTE DE BENEFICIARIOS FALLECIDOS ===");
-        List<Beneficiario> fallecidos = beneficiarioDAO.obtenerFallecidos();
-        System.out.printf("Total: %d\n", fallecidos.size());
-        fallecidos.forEach(b -> System.out.printf("- %s (DNI: %s)\n", b.getNombreCompleto(), b.getDni()));
+        try (SalidaReporte salida = new SalidaConsola()) {
+            generarReporteFallecidos(salida);
+        }
+    }
+
+    public void generarReporteFallecidos(SalidaReporte salida) {
+        LATENCIA_REPORTE_FALLECIDOS.medir(() -> {
+            salida.iniciar("REPORTE DE BENEFICIARIOS FALLECIDOS", "dni", "nombre_completo");
+            long[] total = {0};
+            beneficiarioDAO.recorrerFallecidos(b -> {
+                total[0]++;
+                salida.fila(() -> String.format("- %s (DNI: %s)", b.getNombreCompleto(), b.getDni()),
+                        b.getDni(), b.getNombreCompleto());
+            });
+            salida.mensaje("Total: " + total[0]);
+        });
+    }
+
+    public void generarReporteCambios(String consumidor) {
+        try (SalidaReporte salida = new SalidaConsola()) {
+            generarReporteCambios(consumidor, salida);
+        }
+    }
+
+    /**
+     * Lo modificado desde la última vez que el consumidor pidió este reporte: beneficiarios,
+     * autorizados y certificados, y los registros de auditoría de beneficiarios. Las marcas de
+     * cada consumidor quedan en marcas_cambios y se guardan recién al terminar, así un reporte
+     * que falla se repite completo la vez siguiente; la primera vez sale todo el historial.
+     * Las entradas de caché de lo modificado se invalidan al pasar.
+     */
+    public void generarReporteCambios(String consumidor, SalidaReporte salida) {
+        LATENCIA_REPORTE_CAMBIOS.medir(() -> {
+            salida.iniciar("CAMBIOS DESDE LA ÚLTIMA CONSULTA (" + consumidor + ")", "tabla", "clave", "detalle");
+
+            long[] total = {0};
+            EnumMap<CambiosDAO.Tabla, String> marcas = new EnumMap<>(CambiosDAO.Tabla.class);
+            try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                for (CambiosDAO.Tabla tabla : CambiosDAO.Tabla.values()) {
+                    marcas.put(tabla, cambiosDAO.leerMarca(conn, consumidor, tabla));
+                }
+
+                salida.mensaje("\n--- Beneficiarios ---");
+                marcas.put(CambiosDAO.Tabla.BENEFICIARIOS, recorrerCambios(conn, marcas.get(CambiosDAO.Tabla.BENEFICIARIOS),
+                        (c, m) -> cambiosDAO.beneficiariosDesde(c, m, LIMITE_CAMBIOS), b -> {
+                            total[0]++;
+                            BeneficiarioDAO.getCache().invalidar(b.getDni());
+                            String detalle = b.getNombreCompleto() + " - " + b.getRegion() + " - " +
+                                    (!b.isActivo() ? "Dado de baja" : b.verificarElegibilidad() ? "Elegible" : "No elegible");
+                            salida.fila(() -> String.format("- %s (DNI: %s)", detalle, b.getDni()),
+                                    "beneficiarios", b.getDni(), detalle);
+                        }));
+
+                salida.mensaje("\n--- Autorizados ---");
+                marcas.put(CambiosDAO.Tabla.AUTORIZADOS, recorrerCambios(conn, marcas.get(CambiosDAO.Tabla.AUTORIZADOS),
+                        (c, m) -> cambiosDAO.autorizadosDesde(c, m, LIMITE_CAMBIOS), a -> {
+                            total[0]++;
+                            String detalle = a.getNombreCompleto() + " - " + a.getParentesco() + " de " +
+                                    a.getDniBeneficiario() + (a.isAutorizado() ? "" : " (sin autorización)");
+                            salida.fila(() -> String.format("- %s (DNI: %s)", detalle, a.getDni()),
+                                    "autorizados", a.getDni(), detalle);
+                        }));
+
+                salida.mensaje("\n--- Certificados ---");
+                marcas.put(CambiosDAO.Tabla.CERTIFICADOS, recorrerCambios(conn, marcas.get(CambiosDAO.Tabla.CERTIFICADOS),
+                        (c, m) -> cambiosDAO.certificadosDesde(c, m, LIMITE_CAMBIOS), c -> {
+                            total[0]++;
+                            certificadoDAO.invalidarCache(c.getCodigo(), c.getDniPaciente());
+                            String detalle = "Paciente " + c.getDniPaciente() + " - " + c.getGradoDiscapacidad() +
+                                    (c.isVigente() ? "" : " (no vigente)");
+                            salida.fila(() -> String.format("- %s: %s", c.getCodigo(), detalle),
+                                    "certificados", c.getCodigo(), detalle);
+                        }));
+
+                salida.mensaje("\n--- Auditoría de beneficiarios ---");
+                marcas.put(CambiosDAO.Tabla.AUDITORIA, recorrerCambios(conn, marcas.get(CambiosDAO.Tabla.AUDITORIA),
+                        (c, m) -> cambiosDAO.auditoriaDesde(c, m, LIMITE_CAMBIOS), r -> {
+                            total[0]++;
+                            String detalle = String.format("%s %s %s: %s -> %s (%s)", r.dni(), r.accion(),
+                                    r.campoModificado(), r.valorAnterior(), r.valorNuevo(), r.fecha());
+                            salida.fila(() -> "- " + detalle, "auditoria", r.id(), detalle);
+                        }));
+
+                // Sin marca es que todo lo leído es reciente: la próxima vez se empieza igual desde el principio
+                for (CambiosDAO.Tabla tabla : CambiosDAO.Tabla.values()) {
+                    if (marcas.get(tabla) != null) {
+                        cambiosDAO.guardarMarca(conn, consumidor, tabla, marcas.get(tabla));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new LecturaFallida("Error al leer el registro de cambios", e);
+            }
+
+            salida.mensaje("\nTotal de cambios: " + total[0]);
+        });
+    }
+
+    // Recorre el registro de una tabla desde la marca hasta el final y devuelve la marca final
+    private static <T> String recorrerCambios(Connection conn, String marca, LecturaCambios<T> lectura,
+                                              Consumer<T> consumidor) throws SQLException {
+        Cambios<T> tramo;
+        do {
+            tramo = lectura.leer(conn, marca);
+            tramo.elementos().forEach(consumidor);
+            marca = tramo.marca();
+        } while (tramo.hayMas());
+        return marca;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,301 @@
+package services;
+
+import config.DatabaseConnection;
+import config.HistogramaLatencia;
+import config.Metricas;
+import dao.AutorizadoDAO;
+import dao.BeneficiarioDAO;
+import dao.Cambios;
+import dao.CambiosDAO;
+import dao.ElegibilidadDAO;
+import dao.Pagina;
+import models.Autorizado;
+import models.Beneficiario;
+import models.Certificado;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Fachada asíncrona de {@link SistemaGestion}: cada operación devuelve un CompletableFuture
+ * y el trabajo JDBC (bloqueante) corre en un hilo virtual propio, así muchos llamadores se
+ * atienden a la vez sin ocupar un hilo de plataforma por pedido.
+ *
+ * La concurrencia hacia la base está acotada por un semáforo del tamaño del pool de
+ * conexiones (-Dcontigo.async.maxConcurrencia para cambiarlo): las tareas que exceden el
+ * límite esperan estacionadas en su hilo virtual en lugar de acumularse en el pool hasta
+ * agotar su timeout. Solo las tareas hoja toman permiso; las operaciones compuestas
+ * combinan futuros sin retener ninguno, de modo que no pueden bloquearse entre sí.
+ */
+public class SistemaGestionAsincrono implements AutoCloseable {
+    private final SistemaGestion sistema;
+    private final BeneficiarioDAO beneficiarioDAO;
+    private final AutorizadoDAO autorizadoDAO;
+    private final ExecutorService hilos;
+    private final Semaphore permisos;
+    // Reconstrucción de la instantánea en curso, compartida por los pedidos que llegan mientras dura
+    private final AtomicReference<CompletableFuture<InstantaneaBeneficiarios>> reconstruccion = new AtomicReference<>();
+
+    private static final HistogramaLatencia LATENCIA_ESPERA_PERMISO = Metricas.operacion("SistemaGestionAsincrono.esperaPermiso");
+
+    // Estadísticas del sistema en un solo objeto, para devolverlas completas en un futuro
+    public record Estadisticas(long totalBeneficiarios, long totalAutorizados, long elegibles, long noElegibles,
+                               Map<String, Long> porRegion, Map<String, Long> porClasificacion,
+                               Map<String, Long> elegiblesPorRegion) {}
+
+    public SistemaGestionAsincrono(SistemaGestion sistema) {
+        this(sistema, Integer.getInteger("contigo.async.maxConcurrencia",
+                DatabaseConnection.getInstance().getPool().getMaxSize()));
+    }
+
+    public SistemaGestionAsincrono(SistemaGestion sistema, int maxConcurrencia) {
+        if (maxConcurrencia < 1) {
+            throw new IllegalArgumentException("maxConcurrencia debe ser positivo: " + maxConcurrencia);
+        }
+        this.sistema = sistema;
+        this.beneficiarioDAO = new BeneficiarioDAO();
+        this.autorizadoDAO = new AutorizadoDAO();
+        this.hilos = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("contigo-async-", 0).factory());
+        this.permisos = new Semaphore(maxConcurrencia, true);
+    }
+
+    /**
+     * Ejecuta una tarea hoja en un hilo virtual, con un permiso de acceso a la base
+     * tomado durante toda la tarea.
+     */
+    private <T> CompletableFuture<T> enHilo(Supplier<T> tarea) {
+        return CompletableFuture.supplyAsync(() -> {
+            long inicio = System.nanoTime();
+            try {
+                permisos.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            LATENCIA_ESPERA_PERMISO.registrar(inicio);
+            try {
+                return tarea.get();
+            } finally {
+                permisos.release();
+            }
+        }, hilos);
+    }
+
+    // ----- Búsquedas -----
+
+    public CompletableFuture<Beneficiario> buscarBeneficiario(String dni) {
+        return enHilo(() -> sistema.buscarBeneficiario(dni));
+    }
+
+    public CompletableFuture<Autorizado> buscarAutorizado(String dni) {
+        return enHilo(() -> sistema.buscarAutorizado(dni));
+    }
+
+    public CompletableFuture<List<Autorizado>> buscarAutorizadosDe(String dniBeneficiario) {
+        return enHilo(() -> sistema.buscarAutorizadosDe(dniBeneficiario));
+    }
+
+    public CompletableFuture<Map<String, List<Autorizado>>> buscarAutorizadosDe(Collection<String> dnisBeneficiarios) {
+        return enHilo(() -> sistema.buscarAutorizadosDe(dnisBeneficiarios));
+    }
+
+    public CompletableFuture<Certificado> buscarCertificado(String dniPaciente) {
+        return enHilo(() -> sistema.buscarCertificado(dniPaciente));
+    }
+
+    public CompletableFuture<Pagina<Beneficiario>> paginaBeneficiariosPorRegion(String region, String token) {
+        return enHilo(() -> sistema.paginaBeneficiariosPorRegion(region, token));
+    }
+
+    public CompletableFuture<Pagina<Autorizado>> paginaAutorizados(String token) {
+        return enHilo(() -> sistema.paginaAutorizados(token));
+    }
+
+    public CompletableFuture<Pagina<Certificado>> paginaCertificados(String token) {
+        return enHilo(() -> sistema.paginaCertificados(token));
+    }
+
+    public CompletableFuture<Cambios<Beneficiario>> cambiosBeneficiarios(String marca, int limite) {
+        return enHilo(() -> sistema.cambiosBeneficiarios(marca, limite));
+    }
+
+    public CompletableFuture<Cambios<Autorizado>> cambiosAutorizados(String marca, int limite) {
+        return enHilo(() -> sistema.cambiosAutorizados(marca, limite));
+    }
+
+    public CompletableFuture<Cambios<Certificado>> cambiosCertificados(String marca, int limite) {
+        return enHilo(() -> sistema.cambiosCertificados(marca, limite));
+    }
+
+    public CompletableFuture<Cambios<CambiosDAO.RegistroAuditoria>> cambiosAuditoria(String marca, int limite) {
+        return enHilo(() -> sistema.cambiosAuditoria(marca, limite));
+    }
+
+    // ----- Escrituras (SistemaGestion invalida la instantánea en cada una) -----
+
+    public CompletableFuture<Boolean> registrarBeneficiario(Beneficiario beneficiario) {
+        return enHilo(() -> sistema.registrarBeneficiario(beneficiario));
+    }
+
+    public CompletableFuture<Boolean> registrarAutorizado(Autorizado autorizado) {
+        return enHilo(() -> sistema.registrarAutorizado(autorizado));
+    }
+
+    public CompletableFuture<Boolean> registrarCertificado(Certificado certificado) {
+        return enHilo(() -> sistema.registrarCertificado(certificado));
+    }
+
+    public CompletableFuture<Boolean> actualizarBeneficiario(Beneficiario beneficiario) {
+        return enHilo(() -> sistema.actualizarBeneficiario(beneficiario));
+    }
+
+    public CompletableFuture<Boolean> procesarPago(String dni, int numeroPadron) {
+        return enHilo(() -> sistema.procesarPago(dni, numeroPadron));
+    }
+
+    public CompletableFuture<PagoMasivo.Resultado> procesarPadronCompleto(int numeroPadron) {
+        return enHilo(() -> sistema.procesarPadronCompleto(numeroPadron));
+    }
+
+    public CompletableFuture<ElegibilidadDAO.Resultado> reconstruirElegibilidad() {
+        return enHilo(sistema::reconstruirElegibilidad);
+    }
+
+    // ----- Reportes sobre la instantánea -----
+
+    /**
+     * Devuelve la instantánea vigente o la refresca. Primero se intenta aplicar a la anterior
+     * los cambios desde su marca, como en la versión sincrónica; si no se puede, se reconstruye
+     * leyendo en paralelo, cada lectura con su propia conexión: el recorrido de beneficiarios
+     * (una única consulta, consistente por sí misma) y el total de autorizados. A diferencia
+     * de la versión sincrónica, esos dos datos no salen de la misma transacción; son cifras
+     * independientes entre sí. Los pedidos que llegan durante un refresco esperan ese mismo.
+     */
+    public CompletableFuture<InstantaneaBeneficiarios> obtenerInstantanea() {
+        InstantaneaBeneficiarios vigente = sistema.instantaneaVigente();
+        if (vigente != null) {
+            return CompletableFuture.completedFuture(vigente);
+        }
+
+        CompletableFuture<InstantaneaBeneficiarios> nueva = new CompletableFuture<>();
+        CompletableFuture<InstantaneaBeneficiarios> enCurso = reconstruccion.compareAndExchange(null, nueva);
+        if (enCurso != null) {
+            return enCurso;
+        }
+        reconstruirInstantanea().whenComplete((instantanea, error) -> {
+            reconstruccion.set(null);
+            if (error != null) {
+                nueva.completeExceptionally(error);
+            } else {
+                nueva.complete(instantanea);
+            }
+        });
+        return nueva;
+    }
+
+    private CompletableFuture<InstantaneaBeneficiarios> reconstruirInstantanea() {
+        long version = sistema.versionDatos();
+        return enHilo(sistema::actualizarInstantanea).thenCompose(actualizada -> {
+            if (actualizada == null) {
+                return reconstruirCompleta(version);
+            }
+            sistema.publicarInstantanea(actualizada, version);
+            return CompletableFuture.completedFuture(actualizada);
+        });
+    }
+
+    /**
+     * La marca se toma antes de lanzar las dos lecturas, así ninguna puede adelantarse a ella.
+     * Si alguna lectura falla no se publica nada: el futuro termina con el SQLException, y el
+     * próximo pedido vuelve a intentar la reconstrucción.
+     */
+    private CompletableFuture<InstantaneaBeneficiarios> reconstruirCompleta(long version) {
+        long inicio = System.nanoTime();
+        return enHilo(sistema::marcaActual).thenCompose(marca -> {
+            CompletableFuture<Long> autorizados = enHilo(() -> {
+                try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                    return autorizadoDAO.contar(conn);
+                } catch (SQLException e) {
+                    System.err.println("Error al contar autorizados: " + e.getMessage());
+                    throw new CompletionException(e);
+                }
+            });
+            CompletableFuture<InstantaneaBeneficiarios> beneficiarios = enHilo(() -> {
+                InstantaneaBeneficiarios nueva = new InstantaneaBeneficiarios();
+                try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                    beneficiarioDAO.recorrerTodos(conn, false, nueva::agregar);
+                } catch (SQLException e) {
+                    System.err.println("Error al obtener beneficiarios: " + e.getMessage());
+                    throw new CompletionException(e);
+                }
+                nueva.marcar(marca, marca);
+                return nueva;
+            });
+
+            return beneficiarios.thenCombine(autorizados, (nueva, totalAutorizados) -> {
+                nueva.completar(totalAutorizados, (System.nanoTime() - inicio) / 1_000_000);
+                sistema.publicarInstantanea(nueva, version);
+                return nueva;
+            });
+        });
+    }
+
+    public CompletableFuture<String> generarReporte() {
+        return obtenerInstantanea().thenApply(SistemaGestion::formatearReporte);
+    }
+
+    public CompletableFuture<Estadisticas> generarEstadisticas() {
+        return obtenerInstantanea().thenApply(instantanea -> {
+            BitSet todos = instantanea.todos();
+            return new Estadisticas(instantanea.getTotalBeneficiarios(), instantanea.getTotalAutorizados(),
+                    instantanea.getElegibles(), instantanea.getNoElegibles(),
+                    instantanea.contarPorRegion(todos), instantanea.contarPorClasificacion(todos),
+                    instantanea.contarPorRegion(instantanea.elegibles()));
+        });
+    }
+
+    // Cantidad de casos de cada alerta crítica
+    public CompletableFuture<Map<String, Long>> contarAlertas() {
+        return obtenerInstantanea().thenApply(instantanea -> {
+            Map<String, Long> conteos = new LinkedHashMap<>();
+            instantanea.alertas().forEach((descripcion, casos) -> conteos.put(descripcion, instantanea.contar(casos)));
+            return conteos;
+        });
+    }
+
+    public int getPermisosDisponibles() {
+        return permisos.availablePermits();
+    }
+
+    public int getTareasEsperando() {
+        return permisos.getQueueLength();
+    }
+
+    // Deja de aceptar tareas, espera a que terminen las que están en curso y escribe las
+    // modificaciones diferidas que hayan quedado
+    @Override
+    public void close() {
+        hilos.shutdown();
+        try {
+            if (!hilos.awaitTermination(30, TimeUnit.SECONDS)) {
+                hilos.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            hilos.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        sistema.detenerActualizaciones();
+    }
+}
@@ -0,0 +1,107 @@
+package services;
+
+import models.Autorizado;
+import models.Beneficiario;
+import models.Certificado;
+import models.ClasificacionEconomica;
+import models.GradoDiscapacidad;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// La copia local se escribe con ArchivoInstantanea.escribir y se vuelve a leer mapeada
+class ArchivoInstantaneaTest {
+    @TempDir
+    Path directorio;
+
+    @Test
+    void loEscritoSeLeeIgual() throws IOException, SQLException {
+        Beneficiario activo = new Beneficiario("10000001", "Ana", "Quispe", true, false,
+                ClasificacionEconomica.POBRE_EXTREMO, "Cusco");
+        activo.setPensionRecibida(600.50);
+        activo.setPadronesCobrados(0b101);
+        activo.setFechaInscripcion(LocalDate.of(2024, 3, 15));
+        activo.setElegibilidadRegistrada(true);
+        Beneficiario fallecido = new Beneficiario("10000002", "Luis", "Mamani", false, true,
+                ClasificacionEconomica.NO_POBRE, "Puno");
+        fallecido.setActivo(false);
+        Autorizado autorizado = new Autorizado("20000001", "Rosa", "Quispe", "10000001", "hija");
+        Certificado certificado = new Certificado("CERT-001", "10000001", GradoDiscapacidad.SEVERA, true);
+
+        Path ruta = directorio.resolve("copia.bin");
+        ArchivoInstantanea.escribir(ruta, "marca-1", escritor -> {
+            escritor.agregarBeneficiario(activo);
+            escritor.agregarBeneficiario(fallecido);
+            escritor.agregarAutorizado(autorizado);
+            escritor.agregarCertificado(certificado);
+        });
+
+        ArchivoInstantanea archivo = ArchivoInstantanea.abrir(ruta);
+        assertEquals("marca-1", archivo.getMarca());
+        assertEquals(2, archivo.getBeneficiarios());
+        assertEquals(1, archivo.getAutorizados());
+        assertEquals(1, archivo.getCertificados());
+
+        Beneficiario leido = archivo.beneficiario("10000001");
+        assertNotNull(leido);
+        assertEquals("Ana", leido.getNombre());
+        assertEquals("Quispe", leido.getApellido());
+        assertEquals(activo.getRegion(), leido.getRegion());
+        assertEquals(ClasificacionEconomica.POBRE_EXTREMO, leido.getClasificacion());
+        assertTrue(leido.isTieneCertificadoDiscapacidad());
+        assertFalse(leido.isTieneOtrosIngresos());
+        assertEquals(600.50, leido.getPensionRecibida(), 0.001);
+        assertEquals(0b101, leido.getPadronesCobrados());
+        assertEquals(LocalDate.of(2024, 3, 15), leido.getFechaInscripcion());
+        assertEquals(Boolean.TRUE, leido.getElegibilidadRegistrada());
+        assertTrue(leido.isActivo());
+
+        assertFalse(archivo.beneficiario("10000002").isActivo());
+        assertNull(archivo.beneficiario("19999999"));
+
+        Autorizado autorizadoLeido = archivo.autorizado("20000001");
+        assertEquals("Rosa", autorizadoLeido.getNombre());
+        assertEquals("10000001", autorizadoLeido.getDniBeneficiario());
+        assertEquals("hija", autorizadoLeido.getParentesco());
+        assertEquals(List.of("20000001"),
+                archivo.autorizadosDe("10000001").stream().map(Autorizado::getDni).toList());
+
+        Certificado certificadoLeido = archivo.certificado("10000001");
+        assertEquals("CERT-001", certificadoLeido.getCodigo());
+        assertEquals(GradoDiscapacidad.SEVERA, certificadoLeido.getGrado());
+        assertTrue(certificadoLeido.isVigente());
+        assertNull(archivo.certificado("10000002"));
+
+        List<String> activos = new ArrayList<>();
+        archivo.recorrerActivos(b -> activos.add(b.getDni()));
+        assertEquals(List.of("10000001"), activos);
+    }
+
+    @Test
+    void unVolcadoQueFallaNoTocaElArchivoAnterior() throws IOException, SQLException {
+        Path ruta = directorio.resolve("copia.bin");
+        ArchivoInstantanea.escribir(ruta, "marca-1", escritor -> escritor.agregarBeneficiario(
+                new Beneficiario("10000001", "Ana", "Quispe", true, false, ClasificacionEconomica.POBRE, "Lima")));
+        byte[] anterior = Files.readAllBytes(ruta);
+
+        assertThrows(SQLException.class, () -> ArchivoInstantanea.escribir(ruta, "marca-2", escritor -> {
+            escritor.agregarBeneficiario(
+                    new Beneficiario("10000002", "Luis", "Mamani", false, false, ClasificacionEconomica.POBRE, "Puno"));
+            throw new SQLException("La base se cayó a mitad del volcado");
+        }));
+
+        assertArrayEquals(anterior, Files.readAllBytes(ruta));
+        assertEquals("marca-1", ArchivoInstantanea.abrir(ruta).getMarca());
+        try (var archivos = Files.list(directorio)) {
+            assertEquals(List.of(ruta), archivos.toList());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package services;
+
+import dao.BeneficiarioDAO.Columna;
+import models.Beneficiario;
+import models.ClasificacionEconomica;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// El diario de la escritura diferida sobrevive a una caída a mitad de un registro y no se
+// traba con una fila que la base rechaza
+class ColaActualizacionesTest {
+    @TempDir
+    Path directorio;
+
+    // Los lotes que llegaron a la "base"; falla mientras disponible sea false
+    private final AtomicBoolean disponible = new AtomicBoolean(false);
+    private final List<Map<String, EnumMap<Columna, String>>> escritos = Collections.synchronizedList(new ArrayList<>());
+
+    private void escribir(Map<String, EnumMap<Columna, String>> lote) throws SQLException {
+        if (!disponible.get()) {
+            throw new SQLException("Base no disponible");
+        }
+        escritos.add(Map.copyOf(lote));
+    }
+
+    private static Beneficiario beneficiario(String dni) {
+        return new Beneficiario(dni, "Ana", "Quispe", false, false, ClasificacionEconomica.POBRE, "Lima");
+    }
+
+    @Test
+    void recuperaElDiarioYDescartaElRegistroCortado() throws IOException {
+        ColaActualizaciones cola = new ColaActualizaciones(directorio, this::escribir, dnis -> {});
+        Beneficiario primero = beneficiario("10000001");
+        Beneficiario mudado = new Beneficiario(primero);
+        mudado.setRegion("Cusco");
+        assertTrue(cola.encolar(primero, mudado));
+        Beneficiario segundo = beneficiario("10000002");
+        Beneficiario renombrado = new Beneficiario(segundo);
+        renombrado.setNombre("Rosa");
+        assertTrue(cola.encolar(segundo, renombrado));
+        // Con la base caída, cerrar no escribe nada y el diario queda en disco
+        cola.close();
+
+        // El segundo registro es el último del segmento: se corta por la mitad de su CRC
+        Path segmento = segmentos().stream().max(Comparator.comparingLong(ColaActualizacionesTest::tamano)).orElseThrow();
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            canal.truncate(canal.size() - 2);
+        }
+
+        ColaActualizaciones recuperada = new ColaActualizaciones(directorio, this::escribir, dnis -> {});
+        try {
+            assertEquals("Cusco", recuperada.leer("10000001", ColaActualizacionesTest::beneficiario).getRegion());
+            assertEquals("Ana", recuperada.leer("10000002", ColaActualizacionesTest::beneficiario).getNombre());
+
+            disponible.set(true);
+            assertTrue(recuperada.vaciar());
+            assertEquals(List.of(Map.of("10000001", new EnumMap<>(Map.of(Columna.REGION, "Cusco")))), escritos);
+            assertEquals(0, recuperada.getPendientes());
+        } finally {
+            recuperada.close();
+        }
+        assertEquals(List.of(), segmentos());
+    }
+
+    @Test
+    void variasModificacionesDelMismoDniSeEscribenJuntas() throws IOException {
+        ColaActualizaciones cola = new ColaActualizaciones(directorio, this::escribir, dnis -> {});
+        try {
+            Beneficiario original = beneficiario("10000001");
+            Beneficiario mudado = new Beneficiario(original);
+            mudado.setRegion("Cusco");
+            assertTrue(cola.encolar(original, mudado));
+            Beneficiario renombrado = new Beneficiario(mudado);
+            renombrado.setNombre("Rosa");
+            assertTrue(cola.encolar(mudado, renombrado));
+            assertEquals(1, cola.getPendientes());
+
+            disponible.set(true);
+            assertTrue(cola.vaciar());
+            assertEquals(List.of(Map.of("10000001",
+                    new EnumMap<>(Map.of(Columna.REGION, "Cusco", Columna.NOMBRE, "Rosa")))), escritos);
+        } finally {
+            cola.close();
+        }
+    }
+
+    @Test
+    void unaFilaQueLaBaseRechazaNoFrenaAlResto() throws IOException {
+        // La "base" no acepta al 10000009 (como un valor que no entra en la columna)
+        ColaActualizaciones.Destino destino = lote -> {
+            if (lote.containsKey("10000009")) {
+                throw new SQLException("Value too long for column", "22001");
+            }
+            escritos.add(Map.copyOf(lote));
+        };
+        ColaActualizaciones cola = new ColaActualizaciones(directorio, destino, dnis -> {});
+        try {
+            Beneficiario bueno = beneficiario("10000001");
+            Beneficiario mudado = new Beneficiario(bueno);
+            mudado.setRegion("Cusco");
+            assertTrue(cola.encolar(bueno, mudado));
+            Beneficiario malo = beneficiario("10000009");
+            Beneficiario renombrado = new Beneficiario(malo);
+            renombrado.setNombre("Rosa");
+            assertTrue(cola.encolar(malo, renombrado));
+
+            assertTrue(cola.vaciar());
+            assertEquals(0, cola.getPendientes());
+            assertTrue(escritos.stream().anyMatch(lote -> lote.containsKey("10000001")));
+            String rechazados = Files.readString(directorio.resolve("rechazados.csv"));
+            assertTrue(rechazados.contains("10000009,nombre,Rosa"));
+        } finally {
+            cola.close();
+        }
+        assertEquals(List.of(), segmentos());
+
+        // Al reabrir no vuelve a intentarse
+        ColaActualizaciones reabierta = new ColaActualizaciones(directorio, destino, dnis -> {});
+        try {
+            assertEquals(0, reabierta.getPendientes());
+        } finally {
+            reabierta.close();
+        }
+    }
+
+    @Test
+    void rechazaAlEncolarUnValorMasLargoQueLaColumna() throws IOException {
+        ColaActualizaciones cola = new ColaActualizaciones(directorio, this::escribir, dnis -> {});
+        try {
+            Beneficiario original = beneficiario("10000001");
+            Beneficiario renombrado = new Beneficiario(original);
+            renombrado.setNombre("R".repeat(150));
+            assertThrows(IllegalArgumentException.class, () -> cola.encolar(original, renombrado));
+            assertEquals(0, cola.getPendientes());
+        } finally {
+            cola.close();
+        }
+    }
+
+    private List<Path> segmentos() throws IOException {
+        try (var archivos = Files.list(directorio)) {
+            return archivos.filter(p -> p.getFileName().toString().startsWith("pendientes-")).toList();
+        }
+    }
+
+    private static long tamano(Path archivo) {
+        try {
+            return Files.size(archivo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}